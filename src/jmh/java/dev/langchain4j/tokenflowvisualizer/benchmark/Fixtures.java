@@ -0,0 +1,49 @@
+package dev.langchain4j.tokenflowvisualizer.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Recorded upstream payloads for offline benchmarks.
+ */
+final class Fixtures {
+
+    static final String CHAT_COMPLETION = "/fixtures/chat-completion-logprobs-100.json";
+
+    private Fixtures() {
+    }
+
+    /**
+     * The same Jackson configuration Spring Boot applies to the application's mapper.
+     */
+    static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    /**
+     * Returns the recorded chat completion resized to {@code tokens} logprob entries, by
+     * truncating it or repeating its content, serialized exactly as it would arrive.
+     */
+    static byte[] chatCompletion(ObjectMapper objectMapper, int tokens) {
+        try (InputStream in = Fixtures.class.getResourceAsStream(CHAT_COMPLETION)) {
+            ObjectNode response = (ObjectNode) objectMapper.readTree(in);
+            ObjectNode choice = (ObjectNode) response.withArray("choices").get(0);
+            ArrayNode recorded = (ArrayNode) choice.path("logprobs").path("content");
+            ArrayNode resized = objectMapper.createArrayNode();
+            for (int i = 0; i < tokens; i++) {
+                resized.add(recorded.get(i % recorded.size()).deepCopy());
+            }
+            ((ObjectNode) choice.get("logprobs")).set("content", resized);
+            ((ObjectNode) response.get("usage")).put("completion_tokens", tokens);
+            return objectMapper.writeValueAsBytes(response);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load fixture " + CHAT_COMPLETION, e);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package dev.langchain4j.tokenflowvisualizer.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.codec.JsonFrameWriter;
+import dev.langchain4j.tokenflowvisualizer.codec.TokenFrameCodec;
+import dev.langchain4j.tokenflowvisualizer.config.GenerationConfig;
+import dev.langchain4j.tokenflowvisualizer.config.OpenAIConfig;
+import dev.langchain4j.tokenflowvisualizer.config.PacingConfig;
+import dev.langchain4j.tokenflowvisualizer.config.ProvidersConfig;
+import dev.langchain4j.tokenflowvisualizer.config.TraceStoreConfig;
+import dev.langchain4j.tokenflowvisualizer.controller.TokenGenerationController;
+import dev.langchain4j.tokenflowvisualizer.dto.PacingMode;
+import dev.langchain4j.tokenflowvisualizer.dto.TextEncoding;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenGenerationRequest;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsResponse;
+import dev.langchain4j.tokenflowvisualizer.metrics.TokenMetrics;
+import dev.langchain4j.tokenflowvisualizer.service.IncrementalLogprobsParser;
+import dev.langchain4j.tokenflowvisualizer.service.LogprobsMapper;
+import dev.langchain4j.tokenflowvisualizer.service.TokenGenerationService;
+import dev.langchain4j.tokenflowvisualizer.service.GenerationDeadlines;
+import dev.langchain4j.tokenflowvisualizer.service.TokenPacer;
+import dev.langchain4j.tokenflowvisualizer.service.dictionary.TokenDictionaries;
+import dev.langchain4j.tokenflowvisualizer.service.provider.ProviderRegistry;
+import dev.langchain4j.tokenflowvisualizer.service.tracestore.TraceStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.util.Timer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.codec.ServerSentEventHttpMessageWriter;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The parse, transform and serialize hot path, measured on recorded payloads of 10, 100
+ * and 4000 tokens. One operation processes a whole generation; divide by {@code tokens}
+ * for per-token figures. Run with {@code -prof gc} for allocation rates:
+ * <pre>
+ * ./mvnw -Pbenchmarks test-compile exec:exec -Djmh.args="HotPathBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HotPathBenchmark {
+
+    private static final ResolvableType SSE_STRING_TYPE =
+            ResolvableType.forClassWithGenerics(ServerSentEvent.class, String.class);
+
+    private static final int BODY_CHUNK_SIZE = 8192;
+
+    @Param({"10", "100", "4000"})
+    public int tokens;
+
+    private ObjectMapper objectMapper;
+    private byte[] payload;
+    private OpenAILogprobsResponse response;
+    private List<TokenInfo> tokenInfos;
+    private NettyDataBufferFactory bufferFactory;
+    private ServerSentEventHttpMessageWriter sseWriter;
+    private TokenGenerationController controller;
+    private TokenGenerationRequest request;
+    private TokenGenerationRequest dictionaryRequest;
+    private Timer pacingTimer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        objectMapper = Fixtures.objectMapper();
+        payload = Fixtures.chatCompletion(objectMapper, tokens);
+        response = objectMapper.readValue(payload, OpenAILogprobsResponse.class);
+        tokenInfos = LogprobsMapper.toTokenInfos(response);
+        // The pooled factory the server hands to the controller
+        bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+        sseWriter = new ServerSentEventHttpMessageWriter(new Jackson2JsonEncoder(objectMapper));
+
+        OpenAIConfig openAIConfig = new OpenAIConfig();
+        openAIConfig.setModel("gpt-4.1-mini");
+        PacingConfig pacingConfig = new PacingConfig();
+        pacingTimer = pacingConfig.pacingTimer();
+        ProvidersConfig providersConfig = new ProvidersConfig();
+        ProviderRegistry providerRegistry = new ProviderRegistry(
+                List.of(providersConfig.openAIProvider(openAIConfig, WebClient.create(), objectMapper)), providersConfig);
+        // Upstream replaced by the recorded payload: parse and map on every request
+        TokenGenerationService recorded = ignored -> IncrementalLogprobsParser.parse(body(), objectMapper);
+        controller = new TokenGenerationController(recorded,
+                new TokenPacer(pacingTimer, pacingConfig),
+                new TokenMetrics(new SimpleMeterRegistry()),
+                objectMapper,
+                new TokenDictionaries(65536, new SimpleMeterRegistry()),
+                providerRegistry,
+                new TraceStore(new TraceStoreConfig(), objectMapper, new SimpleMeterRegistry()),
+                new GenerationDeadlines(new GenerationConfig()));
+        request = new TokenGenerationRequest();
+        request.setPrompt("The quick brown fox");
+        request.setPacing(PacingMode.NONE);
+        dictionaryRequest = new TokenGenerationRequest();
+        dictionaryRequest.setPrompt(request.getPrompt());
+        dictionaryRequest.setPacing(PacingMode.NONE);
+        dictionaryRequest.setTextEncoding(TextEncoding.DICTIONARY);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pacingTimer.stop();
+    }
+
+    @Benchmark
+    public OpenAILogprobsResponse parseResponse() throws IOException {
+        return objectMapper.readValue(payload, OpenAILogprobsResponse.class);
+    }
+
+    /**
+     * Parsing and mapping as the non-streaming upstream path does it, on the body as it
+     * arrives in 8 KB chunks; compare with {@link #parseResponse()} plus {@link #mapLogprobs()}.
+     */
+    @Benchmark
+    public void parseIncrementally(Blackhole blackhole) {
+        IncrementalLogprobsParser.parse(body(), objectMapper).subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public List<TokenInfo> mapLogprobs() {
+        return LogprobsMapper.toTokenInfos(response);
+    }
+
+    @Benchmark
+    public void serializeTokens(Blackhole blackhole) {
+        for (TokenInfo token : tokenInfos) {
+            blackhole.consume(toJson(token));
+        }
+    }
+
+    @Benchmark
+    public long encodeBinaryFrames() {
+        long bytes = 0;
+        for (TokenInfo token : tokenInfos) {
+            bytes += TokenFrameCodec.encode(token).remaining();
+        }
+        return bytes;
+    }
+
+    /**
+     * Per-token String plus ServerSentEventHttpMessageWriter: how {@code /stream} encoded
+     * frames before {@link JsonFrameWriter}.
+     */
+    @Benchmark
+    public long encodeSseFramesViaString() {
+        return writeSse(Flux.fromIterable(tokenInfos)
+                .map(token -> ServerSentEvent.builder(toJson(token)).build()));
+    }
+
+    @Benchmark
+    public long encodeSseFramesDirect() {
+        return drain(JsonFrameWriter.write(Flux.fromIterable(tokenInfos),
+                JsonFrameWriter.Framing.SSE, objectMapper, bufferFactory));
+    }
+
+    @Benchmark
+    public long requestToFrames(WireSize wireSize) {
+        return wireSize.record(drain(controller.streamFrames(request, bufferFactory)), tokens);
+    }
+
+    @Benchmark
+    public long requestToDictionaryFrames(WireSize wireSize) {
+        return wireSize.record(drain(controller.streamFrames(dictionaryRequest, bufferFactory)), tokens);
+    }
+
+    private long writeSse(Flux<ServerSentEvent<String>> events) {
+        MockServerHttpResponse httpResponse = new MockServerHttpResponse(bufferFactory);
+        sseWriter.write(events, SSE_STRING_TYPE, MediaType.TEXT_EVENT_STREAM, httpResponse, Map.of()).block();
+        return drain(httpResponse.getBody());
+    }
+
+    private static long drain(Flux<DataBuffer> buffers) {
+        return buffers
+                .map(buffer -> {
+                    int size = buffer.readableByteCount();
+                    DataBufferUtils.release(buffer);
+                    return (long) size;
+                })
+                .reduce(0L, Long::sum)
+                .block();
+    }
+
+    // Mirrors TokenGenerationController#tokenToJson
+    private String toJson(TokenInfo token) {
+        try {
+            return objectMapper.writeValueAsString(token);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Flux<DataBuffer> body() {
+        return Flux.range(0, (payload.length + BODY_CHUNK_SIZE - 1) / BODY_CHUNK_SIZE)
+                .map(i -> DefaultDataBufferFactory.sharedInstance.wrap(ByteBuffer.wrap(payload,
+                        i * BODY_CHUNK_SIZE, Math.min(BODY_CHUNK_SIZE, payload.length - i * BODY_CHUNK_SIZE))));
+    }
+
+    /**
+     * Bytes written per token by the last operation, to compare payload sizes.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WireSize {
+        public double wireBytesPerToken;
+
+        long record(long bytes, int tokens) {
+            wireBytesPerToken = (double) bytes / tokens;
+            return bytes;
+        }
+    }
+}
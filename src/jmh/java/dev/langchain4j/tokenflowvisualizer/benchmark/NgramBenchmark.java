@@ -0,0 +1,128 @@
+package dev.langchain4j.tokenflowvisualizer.benchmark;
+
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsRequest;
+import dev.langchain4j.tokenflowvisualizer.service.ngram.NgramModel;
+import dev.langchain4j.tokenflowvisualizer.service.ngram.NgramProvider;
+import dev.langchain4j.tokenflowvisualizer.service.ngram.Softmax;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the in-process n-gram provider, and cost of its softmax against one that
+ * calls {@code Math.exp} per logit.
+ * <p>
+ * {@code generate} reports tokens per second on one thread. {@code bundled} is the
+ * classpath corpus; {@code synthetic} is a Zipf-distributed corpus over 10,000 words, to
+ * show how the per-token passes over the vocabulary scale:
+ * <pre>
+ * ./mvnw -Pbenchmarks test-compile exec:exec -Djmh.args="NgramBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NgramBenchmark {
+
+    private static final int TOKENS = 100;
+
+    @Param({"bundled", "synthetic"})
+    public String corpus;
+
+    @Param({"0.0", "1.0"})
+    public double temperature;
+
+    private NgramProvider provider;
+    private OpenAILogprobsRequest request;
+    private float[] logits;
+    private float[] probabilities;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        NgramModel model = NgramModel.train("bundled".equals(corpus) ? bundledCorpus() : syntheticCorpus(), 3);
+        provider = new NgramProvider("ngram", model, 5);
+        request = OpenAILogprobsRequest.builder()
+                .model(provider.model())
+                .messages(List.of(OpenAILogprobsRequest.Message.builder().role("user").content("The sky is").build()))
+                .temperature(temperature)
+                .topP(0.9)
+                .topK(50)
+                .topLogprobs(5)
+                .maxCompletionTokens(TOKENS)
+                .build();
+        logits = new float[model.vocabularySize()];
+        model.logits(model.encode("The sky is"), 3, logits);
+        probabilities = new float[logits.length];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TOKENS)
+    public TokenInfo generate() {
+        return provider.generate(request).blockLast();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public float[] softmax() {
+        Softmax.softmax(logits, probabilities, logits.length, 0.7f);
+        return probabilities;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public float[] softmaxMathExp() {
+        float max = Float.NEGATIVE_INFINITY;
+        for (float logit : logits) {
+            max = Math.max(max, logit);
+        }
+        float sum = 0;
+        for (int i = 0; i < logits.length; i++) {
+            probabilities[i] = (float) Math.exp((logits[i] - max) / 0.7f);
+            sum += probabilities[i];
+        }
+        for (int i = 0; i < logits.length; i++) {
+            probabilities[i] /= sum;
+        }
+        return probabilities;
+    }
+
+    private static String bundledCorpus() throws IOException {
+        try (InputStream in = NgramBenchmark.class.getResourceAsStream("/ngram/corpus.txt")) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String syntheticCorpus() {
+        SplittableRandom random = new SplittableRandom(42);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 500_000; i++) {
+            // Zipf-like: word w is drawn with probability proportional to 1 / w
+            int word = (int) Math.exp(random.nextDouble() * Math.log(10_000));
+            text.append(" w").append(word);
+        }
+        return text.toString();
+    }
+}
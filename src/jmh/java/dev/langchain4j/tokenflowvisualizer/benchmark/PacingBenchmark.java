@@ -0,0 +1,125 @@
+package dev.langchain4j.tokenflowvisualizer.benchmark;
+
+import com.sun.management.OperatingSystemMXBean;
+import dev.langchain4j.tokenflowvisualizer.config.PacingConfig;
+import dev.langchain4j.tokenflowvisualizer.dto.PacingMode;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.service.TokenPacer;
+import io.netty.util.Timer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces many concurrent token streams at once and compares the shared hashed-wheel
+ * {@link TokenPacer} with one {@code delayElements} timer task per token.
+ * <p>
+ * Each operation runs {@code streams} streams of {@code tokens} tokens to completion, so
+ * the ideal time per operation is {@code (tokens - 1) * intervalMs}. Anything above that
+ * is timer overhead and lateness; {@code cpuMillis} reports the process CPU time spent.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PacingBenchmark {
+
+    @Param({"1000", "10000"})
+    public int streams;
+
+    @Param({"20"})
+    public int tokens;
+
+    @Param({"5"})
+    public long intervalMs;
+
+    @Param({"wheel", "delayElements"})
+    public String pacer;
+
+    private Timer timer;
+    private TokenPacer tokenPacer;
+    private List<TokenInfo> generation;
+    private Duration interval;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PacingConfig config = new PacingConfig();
+        config.setTick(Duration.ofMillis(1));
+        timer = config.pacingTimer();
+        tokenPacer = new TokenPacer(timer, config);
+        interval = Duration.ofMillis(intervalMs);
+        generation = Flux.range(0, tokens)
+                .map(i -> TokenInfo.builder()
+                        .text("token" + i)
+                        .probability(0.5)
+                        .alternatives(List.of())
+                        .timestamp(i * intervalMs)
+                        .build())
+                .collectList()
+                .block();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Benchmark
+    public long paceConcurrentStreams(CpuCounters counters) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(streams);
+        long cpuBefore = counters.processCpuNanos();
+        for (int i = 0; i < streams; i++) {
+            paced().subscribe(null, error -> done.countDown(), done::countDown);
+        }
+        done.await();
+        counters.cpuMillis += TimeUnit.NANOSECONDS.toMillis(counters.processCpuNanos() - cpuBefore);
+        return done.getCount();
+    }
+
+    private Flux<TokenInfo> paced() {
+        Flux<TokenInfo> source = Flux.fromIterable(generation);
+        if ("wheel".equals(pacer)) {
+            return tokenPacer.pace(source, PacingMode.FIXED, interval);
+        }
+        // Baseline: the per-token timer used before the shared wheel existed
+        return source.take(1).concatWith(source.skip(1).delayElements(interval));
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class CpuCounters {
+        private final OperatingSystemMXBean os =
+                (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+        public long cpuMillis;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            cpuMillis = 0;
+        }
+
+        long processCpuNanos() {
+            return os.getProcessCpuTime();
+        }
+    }
+}
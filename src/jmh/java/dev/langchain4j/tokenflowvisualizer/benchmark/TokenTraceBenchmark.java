@@ -0,0 +1,104 @@
+package dev.langchain4j.tokenflowvisualizer.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsResponse;
+import dev.langchain4j.tokenflowvisualizer.service.LogprobsMapper;
+import dev.langchain4j.tokenflowvisualizer.trace.TokenTrace;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Footprint and access cost of a recorded generation held as {@link TokenTrace} versus as
+ * {@link TokenInfo} objects.
+ * <p>
+ * {@code copyTokenInfos} deep-copies the object graph, so its {@code gc.alloc.rate.norm}
+ * under {@code -prof gc} is the retained size of the objects; {@code traceBytesPerToken}
+ * reports the retained size of the trace. Divide the former by {@code tokens} to compare:
+ * <pre>
+ * ./mvnw -Pbenchmarks test-compile exec:exec -Djmh.args="TokenTraceBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenTraceBenchmark {
+
+    @Param({"100", "4000"})
+    public int tokens;
+
+    private List<TokenInfo> tokenInfos;
+    private TokenTrace trace;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Fixtures.objectMapper();
+        byte[] payload = Fixtures.chatCompletion(objectMapper, tokens);
+        tokenInfos = LogprobsMapper.toTokenInfos(objectMapper.readValue(payload, OpenAILogprobsResponse.class));
+        trace = TokenTrace.of(tokenInfos);
+    }
+
+    @Benchmark
+    public TokenTrace buildTrace() {
+        return TokenTrace.of(tokenInfos);
+    }
+
+    @Benchmark
+    public List<TokenInfo> copyTokenInfos() {
+        List<TokenInfo> copy = new ArrayList<>(tokenInfos.size());
+        for (TokenInfo token : tokenInfos) {
+            List<TokenInfo.TokenAlternative> alternatives = new ArrayList<>(token.getAlternatives().size());
+            for (TokenInfo.TokenAlternative alternative : token.getAlternatives()) {
+                alternatives.add(TokenInfo.TokenAlternative.builder()
+                        .text(new String(alternative.getText()))
+                        .probability(alternative.getProbability())
+                        .build());
+            }
+            copy.add(TokenInfo.builder()
+                    .text(new String(token.getText()))
+                    .probability(token.getProbability())
+                    .alternatives(alternatives)
+                    .timestamp(token.getTimestamp())
+                    .build());
+        }
+        return copy;
+    }
+
+    @Benchmark
+    public double sumProbabilities(Footprint footprint) {
+        footprint.traceBytesPerToken = trace.bytesPerToken();
+        double sum = 0;
+        for (int i = 0; i < trace.size(); i++) {
+            sum += trace.probability(i);
+            for (int j = 0; j < trace.alternativeCount(i); j++) {
+                sum += trace.alternativeProbability(i, j);
+            }
+        }
+        return sum;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public double traceBytesPerToken;
+    }
+}
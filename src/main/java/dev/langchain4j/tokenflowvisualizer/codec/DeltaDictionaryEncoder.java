@@ -0,0 +1,63 @@
+package dev.langchain4j.tokenflowvisualizer.codec;
+
+import dev.langchain4j.tokenflowvisualizer.dto.DictionaryToken;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.service.dictionary.TokenDictionary;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Converts the tokens of one stream to {@link DictionaryToken}s, remembering which
+ * dictionary IDs the stream has already sent so every text goes over the wire once.
+ * Not thread-safe; create one per stream.
+ */
+public final class DeltaDictionaryEncoder {
+
+    private final TokenDictionary dictionary;
+    private final BitSet sent = new BitSet();
+
+    public DeltaDictionaryEncoder(TokenDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public DictionaryToken encode(TokenInfo token) {
+        int id = dictionary.id(token.getText());
+        List<DictionaryToken.Alternative> alternatives = null;
+        if (token.getAlternatives() != null) {
+            alternatives = new ArrayList<>(token.getAlternatives().size());
+            for (TokenInfo.TokenAlternative alternative : token.getAlternatives()) {
+                int alternativeId = dictionary.id(alternative.getText());
+                alternatives.add(DictionaryToken.Alternative.builder()
+                        .id(idOrNull(alternativeId))
+                        .text(textUnlessSent(alternativeId, alternative.getText()))
+                        .probability(alternative.getProbability())
+                        .build());
+            }
+        }
+        return DictionaryToken.builder()
+                .id(idOrNull(id))
+                .text(textUnlessSent(id, token.getText()))
+                .probability(token.getProbability())
+                .alternatives(alternatives)
+                .timestamp(token.getTimestamp())
+                .stats(token.getStats())
+                .build();
+    }
+
+    private String textUnlessSent(int id, String text) {
+        if (id == TokenDictionary.NO_ID) {
+            return text;
+        }
+        if (sent.get(id)) {
+            return null;
+        }
+        sent.set(id);
+        return text;
+    }
+
+    private static Integer idOrNull(int id) {
+        return id != TokenDictionary.NO_ID ? id : null;
+    }
+}
@@ -0,0 +1,126 @@
+package dev.langchain4j.tokenflowvisualizer.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import dev.langchain4j.tokenflowvisualizer.exception.TokenGenerationException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serializes a stream of values straight into {@link DataBuffer}s, one framed buffer per
+ * value, without an intermediate {@code String} or {@code byte[]}.
+ * <p>
+ * One Jackson generator is created per stream and reused for every value; it writes
+ * through a small {@link OutputStream} that is pointed at the buffer of the current frame.
+ * With the server's {@code NettyDataBufferFactory} those buffers come from Netty's pool.
+ */
+public final class JsonFrameWriter implements AutoCloseable {
+
+    private static final int INITIAL_FRAME_CAPACITY = 256;
+
+    public enum Framing {
+        /** Server-sent events: {@code data:<json>\n\n}. */
+        SSE("data:", "\n\n"),
+        /** Newline-delimited JSON: {@code <json>\n}. */
+        NDJSON("", "\n"),
+        /** One value per WebSocket message, which delimits it: {@code <json>}. */
+        MESSAGE("", "");
+
+        private final byte[] prefix;
+        private final byte[] suffix;
+
+        Framing(String prefix, String suffix) {
+            this.prefix = prefix.getBytes(StandardCharsets.UTF_8);
+            this.suffix = suffix.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private final Framing framing;
+    private final DataBufferFactory bufferFactory;
+    private final ObjectWriter objectWriter;
+    private final BufferOutputStream output = new BufferOutputStream();
+    private final JsonGenerator generator;
+
+    public JsonFrameWriter(Framing framing, ObjectMapper objectMapper, DataBufferFactory bufferFactory) {
+        this.framing = framing;
+        this.bufferFactory = bufferFactory;
+        this.objectWriter = objectMapper.writer();
+        try {
+            this.generator = objectMapper.getFactory().createGenerator(output);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot create JSON generator", e);
+        }
+        // Frames are delimited by the framing, not by Jackson's root value separator
+        this.generator.setRootValueSeparator(null);
+    }
+
+    /**
+     * Encodes every value of {@code values} into its own frame. The generator lives as long
+     * as the subscription.
+     */
+    public static Flux<DataBuffer> write(Flux<?> values, Framing framing, ObjectMapper objectMapper,
+                                         DataBufferFactory bufferFactory) {
+        return Flux.using(() -> new JsonFrameWriter(framing, objectMapper, bufferFactory),
+                writer -> values.map(writer::write),
+                JsonFrameWriter::close)
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    /**
+     * Serializes one value into a new buffer; the caller owns (and must release) the result.
+     */
+    public DataBuffer write(Object value) {
+        DataBuffer buffer = bufferFactory.allocateBuffer(INITIAL_FRAME_CAPACITY);
+        output.target = buffer;
+        try {
+            buffer.write(framing.prefix);
+            objectWriter.writeValue(generator, value);
+            generator.flush();
+            buffer.write(framing.suffix);
+            return buffer;
+        } catch (IOException | RuntimeException e) {
+            DataBufferUtils.release(buffer);
+            throw TokenGenerationException.serializationFailed(e);
+        } finally {
+            output.target = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            generator.close();
+        } catch (IOException e) {
+            // Nothing is left to flush: every frame was flushed when it was written
+        }
+    }
+
+    /**
+     * Forwards the generator's output to the buffer of the frame being written. Output
+     * outside of a frame, such as the remains of a failed value on close, is dropped.
+     */
+    private static final class BufferOutputStream extends OutputStream {
+        private DataBuffer target;
+
+        @Override
+        public void write(int b) {
+            if (target != null) {
+                target.write((byte) b);
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            if (target != null) {
+                target.write(bytes, offset, length);
+            }
+        }
+    }
+}
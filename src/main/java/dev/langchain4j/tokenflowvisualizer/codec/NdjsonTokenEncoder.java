@@ -0,0 +1,58 @@
+package dev.langchain4j.tokenflowvisualizer.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageEncoder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes {@link TokenInfo} streams as newline-delimited JSON through a {@link JsonFrameWriter},
+ * taking precedence over the general purpose Jackson encoder for this one type.
+ */
+public class NdjsonTokenEncoder implements HttpMessageEncoder<TokenInfo> {
+
+    private final ObjectMapper objectMapper;
+
+    public NdjsonTokenEncoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+        return mimeType != null && MediaType.APPLICATION_NDJSON.isCompatibleWith(mimeType)
+                && TokenInfo.class.isAssignableFrom(elementType.toClass());
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<? extends TokenInfo> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+        return JsonFrameWriter.write(Flux.from(inputStream), JsonFrameWriter.Framing.NDJSON, objectMapper, bufferFactory);
+    }
+
+    @Override
+    public DataBuffer encodeValue(TokenInfo token, DataBufferFactory bufferFactory,
+                                  ResolvableType valueType, MimeType mimeType, Map<String, Object> hints) {
+        try (JsonFrameWriter writer = new JsonFrameWriter(JsonFrameWriter.Framing.NDJSON, objectMapper, bufferFactory)) {
+            return writer.write(token);
+        }
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return List.of(MediaType.APPLICATION_NDJSON);
+    }
+
+    @Override
+    public List<MediaType> getStreamingMediaTypes() {
+        return List.of(MediaType.APPLICATION_NDJSON);
+    }
+}
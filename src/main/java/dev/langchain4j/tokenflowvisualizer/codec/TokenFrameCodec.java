@@ -0,0 +1,130 @@
+package dev.langchain4j.tokenflowvisualizer.codec;
+
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenStats;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of a {@link TokenInfo}, one length-prefixed frame per token.
+ * All numbers are big-endian:
+ * <pre>
+ * uint32  frame length, excluding this field
+ * uint16  text length, then the text as UTF-8
+ * float32 probability
+ * int64   timestamp (epoch millis)
+ * uint8   number of alternatives, then for each:
+ *         uint16 text length, UTF-8 text, float32 probability
+ * uint8   flags, only when a flag is set
+ *         FLAG_STATS: float32 surprisal, entropy, residual mass, margin and perplexity
+ * </pre>
+ * Frames without {@link TokenInfo#getStats() stats} end after the alternatives, and
+ * decoders skip to the frame length, so older readers ignore the optional block.
+ */
+public final class TokenFrameCodec {
+
+    public static final int MAX_ALTERNATIVES = 255;
+    public static final int FLAG_STATS = 1;
+    private static final int STATS_BYTES = 5 * Float.BYTES;
+    private static final int MAX_TEXT_BYTES = 0xFFFF;
+
+    private TokenFrameCodec() {
+    }
+
+    public static ByteBuffer encode(TokenInfo token) {
+        byte[] text = utf8(token.getText());
+        List<TokenInfo.TokenAlternative> alternatives = token.getAlternatives() != null
+                ? token.getAlternatives()
+                : List.of();
+        int count = Math.min(alternatives.size(), MAX_ALTERNATIVES);
+
+        byte[][] alternativeTexts = new byte[count][];
+        int length = Short.BYTES + text.length + Float.BYTES + Long.BYTES + Byte.BYTES;
+        for (int i = 0; i < count; i++) {
+            alternativeTexts[i] = utf8(alternatives.get(i).getText());
+            length += Short.BYTES + alternativeTexts[i].length + Float.BYTES;
+        }
+        TokenStats stats = token.getStats();
+        if (stats != null) {
+            length += Byte.BYTES + STATS_BYTES;
+        }
+
+        ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES + length)
+                .putInt(length)
+                .putShort((short) text.length)
+                .put(text)
+                .putFloat((float) token.getProbability())
+                .putLong(token.getTimestamp())
+                .put((byte) count);
+        for (int i = 0; i < count; i++) {
+            frame.putShort((short) alternativeTexts[i].length)
+                    .put(alternativeTexts[i])
+                    .putFloat((float) alternatives.get(i).getProbability());
+        }
+        if (stats != null) {
+            frame.put((byte) FLAG_STATS)
+                    .putFloat((float) stats.getSurprisal())
+                    .putFloat((float) stats.getEntropy())
+                    .putFloat((float) stats.getResidualMass())
+                    .putFloat((float) stats.getMargin())
+                    .putFloat((float) stats.getPerplexity());
+        }
+        return frame.flip();
+    }
+
+    /**
+     * Reads the frame at the buffer's position and advances past it.
+     */
+    public static TokenInfo decode(ByteBuffer frame) {
+        int end = frame.getInt() + frame.position();
+        String text = readText(frame);
+        double probability = frame.getFloat();
+        long timestamp = frame.getLong();
+        int count = Byte.toUnsignedInt(frame.get());
+        List<TokenInfo.TokenAlternative> alternatives = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            alternatives.add(TokenInfo.TokenAlternative.builder()
+                    .text(readText(frame))
+                    .probability(frame.getFloat())
+                    .build());
+        }
+        int flags = frame.position() < end ? Byte.toUnsignedInt(frame.get()) : 0;
+        TokenStats stats = (flags & FLAG_STATS) != 0
+                ? TokenStats.builder()
+                        .surprisal(frame.getFloat())
+                        .entropy(frame.getFloat())
+                        .residualMass(frame.getFloat())
+                        .margin(frame.getFloat())
+                        .perplexity(frame.getFloat())
+                        .build()
+                : null;
+        frame.position(end);
+        return TokenInfo.builder()
+                .text(text)
+                .probability(probability)
+                .alternatives(alternatives)
+                .timestamp(timestamp)
+                .stats(stats)
+                .build();
+    }
+
+    private static byte[] utf8(String text) {
+        if (text == null) {
+            return new byte[0];
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_TEXT_BYTES) {
+            throw new IllegalArgumentException("Token text exceeds " + MAX_TEXT_BYTES + " bytes");
+        }
+        return bytes;
+    }
+
+    private static String readText(ByteBuffer frame) {
+        byte[] bytes = new byte[Short.toUnsignedInt(frame.getShort())];
+        frame.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
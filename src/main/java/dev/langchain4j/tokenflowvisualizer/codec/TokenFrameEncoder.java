@@ -0,0 +1,53 @@
+package dev.langchain4j.tokenflowvisualizer.codec;
+
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageEncoder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes {@link TokenInfo} streams as {@link TokenFrameCodec} frames when the client asks
+ * for {@value #MEDIA_TYPE_VALUE}. Each token is flushed as soon as it is encoded.
+ */
+public class TokenFrameEncoder implements HttpMessageEncoder<TokenInfo> {
+
+    public static final String MEDIA_TYPE_VALUE = "application/vnd.probescope.tokens";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+        return mimeType != null && MEDIA_TYPE.isCompatibleWith(mimeType)
+                && TokenInfo.class.isAssignableFrom(elementType.toClass());
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<? extends TokenInfo> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+        return Flux.from(inputStream)
+                .map(token -> encodeValue(token, bufferFactory, elementType, mimeType, hints));
+    }
+
+    @Override
+    public DataBuffer encodeValue(TokenInfo token, DataBufferFactory bufferFactory,
+                                  ResolvableType valueType, MimeType mimeType, Map<String, Object> hints) {
+        return bufferFactory.wrap(TokenFrameCodec.encode(token));
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return List.of(MEDIA_TYPE);
+    }
+
+    @Override
+    public List<MediaType> getStreamingMediaTypes() {
+        return List.of(MEDIA_TYPE);
+    }
+}
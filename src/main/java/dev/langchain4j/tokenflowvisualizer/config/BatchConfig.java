@@ -0,0 +1,17 @@
+package dev.langchain4j.tokenflowvisualizer.config;
+
+import dev.langchain4j.tokenflowvisualizer.dto.BatchOrder;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "token.batch")
+@Data
+public class BatchConfig {
+    /** Generations of one batch in flight at once when the request does not say. */
+    private int defaultConcurrency = 32;
+    /** Upper bound on the concurrency a request may ask for; keep within the upstream pool. */
+    private int maxConcurrency = 256;
+    private BatchOrder defaultOrder = BatchOrder.COMPLETION;
+}
@@ -0,0 +1,17 @@
+package dev.langchain4j.tokenflowvisualizer.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "token.branching")
+@Data
+public class BranchingConfig {
+    /** Branches of one fan-out generated at once when the request does not say. */
+    private int defaultConcurrency = 5;
+    /** Upper bound on the concurrency a request may ask for. */
+    private int maxConcurrency = 16;
+    /** Token trees kept in memory; the least recently used tree is dropped beyond this. */
+    private int maxTrees = 256;
+}
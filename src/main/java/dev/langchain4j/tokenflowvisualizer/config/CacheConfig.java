@@ -0,0 +1,34 @@
+package dev.langchain4j.tokenflowvisualizer.config;
+
+import dev.langchain4j.tokenflowvisualizer.dto.CachePolicy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "token.cache")
+@Data
+public class CacheConfig {
+    private CachePolicy defaultPolicy = CachePolicy.DETERMINISTIC;
+    private Heap heap = new Heap();
+    private Disk disk = new Disk();
+
+    @Data
+    public static class Heap {
+        private boolean enabled = true;
+        private DataSize maxSize = DataSize.ofMegabytes(64);
+        private Duration ttl = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class Disk {
+        private boolean enabled;
+        private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "probescope-cache");
+        private DataSize maxSize = DataSize.ofMegabytes(512);
+        private Duration ttl = Duration.ofDays(7);
+    }
+}
@@ -0,0 +1,21 @@
+package dev.langchain4j.tokenflowvisualizer.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.convert.DurationUnit;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+
+@Configuration
+@ConfigurationProperties(prefix = "token.generation")
+@Data
+public class GenerationConfig {
+    /**
+     * Longest a generation may take, from the upstream call to its last paced token. A
+     * request can ask for less, never for more. Plain numbers are seconds.
+     */
+    @DurationUnit(ChronoUnit.SECONDS)
+    private Duration timeout = Duration.ofSeconds(100);
+}
@@ -1,23 +1,179 @@
 package dev.langchain4j.tokenflowvisualizer.config;
 
 import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import dev.langchain4j.tokenflowvisualizer.service.ratelimit.UpstreamRateLimiter;
+import dev.langchain4j.tokenflowvisualizer.service.resilience.UpstreamCircuitBreaker;
+import dev.langchain4j.tokenflowvisualizer.service.resilience.UpstreamHedger;
+import io.netty.channel.ChannelOption;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.function.Function;
 
 @Configuration
 @ConfigurationProperties(prefix = "openai")
 @Data
 public class OpenAIConfig {
     private String apiKey;
+    private String baseUrl = "https://api.openai.com/v1";
     private String model;
     private double temperature = 1.0;
     private int maxTokens;
+    /**
+     * When enabled, completions are requested with {@code stream: true} and tokens are
+     * emitted as soon as their chunk arrives instead of after the whole response.
+     */
+    private boolean streaming;
+    private Http http = new Http();
+    private RateLimit rateLimit = new RateLimit();
+    private Hedging hedging = new Hedging();
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    /**
+     * Connection pool and transport settings for the upstream {@link WebClient}.
+     */
+    @Data
+    public static class Http {
+        private int maxConnections = 500;
+        private int pendingAcquireMaxCount = 1000;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(10);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictInBackground = Duration.ofSeconds(30);
+        private Duration connectTimeout = Duration.ofSeconds(5);
+        private boolean keepAlive = true;
+        private boolean http2;
+        private boolean compress = true;
+        /** Initialise event loops, DNS resolver and TLS at startup instead of on the first request. */
+        private boolean warmup = true;
+        /** Publish pool and client metrics (active, idle, pending acquires, acquire latency). */
+        private boolean metrics = true;
+    }
+
+    /**
+     * Client-side admission control for upstream calls, see {@link UpstreamRateLimiter}.
+     * The limits are starting points; the provider's rate limit headers take over once
+     * the first response arrives.
+     */
+    @Data
+    public static class RateLimit {
+        private boolean enabled = true;
+        private int requestsPerMinute = 5000;
+        private int tokensPerMinute = 2_000_000;
+        /** Longest a call may queue for budget before it fails instead. */
+        private Duration maxWait = Duration.ofSeconds(10);
+        /** Retries of a call answered with 429 or 5xx. */
+        private int maxRetries = 3;
+        private Duration initialBackoff = Duration.ofMillis(500);
+        private Duration maxBackoff = Duration.ofSeconds(10);
+        /** Fraction of each backoff that is randomised, so retries of many callers spread out. */
+        private double jitter = 0.5;
+    }
+
+    /**
+     * Hedged upstream calls, see {@link UpstreamHedger}.
+     */
+    @Data
+    public static class Hedging {
+        private boolean enabled;
+        /** Fixed hedge delay; when absent the delay follows the observed time to first token. */
+        private Duration delay;
+        /** Percentile of the time to first token used as the adaptive delay. */
+        private double percentile = 0.95;
+        /** Floor of the adaptive delay. */
+        private Duration minDelay = Duration.ofMillis(200);
+        /** Adaptive delay until enough calls have been seen. */
+        private Duration initialDelay = Duration.ofSeconds(2);
+        /** Calls observed before the adaptive delay is trusted. */
+        private int minSamples = 20;
+        /** Largest fraction of calls that may be hedged, which bounds the extra upstream cost. */
+        private double maxRate = 0.05;
+    }
+
+    /**
+     * Fails upstream calls fast while the upstream is failing, see {@link UpstreamCircuitBreaker}.
+     */
+    @Data
+    public static class CircuitBreaker {
+        private boolean enabled = true;
+        /** Outcomes of the most recent calls the failure rate is computed over. */
+        private int windowSize = 50;
+        /** Calls in the window before the breaker may open. */
+        private int minimumCalls = 20;
+        private double failureRateThreshold = 0.5;
+        /** How long the breaker stays open before letting trial calls through. */
+        private Duration openDuration = Duration.ofSeconds(30);
+        /** Trial calls that must all succeed to close the breaker again. */
+        private int halfOpenCalls = 3;
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider openAIConnectionProvider() {
+        return ConnectionProvider.builder("openai")
+                .maxConnections(http.getMaxConnections())
+                .pendingAcquireMaxCount(http.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(http.getPendingAcquireTimeout())
+                .maxIdleTime(http.getMaxIdleTime())
+                .maxLifeTime(http.getMaxLifeTime())
+                .evictInBackground(http.getEvictInBackground())
+                .metrics(http.isMetrics())
+                .lifo()
+                .build();
+    }
+
+    @Bean
+    public WebClient openAIWebClient(WebClient.Builder webClientBuilder, ConnectionProvider openAIConnectionProvider,
+                                     UpstreamRateLimiter upstreamRateLimiter) {
+        HttpClient httpClient = HttpClient.create(openAIConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) http.getConnectTimeout().toMillis())
+                .keepAlive(http.isKeepAlive())
+                .compress(http.isCompress())
+                .metrics(http.isMetrics(), Function.identity());
+        if (http.isHttp2()) {
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+        if (http.isWarmup()) {
+            httpClient.warmup().block();
+        }
+
+        return webClientBuilder
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(upstreamRateLimiter)
+                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .build();
+    }
 
     @Bean
     public OpenAiChatModel openAiChatModel() {
         return OpenAiChatModel.builder()
+                .baseUrl(baseUrl)
+                .apiKey(apiKey)
+                .modelName(model)
+                .temperature(temperature)
+                .build();
+    }
+
+    /**
+     * Streaming counterpart of {@link #openAiChatModel()}, used by the {@code langchain4j}
+     * token provider.
+     */
+    @Bean
+    public OpenAiStreamingChatModel openAiStreamingChatModel() {
+        return OpenAiStreamingChatModel.builder()
+                .baseUrl(baseUrl)
                 .apiKey(apiKey)
                 .modelName(model)
                 .temperature(temperature)
@@ -0,0 +1,34 @@
+package dev.langchain4j.tokenflowvisualizer.config;
+
+import dev.langchain4j.tokenflowvisualizer.dto.PacingMode;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@ConfigurationProperties(prefix = "token.pacing")
+@Data
+public class PacingConfig {
+    private PacingMode defaultMode = PacingMode.FIXED;
+    private Duration defaultInterval = Duration.ofMillis(250);
+    /** Resolution of the shared pacing timer; tokens due within the same tick are released together. */
+    private Duration tick = Duration.ofMillis(10);
+    private int ticksPerWheel = 512;
+
+    /**
+     * Single hashed-wheel timer shared by every paced stream, so pacing costs one
+     * bucket insertion per token instead of one scheduled task on the parallel scheduler.
+     */
+    @Bean(destroyMethod = "stop")
+    public Timer pacingTimer() {
+        return new HashedWheelTimer(new DefaultThreadFactory("token-pacing", true),
+                tick.toNanos(), TimeUnit.NANOSECONDS, ticksPerWheel);
+    }
+}
@@ -0,0 +1,122 @@
+package dev.langchain4j.tokenflowvisualizer.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.tokenflowvisualizer.dto.ProviderCapabilities;
+import dev.langchain4j.tokenflowvisualizer.service.ngram.NgramModel;
+import dev.langchain4j.tokenflowvisualizer.service.ngram.NgramProvider;
+import dev.langchain4j.tokenflowvisualizer.service.provider.LangChain4jStreamingProvider;
+import dev.langchain4j.tokenflowvisualizer.service.provider.OpenAICompatibleProvider;
+import dev.langchain4j.tokenflowvisualizer.service.provider.TokenProvider;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The token providers requests can choose from with {@code provider}, see
+ * {@link TokenProvider}. {@code openai} is always registered; the others are switched on
+ * or off by property, for example from a profile.
+ */
+@Slf4j
+@Configuration
+@ConfigurationProperties(prefix = "token.providers")
+@Data
+public class ProvidersConfig {
+    /** Provider of requests that name none. */
+    private String defaultProvider = "openai";
+    private OpenAICompatible openaiCompatible = new OpenAICompatible();
+    private LangChain4j langchain4j = new LangChain4j();
+    private Ngram ngram = new Ngram();
+
+    /**
+     * A local or self-hosted server speaking the OpenAI chat completions protocol with
+     * logprobs, such as vLLM or llama.cpp.
+     */
+    @Data
+    public static class OpenAICompatible {
+        private boolean enabled;
+        private String baseUrl = "http://localhost:8000/v1";
+        /** Sent as a bearer token when set. */
+        private String apiKey;
+        private String model;
+        /** Largest {@code top_logprobs} the server accepts. */
+        private int maxAlternatives = 5;
+    }
+
+    /**
+     * OpenAI through langchain4j's streaming chat model, without logprobs.
+     */
+    @Data
+    public static class LangChain4j {
+        private boolean enabled = true;
+    }
+
+    /**
+     * An n-gram model trained at startup from a local corpus, generating in-process
+     * without network access.
+     */
+    @Data
+    public static class Ngram {
+        private boolean enabled = true;
+        /** Text the model is trained from, as a Spring resource location. */
+        private String corpus = "classpath:ngram/corpus.txt";
+        private int order = 3;
+        private int maxAlternatives = 20;
+    }
+
+    @Bean
+    public TokenProvider openAIProvider(OpenAIConfig openAIConfig, WebClient openAIWebClient,
+                                        ObjectMapper objectMapper) {
+        return new OpenAICompatibleProvider("openai", openAIConfig.getModel(),
+                ProviderCapabilities.builder()
+                        .logprobs(true)
+                        .maxAlternatives(5)
+                        .streaming(openAIConfig.isStreaming())
+                        .build(),
+                openAIWebClient, objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "token.providers.openai-compatible", name = "enabled")
+    public TokenProvider openAICompatibleProvider(WebClient.Builder webClientBuilder, OpenAIConfig openAIConfig,
+                                                  ObjectMapper objectMapper) {
+        WebClient.Builder builder = webClientBuilder.clone()
+                .baseUrl(openaiCompatible.getBaseUrl())
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        if (openaiCompatible.getApiKey() != null && !openaiCompatible.getApiKey().isBlank()) {
+            builder.defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + openaiCompatible.getApiKey());
+        }
+        return new OpenAICompatibleProvider("openai-compatible", openaiCompatible.getModel(),
+                ProviderCapabilities.builder()
+                        .logprobs(true)
+                        .maxAlternatives(openaiCompatible.getMaxAlternatives())
+                        .streaming(openAIConfig.isStreaming())
+                        .build(),
+                builder.build(), objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "token.providers.langchain4j", name = "enabled", matchIfMissing = true)
+    public TokenProvider langChain4jProvider(OpenAIConfig openAIConfig, StreamingChatModel openAiStreamingChatModel) {
+        return new LangChain4jStreamingProvider("langchain4j", openAIConfig.getModel(), openAiStreamingChatModel);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "token.providers.ngram", name = "enabled", matchIfMissing = true)
+    public TokenProvider ngramProvider(ResourceLoader resourceLoader) throws IOException {
+        String corpus = resourceLoader.getResource(ngram.getCorpus()).getContentAsString(StandardCharsets.UTF_8);
+        NgramModel model = NgramModel.train(corpus, ngram.getOrder());
+        log.info("Trained {}-gram model with {} tokens from {}", model.order(), model.vocabularySize(), ngram.getCorpus());
+        return new NgramProvider("ngram", model, ngram.getMaxAlternatives());
+    }
+}
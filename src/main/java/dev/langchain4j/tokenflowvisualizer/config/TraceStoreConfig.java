@@ -0,0 +1,27 @@
+package dev.langchain4j.tokenflowvisualizer.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "token.trace-store")
+@Data
+public class TraceStoreConfig {
+    private boolean enabled;
+    private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "probescope-traces");
+    /** Size of one mapped segment file; a full segment is sealed and a new one started. */
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+    /** Oldest segments are dropped once all segments together are larger than this. */
+    private DataSize maxSize = DataSize.ofGigabytes(1);
+    /** Segments whose newest trace is older than this are dropped. */
+    private Duration retention = Duration.ofDays(7);
+    /** How often retention and compaction run besides whenever a segment fills. */
+    private Duration maintenanceInterval = Duration.ofMinutes(10);
+    /** Sealed segments with less than this share of live bytes are compacted into the active one. */
+    private double compactionThreshold = 0.5;
+}
@@ -1,15 +1,28 @@
 package dev.langchain4j.tokenflowvisualizer.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.codec.NdjsonTokenEncoder;
+import dev.langchain4j.tokenflowvisualizer.codec.TokenFrameEncoder;
+import dev.langchain4j.tokenflowvisualizer.controller.TraceReplayController;
+import dev.langchain4j.tokenflowvisualizer.service.tracestore.TraceStore;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.ServerCodecConfigurer;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.reactive.CorsWebFilter;
 import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
 
 import java.util.Arrays;
 
 @Configuration
-public class WebConfig {
+public class WebConfig implements WebFluxConfigurer {
+
+    private final ObjectMapper objectMapper;
+
+    public WebConfig(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
 
     @Bean
     public CorsWebFilter corsWebFilter() {
@@ -28,8 +41,9 @@ public class WebConfig {
         // Allow all headers, especially for SSE
         corsConfig.setAllowedHeaders(Arrays.asList("*"));
         
-        // Expose headers needed for SSE
-        corsConfig.setExposedHeaders(Arrays.asList("Content-Type", "X-Content-Type-Options"));
+        // Expose headers needed for SSE, and the trace headers so the frontend can replay streams
+        corsConfig.setExposedHeaders(Arrays.asList("Content-Type", "X-Content-Type-Options",
+            TraceStore.TRACE_ID_HEADER, TraceReplayController.TRACE_TOKENS_HEADER));
         
         // Allow credentials
         corsConfig.setAllowCredentials(true);
@@ -42,4 +56,12 @@ public class WebConfig {
 
         return new CorsWebFilter(source);
     }
+
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        // Binary token frames, negotiated on /api/tokens via the Accept header
+        configurer.customCodecs().register(new TokenFrameEncoder());
+        // NDJSON tokens written straight into response buffers
+        configurer.customCodecs().register(new NdjsonTokenEncoder(objectMapper));
+    }
 }
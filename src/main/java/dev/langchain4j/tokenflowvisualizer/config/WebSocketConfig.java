@@ -0,0 +1,29 @@
+package dev.langchain4j.tokenflowvisualizer.config;
+
+import dev.langchain4j.tokenflowvisualizer.controller.TokenSessionHandler;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Maps the multiplexed WebSocket endpoint, see {@link TokenSessionHandler}. The handshake
+ * is a plain GET, so the CORS origins of {@link WebConfig} apply to it as well.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "token.websocket")
+@Data
+public class WebSocketConfig {
+    /** Generations one connection may run at once; each session runs at most one. */
+    private int maxSessions = 64;
+
+    @Bean
+    public HandlerMapping tokenSessionHandlerMapping(TokenSessionHandler tokenSessionHandler) {
+        // Ahead of the annotated controllers, which would otherwise claim /api/tokens/**
+        return new SimpleUrlHandlerMapping(Map.of(TokenSessionHandler.PATH, tokenSessionHandler), -1);
+    }
+}
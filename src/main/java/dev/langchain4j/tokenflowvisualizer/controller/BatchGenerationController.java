@@ -0,0 +1,99 @@
+package dev.langchain4j.tokenflowvisualizer.controller;
+
+import dev.langchain4j.tokenflowvisualizer.config.BatchConfig;
+import dev.langchain4j.tokenflowvisualizer.dto.BatchGenerationResult;
+import dev.langchain4j.tokenflowvisualizer.dto.BatchOrder;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenGenerationRequest;
+import dev.langchain4j.tokenflowvisualizer.metrics.TokenMetrics;
+import dev.langchain4j.tokenflowvisualizer.service.GenerationDeadlines;
+import dev.langchain4j.tokenflowvisualizer.service.TokenGenerationService;
+import dev.langchain4j.tokenflowvisualizer.service.provider.ProviderRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.time.Duration;
+
+/**
+ * Runs many generations in one request for offline jobs such as evaluations. Requests are
+ * read as a JSON array or as newline-delimited JSON and fanned out to the
+ * {@link TokenGenerationService} with bounded concurrency, without pacing. Each result is
+ * written as one NDJSON line tagged with the index of its request; a failed generation
+ * becomes a result carrying its error and does not end the batch. The generation
+ * deadline applies to each generation on its own, not to the whole batch.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/tokens")
+@RequiredArgsConstructor
+public class BatchGenerationController {
+    private final TokenGenerationService tokenGenerationService;
+    private final TokenMetrics tokenMetrics;
+    private final BatchConfig batchConfig;
+    private final GenerationDeadlines generationDeadlines;
+    private final ProviderRegistry providerRegistry;
+
+    @PostMapping(path = "/batch",
+        consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+        produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchGenerationResult> generateBatch(@RequestBody Flux<TokenGenerationRequest> requests,
+                                                     @RequestParam(required = false) Integer concurrency,
+                                                     @RequestParam(required = false) BatchOrder order,
+                                                     @RequestHeader(name = GenerationDeadlines.TIMEOUT_HEADER, required = false) Long timeoutMs) {
+        int maxConcurrency = concurrency(concurrency);
+        BatchOrder resultOrder = order != null ? order : batchConfig.getDefaultOrder();
+        Duration timeout = generationDeadlines.timeout(timeoutMs);
+        log.info("Received batch request: concurrency={}, order={}, timeout={}", maxConcurrency, resultOrder, timeout);
+
+        Flux<Tuple2<Long, TokenGenerationRequest>> indexed = requests.index();
+        // Both request only as many items as they can run, so a large streamed body is
+        // read while results go out rather than up front
+        return resultOrder == BatchOrder.INPUT
+            ? indexed.flatMapSequential(item -> generate(item, timeout), maxConcurrency)
+            : indexed.flatMap(item -> generate(item, timeout), maxConcurrency);
+    }
+
+    private Mono<BatchGenerationResult> generate(Tuple2<Long, TokenGenerationRequest> indexed, Duration timeout) {
+        long index = indexed.getT1();
+        TokenGenerationRequest request = indexed.getT2();
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            // Resolved on subscription, so an unknown provider fails this item only
+            return Flux.defer(() -> tokenMetrics.instrumentStream(
+                    generationDeadlines.enforce(Flux.defer(() -> tokenGenerationService.generateTokens(request)), timeout),
+                    TokenMetrics.ENDPOINT_BATCH, providerRegistry.resolve(request.getProvider())))
+                .collectList()
+                .map(tokens -> BatchGenerationResult.builder()
+                    .index(index)
+                    .tokens(tokens)
+                    .durationMs(elapsedMillis(start))
+                    .build())
+                .onErrorResume(error -> {
+                    log.warn("Batch item {} failed: {}", index, error.toString());
+                    return Mono.just(BatchGenerationResult.builder()
+                        .index(index)
+                        .error(error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName())
+                        .durationMs(elapsedMillis(start))
+                        .build());
+                });
+        });
+    }
+
+    private int concurrency(Integer requested) {
+        int value = requested != null ? requested : batchConfig.getDefaultConcurrency();
+        return Math.max(1, Math.min(value, batchConfig.getMaxConcurrency()));
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,32 @@
+package dev.langchain4j.tokenflowvisualizer.controller;
+
+import dev.langchain4j.tokenflowvisualizer.dto.BranchRequest;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenTreeNode;
+import dev.langchain4j.tokenflowvisualizer.service.branching.BranchExplorer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * "What if the model had picked this instead": forks a generation at one token and
+ * returns the token tree of everything explored from the prompt so far.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/tokens")
+@RequiredArgsConstructor
+public class BranchingController {
+    private final BranchExplorer branchExplorer;
+
+    @PostMapping(path = "/branch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<TokenTreeNode> branch(@RequestBody BranchRequest request) {
+        log.info("Received branch request: position={}, alternative={}",
+            request.getPosition(), request.getAlternative());
+        return branchExplorer.explore(request);
+    }
+}
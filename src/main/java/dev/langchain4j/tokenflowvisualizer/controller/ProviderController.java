@@ -0,0 +1,27 @@
+package dev.langchain4j.tokenflowvisualizer.controller;
+
+import dev.langchain4j.tokenflowvisualizer.dto.ProviderInfo;
+import dev.langchain4j.tokenflowvisualizer.service.provider.ProviderRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Lists the token providers a request can name, with what each of them can report.
+ */
+@RestController
+@RequestMapping("/api/providers")
+@RequiredArgsConstructor
+public class ProviderController {
+
+    private final ProviderRegistry providerRegistry;
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<ProviderInfo> providers() {
+        return providerRegistry.describe();
+    }
+}
@@ -0,0 +1,28 @@
+package dev.langchain4j.tokenflowvisualizer.controller;
+
+import dev.langchain4j.tokenflowvisualizer.dto.ResampleRequest;
+import dev.langchain4j.tokenflowvisualizer.dto.ResampleResponse;
+import dev.langchain4j.tokenflowvisualizer.service.sampling.ResamplingEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * "What if" exploration of a generation the client already has: shows how its
+ * distributions and picks change under other sampling parameters, without an upstream call.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/tokens")
+public class ResamplingController {
+
+    @PostMapping(path = "/resample", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResampleResponse resample(@RequestBody ResampleRequest request) {
+        log.debug("Resampling {} tokens: temp={}, topK={}, topP={}", request.getTokens() != null
+            ? request.getTokens().size() : 0, request.getTemperature(), request.getTopK(), request.getTopP());
+        return ResamplingEngine.resample(request);
+    }
+}
@@ -1,15 +1,33 @@
 package dev.langchain4j.tokenflowvisualizer.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.codec.DeltaDictionaryEncoder;
+import dev.langchain4j.tokenflowvisualizer.codec.JsonFrameWriter;
+import dev.langchain4j.tokenflowvisualizer.codec.TokenFrameEncoder;
+import dev.langchain4j.tokenflowvisualizer.dto.TextEncoding;
 import dev.langchain4j.tokenflowvisualizer.dto.TokenGenerationRequest;
 import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.metrics.TokenMetrics;
+import dev.langchain4j.tokenflowvisualizer.service.GenerationDeadlines;
 import dev.langchain4j.tokenflowvisualizer.service.TokenGenerationService;
+import dev.langchain4j.tokenflowvisualizer.service.TokenPacer;
+import dev.langchain4j.tokenflowvisualizer.service.dictionary.TokenDictionaries;
+import dev.langchain4j.tokenflowvisualizer.service.provider.ProviderRegistry;
+import dev.langchain4j.tokenflowvisualizer.service.provider.TokenProvider;
+import dev.langchain4j.tokenflowvisualizer.service.stats.TokenStatistics;
+import dev.langchain4j.tokenflowvisualizer.service.tracestore.TraceStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.MediaType;
-import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
 import java.util.List;
 
 @Slf4j
@@ -18,31 +36,82 @@ import java.util.List;
 @RequiredArgsConstructor
 public class TokenGenerationController {
     private final TokenGenerationService tokenGenerationService;
+    private final TokenPacer tokenPacer;
+    private final TokenMetrics tokenMetrics;
     private final ObjectMapper objectMapper;
+    private final TokenDictionaries tokenDictionaries;
+    private final ProviderRegistry providerRegistry;
+    private final TraceStore traceStore;
+    private final GenerationDeadlines generationDeadlines;
 
-    @PostMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
-    public Flux<TokenInfo> generateTokens(@RequestBody TokenGenerationRequest request) {
-        return tokenGenerationService.generateTokens(
-            request.getPrompt(),
-            request.getTemperature(),
-            request.getTopK(),
-            request.getTopP()
-        );
+    @PostMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, TokenFrameEncoder.MEDIA_TYPE_VALUE})
+    public Flux<TokenInfo> generateTokens(@RequestBody TokenGenerationRequest request,
+                                          @RequestHeader(name = GenerationDeadlines.TIMEOUT_HEADER, required = false) Long timeoutMs,
+                                          ServerHttpResponse response) {
+        TokenProvider provider = providerRegistry.resolve(request.getProvider());
+        return tokenMetrics.instrumentStream(
+            generationDeadlines.enforce(tokenPacer.pace(withStats(recorded(request, response), request), request),
+                timeoutMs),
+            TokenMetrics.ENDPOINT_TOKENS, provider);
     }
 
     @PostMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<ServerSentEvent<String>> streamTokens(@RequestBody TokenGenerationRequest request) {
-        log.info("Received streaming request: prompt='{}', temp={}, topK={}, topP={}", 
-            request.getPrompt(), request.getTemperature(), request.getTopK(), request.getTopP());
-        
-        return tokenGenerationService.generateTokens(
-            request.getPrompt(),
-            request.getTemperature(),
-            request.getTopK(),
-            request.getTopP()
-        )
-        .doOnNext(token -> log.info("Emitting token: {}", token.getText()))
-        .map(token -> ServerSentEvent.builder(tokenToJson(token)).build())
+    public Mono<Void> streamTokens(@RequestBody TokenGenerationRequest request,
+                                   @RequestHeader(name = GenerationDeadlines.TIMEOUT_HEADER, required = false) Long timeoutMs,
+                                   ServerHttpResponse response) {
+        log.info("Received streaming request: prompt='{}', temp={}, topK={}, topP={}, pacing={}", 
+            request.getPrompt(), request.getTemperature(), request.getTopK(), request.getTopP(), request.getPacing());
+
+        TokenProvider provider = providerRegistry.resolve(request.getProvider());
+        response.getHeaders().setContentType(MediaType.TEXT_EVENT_STREAM);
+        return response.writeAndFlushWith(
+            streamFrames(recorded(request, response), provider, request, timeoutMs, response.bufferFactory())
+                .map(Mono::just));
+    }
+
+    /**
+     * The server-sent events of {@code /stream}, each serialized by a {@link JsonFrameWriter}
+     * straight into a buffer from {@code bufferFactory}, within the configured deadline.
+     */
+    public Flux<DataBuffer> streamFrames(TokenGenerationRequest request, DataBufferFactory bufferFactory) {
+        return streamFrames(tokenGenerationService.generateTokens(request), providerRegistry.resolve(request.getProvider()),
+            request, null, bufferFactory);
+    }
+
+    /**
+     * The generation, stored in the {@link TraceStore} once complete under an id sent in
+     * the {@value TraceStore#TRACE_ID_HEADER} header, so it can be replayed later.
+     */
+    private Flux<TokenInfo> recorded(TokenGenerationRequest request, ServerHttpResponse response) {
+        Flux<TokenInfo> tokens = tokenGenerationService.generateTokens(request);
+        if (!traceStore.isEnabled()) {
+            return tokens;
+        }
+        String traceId = traceStore.newTraceId();
+        response.getHeaders().set(TraceStore.TRACE_ID_HEADER, traceId);
+        return traceStore.recordInto(traceId, tokens);
+    }
+
+    /**
+     * The tokens with their {@link TokenStatistics} when the request asks for them. Traces
+     * are recorded before, so replays carry no statistics.
+     */
+    private static Flux<TokenInfo> withStats(Flux<TokenInfo> tokens, TokenGenerationRequest request) {
+        return Boolean.TRUE.equals(request.getStats()) ? TokenStatistics.enrich(tokens) : tokens;
+    }
+
+    private Flux<DataBuffer> streamFrames(Flux<TokenInfo> generated, TokenProvider provider, TokenGenerationRequest request,
+                                          Long timeoutMs, DataBufferFactory bufferFactory) {
+        Flux<TokenInfo> tokens = tokenMetrics.instrumentStream(
+            generationDeadlines.enforce(tokenPacer.pace(withStats(generated, request), request), timeoutMs),
+            TokenMetrics.ENDPOINT_STREAM, provider)
+        .doOnNext(token -> log.info("Emitting token: {}", token.getText()));
+
+        return Flux.using(() -> new JsonFrameWriter(JsonFrameWriter.Framing.SSE, objectMapper, bufferFactory),
+            writer -> batch(encode(tokens, provider, request), request)
+                .map(value -> tokenMetrics.timeSerialization(() -> writer.write(value), TokenMetrics.ENDPOINT_STREAM, provider)),
+            JsonFrameWriter::close)
+        .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
         .doOnError(error -> log.error("Error during token streaming", error))
         .doOnComplete(() -> log.info("Token streaming completed"))
         .doOnCancel(() -> log.info("Token streaming cancelled"));
@@ -51,7 +120,7 @@ public class TokenGenerationController {
     @GetMapping(path = "/test-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<String> testStream() {
         log.info("Test stream endpoint called");
-        return Flux.interval(java.time.Duration.ofSeconds(1))
+        return Flux.interval(Duration.ofSeconds(1))
             .take(5)
             .map(i -> {
                 TokenInfo token = TokenInfo.builder()
@@ -68,6 +137,40 @@ public class TokenGenerationController {
             .doOnNext(data -> log.info("Sending test data: {}", data));
     }
     
+    /**
+     * The tokens themselves, or with {@link TextEncoding#DICTIONARY} their dictionary form
+     * from an encoder that lives as long as the stream. The dictionary is the one of the
+     * provider's model, which the service interned the texts into.
+     */
+    private Flux<?> encode(Flux<TokenInfo> tokens, TokenProvider provider, TokenGenerationRequest request) {
+        if (request.getTextEncoding() != TextEncoding.DICTIONARY) {
+            return tokens;
+        }
+        return Flux.defer(() -> {
+            DeltaDictionaryEncoder encoder =
+                new DeltaDictionaryEncoder(tokenDictionaries.forModel(provider.model()));
+            return tokens.map(encoder::encode);
+        });
+    }
+
+    /**
+     * Tokens one by one, or, when the request opts into batching, lists of tokens that are
+     * sent as one event carrying a JSON array. Batches are flushed when full, when the oldest
+     * token has waited {@code maxBatchDelayMs}, and on completion.
+     */
+    private static Flux<?> batch(Flux<?> tokens, TokenGenerationRequest request) {
+        Integer maxBatchSize = request.getMaxBatchSize();
+        Long maxBatchDelayMs = request.getMaxBatchDelayMs();
+        if ((maxBatchSize == null || maxBatchSize <= 1) && maxBatchDelayMs == null) {
+            return tokens;
+        }
+
+        return maxBatchDelayMs == null
+            ? tokens.buffer(maxBatchSize)
+            : tokens.bufferTimeout(maxBatchSize != null && maxBatchSize > 0 ? maxBatchSize : Integer.MAX_VALUE,
+                Duration.ofMillis(Math.max(1, maxBatchDelayMs)));
+    }
+
     private String tokenToJson(TokenInfo token) {
         try {
             return objectMapper.writeValueAsString(token);
@@ -76,4 +179,4 @@ public class TokenGenerationController {
             return "{}";
         }
     }
-}
\ No newline at end of file
+}
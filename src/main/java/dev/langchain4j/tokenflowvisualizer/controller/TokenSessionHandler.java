@@ -0,0 +1,255 @@
+package dev.langchain4j.tokenflowvisualizer.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.codec.JsonFrameWriter;
+import dev.langchain4j.tokenflowvisualizer.config.WebSocketConfig;
+import dev.langchain4j.tokenflowvisualizer.dto.SessionCommand;
+import dev.langchain4j.tokenflowvisualizer.dto.SessionEvent;
+import dev.langchain4j.tokenflowvisualizer.dto.SessionMessage;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenGenerationRequest;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.metrics.TokenMetrics;
+import dev.langchain4j.tokenflowvisualizer.service.GenerationDeadlines;
+import dev.langchain4j.tokenflowvisualizer.service.TokenGenerationService;
+import dev.langchain4j.tokenflowvisualizer.service.TokenPacer;
+import dev.langchain4j.tokenflowvisualizer.service.provider.ProviderRegistry;
+import dev.langchain4j.tokenflowvisualizer.service.stats.TokenStatistics;
+import dev.langchain4j.tokenflowvisualizer.service.tracestore.TraceStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Multiplexes many generation sessions over one WebSocket connection, so an interactive
+ * client pays for one handshake instead of one HTTP request per generation.
+ * <p>
+ * Every message is a JSON {@link SessionMessage} or {@link SessionEvent} tagged with a
+ * client-chosen session id. A session keeps its parameters between generations and runs
+ * one generation at a time; the generations of different sessions run concurrently and
+ * their events are interleaved on the connection. Generations are paced, recorded,
+ * measured and bounded by the configured deadline like those of {@code /api/tokens/stream};
+ * time spent paused counts towards the deadline.
+ * <p>
+ * Commands are handled in the order they arrive. Cancelling a generation, or closing the
+ * connection, cancels its upstream call at once; pausing stops requesting tokens from it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TokenSessionHandler implements WebSocketHandler {
+    public static final String PATH = TokenMetrics.ENDPOINT_SESSIONS;
+
+    private final TokenGenerationService tokenGenerationService;
+    private final TokenPacer tokenPacer;
+    private final TokenMetrics tokenMetrics;
+    private final ObjectMapper objectMapper;
+    private final TraceStore traceStore;
+    private final WebSocketConfig webSocketConfig;
+    private final GenerationDeadlines generationDeadlines;
+    private final ProviderRegistry providerRegistry;
+
+    @Override
+    public Mono<Void> handle(WebSocketSession connection) {
+        log.info("Opened session connection {}", connection.getId());
+        Map<String, Session> sessions = new ConcurrentHashMap<>();
+        AtomicInteger generating = new AtomicInteger();
+        Flux<SessionEvent> events = connection.receive()
+            .map(WebSocketMessage::getPayloadAsText)
+            // Commands change session state as they are mapped, so they take effect in order
+            .flatMap(message -> dispatch(message, sessions, generating), Integer.MAX_VALUE)
+            .takeUntilOther(connection.closeStatus());
+
+        return connection.send(JsonFrameWriter.write(events, JsonFrameWriter.Framing.MESSAGE, objectMapper,
+                connection.bufferFactory())
+            .map(frame -> new WebSocketMessage(WebSocketMessage.Type.TEXT, frame)))
+            .doFinally(signal -> log.info("Closed session connection {} with {} sessions", connection.getId(),
+                sessions.size()));
+    }
+
+    private Flux<SessionEvent> dispatch(String text, Map<String, Session> sessions, AtomicInteger generating) {
+        SessionMessage message;
+        try {
+            message = objectMapper.readValue(text, SessionMessage.class);
+        } catch (JsonProcessingException e) {
+            return Flux.just(SessionEvent.error(null, "Unreadable message: " + e.getOriginalMessage()));
+        }
+        String id = message.getSession();
+        if (id == null || message.getType() == null) {
+            return Flux.just(SessionEvent.error(id, "Messages need a type and a session"));
+        }
+
+        Session session = sessions.get(id);
+        if (session == null) {
+            if (message.getType() != SessionCommand.START && message.getType() != SessionCommand.UPDATE) {
+                return Flux.just(SessionEvent.error(id, "Unknown session"));
+            }
+            session = new Session(generating);
+            sessions.put(id, session);
+        }
+        Generation running = session.running.get();
+
+        return switch (message.getType()) {
+            case START -> {
+                if (running != null) {
+                    yield Flux.just(SessionEvent.error(id, "Session is already generating"));
+                }
+                // Only running generations count, so idle sessions never lock a connection out
+                if (generating.get() >= webSocketConfig.getMaxSessions()) {
+                    yield Flux.just(SessionEvent.error(id,
+                        "Connection already runs " + webSocketConfig.getMaxSessions() + " generations"));
+                }
+                yield start(id, session, message);
+            }
+            case UPDATE -> update(session, message)
+                ? Flux.just(SessionEvent.of(SessionEvent.Type.UPDATED, id))
+                : Flux.just(SessionEvent.error(id, "Invalid request parameters"));
+            case PAUSE -> running == null
+                ? Flux.just(SessionEvent.error(id, "Session is not generating"))
+                : Flux.just(running.pause(true, id));
+            case RESUME -> running == null
+                ? Flux.just(SessionEvent.error(id, "Session is not generating"))
+                : Flux.just(running.pause(false, id));
+            case CANCEL -> {
+                if (running == null) {
+                    yield Flux.just(SessionEvent.error(id, "Session is not generating"));
+                }
+                // The generation itself reports CANCELLED once its tokens have stopped
+                running.cancel();
+                yield Flux.empty();
+            }
+            case END -> {
+                sessions.remove(id);
+                if (running != null) {
+                    running.cancel();
+                    // Frees its place at once rather than when its tokens have stopped
+                    session.finish(running);
+                }
+                yield Flux.just(SessionEvent.of(SessionEvent.Type.ENDED, id));
+            }
+        };
+    }
+
+    private Flux<SessionEvent> start(String id, Session session, SessionMessage message) {
+        if (!update(session, message)) {
+            return Flux.just(SessionEvent.error(id, "Invalid request parameters"));
+        }
+        TokenGenerationRequest request = objectMapper.convertValue(session.parameters, TokenGenerationRequest.class);
+        Generation generation = new Generation();
+        session.begin(generation);
+        log.info("Starting session {}: prompt='{}', temp={}, topK={}, topP={}", id, request.getPrompt(),
+            request.getTemperature(), request.getTopK(), request.getTopP());
+
+        String traceId = traceStore.isEnabled() ? traceStore.newTraceId() : null;
+        Flux<TokenInfo> tokens = Flux.defer(() -> tokenGenerationService.generateTokens(request));
+        if (traceId != null) {
+            tokens = traceStore.recordInto(traceId, tokens);
+        }
+        if (Boolean.TRUE.equals(request.getStats())) {
+            tokens = TokenStatistics.enrich(tokens);
+        }
+        Flux<TokenInfo> paced = generationDeadlines.enforce(tokenPacer.pace(tokens, request));
+        // Resolved on subscription, so an unknown provider fails this session only
+        Flux<SessionEvent> tokenEvents = Flux.defer(() -> tokenMetrics.instrumentStream(paced,
+                TokenMetrics.ENDPOINT_SESSIONS, providerRegistry.resolve(request.getProvider())))
+            // One token at a time, so a paused session stops requesting from upstream
+            .concatMap(token -> generation.whenRunning().thenReturn(token), 1)
+            .map(token -> SessionEvent.builder().type(SessionEvent.Type.TOKEN).session(id).token(token).build())
+            .takeUntilOther(generation.cancelled.asMono());
+
+        return Flux.just(SessionEvent.builder().type(SessionEvent.Type.STARTED).session(id).traceId(traceId).build())
+            .concatWith(tokenEvents)
+            .concatWith(Mono.fromSupplier(() -> SessionEvent.of(
+                session.finish(generation) ? SessionEvent.Type.CANCELLED : SessionEvent.Type.COMPLETE, id)))
+            .onErrorResume(error -> {
+                log.warn("Session {} failed", id, error);
+                session.finish(generation);
+                return Mono.just(SessionEvent.error(id, error.getMessage()));
+            })
+            .doFinally(signal -> session.finish(generation));
+    }
+
+    /** Applies the parameters sent with {@code message} to the session; false if they are invalid. */
+    private boolean update(Session session, SessionMessage message) {
+        if (message.getRequest() == null) {
+            return true;
+        }
+        try {
+            TokenGenerationRequest updated = objectMapper.convertValue(session.parameters, TokenGenerationRequest.class);
+            objectMapper.readerForUpdating(updated).readValue(message.getRequest());
+            session.parameters = updated;
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * One client session: its parameters and the generation it is running, if any, counted
+     * in the generations running on its connection.
+     */
+    private static final class Session {
+        private volatile TokenGenerationRequest parameters = new TokenGenerationRequest();
+        private final AtomicReference<Generation> running = new AtomicReference<>();
+        private final AtomicInteger generating;
+
+        Session(AtomicInteger generating) {
+            this.generating = generating;
+        }
+
+        void begin(Generation generation) {
+            running.set(generation);
+            generating.incrementAndGet();
+        }
+
+        /**
+         * Ends {@code generation} if it is still the running one, before its last event is
+         * sent so that the client may start the next one straight away; returns whether it
+         * was cancelled.
+         */
+        boolean finish(Generation generation) {
+            if (running.compareAndSet(generation, null)) {
+                generating.decrementAndGet();
+            }
+            return generation.isCancelled();
+        }
+    }
+
+    /** Controls of one running generation, only ever signalled from the connection's inbound. */
+    private static final class Generation {
+        private final Sinks.One<Boolean> cancelled = Sinks.one();
+        private final Sinks.Many<Boolean> paused = Sinks.many().replay().latestOrDefault(false);
+        private volatile boolean wasCancelled;
+
+        void cancel() {
+            wasCancelled = true;
+            cancelled.tryEmitValue(true);
+        }
+
+        boolean isCancelled() {
+            return wasCancelled;
+        }
+
+        SessionEvent pause(boolean pause, String id) {
+            paused.tryEmitNext(pause);
+            return SessionEvent.of(pause ? SessionEvent.Type.PAUSED : SessionEvent.Type.RESUMED, id);
+        }
+
+        /** Completes at once while running, or as soon as the generation is resumed. */
+        Mono<Boolean> whenRunning() {
+            return paused.asFlux().filter(isPaused -> !isPaused).next();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package dev.langchain4j.tokenflowvisualizer.controller;
+
+import dev.langchain4j.tokenflowvisualizer.dto.PacingMode;
+import dev.langchain4j.tokenflowvisualizer.service.TokenPacer;
+import dev.langchain4j.tokenflowvisualizer.service.tracestore.StoredTrace;
+import dev.langchain4j.tokenflowvisualizer.service.tracestore.TraceStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ZeroCopyHttpOutputMessage;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Replays generations kept by the {@link TraceStore} as NDJSON, from any token and at any
+ * pace, without calling upstream. Unpaced replays are sent straight from the segment
+ * file with {@code sendfile} where the server supports it; paced replays send each
+ * token's frame as a view of the mapped file.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/traces")
+@RequiredArgsConstructor
+public class TraceReplayController {
+    public static final String TRACE_TOKENS_HEADER = "X-Trace-Tokens";
+
+    private final TraceStore traceStore;
+    private final TokenPacer tokenPacer;
+
+    @GetMapping(path = "/{traceId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<Void> replay(@PathVariable String traceId,
+                             @RequestParam(defaultValue = "0") int from,
+                             @RequestParam(required = false) PacingMode pacing,
+                             @RequestParam(required = false) Long pacingIntervalMs,
+                             ServerHttpResponse response) {
+        log.info("Replaying trace {} from token {}, pacing={}", traceId, from, pacing);
+        return Mono.defer(() -> {
+            StoredTrace stored = traceStore.open(traceId);
+            if (stored == null) {
+                response.setStatusCode(HttpStatus.NOT_FOUND);
+                return response.setComplete();
+            }
+            return Mono.usingWhen(Mono.just(stored),
+                trace -> replay(trace, from, tokenPacer.mode(pacing), pacingIntervalMs, response),
+                trace -> Mono.fromRunnable(trace::close));
+        });
+    }
+
+    @DeleteMapping("/{traceId}")
+    public Mono<Void> delete(@PathVariable String traceId, ServerHttpResponse response) {
+        response.setStatusCode(traceStore.delete(traceId) ? HttpStatus.NO_CONTENT : HttpStatus.NOT_FOUND);
+        return response.setComplete();
+    }
+
+    private Mono<Void> replay(StoredTrace trace, int from, PacingMode pacing, Long pacingIntervalMs,
+                              ServerHttpResponse response) {
+        if (from < 0 || from > trace.size()) {
+            response.setStatusCode(HttpStatus.BAD_REQUEST);
+            return response.setComplete();
+        }
+        response.getHeaders().setContentType(MediaType.APPLICATION_NDJSON);
+        response.getHeaders().set(TRACE_TOKENS_HEADER, Integer.toString(trace.size()));
+
+        if (pacing == PacingMode.NONE && response instanceof ZeroCopyHttpOutputMessage zeroCopy) {
+            return zeroCopy.writeWith(trace.file(), trace.position(from), trace.length(from));
+        }
+        Flux<Integer> tokens = tokenPacer.pace(Flux.range(from, trace.size() - from), pacing,
+            tokenPacer.interval(pacingIntervalMs), trace::timestamp);
+        // Wrapping the mapped frame hands it to the server without copying it to the heap
+        Flux<DataBuffer> frames = tokens.map(index -> response.bufferFactory().wrap(trace.frame(index)));
+        return pacing == PacingMode.NONE
+            ? response.writeWith(frames)
+            : response.writeAndFlushWith(frames.map(Mono::just));
+    }
+}
@@ -0,0 +1,23 @@
+package dev.langchain4j.tokenflowvisualizer.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
+
+import java.util.List;
+
+/**
+ * Outcome of one request of a batch: its tokens, or the error that ended it.
+ */
+@Data
+@Builder
+@Jacksonized
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchGenerationResult {
+    /** Zero-based position of the request in the batch. */
+    private long index;
+    private List<TokenInfo> tokens;
+    private String error;
+    private long durationMs;
+}
@@ -0,0 +1,11 @@
+package dev.langchain4j.tokenflowvisualizer.dto;
+
+/**
+ * Order in which the results of a batch are streamed back.
+ */
+public enum BatchOrder {
+    /** As soon as each generation finishes; keeps no results waiting. */
+    COMPLETION,
+    /** In the order of the requests; finished results wait for slower earlier ones. */
+    INPUT
+}
@@ -0,0 +1,30 @@
+package dev.langchain4j.tokenflowvisualizer.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Fork of a generation at one token: the generation is continued from its first
+ * {@code position} tokens followed by {@code alternative}, or by each candidate at that
+ * position when no alternative is given.
+ */
+@Data
+public class BranchRequest {
+    private String prompt;
+    private double temperature = 1.0;
+    private int topK = 50;
+    private double topP = 0.9;
+    /** Length of the root generation; branches end at the same total length. */
+    private Integer maxCompletionTokens;
+    /** Cache policy for the root and its branches; {@link CachePolicy#NEVER} also regenerates stored branches. */
+    private CachePolicy cache;
+    /** Root generation to fork; generated (or taken from the stored tree) when absent. */
+    private List<TokenInfo> tokens;
+    /** Index of the token to replace. */
+    private int position;
+    /** Text of the candidate to continue from; all candidates at {@code position} when absent. */
+    private String alternative;
+    /** Branches generated at once when fanning out; falls back to {@code token.branching.default-concurrency}. */
+    private Integer concurrency;
+}
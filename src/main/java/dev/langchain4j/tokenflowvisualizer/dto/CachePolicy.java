@@ -0,0 +1,13 @@
+package dev.langchain4j.tokenflowvisualizer.dto;
+
+/**
+ * Whether a generation may be served from, and stored in, the response cache.
+ */
+public enum CachePolicy {
+    /** Always call upstream and never store the result. */
+    NEVER,
+    /** Cache only greedy generations (temperature 0), whose output does not vary between calls. */
+    DETERMINISTIC,
+    /** Cache every generation; repeated requests replay the first sampled completion. */
+    ALWAYS
+}
@@ -0,0 +1,37 @@
+package dev.langchain4j.tokenflowvisualizer.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
+
+import java.util.List;
+
+/**
+ * A {@link TokenInfo} as sent with {@link TextEncoding#DICTIONARY}. {@code text} is present
+ * the first time an {@code id} appears in the stream and absent afterwards, when clients
+ * resolve it from the IDs they have seen. Texts that could not be interned have no
+ * {@code id} and always carry their text.
+ */
+@Data
+@Builder
+@Jacksonized
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DictionaryToken {
+    private Integer id;
+    private String text;
+    private double probability;
+    private List<Alternative> alternatives;
+    private long timestamp;
+    private TokenStats stats;
+
+    @Data
+    @Builder
+    @Jacksonized
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Alternative {
+        private Integer id;
+        private String text;
+        private double probability;
+    }
+}
@@ -0,0 +1,13 @@
+package dev.langchain4j.tokenflowvisualizer.dto;
+
+/**
+ * How tokens are released to the client once they have been generated.
+ */
+public enum PacingMode {
+    /** Emit every token as soon as it is available. */
+    NONE,
+    /** Emit tokens at a fixed interval, the first one immediately. */
+    FIXED,
+    /** Reproduce the gaps between the upstream arrival timestamps of the tokens. */
+    UPSTREAM
+}
@@ -0,0 +1,24 @@
+package dev.langchain4j.tokenflowvisualizer.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * What a token provider can report about its tokens.
+ */
+@Data
+@Builder
+@Jacksonized
+public class ProviderCapabilities {
+    /** Whether tokens carry their probability; without it probabilities read as 0. */
+    private boolean logprobs;
+    /** Most alternatives reported per token; 0 when the provider reports none. */
+    private int maxAlternatives;
+    /** Whether tokens arrive as they are generated rather than with the whole completion. */
+    private boolean streaming;
+    /** Whether the prompt is sent as it is, without the chat instructions around it. */
+    private boolean rawPrompt;
+    /** Whether the provider samples itself and honours {@code topK}. */
+    private boolean topK;
+}
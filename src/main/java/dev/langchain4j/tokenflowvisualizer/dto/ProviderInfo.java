@@ -0,0 +1,16 @@
+package dev.langchain4j.tokenflowvisualizer.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
+
+@Data
+@Builder
+@Jacksonized
+public class ProviderInfo {
+    private String name;
+    private String model;
+    /** Whether requests that name no provider go to this one. */
+    private boolean defaultProvider;
+    private ProviderCapabilities capabilities;
+}
@@ -0,0 +1,19 @@
+package dev.langchain4j.tokenflowvisualizer.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ResampleRequest {
+    /** A generation as returned by {@code /api/tokens}, with its alternatives. */
+    private List<TokenInfo> tokens;
+    /** Temperature applied to the returned distributions; 0 picks the most likely token. */
+    private double temperature = 1.0;
+    /** Keeps only the {@code topK} most likely candidates; absent or 0 keeps all. */
+    private Integer topK;
+    /** Keeps the smallest set of candidates whose probability reaches {@code topP}; absent keeps all. */
+    private Double topP;
+    /** Seed of the per-position random draws; the same seed keeps picks stable across parameters. */
+    private long seed;
+}
@@ -0,0 +1,45 @@
+package dev.langchain4j.tokenflowvisualizer.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
+
+import java.util.List;
+
+/**
+ * A generation re-evaluated under new sampling parameters without calling upstream. Each
+ * position is resampled independently, given the original tokens before it.
+ */
+@Data
+@Builder
+@Jacksonized
+public class ResampleResponse {
+    private List<Position> positions;
+    /** Positions whose sampled token differs from the original one. */
+    private int changedPositions;
+
+    @Data
+    @Builder
+    @Jacksonized
+    public static class Position {
+        /** The token originally generated here. */
+        private String text;
+        private double originalProbability;
+        /** Probability of the original token under the new parameters; 0 if it was filtered out. */
+        private double probability;
+        /** The token drawn under the new parameters. */
+        private String sampled;
+        private boolean changed;
+        /** Every returned candidate, most likely first, with its old and new probability. */
+        private List<Candidate> candidates;
+    }
+
+    @Data
+    @Builder
+    @Jacksonized
+    public static class Candidate {
+        private String text;
+        private double originalProbability;
+        private double probability;
+    }
+}
@@ -0,0 +1,19 @@
+package dev.langchain4j.tokenflowvisualizer.dto;
+
+/**
+ * What a client asks of one generation session on the WebSocket endpoint.
+ */
+public enum SessionCommand {
+    /** Starts a generation with the session's parameters, updated by any sent along. */
+    START,
+    /** Updates the session's parameters for its next generation, without starting one. */
+    UPDATE,
+    /** Holds back the tokens of the running generation; upstream is not read meanwhile. */
+    PAUSE,
+    /** Releases the tokens held back by {@link #PAUSE}. */
+    RESUME,
+    /** Stops the running generation and its upstream call. */
+    CANCEL,
+    /** Forgets the session and its parameters, cancelling its generation if one is running. */
+    END
+}
@@ -0,0 +1,49 @@
+package dev.langchain4j.tokenflowvisualizer.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * A message from the server on the WebSocket endpoint, tagged with the session it is about.
+ */
+@Data
+@Builder
+@Jacksonized
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SessionEvent {
+    private Type type;
+    /** Session the event is about; absent for messages that could not be read. */
+    private String session;
+    /** The token, for {@link Type#TOKEN}. */
+    private TokenInfo token;
+    /** Trace id of the generation, for {@link Type#STARTED} when the trace store is enabled. */
+    private String traceId;
+    /** What went wrong, for {@link Type#ERROR}. */
+    private String message;
+
+    public enum Type {
+        STARTED,
+        TOKEN,
+        UPDATED,
+        PAUSED,
+        RESUMED,
+        /** The generation ended after its last token. */
+        COMPLETE,
+        /** The generation was stopped by {@link SessionCommand#CANCEL}. */
+        CANCELLED,
+        /** The session was ended by {@link SessionCommand#END}; its id may be used afresh. */
+        ENDED,
+        /** A message was rejected, or the generation failed; the session stays usable. */
+        ERROR
+    }
+
+    public static SessionEvent of(Type type, String session) {
+        return SessionEvent.builder().type(type).session(session).build();
+    }
+
+    public static SessionEvent error(String session, String message) {
+        return SessionEvent.builder().type(Type.ERROR).session(session).message(message).build();
+    }
+}
@@ -0,0 +1,24 @@
+package dev.langchain4j.tokenflowvisualizer.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * A message from the client on the WebSocket endpoint, addressed to one session.
+ */
+@Data
+@Builder
+@Jacksonized
+public class SessionMessage {
+    private SessionCommand type;
+    /** Client-chosen id of the session; sessions live until {@link SessionCommand#END} or the connection closes. */
+    private String session;
+    /**
+     * Fields of a {@link TokenGenerationRequest} to set on the session's parameters, for
+     * {@link SessionCommand#START} and {@link SessionCommand#UPDATE}. Fields not sent keep
+     * their value from earlier messages.
+     */
+    private JsonNode request;
+}
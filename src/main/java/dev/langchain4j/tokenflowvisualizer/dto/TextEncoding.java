@@ -0,0 +1,14 @@
+package dev.langchain4j.tokenflowvisualizer.dto;
+
+/**
+ * How token texts are written to a stream.
+ */
+public enum TextEncoding {
+    /** Every token and alternative carries its text. */
+    PLAIN,
+    /**
+     * Texts carry their dictionary {@code id}; the text itself is sent only the first time
+     * that ID appears in the stream. See {@link DictionaryToken}.
+     */
+    DICTIONARY
+}
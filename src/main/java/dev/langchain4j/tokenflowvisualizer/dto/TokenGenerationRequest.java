@@ -8,4 +8,25 @@ public class TokenGenerationRequest {
     private double temperature = 1.0;
     private int topK = 50;
     private double topP = 0.9;
-}
\ No newline at end of file
+    /** Upper bound on the completion length; falls back to {@code openai.max-tokens} when absent. */
+    private Integer maxCompletionTokens;
+    /** Token provider for this request; falls back to {@code token.providers.default-provider} when absent. */
+    private String provider;
+    /** Pacing mode for this request; falls back to {@code token.pacing.default-mode} when absent. */
+    private PacingMode pacing;
+    /** Interval used by {@link PacingMode#FIXED}; falls back to {@code token.pacing.default-interval}. */
+    private Long pacingIntervalMs;
+    /** Cache policy for this request; falls back to {@code token.cache.default-policy} when absent. */
+    private CachePolicy cache;
+    /**
+     * Opt-in batching for {@code /stream}: up to this many tokens are sent as one frame
+     * carrying a JSON array. Absent or 1 keeps one frame per token.
+     */
+    private Integer maxBatchSize;
+    /** Longest a token may wait for its batch to fill before the batch is flushed anyway. */
+    private Long maxBatchDelayMs;
+    /** Text encoding of {@code /stream}; {@link TextEncoding#PLAIN} when absent. */
+    private TextEncoding textEncoding;
+    /** Adds surprisal, entropy, margin and running perplexity to every token when true. */
+    private Boolean stats;
+}
@@ -1,22 +1,46 @@
 package dev.langchain4j.tokenflowvisualizer.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.With;
+import lombok.extern.jackson.Jacksonized;
 
 import java.util.List;
 
 @Data
 @Builder
+@Jacksonized
 public class TokenInfo {
     private String text;
     private double probability;
     private List<TokenAlternative> alternatives;
     private long timestamp;
+    /** Statistics of the token, present when the request asks for {@code stats}. */
+    @With
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private TokenStats stats;
+    /**
+     * Log-probability as returned upstream, kept so statistics need not take the log of
+     * a probability that may have underflowed; NaN when only the probability is known.
+     */
+    @JsonIgnore
+    @Builder.Default
+    @EqualsAndHashCode.Exclude
+    private double logprob = Double.NaN;
 
     @Data
     @Builder
+    @Jacksonized
     public static class TokenAlternative {
         private String text;
         private double probability;
+        /** Log-probability as returned upstream; NaN when only the probability is known. */
+        @JsonIgnore
+        @Builder.Default
+        @EqualsAndHashCode.Exclude
+        private double logprob = Double.NaN;
     }
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package dev.langchain4j.tokenflowvisualizer.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * Statistics of one token and of the stream so far, in nats. Only the chosen token and its
+ * returned alternatives are known, so {@code entropy} is over those candidates and
+ * {@code residualMass} is the probability left to the rest of the vocabulary.
+ */
+@Data
+@Builder
+@Jacksonized
+public class TokenStats {
+    /** {@code -log p} of the chosen token. */
+    private double surprisal;
+    /** Entropy of the distribution over the chosen token and its alternatives. */
+    private double entropy;
+    /** Probability not covered by the chosen token and its alternatives. */
+    private double residualMass;
+    /** Probability of the most likely candidate minus that of the second. */
+    private double margin;
+    /** {@code exp} of the mean surprisal of the stream's tokens up to and including this one. */
+    private double perplexity;
+}
@@ -0,0 +1,19 @@
+package dev.langchain4j.tokenflowvisualizer.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
+
+import java.util.List;
+
+/**
+ * One segment of a token tree: a run of tokens shared by every branch below it, followed
+ * by the segments the branches diverge into.
+ */
+@Data
+@Builder
+@Jacksonized
+public class TokenTreeNode {
+    private List<TokenInfo> tokens;
+    private List<TokenTreeNode> children;
+}
@@ -0,0 +1,36 @@
+package dev.langchain4j.tokenflowvisualizer.dto.openai;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * A single {@code chat.completion.chunk} as sent by the streaming variant of
+ * {@code /chat/completions}. Each chunk carries a content delta and the logprobs
+ * of the tokens contained in that delta.
+ */
+@Data
+public class OpenAILogprobsChunk {
+    private String id;
+    private String object;
+    private long created;
+    private String model;
+    private List<Choice> choices;
+    private OpenAILogprobsResponse.Usage usage;
+
+    @Data
+    public static class Choice {
+        private int index;
+        private Delta delta;
+        private OpenAILogprobsResponse.Logprobs logprobs;
+        @JsonProperty("finish_reason")
+        private String finishReason;
+    }
+
+    @Data
+    public static class Delta {
+        private String role;
+        private String content;
+    }
+}
@@ -1,12 +1,14 @@
 package dev.langchain4j.tokenflowvisualizer.dto.openai;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Builder;
 import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
 
 import java.util.List;
 
-@Data @Builder
+@Data @Builder @Jacksonized
 public class OpenAILogprobsRequest {
 
     private String model;
@@ -20,12 +22,16 @@ public class OpenAILogprobsRequest {
     @JsonProperty("top_logprobs")
     private Integer topLogprobs;
 
+    /** Top-k for providers that sample in-process; not part of the OpenAI protocol. */
+    @JsonIgnore
+    private Integer topK;
+
     @JsonProperty("max_completion_tokens")
     private Integer maxCompletionTokens;
 
     private List<Message> messages;
 
-    @Data @Builder
+    @Data @Builder @Jacksonized
     public static class Message {
         private String role;
         private String content;
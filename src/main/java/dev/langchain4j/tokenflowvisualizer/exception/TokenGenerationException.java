@@ -1,5 +1,7 @@
 package dev.langchain4j.tokenflowvisualizer.exception;
 
+import java.time.Duration;
+
 public class TokenGenerationException extends RuntimeException {
     public TokenGenerationException(String message) {
         super(message);
@@ -13,6 +15,28 @@ public class TokenGenerationException extends RuntimeException {
         return new TokenGenerationException("Invalid response received from OpenAI");
     }
 
+    public static TokenGenerationException invalidResponse(Throwable cause) {
+        return new TokenGenerationException("Invalid response received from OpenAI", cause);
+    }
+
+    public static TokenGenerationException invalidChunk(Throwable cause) {
+        return new TokenGenerationException("Invalid streaming chunk received from OpenAI", cause);
+    }
+
+    public static TokenGenerationException serializationFailed(Throwable cause) {
+        return new TokenGenerationException("Failed to serialize token", cause);
+    }
+
+    public static TokenGenerationException rateLimited(Duration maxWait) {
+        return new TokenGenerationException(
+            String.format("Upstream rate limit budget not available within %d ms", maxWait.toMillis())
+        );
+    }
+
+    public static TokenGenerationException circuitOpen() {
+        return new TokenGenerationException("Upstream circuit breaker is open, failing fast");
+    }
+
     public static TokenGenerationException invalidTemperature(double temperature) {
         return new TokenGenerationException(
             String.format("Temperature must be between 0.0 and 2.0, but was: %.1f", temperature)
@@ -31,6 +55,22 @@ public class TokenGenerationException extends RuntimeException {
         );
     }
 
+    public static TokenGenerationException invalidBranchPosition(int position, int size) {
+        return new TokenGenerationException(
+            String.format("Branch position must be between 0 and %d, but was: %d", size - 1, position)
+        );
+    }
+
+    public static TokenGenerationException unknownAlternative(String alternative, int position) {
+        return new TokenGenerationException(
+            String.format("'%s' is not a candidate at position %d", alternative, position)
+        );
+    }
+
+    public static TokenGenerationException unknownProvider(String provider) {
+        return new TokenGenerationException(String.format("Unknown token provider: %s", provider));
+    }
+
     public static TokenGenerationException emptyPrompt() {
         return new TokenGenerationException("Prompt cannot be empty");
     }
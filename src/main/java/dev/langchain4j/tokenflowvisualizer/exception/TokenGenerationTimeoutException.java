@@ -1,5 +1,11 @@
 package dev.langchain4j.tokenflowvisualizer.exception;
 
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.time.Duration;
+
+@ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
 public class TokenGenerationTimeoutException extends TokenGenerationException {
     public TokenGenerationTimeoutException(String message) {
         super(message);
@@ -15,6 +21,15 @@ public class TokenGenerationTimeoutException extends TokenGenerationException {
         );
     }
 
+    public static TokenGenerationTimeoutException fromTimeout(Duration timeout) {
+        if (timeout.toMillis() % 1000 == 0) {
+            return fromTimeout(timeout.toSeconds());
+        }
+        return new TokenGenerationTimeoutException(
+            String.format("Token generation timed out after %d ms", timeout.toMillis())
+        );
+    }
+
     public static TokenGenerationTimeoutException fromError(Throwable cause) {
         return new TokenGenerationTimeoutException(
             "Token generation timed out due to an error",
@@ -0,0 +1,216 @@
+package dev.langchain4j.tokenflowvisualizer.metrics;
+
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.exception.TokenGenerationTimeoutException;
+import dev.langchain4j.tokenflowvisualizer.service.provider.TokenProvider;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer instrumentation of the token pipeline, from the upstream call to the
+ * frames written to the client. Upstream and stream meters are tagged by the provider and
+ * model of each call, and stream and serialization meters by endpoint too. They are
+ * resolved once per tag combination so the per-token cost is a few timer updates.
+ */
+@Component
+public class TokenMetrics {
+
+    public static final String ENDPOINT_TOKENS = "/api/tokens";
+    public static final String ENDPOINT_STREAM = "/api/tokens/stream";
+    public static final String ENDPOINT_BATCH = "/api/tokens/batch";
+    public static final String ENDPOINT_SESSIONS = "/api/tokens/sessions";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<MeterKey, StreamMeters> streamMeters = new ConcurrentHashMap<>();
+    private final Map<MeterKey, Timer> upstreamTimers = new ConcurrentHashMap<>();
+    private final Map<MeterKey, DistributionSummary> abandonedTokens = new ConcurrentHashMap<>();
+
+    public TokenMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Measures the whole upstream call to {@code provider}, from subscription until the
+     * last token or error, and the tokens already paid for when a call is abandoned by its
+     * clients.
+     */
+    public Flux<TokenInfo> instrumentUpstream(Flux<TokenInfo> tokens, TokenProvider provider) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            long[] received = new long[1];
+            return tokens
+                    .doOnNext(token -> received[0]++)
+                    .doFinally(signal -> {
+                        upstreamTimer(provider, outcome(signal)).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        if (signal == SignalType.CANCEL) {
+                            abandonedTokens(provider).record(received[0]);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Measures a client-facing stream: time to first token, inter-token gaps, tokens per
+     * second, active streams, cancellations and missed deadlines.
+     */
+    public Flux<TokenInfo> instrumentStream(Flux<TokenInfo> tokens, String endpoint, TokenProvider provider) {
+        StreamMeters meters = streamMeters(endpoint, provider);
+        return Flux.defer(() -> {
+            StreamTiming timing = new StreamTiming(System.nanoTime());
+            meters.active.incrementAndGet();
+            return tokens
+                    .doOnNext(token -> timing.onToken(meters))
+                    .doOnCancel(meters.cancellations::increment)
+                    .doOnError(TokenGenerationTimeoutException.class, error -> meters.deadlinesExceeded.increment())
+                    .doFinally(signal -> {
+                        meters.active.decrementAndGet();
+                        timing.onFinish(meters);
+                    });
+        });
+    }
+
+    /** Measures the serialization of one frame of a stream from {@code provider} to {@code endpoint}. */
+    public <T> T timeSerialization(Supplier<T> serializer, String endpoint, TokenProvider provider) {
+        Timer serialization = streamMeters(endpoint, provider).serialization;
+        long start = System.nanoTime();
+        try {
+            return serializer.get();
+        } finally {
+            serialization.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private StreamMeters streamMeters(String endpoint, TokenProvider provider) {
+        return streamMeters.computeIfAbsent(MeterKey.of(provider, endpoint), this::createStreamMeters);
+    }
+
+    private Timer upstreamTimer(TokenProvider provider, String outcome) {
+        return upstreamTimers.computeIfAbsent(MeterKey.of(provider, outcome), key -> Timer.builder("probescope.upstream.latency")
+                .description("Duration of upstream generation calls")
+                .tags(key.tags().and("outcome", outcome))
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private DistributionSummary abandonedTokens(TokenProvider provider) {
+        return abandonedTokens.computeIfAbsent(MeterKey.of(provider, null),
+                key -> DistributionSummary.builder("probescope.upstream.abandoned.tokens")
+                        .description("Tokens received by upstream calls that were cancelled before completing")
+                        .baseUnit("tokens")
+                        .tags(key.tags())
+                        .register(meterRegistry));
+    }
+
+    private StreamMeters createStreamMeters(MeterKey key) {
+        Tags tags = key.tags().and("endpoint", key.qualifier());
+        AtomicInteger active = new AtomicInteger();
+        Gauge.builder("probescope.streams.active", active, AtomicInteger::get)
+                .description("Streams currently open")
+                .tags(tags)
+                .register(meterRegistry);
+        return new StreamMeters(
+                Timer.builder("probescope.tokens.first")
+                        .description("Time to first token")
+                        .tags(tags)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry),
+                Timer.builder("probescope.tokens.gap")
+                        .description("Gap between consecutive tokens of a stream")
+                        .tags(tags)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry),
+                DistributionSummary.builder("probescope.tokens.rate")
+                        .description("Tokens per second of a completed stream")
+                        .baseUnit("tokens/s")
+                        .tags(tags)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry),
+                Counter.builder("probescope.streams.cancelled")
+                        .description("Streams cancelled before completion")
+                        .tags(tags)
+                        .register(meterRegistry),
+                Counter.builder("probescope.streams.deadline.exceeded")
+                        .description("Streams that failed because their generation deadline passed")
+                        .tags(tags)
+                        .register(meterRegistry),
+                Timer.builder("probescope.serialization")
+                        .description("Time to serialize one token frame")
+                        .tags(tags)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofNanos(500))
+                        .maximumExpectedValue(Duration.ofMillis(10))
+                        .register(meterRegistry),
+                active);
+    }
+
+    private static String outcome(SignalType signal) {
+        return switch (signal) {
+            case ON_COMPLETE -> "success";
+            case ON_ERROR -> "error";
+            default -> "cancelled";
+        };
+    }
+
+    /** The provider and model of a call, and the endpoint or outcome its meter is for. */
+    private record MeterKey(String provider, String model, String qualifier) {
+
+        static MeterKey of(TokenProvider provider, String qualifier) {
+            return new MeterKey(provider.name(), provider.model() != null ? provider.model() : "unknown", qualifier);
+        }
+
+        Tags tags() {
+            return Tags.of("provider", provider, "model", model);
+        }
+    }
+
+    private record StreamMeters(Timer firstToken,
+                                Timer gap,
+                                DistributionSummary rate,
+                                Counter cancellations,
+                                Counter deadlinesExceeded,
+                                Timer serialization,
+                                AtomicInteger active) {
+    }
+
+    private static final class StreamTiming {
+        private final long start;
+        private long lastToken;
+        private long tokens;
+
+        private StreamTiming(long start) {
+            this.start = start;
+        }
+
+        void onToken(StreamMeters meters) {
+            long now = System.nanoTime();
+            if (tokens == 0) {
+                meters.firstToken.record(now - start, TimeUnit.NANOSECONDS);
+            } else {
+                meters.gap.record(now - lastToken, TimeUnit.NANOSECONDS);
+            }
+            lastToken = now;
+            tokens++;
+        }
+
+        void onFinish(StreamMeters meters) {
+            long elapsed = lastToken - start;
+            if (tokens > 0 && elapsed > 0) {
+                meters.rate.record(tokens * 1e9 / elapsed);
+            }
+        }
+    }
+}
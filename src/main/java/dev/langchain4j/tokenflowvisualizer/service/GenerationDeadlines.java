@@ -0,0 +1,63 @@
+package dev.langchain4j.tokenflowvisualizer.service;
+
+import dev.langchain4j.tokenflowvisualizer.config.GenerationConfig;
+import dev.langchain4j.tokenflowvisualizer.exception.TokenGenerationTimeoutException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounds every generation by a deadline, {@code token.generation.timeout} or the shorter
+ * one a client sends in the {@value #TIMEOUT_HEADER} header.
+ * <p>
+ * A deadline is one timer for the whole stream rather than one per token, so it covers
+ * the upstream call, parsing and pacing alike. When it passes, the stream fails with a
+ * {@link TokenGenerationTimeoutException} and everything upstream of it is cancelled:
+ * pending pacing timers, the upstream call and its pooled connection.
+ */
+@Component
+public class GenerationDeadlines {
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+
+    private final GenerationConfig generationConfig;
+
+    public GenerationDeadlines(GenerationConfig generationConfig) {
+        this.generationConfig = generationConfig;
+    }
+
+    /**
+     * Timeout of a request asking for {@code timeoutMs}, capped by the configured one. A
+     * client whose own deadline has already passed may send 0 and fails at once.
+     */
+    public Duration timeout(Long timeoutMs) {
+        Duration configured = generationConfig.getTimeout();
+        if (timeoutMs == null) {
+            return configured;
+        }
+        Duration requested = Duration.ofMillis(Math.max(0, timeoutMs));
+        return requested.compareTo(configured) < 0 ? requested : configured;
+    }
+
+    /** The items within the configured deadline. */
+    public <T> Flux<T> enforce(Flux<T> items) {
+        return enforce(items, generationConfig.getTimeout());
+    }
+
+    public <T> Flux<T> enforce(Flux<T> items, Long timeoutMs) {
+        return enforce(items, timeout(timeoutMs));
+    }
+
+    public <T> Flux<T> enforce(Flux<T> items, Duration timeout) {
+        return Flux.defer(() -> {
+            AtomicBoolean expired = new AtomicBoolean();
+            // A trigger that signals an error would not cancel the items; one that emits does
+            return items.takeUntilOther(Mono.delay(timeout).doOnNext(tick -> expired.set(true)))
+                .concatWith(Mono.defer(() -> expired.get()
+                    ? Mono.error(TokenGenerationTimeoutException.fromTimeout(timeout))
+                    : Mono.empty()));
+        });
+    }
+}
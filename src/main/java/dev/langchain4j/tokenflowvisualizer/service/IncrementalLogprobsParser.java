@@ -0,0 +1,173 @@
+package dev.langchain4j.tokenflowvisualizer.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsResponse;
+import dev.langchain4j.tokenflowvisualizer.exception.TokenGenerationException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses a non-streaming chat completion while its body is still arriving, emitting the
+ * {@link TokenInfo} of every {@code choices[0].logprobs.content} entry as soon as that entry
+ * has been read. Only the entry being parsed is ever held in memory, so the footprint does
+ * not grow with the completion length; everything else in the response is skipped.
+ */
+public final class IncrementalLogprobsParser {
+
+    private final JsonParser parser;
+    private final ByteBufferFeeder feeder;
+    // The content entry being read, its nesting depth, and the top_logprobs entry within it
+    private OpenAILogprobsResponse.ContentLogprob entry;
+    private int entryDepth;
+    private boolean inTopLogprobs;
+    private OpenAILogprobsResponse.TopLogprob alternative;
+
+    private IncrementalLogprobsParser(ObjectMapper objectMapper) throws IOException {
+        this.parser = objectMapper.getFactory().createNonBlockingByteBufferParser();
+        this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    public static Flux<TokenInfo> parse(Flux<DataBuffer> body, ObjectMapper objectMapper) {
+        return Flux.using(() -> new IncrementalLogprobsParser(objectMapper),
+                        parser -> body.concatMapIterable(parser::feed)
+                                .concatWith(Flux.defer(() -> Flux.fromIterable(parser.endOfInput()))),
+                        IncrementalLogprobsParser::close)
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    private List<TokenInfo> feed(DataBuffer buffer) {
+        List<TokenInfo> tokens = new ArrayList<>();
+        try (DataBuffer.ByteBufferIterator chunks = buffer.readableByteBuffers()) {
+            while (chunks.hasNext()) {
+                feeder.feedInput(chunks.next());
+                drain(tokens);
+            }
+        } catch (IOException e) {
+            throw TokenGenerationException.invalidResponse(e);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+        return tokens;
+    }
+
+    private List<TokenInfo> endOfInput() {
+        feeder.endOfInput();
+        List<TokenInfo> tokens = new ArrayList<>();
+        try {
+            drain(tokens);
+        } catch (IOException e) {
+            throw TokenGenerationException.invalidResponse(e);
+        }
+        if (entry != null) {
+            throw TokenGenerationException.invalidResponse();
+        }
+        return tokens;
+    }
+
+    /**
+     * Consumes all tokens available so far. Content entries are read field by field straight
+     * into their DTOs; unknown fields, including nested ones, are skipped.
+     */
+    private void drain(List<TokenInfo> tokens) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (entry == null) {
+                if (token == JsonToken.START_OBJECT && isContentEntry(parser.getParsingContext())) {
+                    entry = new OpenAILogprobsResponse.ContentLogprob();
+                    entryDepth = 1;
+                }
+                continue;
+            }
+            switch (token) {
+                case START_ARRAY -> {
+                    if (++entryDepth == 2 && "top_logprobs".equals(parser.currentName())) {
+                        inTopLogprobs = true;
+                        entry.setTopLogprobs(new ArrayList<>());
+                    }
+                }
+                case START_OBJECT -> {
+                    if (++entryDepth == 3 && inTopLogprobs) {
+                        alternative = new OpenAILogprobsResponse.TopLogprob();
+                    }
+                }
+                case END_ARRAY, END_OBJECT -> {
+                    if (entryDepth == 3 && alternative != null) {
+                        entry.getTopLogprobs().add(alternative);
+                        alternative = null;
+                    } else if (entryDepth == 2) {
+                        inTopLogprobs = false;
+                    } else if (entryDepth == 1) {
+                        tokens.add(LogprobsMapper.toTokenInfo(entry));
+                        entry = null;
+                    }
+                    entryDepth--;
+                }
+                case VALUE_STRING -> {
+                    if ("token".equals(parser.currentName())) {
+                        if (entryDepth == 1) {
+                            entry.setToken(parser.getText());
+                        } else if (entryDepth == 3 && alternative != null) {
+                            alternative.setToken(parser.getText());
+                        }
+                    }
+                }
+                case VALUE_NUMBER_FLOAT, VALUE_NUMBER_INT -> {
+                    if ("logprob".equals(parser.currentName())) {
+                        if (entryDepth == 1) {
+                            entry.setLogprob(parser.getDoubleValue());
+                        } else if (entryDepth == 3 && alternative != null) {
+                            alternative.setLogprob(parser.getDoubleValue());
+                        }
+                    }
+                }
+                default -> {
+                    // bytes and any other field are not needed for TokenInfo
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether {@code context}, the context of an object that has just started, is an
+     * element of {@code $.choices[0].logprobs.content}.
+     */
+    private static boolean isContentEntry(JsonStreamContext context) {
+        JsonStreamContext content = context.getParent();
+        if (content == null || !content.inArray()) {
+            return false;
+        }
+        JsonStreamContext logprobs = content.getParent();
+        if (logprobs == null || !"content".equals(logprobs.getCurrentName())) {
+            return false;
+        }
+        JsonStreamContext choice = logprobs.getParent();
+        if (choice == null || !"logprobs".equals(choice.getCurrentName())) {
+            return false;
+        }
+        JsonStreamContext choices = choice.getParent();
+        if (choices == null || !choices.inArray() || choices.getCurrentIndex() != 0) {
+            return false;
+        }
+        JsonStreamContext response = choices.getParent();
+        return response != null && "choices".equals(response.getCurrentName())
+                && response.getParent() != null && response.getParent().inRoot();
+    }
+
+    private void close() {
+        try {
+            parser.close();
+        } catch (IOException e) {
+            // The parser reads from memory only, there is nothing to release
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package dev.langchain4j.tokenflowvisualizer.service;
+
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsChunk;
+import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts OpenAI logprobs into {@link TokenInfo}s, turning log-probabilities into
+ * probabilities and dropping the chosen token from its own alternatives.
+ */
+public final class LogprobsMapper {
+
+    private LogprobsMapper() {
+    }
+
+    public static List<TokenInfo> toTokenInfos(OpenAILogprobsResponse response) {
+        if (response.getChoices() == null || response.getChoices().isEmpty()) {
+            return List.of();
+        }
+        return toTokenInfos(response.getChoices().getFirst().getLogprobs());
+    }
+
+    public static List<TokenInfo> toTokenInfos(OpenAILogprobsChunk chunk) {
+        if (chunk.getChoices() == null || chunk.getChoices().isEmpty()) {
+            return List.of();
+        }
+        return toTokenInfos(chunk.getChoices().getFirst().getLogprobs());
+    }
+
+    public static TokenInfo toTokenInfo(OpenAILogprobsResponse.ContentLogprob cl) {
+        double mainProb = Math.exp(cl.getLogprob());
+
+        List<TokenInfo.TokenAlternative> alternatives = new ArrayList<>();
+        if (cl.getTopLogprobs() != null) {
+            for (OpenAILogprobsResponse.TopLogprob tl : cl.getTopLogprobs()) {
+                if (!tl.getToken().equals(cl.getToken())) {
+                    alternatives.add(TokenInfo.TokenAlternative.builder()
+                            .text(tl.getToken())
+                            .probability(Math.exp(tl.getLogprob()))
+                            .logprob(tl.getLogprob())
+                            .build());
+                }
+            }
+        }
+
+        return TokenInfo.builder()
+                .text(cl.getToken())
+                .probability(mainProb)
+                .logprob(cl.getLogprob())
+                .alternatives(alternatives)
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    private static List<TokenInfo> toTokenInfos(OpenAILogprobsResponse.Logprobs logprobs) {
+        if (logprobs == null || logprobs.getContent() == null) {
+            return List.of();
+        }
+        List<TokenInfo> tokenInfos = new ArrayList<>(logprobs.getContent().size());
+        for (OpenAILogprobsResponse.ContentLogprob cl : logprobs.getContent()) {
+            tokenInfos.add(toTokenInfo(cl));
+        }
+        return tokenInfos;
+    }
+}
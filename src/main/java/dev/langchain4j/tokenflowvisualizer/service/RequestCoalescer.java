@@ -0,0 +1,87 @@
+package dev.langchain4j.tokenflowvisualizer.service;
+
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.service.cache.GenerationKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight coalescing of identical generations. While a generation for a key is in
+ * flight, further requests for the same key subscribe to the same upstream call instead
+ * of starting a new one. Tokens already emitted are replayed to late joiners, and the
+ * upstream call is cancelled only once its last subscriber has gone.
+ */
+@Slf4j
+@Component
+public class RequestCoalescer {
+
+    private final boolean enabled;
+    private final Map<GenerationKey, Flux<TokenInfo>> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaders;
+    private final Counter joined;
+
+    public RequestCoalescer(@Value("${token.coalescing.enabled:true}") boolean enabled,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.leaders = meterRegistry.counter("probescope.coalescing.requests", "role", "leader");
+        this.joined = meterRegistry.counter("probescope.coalescing.requests", "role", "joined");
+        meterRegistry.gaugeMapSize("probescope.coalescing.in.flight", Tags.empty(), inFlight);
+    }
+
+    public Flux<TokenInfo> join(GenerationKey key, Supplier<Flux<TokenInfo>> upstream) {
+        if (!enabled) {
+            return upstream.get();
+        }
+        return Flux.defer(() -> {
+            boolean[] leader = new boolean[1];
+            Flux<TokenInfo> shared = inFlight.computeIfAbsent(key, k -> {
+                leader[0] = true;
+                return share(k, upstream.get());
+            });
+            if (leader[0]) {
+                leaders.increment();
+            } else {
+                joined.increment();
+                log.debug("Joining in-flight generation for: {}", key);
+            }
+            return shared;
+        });
+    }
+
+    private Flux<TokenInfo> share(GenerationKey key, Flux<TokenInfo> upstream) {
+        InFlightRemoval removal = new InFlightRemoval(key);
+        Flux<TokenInfo> shared = upstream
+                .doFinally(signal -> removal.run())
+                .replay()
+                .refCount();
+        removal.shared = shared;
+        return shared;
+    }
+
+    /**
+     * Removes the entry only if it still maps to the generation that finished, so a newer
+     * generation registered under the same key is left alone.
+     */
+    private final class InFlightRemoval implements Runnable {
+        private final GenerationKey key;
+        private volatile Flux<TokenInfo> shared;
+
+        private InFlightRemoval(GenerationKey key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            inFlight.remove(key, shared);
+        }
+    }
+}
@@ -1,8 +1,18 @@
 package dev.langchain4j.tokenflowvisualizer.service;
 
+import dev.langchain4j.tokenflowvisualizer.dto.TokenGenerationRequest;
 import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
 import reactor.core.publisher.Flux;
 
 public interface TokenGenerationService {
-    Flux<TokenInfo> generateTokens(String prompt, double temperature, int topK, double topP);
-}
\ No newline at end of file
+    Flux<TokenInfo> generateTokens(TokenGenerationRequest request);
+
+    default Flux<TokenInfo> generateTokens(String prompt, double temperature, int topK, double topP) {
+        TokenGenerationRequest request = new TokenGenerationRequest();
+        request.setPrompt(prompt);
+        request.setTemperature(temperature);
+        request.setTopK(topK);
+        request.setTopP(topP);
+        return generateTokens(request);
+    }
+}
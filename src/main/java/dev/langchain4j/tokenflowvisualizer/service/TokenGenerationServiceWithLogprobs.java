@@ -1,21 +1,21 @@
 package dev.langchain4j.tokenflowvisualizer.service;
 
 import dev.langchain4j.tokenflowvisualizer.config.OpenAIConfig;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenGenerationRequest;
 import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
 import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsRequest;
-import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsResponse;
+import dev.langchain4j.tokenflowvisualizer.metrics.TokenMetrics;
+import dev.langchain4j.tokenflowvisualizer.service.cache.GenerationCache;
+import dev.langchain4j.tokenflowvisualizer.service.cache.GenerationKey;
+import dev.langchain4j.tokenflowvisualizer.service.dictionary.TokenDictionaries;
+import dev.langchain4j.tokenflowvisualizer.service.dictionary.TokenDictionary;
+import dev.langchain4j.tokenflowvisualizer.service.provider.ProviderRegistry;
+import dev.langchain4j.tokenflowvisualizer.service.provider.TokenProvider;
+import dev.langchain4j.tokenflowvisualizer.service.resilience.UpstreamGuards;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.annotation.Profile;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatusCode;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
 
-import java.time.Duration;
-import java.util.ArrayList;
 import java.util.List;
 
 @Slf4j
@@ -23,23 +23,41 @@ import java.util.List;
 public class TokenGenerationServiceWithLogprobs implements TokenGenerationService {
 
     private final OpenAIConfig openAIConfig;
-    private final WebClient webClient;
-
-    public TokenGenerationServiceWithLogprobs(OpenAIConfig openAIConfig) {
+    private final ProviderRegistry providerRegistry;
+    private final GenerationCache generationCache;
+    private final RequestCoalescer requestCoalescer;
+    private final TokenMetrics tokenMetrics;
+    private final TokenDictionaries tokenDictionaries;
+    private final UpstreamGuards upstreamGuards;
+
+    public TokenGenerationServiceWithLogprobs(OpenAIConfig openAIConfig,
+                                              ProviderRegistry providerRegistry,
+                                              GenerationCache generationCache,
+                                              RequestCoalescer requestCoalescer,
+                                              TokenMetrics tokenMetrics,
+                                              TokenDictionaries tokenDictionaries,
+                                              UpstreamGuards upstreamGuards) {
         this.openAIConfig = openAIConfig;
-        this.webClient = WebClient.builder()
-                .baseUrl("https://api.openai.com/v1")
-                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + openAIConfig.getApiKey())
-                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .build();
+        this.providerRegistry = providerRegistry;
+        this.generationCache = generationCache;
+        this.requestCoalescer = requestCoalescer;
+        this.tokenMetrics = tokenMetrics;
+        this.tokenDictionaries = tokenDictionaries;
+        this.upstreamGuards = upstreamGuards;
     }
 
-    public Flux<TokenInfo> generateTokens(String prompt,
-                                          double temperature,
-                                          int topK,
-                                          double topP) {
-        int topLogprobs = Math.max(1, Math.min(topK, 5)); // enforce 1–5 (OpenAI limit)
-        int k = Math.max(1, Math.min(topK, 5));
+    @Override
+    public Flux<TokenInfo> generateTokens(TokenGenerationRequest tokenRequest) {
+        TokenProvider provider = providerRegistry.resolve(tokenRequest.getProvider());
+        String prompt = tokenRequest.getPrompt();
+        double temperature = tokenRequest.getTemperature();
+        int topK = tokenRequest.getTopK();
+        double topP = tokenRequest.getTopP();
+        boolean logprobs = provider.capabilities().isLogprobs();
+        // enforce 1..maxAlternatives (5 for OpenAI); providers without logprobs get none
+        Integer topLogprobs = logprobs
+                ? Math.max(1, Math.min(topK, provider.capabilities().getMaxAlternatives()))
+                : null;
         double safeTopP = Math.min(Math.max(topP, 0d), 1d);
 
         // Use a clearer instruction format that shows the model what we want
@@ -48,9 +66,13 @@ public class TokenGenerationServiceWithLogprobs implements TokenGenerationServic
 
         String userPrompt = "Text to complete: \"" + prompt + "\"\n\nContinuation:";
 
-        OpenAILogprobsRequest request = OpenAILogprobsRequest.builder()
-                .model(openAIConfig.getModel())
-                .messages(List.of(
+        // Providers that are not chat models continue the prompt itself
+        List<OpenAILogprobsRequest.Message> messages = provider.capabilities().isRawPrompt()
+                ? List.of(OpenAILogprobsRequest.Message.builder()
+                        .role("user")
+                        .content(prompt)
+                        .build())
+                : List.of(
                         OpenAILogprobsRequest.Message.builder()
                                 .role("system")
                                 .content(systemPrompt)
@@ -59,76 +81,47 @@ public class TokenGenerationServiceWithLogprobs implements TokenGenerationServic
                                 .role("user")
                                 .content(userPrompt)
                                 .build()
-                ))
+                );
+
+        OpenAILogprobsRequest request = OpenAILogprobsRequest.builder()
+                .model(provider.model())
+                .messages(messages)
                 .temperature(temperature)
                 .topP(safeTopP)
-                .logprobs(true)
+                .topK(provider.capabilities().isTopK() ? topK : null)
+                .logprobs(logprobs)
                 .topLogprobs(topLogprobs)
-                .maxCompletionTokens(openAIConfig.getMaxTokens())
-                .stream(false)
+                .maxCompletionTokens(tokenRequest.getMaxCompletionTokens() != null
+                        ? tokenRequest.getMaxCompletionTokens()
+                        : openAIConfig.getMaxTokens())
+                .stream(provider.capabilities().isStreaming())
                 .build();
 
-        log.info("Generating tokens with: {}", request);
-
-        return webClient.post()
-                .uri("/chat/completions")
-                .bodyValue(request)
-                .retrieve()
-                .onStatus(HttpStatusCode::isError,
-                        resp -> resp.createException().flatMap(Mono::error))
-                .bodyToMono(OpenAILogprobsResponse.class)
-                .flatMapMany(this::processLogprobsResponse)
-                .log()
-                .onErrorResume(err -> {
-                    log.error("Error calling OpenAI logprobs API", err);
-                    return Flux.error(new IllegalStateException(
-                            "Failed to get logprobs from OpenAI", err));
-                });
-    }
-
-    private Flux<TokenInfo> processLogprobsResponse(OpenAILogprobsResponse response) {
-        if (response.getChoices() == null || response.getChoices().isEmpty()) {
-            return Flux.empty();
-        }
-
-        OpenAILogprobsResponse.Choice choice = response.getChoices().getFirst();
-        if (choice.getLogprobs() == null || choice.getLogprobs().getContent() == null) {
-            return Flux.empty();
+        GenerationKey key = GenerationKey.of(provider.name(), request);
+        if (!generationCache.isCacheable(tokenRequest)) {
+            return requestCoalescer.join(key, () -> callUpstream(provider, request));
         }
 
-        // Get the full response text for debugging
-        String fullResponse = choice.getMessage().getContent();
-        log.debug("Full response from OpenAI: {}", fullResponse);
-
-        // OpenAI returns only the completion when using the system prompt approach,
-        // so we process all tokens without filtering
-        List<TokenInfo> tokenInfos = new ArrayList<>();
+        return generationCache.lookup(key)
+                .doOnNext(cached -> log.info("Serving {} cached tokens for: {}", cached.size(), key))
+                .flatMapMany(Flux::fromIterable)
+                .switchIfEmpty(Flux.defer(() -> requestCoalescer.join(key,
+                        () -> generationCache.recordInto(key, callUpstream(provider, request)))));
+    }
 
-        for (OpenAILogprobsResponse.ContentLogprob cl : choice.getLogprobs().getContent()) {
-            double mainProb = Math.exp(cl.getLogprob());
+    private Flux<TokenInfo> callUpstream(TokenProvider provider, OpenAILogprobsRequest request) {
+        log.info("Generating tokens with {}: {}", provider.name(), request);
 
-            List<TokenInfo.TokenAlternative> alternatives = new ArrayList<>();
-            if (cl.getTopLogprobs() != null) {
-                for (OpenAILogprobsResponse.TopLogprob tl : cl.getTopLogprobs()) {
-                    if (!tl.getToken().equals(cl.getToken())) {
-                        alternatives.add(TokenInfo.TokenAlternative.builder()
-                                .text(tl.getToken())
-                                .probability(Math.exp(tl.getLogprob()))
-                                .build());
-                    }
-                }
-            }
+        Flux<TokenInfo> tokens = upstreamGuards.protect(provider, () -> provider.generate(request));
 
-            tokenInfos.add(TokenInfo.builder()
-                    .text(cl.getToken())
-                    .probability(mainProb)
-                    .alternatives(alternatives)
-                    .timestamp(System.currentTimeMillis())
-                    .build());
-        }
-
-        // Simulate streaming behaviour with consistent timing
-        return Flux.fromIterable(tokenInfos)
-                .delayElements(Duration.ofMillis(250));
+        // Recurring texts share one instance per model instead of one per token
+        TokenDictionary dictionary = tokenDictionaries.forModel(request.getModel());
+        return tokenMetrics.instrumentUpstream(tokens.map(dictionary::intern), provider)
+                .log()
+                .onErrorResume(err -> {
+                    log.error("Error calling token provider {}", provider.name(), err);
+                    return Flux.error(new IllegalStateException(
+                            "Failed to get tokens from " + provider.name(), err));
+                });
     }
 }
@@ -0,0 +1,126 @@
+package dev.langchain4j.tokenflowvisualizer.service;
+
+import dev.langchain4j.tokenflowvisualizer.config.PacingConfig;
+import dev.langchain4j.tokenflowvisualizer.dto.PacingMode;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenGenerationRequest;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Releases generated tokens to clients according to a {@link PacingMode}.
+ * <p>
+ * All paced streams share one hashed-wheel {@link Timer}: a delayed token is a single
+ * bucket entry, and every token that falls due within the same tick is released by the
+ * timer thread in one pass. Tokens that are already due are emitted without touching
+ * the timer at all. Downstream work triggered by a release runs on the timer thread and
+ * must therefore stay non-blocking.
+ */
+@Component
+public class TokenPacer {
+
+    private final Timer timer;
+    private final PacingConfig pacingConfig;
+
+    public TokenPacer(Timer pacingTimer, PacingConfig pacingConfig) {
+        this.timer = pacingTimer;
+        this.pacingConfig = pacingConfig;
+    }
+
+    public Flux<TokenInfo> pace(Flux<TokenInfo> tokens, TokenGenerationRequest request) {
+        return pace(tokens, mode(request.getPacing()), interval(request.getPacingIntervalMs()));
+    }
+
+    public Flux<TokenInfo> pace(Flux<TokenInfo> tokens, PacingMode mode, Duration interval) {
+        return pace(tokens, mode, interval, TokenInfo::getTimestamp);
+    }
+
+    /**
+     * Paces anything that stands for a token, such as a stored frame, with
+     * {@code timestamp} giving the upstream timestamp of each item.
+     */
+    public <T> Flux<T> pace(Flux<T> items, PacingMode mode, Duration interval, ToLongFunction<T> timestamp) {
+        return switch (mode) {
+            case NONE -> items;
+            case FIXED -> interval.isZero() ? items : Flux.defer(() -> {
+                FixedSchedule schedule = new FixedSchedule(interval.toNanos());
+                return items.concatMap(item -> releaseAt(schedule.next(System.nanoTime()), item));
+            });
+            case UPSTREAM -> Flux.defer(() -> {
+                UpstreamSchedule schedule = new UpstreamSchedule();
+                return items.concatMap(item ->
+                        releaseAt(schedule.next(System.nanoTime(), timestamp.applyAsLong(item)), item));
+            });
+        };
+    }
+
+    /** Interval of {@link PacingMode#FIXED} for a request asking for {@code intervalMs}, or the default. */
+    public Duration interval(Long intervalMs) {
+        return intervalMs != null ? Duration.ofMillis(Math.max(0, intervalMs)) : pacingConfig.getDefaultInterval();
+    }
+
+    /** Mode for a request asking for {@code mode}, or the default. */
+    public PacingMode mode(PacingMode mode) {
+        return mode != null ? mode : pacingConfig.getDefaultMode();
+    }
+
+    private <T> Mono<T> releaseAt(long deadlineNanos, T item) {
+        long delay = deadlineNanos - System.nanoTime();
+        if (delay <= 0) {
+            return Mono.just(item);
+        }
+        return Mono.create(sink -> {
+            Timeout timeout = timer.newTimeout(t -> sink.success(item), delay, TimeUnit.NANOSECONDS);
+            sink.onCancel(timeout::cancel);
+        });
+    }
+
+    /**
+     * Spaces releases {@code interval} apart; a token that arrives late is released
+     * immediately and the next one is spaced from it.
+     */
+    private static final class FixedSchedule {
+        private final long intervalNanos;
+        private long lastRelease;
+        private boolean started;
+
+        private FixedSchedule(long intervalNanos) {
+            this.intervalNanos = intervalNanos;
+        }
+
+        long next(long now) {
+            long release = started ? Math.max(now, lastRelease + intervalNanos) : now;
+            started = true;
+            lastRelease = release;
+            return release;
+        }
+    }
+
+    /**
+     * Anchors the first token to the moment it is released and replays the remaining
+     * tokens at the offsets recorded in their upstream timestamps.
+     */
+    private static final class UpstreamSchedule {
+        private long firstTimestampMillis;
+        private long anchorNanos;
+        private boolean started;
+
+        long next(long now, long timestampMillis) {
+            if (!started) {
+                started = true;
+                firstTimestampMillis = timestampMillis;
+                anchorNanos = now;
+                return now;
+            }
+            long offset = Math.max(0, timestampMillis - firstTimestampMillis);
+            return anchorNanos + TimeUnit.MILLISECONDS.toNanos(offset);
+        }
+    }
+}
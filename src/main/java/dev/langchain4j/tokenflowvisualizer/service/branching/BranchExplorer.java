@@ -0,0 +1,211 @@
+package dev.langchain4j.tokenflowvisualizer.service.branching;
+
+import dev.langchain4j.tokenflowvisualizer.config.BranchingConfig;
+import dev.langchain4j.tokenflowvisualizer.config.OpenAIConfig;
+import dev.langchain4j.tokenflowvisualizer.dto.BranchRequest;
+import dev.langchain4j.tokenflowvisualizer.dto.CachePolicy;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenGenerationRequest;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenTreeNode;
+import dev.langchain4j.tokenflowvisualizer.exception.TokenGenerationException;
+import dev.langchain4j.tokenflowvisualizer.service.TokenGenerationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Forks generations at a token and continues them from the chosen candidate. The chat
+ * API cannot resume from given completion tokens, so a branch is a generation whose
+ * prompt ends with the prefix and the chosen token; it therefore goes through the same
+ * response cache and request coalescing as any other generation.
+ * <p>
+ * Every branch of a prompt is kept in one {@link TokenTree}, so shared prefixes are
+ * stored once and a fork that was explored before is answered without an upstream call.
+ * Tokens supplied by a client are explored in a tree of that request only, so they never
+ * reach the trees shared with other clients.
+ */
+@Slf4j
+@Service
+public class BranchExplorer {
+
+    private final TokenGenerationService tokenGenerationService;
+    private final OpenAIConfig openAIConfig;
+    private final BranchingConfig branchingConfig;
+    private final Map<TreeKey, TokenTree> trees;
+    private final Counter reused;
+    private final Counter generated;
+
+    public BranchExplorer(TokenGenerationService tokenGenerationService,
+                          OpenAIConfig openAIConfig,
+                          BranchingConfig branchingConfig,
+                          MeterRegistry meterRegistry) {
+        this.tokenGenerationService = tokenGenerationService;
+        this.openAIConfig = openAIConfig;
+        this.branchingConfig = branchingConfig;
+        this.trees = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TreeKey, TokenTree> eldest) {
+                return size() > branchingConfig.getMaxTrees();
+            }
+        });
+        this.reused = meterRegistry.counter("probescope.branching.forks", "source", "tree");
+        this.generated = meterRegistry.counter("probescope.branching.forks", "source", "generated");
+        meterRegistry.gaugeMapSize("probescope.branching.trees", Tags.empty(), trees);
+    }
+
+    /**
+     * Forks the generation at {@code request.position} and returns the prompt's whole tree,
+     * including branches explored by earlier requests. A generation passed as
+     * {@code tokens} is forked in a tree of its own.
+     */
+    public Mono<TokenTreeNode> explore(BranchRequest request) {
+        TokenTree tree = suppliesTokens(request)
+                ? new TokenTree()
+                : trees.computeIfAbsent(TreeKey.of(request), key -> new TokenTree());
+        int maxTokens = request.getMaxCompletionTokens() != null
+                ? request.getMaxCompletionTokens()
+                : openAIConfig.getMaxTokens();
+
+        return root(tree, request).flatMap(rootTokens -> {
+            int position = request.getPosition();
+            if (position < 0 || position >= rootTokens.size()) {
+                return Mono.error(TokenGenerationException.invalidBranchPosition(position, rootTokens.size()));
+            }
+            TokenInfo original = rootTokens.get(position);
+            List<TokenInfo> prefix = rootTokens.subList(0, position);
+            List<TokenInfo> choices = choices(original, request.getAlternative(), position);
+            // Branches end where the root would, so they can be compared token for token
+            int remaining = Math.max(0, maxTokens - position - 1);
+
+            log.info("Forking at position {} into {} branches", position, choices.size());
+            return Flux.fromIterable(choices)
+                    .flatMap(choice -> choice.getText().equals(original.getText())
+                            // The root already continues the original token
+                            ? Mono.fromRunnable(() -> tree.put(append(prefix, original),
+                                    rootTokens.subList(position + 1, rootTokens.size())))
+                            : fork(tree, request, append(prefix, choice), remaining),
+                            concurrency(request))
+                    .then(Mono.fromSupplier(tree::snapshot));
+        });
+    }
+
+    private Mono<List<TokenInfo>> root(TokenTree tree, BranchRequest request) {
+        if (suppliesTokens(request)) {
+            // The tree is this request's own, so the client's tokens cannot seed other clients' forks
+            tree.put(List.of(), request.getTokens());
+            return Mono.just(request.getTokens());
+        }
+        return continuation(tree, request, List.of(), request.getMaxCompletionTokens());
+    }
+
+    private static boolean suppliesTokens(BranchRequest request) {
+        return request.getTokens() != null && !request.getTokens().isEmpty();
+    }
+
+    private Mono<List<TokenInfo>> fork(TokenTree tree, BranchRequest request, List<TokenInfo> prefix, int remaining) {
+        if (remaining == 0) {
+            tree.put(prefix, List.of());
+            return Mono.just(List.of());
+        }
+        return continuation(tree, request, prefix, remaining);
+    }
+
+    /** Continuation of {@code prefix} from the tree, or generated and stored when absent. */
+    private Mono<List<TokenInfo>> continuation(TokenTree tree, BranchRequest request,
+                                               List<TokenInfo> prefix, Integer maxCompletionTokens) {
+        return Mono.defer(() -> {
+            List<TokenInfo> stored = request.getCache() != CachePolicy.NEVER ? tree.continuation(prefix) : null;
+            if (stored != null) {
+                reused.increment();
+                return Mono.just(stored);
+            }
+            generated.increment();
+            return tokenGenerationService.generateTokens(generation(request, prefix, maxCompletionTokens))
+                    .collectList()
+                    .doOnNext(tokens -> tree.put(prefix, tokens));
+        });
+    }
+
+    private static TokenGenerationRequest generation(BranchRequest request, List<TokenInfo> prefix,
+                                                     Integer maxCompletionTokens) {
+        StringBuilder prompt = new StringBuilder(request.getPrompt() != null ? request.getPrompt() : "");
+        for (TokenInfo token : prefix) {
+            prompt.append(token.getText());
+        }
+        TokenGenerationRequest generation = new TokenGenerationRequest();
+        generation.setPrompt(prompt.toString());
+        generation.setTemperature(request.getTemperature());
+        generation.setTopK(request.getTopK());
+        generation.setTopP(request.getTopP());
+        generation.setMaxCompletionTokens(maxCompletionTokens);
+        generation.setCache(request.getCache());
+        return generation;
+    }
+
+    /**
+     * Candidates at a position as tokens of their own, each listing the others as its
+     * alternatives: the original token and its alternatives, or only {@code alternative}.
+     */
+    static List<TokenInfo> choices(TokenInfo original, String alternative, int position) {
+        List<TokenInfo.TokenAlternative> candidates = new ArrayList<>();
+        candidates.add(TokenInfo.TokenAlternative.builder()
+                .text(original.getText())
+                .probability(original.getProbability())
+                .build());
+        if (original.getAlternatives() != null) {
+            candidates.addAll(original.getAlternatives());
+        }
+
+        List<TokenInfo> choices = new ArrayList<>(candidates.size());
+        for (TokenInfo.TokenAlternative candidate : candidates) {
+            if (alternative != null && !alternative.equals(candidate.getText())) {
+                continue;
+            }
+            List<TokenInfo.TokenAlternative> others = new ArrayList<>(candidates);
+            others.remove(candidate);
+            choices.add(TokenInfo.builder()
+                    .text(candidate.getText())
+                    .probability(candidate.getProbability())
+                    .alternatives(others)
+                    .timestamp(original.getTimestamp())
+                    .build());
+        }
+        if (choices.isEmpty()) {
+            throw TokenGenerationException.unknownAlternative(alternative, position);
+        }
+        return choices;
+    }
+
+    private int concurrency(BranchRequest request) {
+        int value = request.getConcurrency() != null
+                ? request.getConcurrency()
+                : branchingConfig.getDefaultConcurrency();
+        return Math.max(1, Math.min(value, branchingConfig.getMaxConcurrency()));
+    }
+
+    private static List<TokenInfo> append(List<TokenInfo> prefix, TokenInfo token) {
+        List<TokenInfo> path = new ArrayList<>(prefix.size() + 1);
+        path.addAll(prefix);
+        path.add(token);
+        return path;
+    }
+
+    /** Parameters that make two requests explore the same tree. */
+    private record TreeKey(String prompt, double temperature, int topK, double topP, Integer maxCompletionTokens) {
+
+        static TreeKey of(BranchRequest request) {
+            return new TreeKey(request.getPrompt(), request.getTemperature(), request.getTopK(),
+                    request.getTopP(), request.getMaxCompletionTokens());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package dev.langchain4j.tokenflowvisualizer.service.branching;
+
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenTreeNode;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All generations explored from one prompt, stored as a trie of tokens. Branches share
+ * the nodes of their common prefix, so forking a long generation at its last token
+ * stores one new path rather than another copy of the whole generation.
+ *
+ * <p>A prefix whose continuation has been generated remembers the node that continuation
+ * ended at, so the same fork is answered from the tree instead of upstream. Siblings are
+ * keyed by token text: for the same prefix and parameters the first stored token wins.
+ */
+public final class TokenTree {
+
+    private final Node root = new Node(null, null);
+    private int size;
+
+    /**
+     * Tokens generated after {@code prefix}, or {@code null} when no continuation of that
+     * prefix has been stored.
+     */
+    public synchronized List<TokenInfo> continuation(List<TokenInfo> prefix) {
+        Node node = find(prefix);
+        if (node == null || node.continuationEnd == null) {
+            return null;
+        }
+        List<TokenInfo> tokens = new ArrayList<>();
+        for (Node n = node.continuationEnd; n != node; n = n.parent) {
+            tokens.add(n.token);
+        }
+        return tokens.reversed();
+    }
+
+    /**
+     * Stores {@code continuation} as generated after {@code prefix}, replacing any earlier
+     * continuation of the same prefix.
+     */
+    public synchronized void put(List<TokenInfo> prefix, List<TokenInfo> continuation) {
+        Node start = insert(root, prefix);
+        start.continuationEnd = insert(start, continuation);
+    }
+
+    /** Number of tokens stored, counting each shared prefix once. */
+    public synchronized int size() {
+        return size;
+    }
+
+    /** Copy of the tree with unbranched runs of tokens collapsed into one segment. */
+    public synchronized TokenTreeNode snapshot() {
+        return segment(root);
+    }
+
+    private Node find(List<TokenInfo> path) {
+        Node node = root;
+        for (TokenInfo token : path) {
+            node = node.children.get(token.getText());
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    private Node insert(Node from, List<TokenInfo> path) {
+        Node node = from;
+        for (TokenInfo token : path) {
+            Node parent = node;
+            node = parent.children.computeIfAbsent(token.getText(), text -> {
+                size++;
+                return new Node(parent, token);
+            });
+        }
+        return node;
+    }
+
+    private static TokenTreeNode segment(Node start) {
+        List<TokenInfo> tokens = new ArrayList<>();
+        Node node = start;
+        if (node.token != null) {
+            tokens.add(node.token);
+        }
+        while (node.children.size() == 1) {
+            node = node.children.values().iterator().next();
+            tokens.add(node.token);
+        }
+        List<TokenTreeNode> children = new ArrayList<>(node.children.size());
+        for (Node child : node.children.values()) {
+            children.add(segment(child));
+        }
+        return TokenTreeNode.builder().tokens(tokens).children(children).build();
+    }
+
+    private static final class Node {
+        private final Node parent;
+        private final TokenInfo token;
+        private final Map<String, Node> children = new LinkedHashMap<>(2);
+        private Node continuationEnd;
+
+        private Node(Node parent, TokenInfo token) {
+            this.parent = parent;
+            this.token = token;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package dev.langchain4j.tokenflowvisualizer.service.cache;
+
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+
+import java.util.List;
+
+/**
+ * One storage level of the {@link GenerationCache}.
+ */
+interface CacheTier {
+
+    String name();
+
+    /**
+     * @return the cached tokens, or {@code null} when absent or expired
+     */
+    List<TokenInfo> get(GenerationKey key);
+
+    void put(GenerationKey key, List<TokenInfo> tokens);
+
+    long sizeInBytes();
+}
@@ -0,0 +1,205 @@
+package dev.langchain4j.tokenflowvisualizer.service.cache;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Local disk tier that keeps one JSON file per generation and therefore survives
+ * restarts. All methods block and must be called off the event loop.
+ * <p>
+ * Files hold {@link StoredToken}s rather than {@link TokenInfo}s, because the API shape
+ * leaves out the upstream log-probability that statistics are computed from. Files
+ * written before it was stored read back without one.
+ */
+@Slf4j
+class DiskCacheTier implements CacheTier {
+
+    private static final String SUFFIX = ".json";
+    private static final TypeReference<List<StoredToken>> TOKENS_TYPE = new TypeReference<>() {};
+
+    private final Path directory;
+    private final long maxBytes;
+    private final long ttlMillis;
+    private final ObjectMapper objectMapper;
+    private final Counter evictions;
+    private long sizeInBytes;
+
+    DiskCacheTier(Path directory, long maxBytes, Duration ttl, ObjectMapper objectMapper, Counter evictions) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttl.toMillis();
+        this.objectMapper = objectMapper;
+        this.evictions = evictions;
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = cacheFiles()) {
+                this.sizeInBytes = files.mapToLong(DiskCacheTier::sizeOf).sum();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open cache directory " + directory, e);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "disk";
+    }
+
+    @Override
+    public List<TokenInfo> get(GenerationKey key) {
+        Path file = fileFor(key);
+        try {
+            if (Files.getLastModifiedTime(file).toMillis() + ttlMillis <= System.currentTimeMillis()) {
+                delete(file);
+                return null;
+            }
+            List<StoredToken> stored = objectMapper.readValue(file.toFile(), TOKENS_TYPE);
+            return stored.stream().map(StoredToken::toTokenInfo).toList();
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("Discarding unreadable cache file {}", file, e);
+            delete(file);
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized void put(GenerationKey key, List<TokenInfo> tokens) {
+        Path file = fileFor(key);
+        try {
+            Path temp = Files.createTempFile(directory, key.digest(), ".tmp");
+            objectMapper.writeValue(temp.toFile(), tokens.stream().map(StoredToken::of).toList());
+            long previousSize = Files.exists(file) ? sizeOf(file) : 0;
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            sizeInBytes += sizeOf(file) - previousSize;
+        } catch (IOException e) {
+            log.warn("Failed to write cache file {}", file, e);
+            return;
+        }
+        if (sizeInBytes > maxBytes) {
+            evictOldest();
+        }
+    }
+
+    @Override
+    public synchronized long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    private void evictOldest() {
+        try (Stream<Path> files = cacheFiles()) {
+            List<Path> oldestFirst = files
+                    .sorted(Comparator.comparingLong(DiskCacheTier::lastModified))
+                    .toList();
+            for (Path file : oldestFirst) {
+                if (sizeInBytes <= maxBytes) {
+                    break;
+                }
+                delete(file);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to evict from cache directory {}", directory, e);
+        }
+    }
+
+    private synchronized void delete(Path file) {
+        long size = sizeOf(file);
+        try {
+            if (Files.deleteIfExists(file)) {
+                sizeInBytes -= size;
+                evictions.increment();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to delete cache file {}", file, e);
+        }
+    }
+
+    private Stream<Path> cacheFiles() throws IOException {
+        return Files.list(directory).filter(file -> file.getFileName().toString().endsWith(SUFFIX));
+    }
+
+    private Path fileFor(GenerationKey key) {
+        return directory.resolve(key.digest() + SUFFIX);
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /** A token as written to disk; a {@code null} log-probability stands for NaN. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record StoredToken(String text, double probability, Double logprob, long timestamp,
+                       List<StoredAlternative> alternatives) {
+
+        static StoredToken of(TokenInfo token) {
+            List<StoredAlternative> alternatives = token.getAlternatives() == null ? null
+                    : token.getAlternatives().stream().map(StoredAlternative::of).toList();
+            return new StoredToken(token.getText(), token.getProbability(), boxed(token.getLogprob()),
+                    token.getTimestamp(), alternatives);
+        }
+
+        TokenInfo toTokenInfo() {
+            return TokenInfo.builder()
+                    .text(text)
+                    .probability(probability)
+                    .logprob(unboxed(logprob))
+                    .timestamp(timestamp)
+                    .alternatives(alternatives == null ? null
+                            : alternatives.stream().map(StoredAlternative::toAlternative).toList())
+                    .build();
+        }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record StoredAlternative(String text, double probability, Double logprob) {
+
+        static StoredAlternative of(TokenInfo.TokenAlternative alternative) {
+            return new StoredAlternative(alternative.getText(), alternative.getProbability(),
+                    boxed(alternative.getLogprob()));
+        }
+
+        TokenInfo.TokenAlternative toAlternative() {
+            return TokenInfo.TokenAlternative.builder()
+                    .text(text)
+                    .probability(probability)
+                    .logprob(unboxed(logprob))
+                    .build();
+        }
+    }
+
+    private static Double boxed(double logprob) {
+        return Double.isNaN(logprob) ? null : logprob;
+    }
+
+    private static double unboxed(Double logprob) {
+        return logprob != null ? logprob : Double.NaN;
+    }
+}
@@ -0,0 +1,128 @@
+package dev.langchain4j.tokenflowvisualizer.service.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.config.CacheConfig;
+import dev.langchain4j.tokenflowvisualizer.dto.CachePolicy;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenGenerationRequest;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Two-tier cache of completed generations: a size-bounded LRU tier on the heap backed
+ * by an optional disk tier that survives restarts. Disk access always happens on the
+ * bounded elastic scheduler.
+ */
+@Slf4j
+@Component
+public class GenerationCache {
+
+    private final CacheConfig cacheConfig;
+    private final MeterRegistry meterRegistry;
+    private final CacheTier heapTier;
+    private final CacheTier diskTier;
+
+    public GenerationCache(CacheConfig cacheConfig, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.cacheConfig = cacheConfig;
+        this.meterRegistry = meterRegistry;
+        CacheConfig.Heap heap = cacheConfig.getHeap();
+        CacheConfig.Disk disk = cacheConfig.getDisk();
+        this.heapTier = heap.isEnabled()
+                ? register(new HeapCacheTier(heap.getMaxSize().toBytes(), heap.getTtl(), evictions("heap")))
+                : null;
+        this.diskTier = disk.isEnabled()
+                ? register(new DiskCacheTier(disk.getDirectory(), disk.getMaxSize().toBytes(), disk.getTtl(),
+                        objectMapper, evictions("disk")))
+                : null;
+    }
+
+    public boolean isCacheable(TokenGenerationRequest request) {
+        if (heapTier == null && diskTier == null) {
+            return false;
+        }
+        CachePolicy policy = request.getCache() != null ? request.getCache() : cacheConfig.getDefaultPolicy();
+        return switch (policy) {
+            case NEVER -> false;
+            case DETERMINISTIC -> request.getTemperature() == 0.0;
+            case ALWAYS -> true;
+        };
+    }
+
+    /**
+     * Looks the generation up in the heap tier and then the disk tier. A disk hit is
+     * promoted to the heap tier. Completes empty on a miss.
+     */
+    public Mono<List<TokenInfo>> lookup(GenerationKey key) {
+        return Mono.defer(() -> {
+            List<TokenInfo> tokens = get(heapTier, key);
+            if (tokens != null || diskTier == null) {
+                return Mono.justOrEmpty(tokens);
+            }
+            return Mono.fromCallable(() -> get(diskTier, key))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .doOnNext(found -> {
+                        if (heapTier != null) {
+                            heapTier.put(key, found);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Passes the tokens through unchanged and stores the generation once it has
+     * completed successfully. Cancelled or failed generations are never stored.
+     */
+    public Flux<TokenInfo> recordInto(GenerationKey key, Flux<TokenInfo> tokens) {
+        return Flux.defer(() -> {
+            List<TokenInfo> collected = new ArrayList<>();
+            return tokens
+                    .doOnNext(collected::add)
+                    .doOnComplete(() -> store(key, collected));
+        });
+    }
+
+    private void store(GenerationKey key, List<TokenInfo> tokens) {
+        if (tokens.isEmpty()) {
+            return;
+        }
+        if (heapTier != null) {
+            heapTier.put(key, tokens);
+        }
+        if (diskTier != null) {
+            Mono.fromRunnable(() -> diskTier.put(key, tokens))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .subscribe(null, error -> log.warn("Failed to store generation on disk", error));
+        }
+    }
+
+    private List<TokenInfo> get(CacheTier tier, GenerationKey key) {
+        if (tier == null) {
+            return null;
+        }
+        List<TokenInfo> tokens = tier.get(key);
+        meterRegistry.counter("probescope.cache.gets",
+                "tier", tier.name(), "result", tokens != null ? "hit" : "miss").increment();
+        return tokens;
+    }
+
+    private CacheTier register(CacheTier tier) {
+        Gauge.builder("probescope.cache.size", tier, CacheTier::sizeInBytes)
+                .tag("tier", tier.name())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        return tier;
+    }
+
+    private Counter evictions(String tier) {
+        return meterRegistry.counter("probescope.cache.evictions", "tier", tier);
+    }
+}
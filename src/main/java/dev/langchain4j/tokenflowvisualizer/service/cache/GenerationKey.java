@@ -0,0 +1,65 @@
+package dev.langchain4j.tokenflowvisualizer.service.cache;
+
+import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Canonical identity of a generation: every upstream parameter that can change the
+ * returned tokens or their logprobs.
+ */
+public record GenerationKey(String model,
+                            List<String> messages,
+                            double temperature,
+                            double topP,
+                            int topLogprobs,
+                            int maxCompletionTokens,
+                            int topK) {
+
+    public GenerationKey(String model, List<String> messages, double temperature, double topP, int topLogprobs,
+                         int maxCompletionTokens) {
+        this(model, messages, temperature, topP, topLogprobs, maxCompletionTokens, 0);
+    }
+
+    public static GenerationKey of(OpenAILogprobsRequest request) {
+        return of(null, request);
+    }
+
+    /**
+     * Key of a generation served by the named provider; two providers may serve a model
+     * of the same name with different weights, so the provider is part of the model.
+     */
+    public static GenerationKey of(String provider, OpenAILogprobsRequest request) {
+        return new GenerationKey(
+                provider != null ? provider + "/" + request.getModel() : request.getModel(),
+                request.getMessages().stream()
+                        .map(message -> message.getRole() + ":" + message.getContent())
+                        .toList(),
+                request.getTemperature() != null ? request.getTemperature() : 1.0,
+                request.getTopP() != null ? request.getTopP() : 1.0,
+                request.getTopLogprobs() != null ? request.getTopLogprobs() : 0,
+                request.getMaxCompletionTokens() != null ? request.getMaxCompletionTokens() : 0,
+                request.getTopK() != null ? request.getTopK() : 0);
+    }
+
+    /**
+     * Stable SHA-256 digest of the key, used where the key has to survive a restart
+     * (for example as a file name).
+     */
+    public String digest() {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            String canonical = model + '\u0000' + String.join("\u0000", messages) + '\u0000'
+                    + temperature + '\u0000' + topP + '\u0000' + topLogprobs + '\u0000' + maxCompletionTokens
+                    // Only keys of providers that sample themselves have a top-k; others keep their digest
+                    + (topK != 0 ? "\u0000" + topK : "");
+            return HexFormat.of().formatHex(sha256.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
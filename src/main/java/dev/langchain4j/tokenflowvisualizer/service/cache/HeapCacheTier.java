@@ -0,0 +1,99 @@
+package dev.langchain4j.tokenflowvisualizer.service.cache;
+
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.trace.TokenTrace;
+import io.micrometer.core.instrument.Counter;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-heap LRU tier bounded by the estimated retained size of its entries rather than
+ * their count, so a few long completions cannot crowd out the heap. Generations are kept
+ * as a {@link TokenTrace}, a few flat arrays instead of several objects per token.
+ */
+class HeapCacheTier implements CacheTier {
+
+    private static final long ENTRY_OVERHEAD = 96;
+
+    private final long maxBytes;
+    private final long ttlMillis;
+    private final Counter evictions;
+    private final LinkedHashMap<GenerationKey, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long sizeInBytes;
+
+    HeapCacheTier(long maxBytes, Duration ttl, Counter evictions) {
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttl.toMillis();
+        this.evictions = evictions;
+    }
+
+    @Override
+    public String name() {
+        return "heap";
+    }
+
+    @Override
+    public synchronized List<TokenInfo> get(GenerationKey key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() <= System.currentTimeMillis()) {
+            remove(key, entry);
+            return null;
+        }
+        return entry.trace().asList();
+    }
+
+    @Override
+    public synchronized void put(GenerationKey key, List<TokenInfo> tokens) {
+        TokenTrace trace = TokenTrace.of(tokens);
+        long size = entrySize(key, trace);
+        if (size > maxBytes) {
+            return;
+        }
+        Entry previous = entries.put(key, new Entry(trace, size, System.currentTimeMillis() + ttlMillis));
+        if (previous != null) {
+            sizeInBytes -= previous.size();
+        }
+        sizeInBytes += size;
+
+        Iterator<Map.Entry<GenerationKey, Entry>> eldest = entries.entrySet().iterator();
+        while (sizeInBytes > maxBytes && eldest.hasNext()) {
+            Entry evicted = eldest.next().getValue();
+            eldest.remove();
+            sizeInBytes -= evicted.size();
+            evictions.increment();
+        }
+    }
+
+    @Override
+    public synchronized long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    private void remove(GenerationKey key, Entry entry) {
+        entries.remove(key);
+        sizeInBytes -= entry.size();
+        evictions.increment();
+    }
+
+    static long estimateSize(GenerationKey key, List<TokenInfo> tokens) {
+        return entrySize(key, TokenTrace.of(tokens));
+    }
+
+    private static long entrySize(GenerationKey key, TokenTrace trace) {
+        long size = ENTRY_OVERHEAD + trace.sizeInBytes();
+        for (String message : key.messages()) {
+            size += 2L * message.length();
+        }
+        return size;
+    }
+
+    private record Entry(TokenTrace trace, long size, long expiresAt) {
+    }
+}
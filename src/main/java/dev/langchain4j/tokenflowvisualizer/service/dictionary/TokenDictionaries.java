@@ -0,0 +1,40 @@
+package dev.langchain4j.tokenflowvisualizer.service.dictionary;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link TokenDictionary} per model, created on first use. Models share no IDs since
+ * their vocabularies differ.
+ */
+@Component
+public class TokenDictionaries {
+
+    private final int maxEntries;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, TokenDictionary> dictionaries = new ConcurrentHashMap<>();
+
+    public TokenDictionaries(@Value("${token.dictionary.max-entries:65536}") int maxEntries,
+                             MeterRegistry meterRegistry) {
+        this.maxEntries = maxEntries;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public TokenDictionary forModel(String model) {
+        String name = model != null ? model : "unknown";
+        return dictionaries.computeIfAbsent(name, this::create);
+    }
+
+    private TokenDictionary create(String model) {
+        TokenDictionary dictionary = new TokenDictionary(maxEntries);
+        Gauge.builder("probescope.dictionary.size", dictionary, TokenDictionary::size)
+                .tag("model", model)
+                .register(meterRegistry);
+        return dictionary;
+    }
+}
@@ -0,0 +1,93 @@
+package dev.langchain4j.tokenflowvisualizer.service.dictionary;
+
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only interning dictionary of the token strings of one model. Every distinct text
+ * gets a stable int ID on first sight; later occurrences resolve to the same ID and the
+ * same canonical {@code String} instance. Once {@code maxEntries} texts are known, new
+ * texts are passed through unchanged and get {@link #NO_ID}.
+ */
+public final class TokenDictionary {
+
+    public static final int NO_ID = -1;
+
+    private final int maxEntries;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] texts = new String[256];
+    private int size;
+
+    TokenDictionary(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * The ID of {@code text}, assigning the next free one if it is new. {@link #NO_ID} for
+     * {@code null} and for new texts once the dictionary is full.
+     */
+    public int id(String text) {
+        if (text == null) {
+            return NO_ID;
+        }
+        Integer id = ids.get(text);
+        return id != null ? id : assign(text);
+    }
+
+    public String text(int id) {
+        String[] snapshot = texts;
+        if (id < 0 || id >= snapshot.length || snapshot[id] == null) {
+            throw new IllegalArgumentException("Unknown token id: " + id);
+        }
+        return snapshot[id];
+    }
+
+    /**
+     * The canonical instance equal to {@code text}, or {@code text} itself if it could not
+     * be interned.
+     */
+    public String intern(String text) {
+        int id = id(text);
+        return id != NO_ID ? texts[id] : text;
+    }
+
+    /**
+     * Replaces the texts of {@code token} and its alternatives with their canonical
+     * instances, in place.
+     */
+    public TokenInfo intern(TokenInfo token) {
+        token.setText(intern(token.getText()));
+        if (token.getAlternatives() != null) {
+            for (TokenInfo.TokenAlternative alternative : token.getAlternatives()) {
+                alternative.setText(intern(alternative.getText()));
+            }
+        }
+        return token;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private synchronized int assign(String text) {
+        Integer existing = ids.get(text);
+        if (existing != null) {
+            return existing;
+        }
+        if (size >= maxEntries) {
+            return NO_ID;
+        }
+        int id = size++;
+        String[] current = texts;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, Math.min(maxEntries, current.length * 2));
+        }
+        current[id] = text;
+        texts = current;
+        ids.put(text, id);
+        return id;
+    }
+}
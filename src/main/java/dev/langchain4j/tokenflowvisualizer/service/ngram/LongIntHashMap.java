@@ -0,0 +1,119 @@
+package dev.langchain4j.tokenflowvisualizer.service.ngram;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from non-negative {@code long} keys to {@code int} values, with
+ * no boxing and no per-entry objects: keys and values live in two parallel arrays probed
+ * linearly.
+ */
+final class LongIntHashMap {
+
+    /** Returned by {@link #get} for absent keys. */
+    static final int MISSING = -1;
+
+    private static final long EMPTY = -1L;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2) - 1) << 1;
+        allocate(capacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(long key) {
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long stored = keys[slot];
+            if (stored == key) {
+                return values[slot];
+            }
+            if (stored == EMPTY) {
+                return MISSING;
+            }
+        }
+    }
+
+    /** The value of {@code key}, after mapping it to {@code value} if it had none. */
+    int putIfAbsent(long key, int value) {
+        int slot = find(key);
+        if (keys[slot] == key) {
+            return values[slot];
+        }
+        insert(slot, key, value);
+        return value;
+    }
+
+    /** Adds {@code delta} to the value of {@code key}, counting from 0, and returns the sum. */
+    int addTo(long key, int delta) {
+        int slot = find(key);
+        if (keys[slot] == key) {
+            return values[slot] += delta;
+        }
+        insert(slot, key, delta);
+        return delta;
+    }
+
+    void forEach(EntryConsumer consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface EntryConsumer {
+        void accept(long key, int value);
+    }
+
+    private int find(long key) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Keys must not be negative: " + key);
+        }
+        int slot = slot(key);
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insert(int slot, long key, int value) {
+        keys[slot] = key;
+        values[slot] = value;
+        // Resize at half full so that probe sequences stay short
+        if (++size * 2 > keys.length) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            allocate(keys.length * 2);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int target = slot(oldKeys[i]);
+                    while (keys[target] != EMPTY) {
+                        target = (target + 1) & mask;
+                    }
+                    keys[target] = oldKeys[i];
+                    values[target] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
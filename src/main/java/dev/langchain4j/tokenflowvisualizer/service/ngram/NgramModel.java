@@ -0,0 +1,194 @@
+package dev.langchain4j.tokenflowvisualizer.service.ngram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An n-gram language model trained from a text corpus, giving a logit for every token of
+ * its vocabulary after any context.
+ * <p>
+ * Scores use stupid backoff: the relative frequency of a token after the longest context
+ * it was seen in, times {@value #BACKOFF} for every order backed off, down to its unigram
+ * frequency. Softmax turns the scores into a proper distribution. Counts per order are
+ * held in primitive hash tables keyed by the context's token ids packed into a
+ * {@code long}, and frozen after training into flat arrays of continuations per context.
+ */
+public final class NgramModel {
+
+    public static final int MAX_ORDER = 4;
+
+    private static final int ID_BITS = 21;
+    private static final int MAX_VOCABULARY = 1 << ID_BITS;
+    private static final double BACKOFF = 0.4;
+
+    /** GPT-2 style pre-tokenisation: words and runs of symbols carry their leading space. */
+    private static final Pattern TOKEN = Pattern.compile(
+            "'s|'t|'re|'ve|'m|'ll|'d| ?\\p{L}+| ?\\p{N}+| ?[^\\s\\p{L}\\p{N}]+|\\s+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final int order;
+    private final String[] vocabulary;
+    private final Map<String, Integer> ids;
+    /** Score of every token when no longer context has been seen. */
+    private final float[] baseLogits;
+    /** Continuations of contexts of length 1 to {@code order - 1}. */
+    private final Level[] levels;
+
+    private record Level(LongIntHashMap rows, int[] rowStart, int[] next, float[] logits) {
+    }
+
+    private NgramModel(int order, String[] vocabulary, Map<String, Integer> ids, float[] baseLogits, Level[] levels) {
+        this.order = order;
+        this.vocabulary = vocabulary;
+        this.ids = ids;
+        this.baseLogits = baseLogits;
+        this.levels = levels;
+    }
+
+    public static NgramModel train(String corpus, int order) {
+        if (order < 1 || order > MAX_ORDER) {
+            throw new IllegalArgumentException("N-gram order must be between 1 and " + MAX_ORDER + ", but was: " + order);
+        }
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> vocabulary = new ArrayList<>();
+        List<String> tokens = tokenize(corpus.strip());
+        int[] sequence = new int[tokens.size()];
+        for (int i = 0; i < sequence.length; i++) {
+            sequence[i] = ids.computeIfAbsent(tokens.get(i), text -> {
+                vocabulary.add(text);
+                return vocabulary.size() - 1;
+            });
+        }
+        if (sequence.length == 0) {
+            throw new IllegalArgumentException("N-gram corpus is empty");
+        }
+        if (vocabulary.size() > MAX_VOCABULARY) {
+            throw new IllegalArgumentException("N-gram vocabulary exceeds " + MAX_VOCABULARY + " tokens");
+        }
+
+        int[] unigrams = new int[vocabulary.size()];
+        for (int id : sequence) {
+            unigrams[id]++;
+        }
+        float[] baseLogits = new float[unigrams.length];
+        double unigramBackoff = (order - 1) * Math.log(BACKOFF);
+        for (int id = 0; id < unigrams.length; id++) {
+            baseLogits[id] = (float) (Math.log((double) unigrams[id] / sequence.length) + unigramBackoff);
+        }
+
+        Level[] levels = new Level[order - 1];
+        for (int length = 1; length < order; length++) {
+            levels[length - 1] = level(sequence, length, (order - 1 - length) * Math.log(BACKOFF));
+        }
+        return new NgramModel(order, vocabulary.toArray(String[]::new), Map.copyOf(ids), baseLogits, levels);
+    }
+
+    /** Counts every continuation of every context of {@code length} tokens. */
+    private static Level level(int[] sequence, int length, double backoff) {
+        LongIntHashMap rows = new LongIntHashMap(1024);
+        LongIntHashMap pairs = new LongIntHashMap(4096);
+        int[] rowTotals = new int[1024];
+        for (int i = length; i < sequence.length; i++) {
+            int row = rows.putIfAbsent(contextKey(sequence, i, length), rows.size());
+            if (row == rowTotals.length) {
+                rowTotals = Arrays.copyOf(rowTotals, row * 2);
+            }
+            rowTotals[row]++;
+            pairs.addTo(((long) row << ID_BITS) | sequence[i], 1);
+        }
+
+        // Lay the continuations of each context out next to each other
+        int[] rowStart = new int[rows.size() + 1];
+        pairs.forEach((key, count) -> rowStart[(int) (key >>> ID_BITS) + 1]++);
+        for (int row = 0; row < rows.size(); row++) {
+            rowStart[row + 1] += rowStart[row];
+        }
+        int[] fill = Arrays.copyOf(rowStart, rows.size());
+        int[] next = new int[pairs.size()];
+        float[] logits = new float[pairs.size()];
+        int[] totals = rowTotals;
+        pairs.forEach((key, count) -> {
+            int row = (int) (key >>> ID_BITS);
+            int slot = fill[row]++;
+            next[slot] = (int) (key & (MAX_VOCABULARY - 1));
+            logits[slot] = (float) (Math.log((double) count / totals[row]) + backoff);
+        });
+        return new Level(rows, rowStart, next, logits);
+    }
+
+    /**
+     * Packs the {@code length} tokens before {@code end}, nearest in the lowest bits; -1 if
+     * one of them is unknown.
+     */
+    private static long contextKey(int[] tokens, int end, int length) {
+        long key = 0;
+        for (int back = 1; back <= length; back++) {
+            int id = tokens[end - back];
+            if (id < 0) {
+                return -1;
+            }
+            key |= (long) id << (ID_BITS * (back - 1));
+        }
+        return key;
+    }
+
+    /** Splits text the way the corpus was split, with runs of whitespace folded to one space. */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(WHITESPACE.matcher(text).replaceAll(" "));
+        while (matcher.find()) {
+            tokens.add(matcher.group());
+        }
+        return tokens;
+    }
+
+    /** Token ids of {@code text}; tokens outside the vocabulary are -1. */
+    public int[] encode(String text) {
+        List<String> tokens = tokenize(text);
+        int[] encoded = new int[tokens.size()];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = ids.getOrDefault(tokens.get(i), -1);
+        }
+        return encoded;
+    }
+
+    public int order() {
+        return order;
+    }
+
+    public int vocabularySize() {
+        return vocabulary.length;
+    }
+
+    public String text(int id) {
+        return vocabulary[id];
+    }
+
+    /**
+     * Writes the score of every token after the first {@code length} tokens of
+     * {@code context} to {@code logits}. Only the last {@code order - 1} of them matter.
+     */
+    public void logits(int[] context, int length, float[] logits) {
+        System.arraycopy(baseLogits, 0, logits, 0, baseLogits.length);
+        // Longer contexts are applied last, so they override the scores they back off to
+        for (int contextLength = 1; contextLength < order && contextLength <= length; contextLength++) {
+            long key = contextKey(context, length, contextLength);
+            if (key < 0) {
+                return;
+            }
+            Level level = levels[contextLength - 1];
+            int row = level.rows().get(key);
+            if (row == LongIntHashMap.MISSING) {
+                return;
+            }
+            for (int slot = level.rowStart()[row]; slot < level.rowStart()[row + 1]; slot++) {
+                logits[level.next()[slot]] = level.logits()[slot];
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package dev.langchain4j.tokenflowvisualizer.service.ngram;
+
+import dev.langchain4j.tokenflowvisualizer.dto.ProviderCapabilities;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsRequest;
+import dev.langchain4j.tokenflowvisualizer.service.provider.TokenProvider;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates tokens in-process from an {@link NgramModel}, with no network call. Every token
+ * is sampled from the full distribution over the vocabulary: softmax at the request's
+ * temperature, then top-k, then top-p. Alternatives are the most likely other tokens of
+ * that distribution, as with OpenAI's top logprobs.
+ * <p>
+ * A generation allocates its working arrays once, so each token costs one pass over the
+ * vocabulary for the softmax plus one for the top-k selection.
+ */
+public class NgramProvider implements TokenProvider {
+
+    private final String name;
+    private final NgramModel model;
+    private final ProviderCapabilities capabilities;
+
+    public NgramProvider(String name, NgramModel model, int maxAlternatives) {
+        this.name = name;
+        this.model = model;
+        this.capabilities = ProviderCapabilities.builder()
+                .logprobs(true)
+                .maxAlternatives(maxAlternatives)
+                .streaming(true)
+                .rawPrompt(true)
+                .topK(true)
+                .build();
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String model() {
+        return model.order() + "-gram";
+    }
+
+    @Override
+    public ProviderCapabilities capabilities() {
+        return capabilities;
+    }
+
+    @Override
+    public boolean remote() {
+        return false;
+    }
+
+    @Override
+    public Flux<TokenInfo> generate(OpenAILogprobsRequest request) {
+        return Flux.generate(() -> new Generation(model, request), (generation, sink) -> {
+            if (generation.remaining-- > 0) {
+                sink.next(generation.next());
+            } else {
+                sink.complete();
+            }
+            return generation;
+        });
+    }
+
+    /** Sampling state of one generation. */
+    static final class Generation {
+        private final NgramModel model;
+        private final double temperature;
+        private final double topP;
+        private final int topK;
+        private final int alternatives;
+        private final int[] context;
+        private final float[] logits;
+        private final float[] probabilities;
+        /** Most likely token ids, best first; the first {@code topK} are the sampling candidates. */
+        private final int[] candidates;
+        private final SplittableRandom random;
+        private int contextLength;
+        int remaining;
+
+        Generation(NgramModel model, OpenAILogprobsRequest request) {
+            this(model, request, new SplittableRandom(ThreadLocalRandom.current().nextLong()));
+        }
+
+        Generation(NgramModel model, OpenAILogprobsRequest request, SplittableRandom random) {
+            this.model = model;
+            this.random = random;
+            int vocabulary = model.vocabularySize();
+            temperature = request.getTemperature() != null ? request.getTemperature() : 1.0;
+            topP = request.getTopP() != null ? request.getTopP() : 1.0;
+            topK = request.getTopK() != null && request.getTopK() > 0
+                    ? Math.min(request.getTopK(), vocabulary)
+                    : vocabulary;
+            alternatives = request.getTopLogprobs() != null ? Math.min(request.getTopLogprobs(), vocabulary - 1) : 0;
+            remaining = request.getMaxCompletionTokens() != null ? request.getMaxCompletionTokens() : 16;
+            logits = new float[vocabulary];
+            probabilities = new float[vocabulary];
+            candidates = new int[Math.max(topK, alternatives + 1)];
+
+            int[] prompt = model.encode(prompt(request).stripTrailing());
+            context = new int[Math.max(1, model.order() - 1)];
+            for (int id : prompt) {
+                push(id);
+            }
+        }
+
+        TokenInfo next() {
+            int vocabulary = model.vocabularySize();
+            model.logits(context, contextLength, logits);
+            // Greedy decoding still reports the untempered distribution
+            Softmax.softmax(logits, probabilities, vocabulary, temperature > 0 ? (float) temperature : 1f);
+            selectMostLikely(probabilities, candidates);
+
+            int chosen = candidates[0];
+            if (temperature > 0) {
+                int keep = topK;
+                double kept = 0;
+                for (int rank = 0; rank < topK; rank++) {
+                    kept += probabilities[candidates[rank]];
+                }
+                if (topP < 1) {
+                    // The nucleus is taken over the top-k candidates, renormalised among themselves
+                    double threshold = topP * kept;
+                    double cumulative = 0;
+                    for (int rank = 0; rank < topK; rank++) {
+                        cumulative += probabilities[candidates[rank]];
+                        if (cumulative >= threshold) {
+                            keep = rank + 1;
+                            kept = cumulative;
+                            break;
+                        }
+                    }
+                }
+                // Inverse CDF over the kept candidates, most likely first
+                double target = random.nextDouble() * kept;
+                double cumulative = 0;
+                for (int rank = 0; rank < keep; rank++) {
+                    chosen = candidates[rank];
+                    cumulative += probabilities[chosen];
+                    if (target < cumulative) {
+                        break;
+                    }
+                }
+            }
+
+            List<TokenInfo.TokenAlternative> others = new ArrayList<>(alternatives);
+            for (int rank = 0; rank < candidates.length && others.size() < alternatives; rank++) {
+                if (candidates[rank] != chosen) {
+                    others.add(TokenInfo.TokenAlternative.builder()
+                            .text(model.text(candidates[rank]))
+                            .probability(probabilities[candidates[rank]])
+                            .build());
+                }
+            }
+            push(chosen);
+            return TokenInfo.builder()
+                    .text(model.text(chosen))
+                    .probability(probabilities[chosen])
+                    .alternatives(others)
+                    .timestamp(System.currentTimeMillis())
+                    .build();
+        }
+
+        private void push(int id) {
+            if (contextLength == context.length) {
+                System.arraycopy(context, 1, context, 0, context.length - 1);
+                contextLength--;
+            }
+            context[contextLength++] = id;
+        }
+
+        private static String prompt(OpenAILogprobsRequest request) {
+            List<OpenAILogprobsRequest.Message> messages = request.getMessages();
+            for (int i = messages.size() - 1; i >= 0; i--) {
+                if ("user".equals(messages.get(i).getRole())) {
+                    return messages.get(i).getContent() != null ? messages.get(i).getContent() : "";
+                }
+            }
+            return "";
+        }
+    }
+
+    /**
+     * Fills {@code top} with the ids of the {@code top.length} most likely tokens, most
+     * likely first: a min-heap of the best so far over one pass of the vocabulary, then
+     * sorted in place.
+     */
+    static void selectMostLikely(float[] probabilities, int[] top) {
+        int k = top.length;
+        for (int id = 0; id < k; id++) {
+            top[id] = id;
+            siftUp(probabilities, top, id);
+        }
+        for (int id = k; id < probabilities.length; id++) {
+            if (probabilities[id] > probabilities[top[0]]) {
+                top[0] = id;
+                siftDown(probabilities, top, 0, k);
+            }
+        }
+        // Heap sort: moving the least likely to the end leaves the most likely first
+        for (int end = k - 1; end > 0; end--) {
+            int least = top[0];
+            top[0] = top[end];
+            top[end] = least;
+            siftDown(probabilities, top, 0, end);
+        }
+    }
+
+    private static void siftUp(float[] probabilities, int[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (probabilities[heap[parent]] <= probabilities[heap[index]]) {
+                return;
+            }
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(float[] probabilities, int[] heap, int index, int size) {
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && probabilities[heap[left]] < probabilities[heap[smallest]]) {
+                smallest = left;
+            }
+            if (right < size && probabilities[heap[right]] < probabilities[heap[smallest]]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(heap, index, smallest);
+            index = smallest;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int swapped = heap[i];
+        heap[i] = heap[j];
+        heap[j] = swapped;
+    }
+}
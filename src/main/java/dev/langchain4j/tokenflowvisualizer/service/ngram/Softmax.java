@@ -0,0 +1,87 @@
+package dev.langchain4j.tokenflowvisualizer.service.ngram;
+
+/**
+ * Softmax over a whole vocabulary of logits, written for C2's auto-vectoriser: every pass
+ * is a counted loop over float arrays without branches or calls it cannot inline.
+ * {@code Math.exp} is not vectorised, so the exponential is a polynomial: e<sup>x</sup> =
+ * (e<sup>x/128</sup>)<sup>128</sup>, with e<sup>x/128</sup> from a degree 6 Taylor series
+ * and the power from seven squarings, accurate to about 1e-5 relative. Exponents below
+ * {@value #MIN_EXPONENT} are clamped, so vanishing probabilities come out near 4e-18
+ * instead of 0.
+ * <p>
+ * The maximum and the sum are floating-point reductions, which C2 does not reorder into
+ * vector lanes; four independent accumulators let them overlap instead.
+ */
+public final class Softmax {
+
+    static final float MIN_EXPONENT = -40f;
+
+    private Softmax() {
+    }
+
+    /**
+     * Writes {@code softmax(logits / temperature)} for the first {@code length} logits to
+     * {@code out}. {@code temperature} must be positive.
+     */
+    public static void softmax(float[] logits, float[] out, int length, float temperature) {
+        float max = max(logits, length);
+        float scale = 1f / temperature;
+        for (int i = 0; i < length; i++) {
+            out[i] = exp((logits[i] - max) * scale);
+        }
+        float normaliser = 1f / sum(out, length);
+        for (int i = 0; i < length; i++) {
+            out[i] *= normaliser;
+        }
+    }
+
+    /** e<sup>x</sup> for x &le; 0. */
+    static float exp(float x) {
+        float y = Math.max(x, MIN_EXPONENT) * (1f / 128);
+        float e = 1f + y * (1f + y * (1f / 2 + y * (1f / 6 + y * (1f / 24 + y * (1f / 120 + y * (1f / 720))))));
+        e *= e;
+        e *= e;
+        e *= e;
+        e *= e;
+        e *= e;
+        e *= e;
+        e *= e;
+        return e;
+    }
+
+    private static float max(float[] values, int length) {
+        float m0 = Float.NEGATIVE_INFINITY;
+        float m1 = m0;
+        float m2 = m0;
+        float m3 = m0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            m0 = Math.max(m0, values[i]);
+            m1 = Math.max(m1, values[i + 1]);
+            m2 = Math.max(m2, values[i + 2]);
+            m3 = Math.max(m3, values[i + 3]);
+        }
+        for (; i < length; i++) {
+            m0 = Math.max(m0, values[i]);
+        }
+        return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+    }
+
+    private static float sum(float[] values, int length) {
+        float s0 = 0;
+        float s1 = 0;
+        float s2 = 0;
+        float s3 = 0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            s0 += values[i];
+            s1 += values[i + 1];
+            s2 += values[i + 2];
+            s3 += values[i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += values[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+}
@@ -0,0 +1,111 @@
+package dev.langchain4j.tokenflowvisualizer.service.provider;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.tokenflowvisualizer.dto.ProviderCapabilities;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsRequest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adapts any langchain4j {@link StreamingChatModel} to tokens. Every partial response
+ * becomes one token; langchain4j does not expose logprobs, so tokens carry no probability
+ * and no alternatives.
+ * <p>
+ * The model is called on the bounded elastic scheduler, so a model whose {@code chat}
+ * does blocking work before going asynchronous never holds an event loop; its callbacks
+ * feed the sink from whatever thread the model uses. langchain4j offers no way to abort a
+ * streaming call, so after a cancel the remaining callbacks are dropped.
+ */
+public class LangChain4jStreamingProvider implements TokenProvider {
+
+    private static final ProviderCapabilities CAPABILITIES = ProviderCapabilities.builder()
+            .logprobs(false)
+            .maxAlternatives(0)
+            .streaming(true)
+            .build();
+
+    private final String name;
+    private final String model;
+    private final StreamingChatModel chatModel;
+
+    public LangChain4jStreamingProvider(String name, String model, StreamingChatModel chatModel) {
+        this.name = name;
+        this.model = model;
+        this.chatModel = chatModel;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String model() {
+        return model;
+    }
+
+    @Override
+    public ProviderCapabilities capabilities() {
+        return CAPABILITIES;
+    }
+
+    @Override
+    public Flux<TokenInfo> generate(OpenAILogprobsRequest request) {
+        ChatRequest chatRequest = ChatRequest.builder()
+                .messages(messages(request))
+                .temperature(request.getTemperature())
+                .topP(request.getTopP())
+                .maxOutputTokens(request.getMaxCompletionTokens())
+                .build();
+        return Flux.<TokenInfo>create(sink -> chatModel.chat(chatRequest, new SinkHandler(sink)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static List<ChatMessage> messages(OpenAILogprobsRequest request) {
+        List<ChatMessage> messages = new ArrayList<>(request.getMessages().size());
+        for (OpenAILogprobsRequest.Message message : request.getMessages()) {
+            messages.add(switch (message.getRole()) {
+                case "system" -> SystemMessage.from(message.getContent());
+                case "assistant" -> AiMessage.from(message.getContent());
+                default -> UserMessage.from(message.getContent());
+            });
+        }
+        return messages;
+    }
+
+    private record SinkHandler(FluxSink<TokenInfo> sink) implements StreamingChatResponseHandler {
+
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            if (!sink.isCancelled()) {
+                sink.next(TokenInfo.builder()
+                        .text(partialResponse)
+                        .alternatives(List.of())
+                        .timestamp(System.currentTimeMillis())
+                        .build());
+            }
+        }
+
+        @Override
+        public void onCompleteResponse(ChatResponse completeResponse) {
+            sink.complete();
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            sink.error(error);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package dev.langchain4j.tokenflowvisualizer.service.provider;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.dto.ProviderCapabilities;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsChunk;
+import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsRequest;
+import dev.langchain4j.tokenflowvisualizer.exception.TokenGenerationException;
+import dev.langchain4j.tokenflowvisualizer.service.IncrementalLogprobsParser;
+import dev.langchain4j.tokenflowvisualizer.service.LogprobsMapper;
+import dev.langchain4j.tokenflowvisualizer.service.ratelimit.UpstreamRateLimiter;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Calls an OpenAI-compatible {@code /chat/completions} endpoint over a non-blocking
+ * {@link WebClient} and reads tokens with their logprobs. Serves OpenAI itself as well as
+ * local inference servers that speak the same protocol, such as vLLM or llama.cpp.
+ */
+public class OpenAICompatibleProvider implements TokenProvider {
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+    private static final String DONE_MARKER = "[DONE]";
+
+    private final String name;
+    private final String model;
+    private final ProviderCapabilities capabilities;
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper;
+
+    public OpenAICompatibleProvider(String name, String model, ProviderCapabilities capabilities,
+                                    WebClient webClient, ObjectMapper objectMapper) {
+        this.name = name;
+        this.model = model;
+        this.capabilities = capabilities;
+        this.webClient = webClient;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String model() {
+        return model;
+    }
+
+    @Override
+    public ProviderCapabilities capabilities() {
+        return capabilities;
+    }
+
+    @Override
+    public Flux<TokenInfo> generate(OpenAILogprobsRequest request) {
+        return Boolean.TRUE.equals(request.getStream())
+                ? streamLogprobs(request)
+                : fetchLogprobs(request);
+    }
+
+    /**
+     * Requests the whole completion at once but parses its body incrementally, emitting
+     * every token as soon as its logprobs have been read.
+     */
+    private Flux<TokenInfo> fetchLogprobs(OpenAILogprobsRequest request) {
+        return webClient.post()
+                .uri("/chat/completions")
+                .attribute(UpstreamRateLimiter.ESTIMATED_TOKENS, estimatedTokens(request))
+                .bodyValue(request)
+                .retrieve()
+                .onStatus(HttpStatusCode::isError,
+                        resp -> resp.createException().flatMap(Mono::error))
+                .bodyToFlux(DataBuffer.class)
+                .transform(body -> IncrementalLogprobsParser.parse(body, objectMapper));
+    }
+
+    /**
+     * Streams the completion as server-sent chunks and emits every token as soon as
+     * the chunk carrying it has been received.
+     */
+    private Flux<TokenInfo> streamLogprobs(OpenAILogprobsRequest request) {
+        return webClient.post()
+                .uri("/chat/completions")
+                .attribute(UpstreamRateLimiter.ESTIMATED_TOKENS, estimatedTokens(request))
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(request)
+                .retrieve()
+                .onStatus(HttpStatusCode::isError,
+                        resp -> resp.createException().flatMap(Mono::error))
+                .bodyToFlux(SSE_TYPE)
+                .mapNotNull(ServerSentEvent::data)
+                .takeWhile(data -> !DONE_MARKER.equals(data.trim()))
+                .concatMapIterable(this::processLogprobsChunk);
+    }
+
+    /**
+     * Token cost of a call as the rate limiter sees it: roughly four characters per prompt
+     * token, plus the whole completion budget.
+     */
+    private static long estimatedTokens(OpenAILogprobsRequest request) {
+        long promptChars = 0;
+        for (OpenAILogprobsRequest.Message message : request.getMessages()) {
+            promptChars += message.getContent() != null ? message.getContent().length() : 0;
+        }
+        int completion = request.getMaxCompletionTokens() != null ? request.getMaxCompletionTokens() : 0;
+        return (promptChars + 3) / 4 + completion;
+    }
+
+    private List<TokenInfo> processLogprobsChunk(String data) {
+        try {
+            return LogprobsMapper.toTokenInfos(objectMapper.readValue(data, OpenAILogprobsChunk.class));
+        } catch (JsonProcessingException e) {
+            throw TokenGenerationException.invalidChunk(e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package dev.langchain4j.tokenflowvisualizer.service.provider;
+
+import dev.langchain4j.tokenflowvisualizer.config.ProvidersConfig;
+import dev.langchain4j.tokenflowvisualizer.dto.ProviderInfo;
+import dev.langchain4j.tokenflowvisualizer.exception.TokenGenerationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every {@link TokenProvider} bean by name. The registry is built once at startup and
+ * never changes, so selecting a provider for a request is one lookup in an immutable map.
+ */
+@Slf4j
+@Component
+public class ProviderRegistry {
+
+    private final Map<String, TokenProvider> providers;
+    private final TokenProvider defaultProvider;
+    private final List<ProviderInfo> descriptions;
+
+    public ProviderRegistry(List<TokenProvider> providers, ProvidersConfig providersConfig) {
+        Map<String, TokenProvider> byName = new HashMap<>();
+        for (TokenProvider provider : providers) {
+            if (byName.putIfAbsent(provider.name(), provider) != null) {
+                throw new IllegalStateException("Duplicate token provider: " + provider.name());
+            }
+        }
+        this.providers = Map.copyOf(byName);
+        this.defaultProvider = this.providers.get(providersConfig.getDefaultProvider());
+        if (defaultProvider == null) {
+            throw new IllegalStateException("Default token provider '" + providersConfig.getDefaultProvider()
+                    + "' is not one of " + this.providers.keySet());
+        }
+        this.descriptions = providers.stream()
+                .map(provider -> ProviderInfo.builder()
+                        .name(provider.name())
+                        .model(provider.model())
+                        .defaultProvider(provider == defaultProvider)
+                        .capabilities(provider.capabilities())
+                        .build())
+                .toList();
+        log.info("Token providers: {}, default: {}", this.providers.keySet(), defaultProvider.name());
+    }
+
+    /** The provider called {@code name}, or the default provider when no name is given. */
+    public TokenProvider resolve(String name) {
+        if (name == null) {
+            return defaultProvider;
+        }
+        TokenProvider provider = providers.get(name);
+        if (provider == null) {
+            throw TokenGenerationException.unknownProvider(name);
+        }
+        return provider;
+    }
+
+    public List<ProviderInfo> describe() {
+        return descriptions;
+    }
+}
@@ -0,0 +1,37 @@
+package dev.langchain4j.tokenflowvisualizer.service.provider;
+
+import dev.langchain4j.tokenflowvisualizer.dto.ProviderCapabilities;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsRequest;
+import reactor.core.publisher.Flux;
+
+/**
+ * A backend that turns a completion request into tokens. Caching and coalescing are
+ * applied around every provider by the generation service, and hedging and a circuit
+ * breaker of its own around every {@link #remote() remote} one, so an implementation only
+ * talks to its upstream.
+ * <p>
+ * Requests are given in the OpenAI chat form the service builds for every provider; a
+ * provider translates them as far as its {@link #capabilities()} allow. {@link #generate}
+ * must not block the calling thread.
+ */
+public interface TokenProvider {
+
+    /** Name a request selects the provider by. */
+    String name();
+
+    /** Model requests to this provider are made for. */
+    String model();
+
+    ProviderCapabilities capabilities();
+
+    /**
+     * Whether {@link #generate} calls over the network. In-process providers cannot fail
+     * like an upstream can, so they are neither hedged nor guarded by a circuit breaker.
+     */
+    default boolean remote() {
+        return true;
+    }
+
+    Flux<TokenInfo> generate(OpenAILogprobsRequest request);
+}
@@ -0,0 +1,84 @@
+package dev.langchain4j.tokenflowvisualizer.service.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Continuously refilling bucket holding up to one minute of budget. Reservations may
+ * overdraw it; the debt makes later callers wait in turn, which queues them fairly.
+ * Not thread-safe; {@link UpstreamRateLimiter} guards it.
+ */
+final class TokenBucket {
+
+    private static final double NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private double capacity;
+    private double refillPerNano;
+    private double available;
+    private long updatedAt;
+    private long pausedUntil;
+
+    TokenBucket(double perMinute, long now) {
+        setLimit(perMinute);
+        this.available = capacity;
+        this.updatedAt = now;
+        this.pausedUntil = now;
+    }
+
+    /**
+     * Nanoseconds until {@code amount} could be taken. Amounts above the capacity are
+     * treated as the full capacity so they are not starved forever.
+     */
+    long waitFor(double amount, long now) {
+        refill(now);
+        double deficit = Math.min(amount, capacity) - available;
+        long refillWait = deficit > 0 ? (long) Math.ceil(deficit / refillPerNano) : 0;
+        return Math.max(refillWait, pausedUntil - now);
+    }
+
+    void take(double amount, long now) {
+        refill(now);
+        available -= Math.min(amount, capacity);
+    }
+
+    /**
+     * Adopts the provider's view of this budget: its limit per minute, what remains, and
+     * when an exhausted budget resets. Negative values mean the header was absent.
+     */
+    void sync(double limit, double remaining, long resetNanos, long now) {
+        refill(now);
+        if (limit > 0) {
+            setLimit(limit);
+        }
+        if (remaining >= 0) {
+            available = Math.min(capacity, remaining);
+            if (remaining == 0 && resetNanos > 0) {
+                pauseUntil(now + resetNanos);
+            }
+        }
+    }
+
+    /**
+     * Stops admitting anything until {@code until}, for example after a 429.
+     */
+    void pauseUntil(long until) {
+        pausedUntil = Math.max(pausedUntil, until);
+    }
+
+    double available(long now) {
+        refill(now);
+        return available;
+    }
+
+    private void setLimit(double perMinute) {
+        capacity = Math.max(1, perMinute);
+        refillPerNano = capacity / NANOS_PER_MINUTE;
+        available = Math.min(available, capacity);
+    }
+
+    private void refill(long now) {
+        if (now > updatedAt) {
+            available = Math.min(capacity, available + (now - updatedAt) * refillPerNano);
+            updatedAt = now;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package dev.langchain4j.tokenflowvisualizer.service.ratelimit;
+
+import dev.langchain4j.tokenflowvisualizer.config.OpenAIConfig;
+import dev.langchain4j.tokenflowvisualizer.exception.TokenGenerationException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Admission control in front of the upstream {@code WebClient}. Every call reserves one
+ * request and its estimated tokens from per-minute buckets and waits, up to
+ * {@code openai.rate-limit.max-wait}, until both are available. The buckets follow the
+ * provider's {@code x-ratelimit-*} headers, and 429 and 5xx responses are retried with
+ * jittered exponential backoff that respects {@code Retry-After}. A 429 also pauses
+ * admission for everyone, so a burst of callers does not turn into a storm of retries.
+ * <p>
+ * Callers pass the estimated token cost as the {@link #ESTIMATED_TOKENS} request attribute.
+ */
+@Slf4j
+@Component
+public class UpstreamRateLimiter implements ExchangeFilterFunction {
+
+    public static final String ESTIMATED_TOKENS = UpstreamRateLimiter.class.getName() + ".estimatedTokens";
+
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|s|m|h)");
+
+    private final OpenAIConfig.RateLimit settings;
+    private final LongSupplier nanoClock;
+    private final TokenBucket requests;
+    private final TokenBucket tokens;
+    private final Timer waits;
+    private final Counter rejections;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public UpstreamRateLimiter(OpenAIConfig openAIConfig, MeterRegistry meterRegistry) {
+        this(openAIConfig.getRateLimit(), meterRegistry, System::nanoTime);
+    }
+
+    UpstreamRateLimiter(OpenAIConfig.RateLimit settings, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.settings = settings;
+        this.nanoClock = nanoClock;
+        this.meterRegistry = meterRegistry;
+        long now = nanoClock.getAsLong();
+        this.requests = new TokenBucket(settings.getRequestsPerMinute(), now);
+        this.tokens = new TokenBucket(settings.getTokensPerMinute(), now);
+        this.waits = Timer.builder("probescope.ratelimit.wait")
+                .description("Time upstream calls waited for rate limit budget")
+                .register(meterRegistry);
+        this.rejections = Counter.builder("probescope.ratelimit.rejected")
+                .description("Upstream calls rejected because the wait would exceed max-wait")
+                .register(meterRegistry);
+        meterRegistry.gauge("probescope.ratelimit.available", Tags.of("budget", "requests"),
+                this, limiter -> limiter.available(limiter.requests));
+        meterRegistry.gauge("probescope.ratelimit.available", Tags.of("budget", "tokens"),
+                this, limiter -> limiter.available(limiter.tokens));
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (!settings.isEnabled()) {
+            return next.exchange(request);
+        }
+        long estimatedTokens = request.attribute(ESTIMATED_TOKENS)
+                .map(value -> ((Number) value).longValue())
+                .orElse(0L);
+        return exchange(request, next, estimatedTokens, 0);
+    }
+
+    private Mono<ClientResponse> exchange(ClientRequest request, ExchangeFunction next, long estimatedTokens, int attempt) {
+        return admit(estimatedTokens)
+                .then(Mono.defer(() -> next.exchange(request)))
+                .flatMap(response -> {
+                    HttpStatusCode status = response.statusCode();
+                    long retryAfter = onResponse(status, response.headers().asHttpHeaders());
+                    if (!isRetryable(status) || attempt >= settings.getMaxRetries()) {
+                        return Mono.just(response);
+                    }
+                    Duration delay = backoff(attempt, retryAfter);
+                    meterRegistry.counter("probescope.upstream.retries", "status", String.valueOf(status.value()))
+                            .increment();
+                    log.warn("Upstream answered {}, retry {} of {} in {}ms", status.value(), attempt + 1,
+                            settings.getMaxRetries(), delay.toMillis());
+                    return response.releaseBody()
+                            .then(Mono.delay(delay))
+                            .then(Mono.defer(() -> exchange(request, next, estimatedTokens, attempt + 1)));
+                });
+    }
+
+    /**
+     * Reserves the budget of one call and completes once it may start, or fails right away
+     * if that would take longer than the maximum wait.
+     */
+    Mono<Void> admit(long estimatedTokens) {
+        return Mono.defer(() -> {
+            long wait = reserve(estimatedTokens);
+            if (wait < 0) {
+                rejections.increment();
+                return Mono.error(TokenGenerationException.rateLimited(settings.getMaxWait()));
+            }
+            waits.record(wait, TimeUnit.NANOSECONDS);
+            return wait > 0 ? Mono.delay(Duration.ofNanos(wait)).then() : Mono.empty();
+        });
+    }
+
+    /**
+     * Nanoseconds the call has to wait, or -1 if that exceeds the maximum wait, in which
+     * case nothing is reserved.
+     */
+    synchronized long reserve(long estimatedTokens) {
+        long now = nanoClock.getAsLong();
+        long wait = Math.max(requests.waitFor(1, now), tokens.waitFor(estimatedTokens, now));
+        if (wait > settings.getMaxWait().toNanos()) {
+            return -1;
+        }
+        requests.take(1, now);
+        tokens.take(estimatedTokens, now);
+        return wait;
+    }
+
+    /**
+     * Syncs the buckets with the rate limit headers and returns the delay the provider
+     * asked for before retrying, in nanoseconds, or 0.
+     */
+    synchronized long onResponse(HttpStatusCode status, HttpHeaders headers) {
+        long now = nanoClock.getAsLong();
+        requests.sync(number(headers, "x-ratelimit-limit-requests"), number(headers, "x-ratelimit-remaining-requests"),
+                duration(headers, "x-ratelimit-reset-requests"), now);
+        tokens.sync(number(headers, "x-ratelimit-limit-tokens"), number(headers, "x-ratelimit-remaining-tokens"),
+                duration(headers, "x-ratelimit-reset-tokens"), now);
+
+        if (status.value() != HttpStatus.TOO_MANY_REQUESTS.value()) {
+            return 0;
+        }
+        long retryAfter = retryAfter(headers);
+        requests.pauseUntil(now + retryAfter);
+        tokens.pauseUntil(now + retryAfter);
+        return retryAfter;
+    }
+
+    private Duration backoff(int attempt, long retryAfterNanos) {
+        long base = Math.min(settings.getMaxBackoff().toNanos(),
+                settings.getInitialBackoff().toNanos() << Math.min(attempt, 20));
+        long jittered = (long) (base * (1 - settings.getJitter() * ThreadLocalRandom.current().nextDouble()));
+        return Duration.ofNanos(Math.max(jittered, retryAfterNanos));
+    }
+
+    private synchronized double available(TokenBucket bucket) {
+        return bucket.available(nanoClock.getAsLong());
+    }
+
+    private static boolean isRetryable(HttpStatusCode status) {
+        return status.value() == HttpStatus.TOO_MANY_REQUESTS.value() || status.is5xxServerError();
+    }
+
+    private long retryAfter(HttpHeaders headers) {
+        String retryAfter = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter != null) {
+            try {
+                return TimeUnit.MILLISECONDS.toNanos((long) (Double.parseDouble(retryAfter.trim()) * 1000));
+            } catch (NumberFormatException e) {
+                // An HTTP date; fall back to the reset headers
+            }
+        }
+        long reset = Math.max(duration(headers, "x-ratelimit-reset-requests"), duration(headers, "x-ratelimit-reset-tokens"));
+        return reset > 0 ? reset : settings.getInitialBackoff().toNanos();
+    }
+
+    private static double number(HttpHeaders headers, String name) {
+        String value = headers.getFirst(name);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Parses the Go-style durations of the reset headers, such as {@code 20ms}, {@code 1s}
+     * or {@code 6m0s}, into nanoseconds; -1 if absent or malformed.
+     */
+    static long duration(HttpHeaders headers, String name) {
+        String value = headers.getFirst(name);
+        if (value == null || value.isBlank()) {
+            return -1;
+        }
+        Matcher matcher = DURATION_PART.matcher(value.trim());
+        double nanos = 0;
+        int end = 0;
+        while (matcher.find() && matcher.start() == end) {
+            double amount = Double.parseDouble(matcher.group(1));
+            nanos += amount * switch (matcher.group(2)) {
+                case "ms" -> 1e6;
+                case "s" -> 1e9;
+                case "m" -> 60e9;
+                default -> 3600e9;
+            };
+            end = matcher.end();
+        }
+        return end == value.trim().length() ? (long) nanos : -1;
+    }
+}
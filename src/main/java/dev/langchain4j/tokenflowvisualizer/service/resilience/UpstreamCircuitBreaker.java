@@ -0,0 +1,197 @@
+package dev.langchain4j.tokenflowvisualizer.service.resilience;
+
+import dev.langchain4j.tokenflowvisualizer.config.OpenAIConfig;
+import dev.langchain4j.tokenflowvisualizer.exception.TokenGenerationException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker around upstream calls. It opens when the failure rate over
+ * the last {@code window-size} calls reaches the threshold, fails calls fast while open,
+ * and after {@code open-duration} lets a few trial calls through, closing again only if
+ * all of them succeed. Only upstream failures count against it: transport errors and
+ * 429 or 5xx responses. Other client errors are the caller's fault and count as
+ * successes, as do errors raised locally, such as rate limiter rejections and client-side
+ * timeouts; cancelled calls are not counted.
+ * <p>
+ * Each remote provider has its own breaker, see {@link UpstreamGuards}, and its meters are
+ * tagged with the provider's name.
+ */
+@Slf4j
+public class UpstreamCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private enum Permit {
+        REJECTED, CALL, TRIAL
+    }
+
+    private final OpenAIConfig.CircuitBreaker settings;
+    private final LongSupplier nanoClock;
+    private final MeterRegistry meterRegistry;
+    private final Tags tags;
+    private final Counter rejections;
+    private final boolean[] failed;
+    private int next;
+    private int recorded;
+    private int failures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int trialsStarted;
+    private int trialsSucceeded;
+
+    public UpstreamCircuitBreaker(String provider, OpenAIConfig openAIConfig, MeterRegistry meterRegistry) {
+        this(provider, openAIConfig.getCircuitBreaker(), meterRegistry, System::nanoTime);
+    }
+
+    UpstreamCircuitBreaker(String provider, OpenAIConfig.CircuitBreaker settings, MeterRegistry meterRegistry,
+                           LongSupplier nanoClock) {
+        this.settings = settings;
+        this.nanoClock = nanoClock;
+        this.meterRegistry = meterRegistry;
+        this.tags = Tags.of("provider", provider);
+        this.failed = new boolean[Math.max(1, settings.getWindowSize())];
+        this.rejections = Counter.builder("probescope.circuit.rejected")
+                .description("Upstream calls failed fast by the open circuit breaker")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder("probescope.circuit.state", this, breaker -> breaker.state().ordinal())
+                .description("Upstream circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    public <T> Flux<T> protect(Flux<T> call) {
+        if (!settings.isEnabled()) {
+            return call;
+        }
+        return Flux.defer(() -> {
+            Permit permit = acquire();
+            if (permit == Permit.REJECTED) {
+                rejections.increment();
+                return Flux.error(TokenGenerationException.circuitOpen());
+            }
+            boolean trial = permit == Permit.TRIAL;
+            return call
+                    .doOnComplete(() -> onResult(trial, false))
+                    .doOnError(error -> onResult(trial, isFailure(error)))
+                    .doOnCancel(() -> onCancel(trial));
+        });
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    private synchronized Permit acquire() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAt < settings.getOpenDuration().toNanos()) {
+                return Permit.REJECTED;
+            }
+            transition(State.HALF_OPEN);
+            trialsStarted = 0;
+            trialsSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsStarted >= settings.getHalfOpenCalls()) {
+                return Permit.REJECTED;
+            }
+            trialsStarted++;
+            return Permit.TRIAL;
+        }
+        return Permit.CALL;
+    }
+
+    private synchronized void onResult(boolean trial, boolean failure) {
+        if (trial) {
+            if (state != State.HALF_OPEN) {
+                return;
+            }
+            if (failure) {
+                log.warn("Reopening upstream circuit breaker: a trial call failed");
+                open();
+            } else if (++trialsSucceeded >= settings.getHalfOpenCalls()) {
+                transition(State.CLOSED);
+                resetWindow();
+            }
+            return;
+        }
+        if (state != State.CLOSED) {
+            // Started before the breaker opened
+            return;
+        }
+        if (recorded == failed.length) {
+            failures -= failed[next] ? 1 : 0;
+        } else {
+            recorded++;
+        }
+        failed[next] = failure;
+        failures += failure ? 1 : 0;
+        next = (next + 1) % failed.length;
+
+        if (recorded >= settings.getMinimumCalls()
+                && failures >= settings.getFailureRateThreshold() * recorded) {
+            log.warn("Opening upstream circuit breaker: {} of the last {} calls failed", failures, recorded);
+            open();
+        }
+    }
+
+    private synchronized void onCancel(boolean trial) {
+        if (trial && state == State.HALF_OPEN) {
+            trialsStarted--;
+        }
+    }
+
+    private void open() {
+        transition(State.OPEN);
+        openedAt = nanoClock.getAsLong();
+        resetWindow();
+    }
+
+    private void transition(State target) {
+        state = target;
+        meterRegistry.counter("probescope.circuit.transitions", tags.and("state", target.name().toLowerCase()))
+                .increment();
+    }
+
+    private void resetWindow() {
+        Arrays.fill(failed, false);
+        next = 0;
+        recorded = 0;
+        failures = 0;
+    }
+
+    private static boolean isFailure(Throwable error) {
+        Throwable cause = error;
+        while (cause != null) {
+            if (cause instanceof WebClientResponseException response) {
+                int status = response.getStatusCode().value();
+                return status == 429 || status >= 500;
+            }
+            if (cause instanceof WebClientRequestException || cause instanceof IOException) {
+                return true;
+            }
+            if (cause instanceof TokenGenerationException || cause instanceof TimeoutException
+                    || cause instanceof CancellationException) {
+                // Raised on this side without upstream having failed
+                return false;
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,52 @@
+package dev.langchain4j.tokenflowvisualizer.service.resilience;
+
+import dev.langchain4j.tokenflowvisualizer.config.OpenAIConfig;
+import dev.langchain4j.tokenflowvisualizer.service.provider.TokenProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * One {@link UpstreamCircuitBreaker} and one {@link UpstreamHedger} per remote
+ * {@link TokenProvider}, built once at startup. A failing upstream therefore only opens
+ * the breaker of the provider calling it, and each hedge delay follows the latency of its
+ * own upstream. In-process providers are called as they are.
+ */
+@Component
+public class UpstreamGuards {
+
+    private final Map<String, UpstreamCircuitBreaker> circuitBreakers;
+    private final Map<String, UpstreamHedger> hedgers;
+
+    public UpstreamGuards(List<TokenProvider> providers, OpenAIConfig openAIConfig, MeterRegistry meterRegistry) {
+        Map<String, UpstreamCircuitBreaker> breakers = new HashMap<>();
+        Map<String, UpstreamHedger> hedged = new HashMap<>();
+        for (TokenProvider provider : providers) {
+            if (provider.remote()) {
+                breakers.put(provider.name(), new UpstreamCircuitBreaker(provider.name(), openAIConfig, meterRegistry));
+                hedged.put(provider.name(), new UpstreamHedger(provider.name(), openAIConfig, meterRegistry));
+            }
+        }
+        this.circuitBreakers = Map.copyOf(breakers);
+        this.hedgers = Map.copyOf(hedged);
+    }
+
+    /** The call, hedged and behind the provider's circuit breaker if the provider is remote. */
+    public <T> Flux<T> protect(TokenProvider provider, Supplier<Flux<T>> call) {
+        UpstreamCircuitBreaker circuitBreaker = circuitBreakers.get(provider.name());
+        if (circuitBreaker == null) {
+            return Flux.defer(call);
+        }
+        return circuitBreaker.protect(hedgers.get(provider.name()).hedge(call));
+    }
+
+    /** The circuit breaker of a remote provider, or null for an in-process one. */
+    public UpstreamCircuitBreaker circuitBreaker(String provider) {
+        return circuitBreakers.get(provider);
+    }
+}
@@ -0,0 +1,142 @@
+package dev.langchain4j.tokenflowvisualizer.service.resilience;
+
+import dev.langchain4j.tokenflowvisualizer.config.OpenAIConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Hedges slow upstream calls. When a call has not produced its first token within the
+ * hedge delay, an identical second call is started; whichever signals first is kept and
+ * the other is cancelled. The delay is fixed, or follows a percentile of the recently
+ * observed time to first token. Each call earns {@code max-rate} of a hedge, so at most
+ * that fraction of calls is ever hedged.
+ * <p>
+ * Each remote provider has its own hedger, see {@link UpstreamGuards}, so the delay follows
+ * that provider's latency; its meters are tagged with the provider's name.
+ */
+@Slf4j
+public class UpstreamHedger {
+
+    private static final double MAX_ALLOWANCE = 10;
+    private static final long DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int PRIMARY = 1;
+    private static final int HEDGE = 2;
+
+    private final OpenAIConfig.Hedging settings;
+    private final LongSupplier nanoClock;
+    private final Timer firstToken;
+    private final Counter issued;
+    private final Counter won;
+    private final Counter skipped;
+    private double allowance;
+    private Duration delay;
+    private long delayRefreshedAt;
+
+    public UpstreamHedger(String provider, OpenAIConfig openAIConfig, MeterRegistry meterRegistry) {
+        this(provider, openAIConfig.getHedging(), meterRegistry, System::nanoTime);
+    }
+
+    UpstreamHedger(String provider, OpenAIConfig.Hedging settings, MeterRegistry meterRegistry,
+                   LongSupplier nanoClock) {
+        Tags tags = Tags.of("provider", provider);
+        this.settings = settings;
+        this.nanoClock = nanoClock;
+        this.firstToken = Timer.builder("probescope.upstream.first.token")
+                .description("Time from an upstream call to its first token, which drives the hedge delay")
+                .tags(tags)
+                .publishPercentiles(settings.getPercentile())
+                .register(meterRegistry);
+        this.issued = meterRegistry.counter("probescope.hedge.calls", tags.and("outcome", "issued"));
+        this.won = meterRegistry.counter("probescope.hedge.calls", tags.and("outcome", "won"));
+        this.skipped = meterRegistry.counter("probescope.hedge.calls", tags.and("outcome", "skipped"));
+        this.delay = settings.getInitialDelay();
+        this.delayRefreshedAt = nanoClock.getAsLong();
+        TimeGauge.builder("probescope.hedge.delay", this, TimeUnit.MILLISECONDS, hedger -> hedger.delay().toMillis())
+                .description("Current delay before a call is hedged")
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    public <T> Flux<T> hedge(Supplier<Flux<T>> call) {
+        if (!settings.isEnabled()) {
+            return Flux.defer(call);
+        }
+        return Flux.defer(() -> {
+            earnAllowance();
+            AtomicInteger winner = new AtomicInteger();
+            Flux<T> primary = attempt(call, winner, PRIMARY);
+            Flux<T> hedge = Mono.delay(delay())
+                    .flatMapMany(tick -> {
+                        if (!tryHedge()) {
+                            skipped.increment();
+                            return Flux.never();
+                        }
+                        issued.increment();
+                        log.debug("Hedging upstream call after {}ms", delay().toMillis());
+                        return attempt(call, winner, HEDGE);
+                    });
+            return Flux.firstWithSignal(primary, hedge);
+        });
+    }
+
+    /**
+     * The configured delay, or the observed percentile of the time to first token once
+     * enough calls have been seen, never below {@code min-delay}.
+     */
+    public synchronized Duration delay() {
+        if (settings.getDelay() != null) {
+            return settings.getDelay();
+        }
+        long now = nanoClock.getAsLong();
+        if (now - delayRefreshedAt >= DELAY_REFRESH_NANOS && firstToken.count() >= settings.getMinSamples()) {
+            ValueAtPercentile[] percentiles = firstToken.takeSnapshot().percentileValues();
+            if (percentiles.length > 0) {
+                long nanos = (long) percentiles[0].value(TimeUnit.NANOSECONDS);
+                delay = Duration.ofNanos(Math.max(nanos, settings.getMinDelay().toNanos()));
+            }
+            delayRefreshedAt = now;
+        }
+        return delay;
+    }
+
+    private <T> Flux<T> attempt(Supplier<Flux<T>> call, AtomicInteger winner, int attempt) {
+        return Flux.defer(() -> {
+            long start = nanoClock.getAsLong();
+            boolean[] first = {true};
+            return call.get().doOnNext(value -> {
+                if (first[0]) {
+                    first[0] = false;
+                    firstToken.record(nanoClock.getAsLong() - start, TimeUnit.NANOSECONDS);
+                    if (winner.compareAndSet(0, attempt) && attempt == HEDGE) {
+                        won.increment();
+                    }
+                }
+            });
+        });
+    }
+
+    private synchronized void earnAllowance() {
+        allowance = Math.min(MAX_ALLOWANCE, allowance + settings.getMaxRate());
+    }
+
+    private synchronized boolean tryHedge() {
+        if (allowance < 1) {
+            return false;
+        }
+        allowance -= 1;
+        return true;
+    }
+}
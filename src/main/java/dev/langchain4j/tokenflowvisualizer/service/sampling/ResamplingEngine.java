@@ -0,0 +1,165 @@
+package dev.langchain4j.tokenflowvisualizer.service.sampling;
+
+import dev.langchain4j.tokenflowvisualizer.dto.ResampleRequest;
+import dev.langchain4j.tokenflowvisualizer.dto.ResampleResponse;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Re-applies sampling parameters to the distributions returned with a generation, the way
+ * a sampler would: temperature scaling, then top-k, then nucleus (top-p) filtering over
+ * the renormalised top-k survivors, then renormalisation. Only the returned candidates
+ * are known, so the distribution at each position is the one over the chosen token and
+ * its alternatives.
+ * <p>
+ * Each position draws from one uniform number derived from the seed and the position, so
+ * for a fixed seed the picks move smoothly as the parameters change instead of jumping.
+ */
+public final class ResamplingEngine {
+
+    private ResamplingEngine() {
+    }
+
+    public static ResampleResponse resample(ResampleRequest request) {
+        List<TokenInfo> tokens = request.getTokens() != null ? request.getTokens() : List.of();
+        List<ResampleResponse.Position> positions = new ArrayList<>(tokens.size());
+        int changed = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            ResampleResponse.Position position = resample(tokens.get(i), request, uniform(request.getSeed(), i));
+            positions.add(position);
+            changed += position.isChanged() ? 1 : 0;
+        }
+        return ResampleResponse.builder()
+                .positions(positions)
+                .changedPositions(changed)
+                .build();
+    }
+
+    static ResampleResponse.Position resample(TokenInfo token, ResampleRequest request, double uniform) {
+        List<TokenInfo.TokenAlternative> alternatives =
+                token.getAlternatives() != null ? token.getAlternatives() : List.of();
+        int n = 1 + alternatives.size();
+        String[] texts = new String[n];
+        double[] original = new double[n];
+        texts[0] = token.getText();
+        original[0] = token.getProbability();
+        for (int i = 1; i < n; i++) {
+            texts[i] = alternatives.get(i - 1).getText();
+            original[i] = alternatives.get(i - 1).getProbability();
+        }
+
+        int[] order = byDescendingProbability(original);
+        double[] probabilities = distribution(original, order, request);
+
+        // Inverse CDF over the candidates, most likely first
+        int sampled = order[0];
+        double cumulative = 0;
+        for (int index : order) {
+            if (probabilities[index] == 0) {
+                break;
+            }
+            cumulative += probabilities[index];
+            sampled = index;
+            if (uniform < cumulative) {
+                break;
+            }
+        }
+
+        List<ResampleResponse.Candidate> candidates = new ArrayList<>(n);
+        for (int index : order) {
+            candidates.add(ResampleResponse.Candidate.builder()
+                    .text(texts[index])
+                    .originalProbability(original[index])
+                    .probability(probabilities[index])
+                    .build());
+        }
+        return ResampleResponse.Position.builder()
+                .text(texts[0])
+                .originalProbability(original[0])
+                .probability(probabilities[0])
+                .sampled(texts[sampled])
+                .changed(sampled != 0 && !texts[sampled].equals(texts[0]))
+                .candidates(candidates)
+                .build();
+    }
+
+    /**
+     * The new probability of every candidate, indexed like {@code original}; filtered
+     * candidates get 0.
+     */
+    static double[] distribution(double[] original, int[] order, ResampleRequest request) {
+        int n = original.length;
+        double[] scaled = new double[n];
+        double temperature = request.getTemperature();
+        if (temperature <= 0 || original[order[0]] <= 0) {
+            scaled[order[0]] = 1;
+            return scaled;
+        }
+
+        // p^(1/T), relative to the most likely candidate so that nothing overflows
+        double logMax = Math.log(original[order[0]]);
+        for (int i = 0; i < n; i++) {
+            scaled[i] = original[i] > 0 ? Math.exp((Math.log(original[i]) - logMax) / temperature) : 0;
+        }
+
+        int keep = n;
+        if (request.getTopK() != null && request.getTopK() > 0) {
+            keep = Math.min(keep, request.getTopK());
+        }
+        if (request.getTopP() != null && request.getTopP() < 1) {
+            // The nucleus is taken over the top-k survivors, renormalised among themselves
+            double total = 0;
+            for (int rank = 0; rank < keep; rank++) {
+                total += scaled[order[rank]];
+            }
+            double cumulative = 0;
+            for (int rank = 0; rank < keep; rank++) {
+                cumulative += scaled[order[rank]] / total;
+                if (cumulative >= request.getTopP()) {
+                    keep = rank + 1;
+                    break;
+                }
+            }
+        }
+
+        double kept = 0;
+        for (int rank = 0; rank < keep; rank++) {
+            kept += scaled[order[rank]];
+        }
+        for (int rank = 0; rank < n; rank++) {
+            int index = order[rank];
+            scaled[index] = rank < keep ? scaled[index] / kept : 0;
+        }
+        return scaled;
+    }
+
+    /**
+     * Candidate indices from most to least likely; ties keep the original order so the
+     * chosen token comes first. Insertion sort, as there are only a handful of candidates.
+     */
+    static int[] byDescendingProbability(double[] probabilities) {
+        int[] order = new int[probabilities.length];
+        for (int i = 0; i < order.length; i++) {
+            int j = i;
+            while (j > 0 && probabilities[order[j - 1]] < probabilities[i]) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = i;
+        }
+        return order;
+    }
+
+    /**
+     * A uniform number in [0, 1) that depends only on the seed and the position (SplitMix64).
+     */
+    static double uniform(long seed, int position) {
+        long z = seed + (position + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53;
+    }
+}
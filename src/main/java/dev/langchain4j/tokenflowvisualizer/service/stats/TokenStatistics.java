@@ -0,0 +1,81 @@
+package dev.langchain4j.tokenflowvisualizer.service.stats;
+
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenStats;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * Computes {@link TokenStats} for the tokens of one stream as they arrive, keeping only a
+ * running sum of surprisals between tokens. Everything is derived in log space from the
+ * upstream log-probabilities where the token still has them, so surprisals stay exact for
+ * probabilities too small to survive {@code exp}. Not thread-safe; create one per stream.
+ * <p>
+ * Tokens without a probability, such as those of providers that report no logprobs, are
+ * passed on without statistics and do not count towards the perplexity.
+ */
+public final class TokenStatistics {
+
+    private double surprisalSum;
+    private int count;
+
+    /** {@code tokens} with statistics, computed by a new instance per subscription. */
+    public static Flux<TokenInfo> enrich(Flux<TokenInfo> tokens) {
+        return Flux.defer(() -> {
+            TokenStatistics statistics = new TokenStatistics();
+            return tokens.map(statistics::enrich);
+        });
+    }
+
+    public TokenInfo enrich(TokenInfo token) {
+        TokenStats stats = next(token);
+        return stats != null ? token.withStats(stats) : token;
+    }
+
+    /** Statistics of {@code token} as the next token of the stream, or null if it has no probability. */
+    public TokenStats next(TokenInfo token) {
+        double logprob = logprob(token.getLogprob(), token.getProbability());
+        if (!Double.isFinite(logprob)) {
+            return null;
+        }
+        double probability = token.getProbability();
+        double entropy = -probability * logprob;
+        double covered = probability;
+        double first = probability;
+        double second = 0;
+
+        List<TokenInfo.TokenAlternative> alternatives = token.getAlternatives();
+        int size = alternatives != null ? alternatives.size() : 0;
+        // Indexed rather than iterated, so no iterator is allocated per token
+        for (int i = 0; i < size; i++) {
+            TokenInfo.TokenAlternative alternative = alternatives.get(i);
+            double alternativeProbability = alternative.getProbability();
+            double alternativeLogprob = logprob(alternative.getLogprob(), alternativeProbability);
+            if (alternativeProbability > 0 && Double.isFinite(alternativeLogprob)) {
+                entropy -= alternativeProbability * alternativeLogprob;
+            }
+            covered += alternativeProbability;
+            if (alternativeProbability > first) {
+                second = first;
+                first = alternativeProbability;
+            } else if (alternativeProbability > second) {
+                second = alternativeProbability;
+            }
+        }
+
+        surprisalSum -= logprob;
+        count++;
+        return TokenStats.builder()
+                .surprisal(-logprob)
+                .entropy(entropy)
+                .residualMass(Math.max(0, 1 - covered))
+                .margin(first - second)
+                .perplexity(Math.exp(surprisalSum / count))
+                .build();
+    }
+
+    private static double logprob(double logprob, double probability) {
+        return Double.isNaN(logprob) ? Math.log(probability) : logprob;
+    }
+}
@@ -0,0 +1,80 @@
+package dev.langchain4j.tokenflowvisualizer.service.tracestore;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * A stored trace opened for reading. Its frames are views of the mapped segment, and the
+ * segment file is kept until the trace is closed, even if it is compacted away meanwhile.
+ */
+public final class StoredTrace implements AutoCloseable {
+
+    private final String id;
+    private final TraceSegment segment;
+    private final int offset;
+    private final int size;
+    private boolean closed;
+
+    StoredTrace(String id, TraceSegment segment, int offset) {
+        this.id = id;
+        this.segment = segment;
+        this.offset = offset;
+        this.size = segment.tokenCount(offset);
+    }
+
+    public String id() {
+        return id;
+    }
+
+    /** Number of tokens in the trace. */
+    public int size() {
+        return size;
+    }
+
+    /** Upstream timestamp of token {@code index}, for replaying at the recorded pace. */
+    public long timestamp(int index) {
+        return segment.timestamp(offset, checkIndex(index));
+    }
+
+    /** The NDJSON line of token {@code index}, without copying it off the mapped file. */
+    public ByteBuffer frame(int index) {
+        return segment.frame(offset, checkIndex(index));
+    }
+
+    /** Segment file holding the frames, for sending them with {@code sendfile}. */
+    public Path file() {
+        return segment.path();
+    }
+
+    /** File position of the frame of token {@code from}. */
+    public long position(int from) {
+        return segment.framePosition(offset, checkPosition(from));
+    }
+
+    /** Bytes from the frame of token {@code from} to the end of the trace. */
+    public long length(int from) {
+        return segment.framePosition(offset, size) - position(from);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            segment.release();
+        }
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Token " + index + " of " + size);
+        }
+        return index;
+    }
+
+    private int checkPosition(int from) {
+        if (from < 0 || from > size) {
+            throw new IndexOutOfBoundsException("Position " + from + " of " + size);
+        }
+        return from;
+    }
+}
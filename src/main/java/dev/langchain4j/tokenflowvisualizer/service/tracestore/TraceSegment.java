@@ -0,0 +1,272 @@
+package dev.langchain4j.tokenflowvisualizer.service.tracestore;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * One memory-mapped file of the trace log. Records are appended back to back and never
+ * move; a deleted record only has its magic overwritten.
+ * <p>
+ * Record layout, big-endian:
+ * <pre>
+ *   int    magic             LIVE or DELETED; written last, so a torn append reads as the end
+ *   int    length            bytes of the record after this field
+ *   long   traceId
+ *   long   createdAt         epoch millis
+ *   int    tokenCount        n
+ *   long   baseTimestamp     upstream timestamp of the first token
+ *   int[n] timestampOffsets  millis since baseTimestamp
+ *   int[n+1] frameOffsets    start of every frame in the payload, then its end
+ *   byte[] payload           one NDJSON line per token
+ * </pre>
+ * The two arrays are the per-token index: seeking to token {@code i} is two reads.
+ */
+@Slf4j
+final class TraceSegment {
+
+    static final int LIVE = 0x50535452;
+    static final int DELETED = 0x50535844;
+    static final String SUFFIX = ".segment";
+
+    private static final int LENGTH = 4;
+    private static final int TRACE_ID = 8;
+    private static final int CREATED_AT = 16;
+    private static final int TOKEN_COUNT = 24;
+    private static final int BASE_TIMESTAMP = 28;
+    private static final int FIXED = 36;
+
+    private final long id;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private int writePosition;
+    private long liveBytes;
+    private long newestCreatedAt;
+    private int references = 1;
+    private boolean dropped;
+
+    private TraceSegment(long id, Path path, MappedByteBuffer buffer) {
+        this.id = id;
+        this.path = path;
+        this.buffer = buffer;
+    }
+
+    /** Creates and maps a new segment file of {@code capacity} bytes. */
+    static TraceSegment create(Path directory, long id, int capacity) {
+        Path path = directory.resolve(String.format("%020d%s", id, SUFFIX));
+        return map(id, path, StandardOpenOption.CREATE_NEW, capacity);
+    }
+
+    /** Maps an existing segment file and finds where its last complete record ends. */
+    static TraceSegment open(Path path) {
+        String name = path.getFileName().toString();
+        long id = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        TraceSegment segment = map(id, path, StandardOpenOption.READ, -1);
+        segment.scan((offset, live, traceId, createdAt, length) -> {
+            segment.writePosition = offset + length;
+            segment.newestCreatedAt = Math.max(segment.newestCreatedAt, createdAt);
+            if (live) {
+                segment.liveBytes += length;
+            }
+        });
+        return segment;
+    }
+
+    /**
+     * Encodes a trace as a record. {@code frames} are the serialized tokens and
+     * {@code timestamps} their upstream timestamps.
+     */
+    static ByteBuffer encode(long traceId, long createdAt, List<byte[]> frames, long[] timestamps) {
+        int count = frames.size();
+        int payload = 0;
+        for (byte[] frame : frames) {
+            payload += frame.length;
+        }
+        int length = FIXED + Integer.BYTES * (2 * count + 1) + payload;
+        ByteBuffer record = ByteBuffer.allocate(length);
+        long baseTimestamp = count > 0 ? timestamps[0] : 0;
+        record.putInt(0)
+                .putInt(length - LENGTH - Integer.BYTES)
+                .putLong(traceId)
+                .putLong(createdAt)
+                .putInt(count)
+                .putLong(baseTimestamp);
+        for (long timestamp : timestamps) {
+            record.putInt(Math.toIntExact(timestamp - baseTimestamp));
+        }
+        int frameOffset = 0;
+        for (byte[] frame : frames) {
+            record.putInt(frameOffset);
+            frameOffset += frame.length;
+        }
+        record.putInt(frameOffset);
+        for (byte[] frame : frames) {
+            record.put(frame);
+        }
+        return record.flip();
+    }
+
+    long id() {
+        return id;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    int writePosition() {
+        return writePosition;
+    }
+
+    long liveBytes() {
+        return liveBytes;
+    }
+
+    long newestCreatedAt() {
+        return newestCreatedAt;
+    }
+
+    boolean fits(int length) {
+        return writePosition + length <= buffer.capacity();
+    }
+
+    /**
+     * Appends an encoded record and returns its offset. The magic is written after the
+     * rest of the record, so readers of the file never see a record half written.
+     */
+    int append(ByteBuffer record, long createdAt) {
+        int offset = writePosition;
+        int length = record.remaining();
+        buffer.put(offset + LENGTH, record, record.position() + LENGTH, length - LENGTH);
+        buffer.putInt(offset, LIVE);
+        writePosition += length;
+        liveBytes += length;
+        newestCreatedAt = Math.max(newestCreatedAt, createdAt);
+        return offset;
+    }
+
+    /** Copies the record at {@code offset} of {@code source} into this segment without staging it on the heap. */
+    int copy(TraceSegment source, int offset) {
+        int length = source.recordLength(offset);
+        ByteBuffer record = source.buffer.slice(offset, length);
+        return append(record, source.createdAt(offset));
+    }
+
+    void markDeleted(int offset) {
+        buffer.putInt(offset, DELETED);
+        liveBytes -= recordLength(offset);
+    }
+
+    /** Flushes the mapped pages of a sealed segment to the file. */
+    void force() {
+        buffer.force();
+    }
+
+    /** Visits every complete record, live or deleted, in append order. */
+    void scan(RecordVisitor visitor) {
+        int offset = 0;
+        while (offset + FIXED <= buffer.capacity()) {
+            int magic = buffer.getInt(offset);
+            if (magic != LIVE && magic != DELETED) {
+                break;
+            }
+            int length = recordLength(offset);
+            if (length < FIXED || offset + length > buffer.capacity()) {
+                log.warn("Ignoring truncated record at {} of {}", offset, path);
+                break;
+            }
+            visitor.visit(offset, magic == LIVE, traceId(offset), createdAt(offset), length);
+            offset += length;
+        }
+    }
+
+    int recordLength(int offset) {
+        return LENGTH + Integer.BYTES + buffer.getInt(offset + LENGTH);
+    }
+
+    long traceId(int offset) {
+        return buffer.getLong(offset + TRACE_ID);
+    }
+
+    long createdAt(int offset) {
+        return buffer.getLong(offset + CREATED_AT);
+    }
+
+    int tokenCount(int offset) {
+        return buffer.getInt(offset + TOKEN_COUNT);
+    }
+
+    long timestamp(int offset, int token) {
+        return buffer.getLong(offset + BASE_TIMESTAMP) + buffer.getInt(offset + FIXED + Integer.BYTES * token);
+    }
+
+    /** File position of the frame of {@code token}; the frames of a trace are contiguous. */
+    int framePosition(int offset, int token) {
+        return payloadStart(offset) + frameOffset(offset, token);
+    }
+
+    /** A read-only view of the mapped frame of {@code token}, shared with the page cache. */
+    ByteBuffer frame(int offset, int token) {
+        int start = frameOffset(offset, token);
+        return buffer.slice(payloadStart(offset) + start, frameOffset(offset, token + 1) - start)
+                .asReadOnlyBuffer();
+    }
+
+    synchronized void retain() {
+        references++;
+    }
+
+    /** Drops a reference; the file is deleted once the segment is dropped and no reader holds it. */
+    synchronized void release() {
+        if (--references == 0 && dropped) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Failed to delete trace segment {}", path, e);
+            }
+        }
+    }
+
+    /** Removes the segment from the store; its file goes once the last reader is done. */
+    void drop() {
+        synchronized (this) {
+            dropped = true;
+        }
+        release();
+    }
+
+    private int payloadStart(int offset) {
+        return offset + FIXED + Integer.BYTES * (2 * tokenCount(offset) + 1);
+    }
+
+    private int frameOffset(int offset, int token) {
+        return buffer.getInt(offset + FIXED + Integer.BYTES * (tokenCount(offset) + token));
+    }
+
+    private static TraceSegment map(long id, Path path, StandardOpenOption mode, int capacity) {
+        try (FileChannel channel = FileChannel.open(path, mode, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = capacity >= 0 ? capacity : channel.size();
+            // The mapping outlives the channel
+            return new TraceSegment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map trace segment " + path, e);
+        }
+    }
+
+    @FunctionalInterface
+    interface RecordVisitor {
+        void visit(int offset, boolean live, long traceId, long createdAt, int length);
+    }
+}
@@ -0,0 +1,386 @@
+package dev.langchain4j.tokenflowvisualizer.service.tracestore;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.config.TraceStoreConfig;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of completed generations in memory-mapped segment files, so that a
+ * stream can be replayed and shared after it was sent without another upstream call.
+ * <p>
+ * Tokens are stored as the NDJSON lines they are replayed as, next to a per-token index of
+ * frame offsets and timestamps (see {@link TraceSegment}). Only the location of each trace
+ * is kept on the heap; frames are read straight from the page cache.
+ * <p>
+ * A full segment is sealed and a new one started. Sealing also drops segments past their
+ * retention or beyond the size limit, and compacts segments that are mostly deleted
+ * traces by copying their live traces into the active segment. The same maintenance also
+ * runs on a schedule, so an idle store still ages out. Writes block and happen on the
+ * bounded elastic scheduler.
+ * <p>
+ * A store holds a lock on its directory until it is closed; a second store on the same
+ * directory, in this process or another, fails to start.
+ */
+@Slf4j
+@Component
+public class TraceStore implements AutoCloseable {
+
+    public static final String TRACE_ID_HEADER = "X-Trace-Id";
+
+    private static final HexFormat HEX = HexFormat.of();
+    private static final String LOCK_FILE = "store.lock";
+
+    private final TraceStoreConfig config;
+    private final ObjectMapper objectMapper;
+    private final LongSupplier clock;
+    private final Map<Long, Location> index = new HashMap<>();
+    private final NavigableMap<Long, TraceSegment> segments = new TreeMap<>();
+    private final Counter appended;
+    private final Counter compacted;
+    private final Counter droppedSegments;
+    private TraceSegment active;
+    private boolean maintaining;
+    private FileChannel lockChannel;
+    private Disposable maintenance;
+
+    @Autowired
+    public TraceStore(TraceStoreConfig config, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this(config, objectMapper, meterRegistry, System::currentTimeMillis);
+    }
+
+    TraceStore(TraceStoreConfig config, ObjectMapper objectMapper, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.config = config;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.appended = meterRegistry.counter("probescope.traces.appended");
+        this.compacted = meterRegistry.counter("probescope.traces.compacted");
+        this.droppedSegments = meterRegistry.counter("probescope.traces.segments.dropped");
+        meterRegistry.gaugeMapSize("probescope.traces.stored", Tags.empty(), index);
+        Gauge.builder("probescope.traces.size", this, TraceStore::sizeInBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        if (config.isEnabled()) {
+            load();
+            long interval = config.getMaintenanceInterval().toMillis();
+            maintenance = Schedulers.boundedElastic()
+                    .schedulePeriodically(this::maintainScheduled, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    public String newTraceId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        return HEX.toHexDigits(id);
+    }
+
+    /**
+     * Passes the tokens through unchanged and appends the generation under {@code traceId}
+     * once it has completed, before passing the completion on, so a replay requested as
+     * soon as the stream has ended finds the trace. Cancelled or failed generations are not
+     * stored; a failed append is logged and the stream still completes.
+     */
+    public Flux<TokenInfo> recordInto(String traceId, Flux<TokenInfo> tokens) {
+        return Flux.defer(() -> {
+            List<TokenInfo> collected = new ArrayList<>();
+            return tokens
+                    .doOnNext(collected::add)
+                    .concatWith(Mono.<TokenInfo>fromRunnable(() -> append(traceId, collected))
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .onErrorResume(error -> {
+                                log.warn("Failed to store trace {}", traceId, error);
+                                return Mono.empty();
+                            }));
+        });
+    }
+
+    /** Appends a generation; blocks. Empty generations are not stored. */
+    public void append(String traceId, List<TokenInfo> tokens) {
+        if (!config.isEnabled() || tokens.isEmpty()) {
+            return;
+        }
+        List<byte[]> frames = new ArrayList<>(tokens.size());
+        long[] timestamps = new long[tokens.size()];
+        try {
+            for (int i = 0; i < tokens.size(); i++) {
+                byte[] json = objectMapper.writeValueAsBytes(tokens.get(i));
+                byte[] frame = new byte[json.length + 1];
+                System.arraycopy(json, 0, frame, 0, json.length);
+                frame[json.length] = '\n';
+                frames.add(frame);
+                timestamps[i] = tokens.get(i).getTimestamp();
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to serialize trace {}", traceId, e);
+            return;
+        }
+        write(parseId(traceId), frames, timestamps);
+    }
+
+    /**
+     * Opens a stored trace for reading, or returns {@code null} when there is none with
+     * this id. The caller must close it.
+     */
+    public synchronized StoredTrace open(String traceId) {
+        Location location = locate(traceId);
+        if (location == null) {
+            return null;
+        }
+        location.segment().retain();
+        return new StoredTrace(traceId, location.segment(), location.offset());
+    }
+
+    /** Deletes a trace; its bytes are reclaimed when its segment is compacted or dropped. */
+    public synchronized boolean delete(String traceId) {
+        Location location = locate(traceId);
+        if (location == null) {
+            return false;
+        }
+        index.remove(location.segment().traceId(location.offset()));
+        location.segment().markDeleted(location.offset());
+        return true;
+    }
+
+    /** Bytes written to all segments, live or deleted. */
+    public synchronized long sizeInBytes() {
+        long size = 0;
+        for (TraceSegment segment : segments.values()) {
+            size += segment.writePosition();
+        }
+        return size;
+    }
+
+    /** Seals the active segment and runs retention and compaction, as a full segment would. */
+    public synchronized void roll() {
+        if (active == null) {
+            return;
+        }
+        active.force();
+        active = TraceSegment.create(config.getDirectory(), active.id() + 1, segmentCapacity());
+        segments.put(active.id(), active);
+        maintain();
+    }
+
+    /**
+     * Runs retention and compaction without waiting for a segment to fill. The active
+     * segment is sealed first when its newest trace is past retention, so it can be dropped.
+     */
+    public synchronized void maintainNow() {
+        if (active == null) {
+            return;
+        }
+        long cutoff = clock.getAsLong() - config.getRetention().toMillis();
+        if (active.writePosition() > 0 && active.newestCreatedAt() < cutoff) {
+            roll();
+        } else {
+            maintain();
+        }
+    }
+
+    /** Stops the scheduled maintenance, flushes the active segment and releases the directory. */
+    @Override
+    public synchronized void close() {
+        if (maintenance != null) {
+            maintenance.dispose();
+        }
+        if (active != null) {
+            active.force();
+        }
+        if (lockChannel != null) {
+            try {
+                lockChannel.close();
+            } catch (IOException e) {
+                log.warn("Failed to release trace directory {}", config.getDirectory(), e);
+            }
+        }
+    }
+
+    synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    private void maintainScheduled() {
+        try {
+            maintainNow();
+        } catch (RuntimeException e) {
+            log.warn("Trace store maintenance failed", e);
+        }
+    }
+
+    private synchronized void write(long traceId, List<byte[]> frames, long[] timestamps) {
+        long createdAt = clock.getAsLong();
+        ByteBuffer record = TraceSegment.encode(traceId, createdAt, frames, timestamps);
+        if (traceId == 0 || record.remaining() > segmentCapacity()) {
+            log.warn("Not storing trace of {} bytes; the id is invalid or it exceeds a segment", record.remaining());
+            return;
+        }
+        if (!active.fits(record.remaining())) {
+            roll();
+        }
+        int offset = active.append(record, createdAt);
+        Location previous = index.put(traceId, new Location(active, offset));
+        if (previous != null) {
+            previous.segment().markDeleted(previous.offset());
+        }
+        appended.increment();
+    }
+
+    private void maintain() {
+        if (maintaining) {
+            return;
+        }
+        maintaining = true;
+        try {
+            long cutoff = clock.getAsLong() - config.getRetention().toMillis();
+            List<TraceSegment> sealed = new ArrayList<>(segments.headMap(active.id(), false).values());
+            long size = sizeInBytes();
+            for (TraceSegment segment : sealed) {
+                if (segment.newestCreatedAt() < cutoff || size > config.getMaxSize().toBytes()) {
+                    size -= segment.writePosition();
+                    drop(segment);
+                } else if (segment.liveBytes() < config.getCompactionThreshold() * segment.writePosition()) {
+                    compact(segment);
+                }
+            }
+        } finally {
+            maintaining = false;
+        }
+    }
+
+    private void compact(TraceSegment segment) {
+        log.info("Compacting trace segment {}: {} of {} bytes live",
+                segment.path(), segment.liveBytes(), segment.writePosition());
+        segment.scan((offset, live, traceId, createdAt, length) -> {
+            if (!live) {
+                return;
+            }
+            if (!active.fits(length)) {
+                roll();
+            }
+            index.put(traceId, new Location(active, active.copy(segment, offset)));
+            compacted.increment();
+        });
+        segments.remove(segment.id());
+        segment.drop();
+    }
+
+    private void drop(TraceSegment segment) {
+        log.info("Dropping trace segment {}", segment.path());
+        segment.scan((offset, live, traceId, createdAt, length) -> {
+            if (live) {
+                index.remove(traceId, new Location(segment, offset));
+            }
+        });
+        segments.remove(segment.id());
+        segment.drop();
+        droppedSegments.increment();
+    }
+
+    private Location locate(String traceId) {
+        long id = parseId(traceId);
+        return id != 0 ? index.get(id) : null;
+    }
+
+    /** The id as stored, or 0 when it is not one handed out by {@link #newTraceId()}. */
+    private static long parseId(String traceId) {
+        if (traceId == null || traceId.length() != 2 * Long.BYTES) {
+            return 0;
+        }
+        for (int i = 0; i < traceId.length(); i++) {
+            if (!HexFormat.isHexDigit(traceId.charAt(i))) {
+                return 0;
+            }
+        }
+        return HexFormat.fromHexDigitsToLong(traceId);
+    }
+
+    private void load() {
+        Path directory = config.getDirectory();
+        try {
+            Files.createDirectories(directory);
+            lock(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                files.filter(file -> file.getFileName().toString().endsWith(TraceSegment.SUFFIX))
+                        .sorted()
+                        .map(TraceSegment::open)
+                        .forEach(segment -> segments.put(segment.id(), segment));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open trace directory " + directory, e);
+        }
+        for (TraceSegment segment : segments.values()) {
+            segment.scan((offset, live, traceId, createdAt, length) -> {
+                if (live) {
+                    index.put(traceId, new Location(segment, offset));
+                }
+            });
+        }
+        active = segments.isEmpty()
+                ? TraceSegment.create(directory, 1, segmentCapacity())
+                : segments.lastEntry().getValue();
+        segments.put(active.id(), active);
+        log.info("Opened trace store {} with {} traces in {} segments", directory, index.size(), segments.size());
+    }
+
+    /** Takes the directory lock, failing if another store, in this process or another, holds it. */
+    private void lock(Path directory) throws IOException {
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            throw new IllegalStateException("Trace directory " + directory
+                    + " is in use by another trace store; give each instance its own token.trace-store.directory");
+        }
+    }
+
+    private int segmentCapacity() {
+        return Math.toIntExact(config.getSegmentSize().toBytes());
+    }
+
+    private record Location(TraceSegment segment, int offset) {
+    }
+}
@@ -0,0 +1,288 @@
+package dev.langchain4j.tokenflowvisualizer.trace;
+
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A whole generation stored as a handful of flat arrays instead of one object graph per
+ * token, for keeping many generations in memory.
+ * <p>
+ * Every token owns {@code stride + 1} consecutive slots: the token itself followed by up to
+ * {@code stride} alternatives. Each slot has a log-probability (as {@code float}, about seven
+ * significant digits) and a range of a single UTF-8 buffer shared by all texts. Timestamps
+ * are kept as millisecond offsets from the first token.
+ * <p>
+ * Log-probabilities are kept rather than probabilities so that statistics over a stored
+ * generation match those of the live one, even for probabilities that underflow as a
+ * {@code float}. A token without an upstream log-probability stores the log of its
+ * probability; the probability always reads back as the {@code exp} of the stored value.
+ * <p>
+ * {@link #get(int)} and {@link #asList()} adapt the trace back to {@link TokenInfo}; they
+ * materialize tokens on access and keep nothing. A {@code null} text reads back as empty.
+ */
+public final class TokenTrace {
+
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int MAX_STRIDE = 255;
+
+    private final int size;
+    private final int stride;
+    private final byte[] text;
+    private final int[] textOffsets;
+    private final float[] logprobs;
+    private final byte[] alternativeCounts;
+    private final long baseTimestamp;
+    private final int[] timestampOffsets;
+
+    TokenTrace(int size, int stride, byte[] text, int[] textOffsets, float[] logprobs,
+               byte[] alternativeCounts, long baseTimestamp, int[] timestampOffsets) {
+        this.size = size;
+        this.stride = stride;
+        this.text = text;
+        this.textOffsets = textOffsets;
+        this.logprobs = logprobs;
+        this.alternativeCounts = alternativeCounts;
+        this.baseTimestamp = baseTimestamp;
+        this.timestampOffsets = timestampOffsets;
+    }
+
+    public static TokenTrace of(List<TokenInfo> tokens) {
+        int stride = 0;
+        for (TokenInfo token : tokens) {
+            stride = Math.max(stride, alternatives(token).size());
+        }
+        stride = Math.min(stride, MAX_STRIDE);
+
+        int size = tokens.size();
+        int slots = size * (stride + 1);
+        int[] textOffsets = new int[slots + 1];
+        float[] logprobs = new float[slots];
+        byte[] alternativeCounts = new byte[size];
+        int[] timestampOffsets = new int[size];
+        long baseTimestamp = size > 0 ? tokens.getFirst().getTimestamp() : 0;
+        TextBuffer text = new TextBuffer(size * 8 * (stride + 1));
+
+        for (int i = 0; i < size; i++) {
+            TokenInfo token = tokens.get(i);
+            List<TokenInfo.TokenAlternative> alternatives = alternatives(token);
+            int count = Math.min(alternatives.size(), stride);
+            int slot = i * (stride + 1);
+
+            textOffsets[slot] = text.length;
+            text.append(token.getText());
+            logprobs[slot] = (float) logprob(token.getLogprob(), token.getProbability());
+            for (int j = 0; j < stride; j++) {
+                textOffsets[slot + 1 + j] = text.length;
+                if (j < count) {
+                    text.append(alternatives.get(j).getText());
+                    TokenInfo.TokenAlternative alternative = alternatives.get(j);
+                    logprobs[slot + 1 + j] = (float) logprob(alternative.getLogprob(), alternative.getProbability());
+                }
+            }
+            alternativeCounts[i] = (byte) count;
+            timestampOffsets[i] = Math.toIntExact(token.getTimestamp() - baseTimestamp);
+        }
+        textOffsets[slots] = text.length;
+
+        return new TokenTrace(size, stride, text.toByteArray(), textOffsets, logprobs,
+                alternativeCounts, baseTimestamp, timestampOffsets);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Alternative slots reserved per token, the largest number of alternatives of any token.
+     */
+    public int stride() {
+        return stride;
+    }
+
+    public String text(int index) {
+        return slotText(slot(index, 0));
+    }
+
+    public double probability(int index) {
+        return Math.exp(logprob(index));
+    }
+
+    public float logprob(int index) {
+        return logprobs[slot(index, 0)];
+    }
+
+    public long timestamp(int index) {
+        checkIndex(index);
+        return baseTimestamp + timestampOffsets[index];
+    }
+
+    public int alternativeCount(int index) {
+        checkIndex(index);
+        return Byte.toUnsignedInt(alternativeCounts[index]);
+    }
+
+    public String alternativeText(int index, int alternative) {
+        return slotText(alternativeSlot(index, alternative));
+    }
+
+    public double alternativeProbability(int index, int alternative) {
+        return Math.exp(alternativeLogprob(index, alternative));
+    }
+
+    public float alternativeLogprob(int index, int alternative) {
+        return logprobs[alternativeSlot(index, alternative)];
+    }
+
+    public TokenInfo get(int index) {
+        int count = alternativeCount(index);
+        List<TokenInfo.TokenAlternative> alternatives = new ArrayList<>(count);
+        for (int j = 0; j < count; j++) {
+            alternatives.add(TokenInfo.TokenAlternative.builder()
+                    .text(alternativeText(index, j))
+                    .probability(alternativeProbability(index, j))
+                    .logprob(alternativeLogprob(index, j))
+                    .build());
+        }
+        return TokenInfo.builder()
+                .text(text(index))
+                .probability(probability(index))
+                .logprob(logprob(index))
+                .alternatives(alternatives)
+                .timestamp(timestamp(index))
+                .build();
+    }
+
+    /**
+     * A read-only {@link TokenInfo} view that materializes each token when it is accessed.
+     */
+    public List<TokenInfo> asList() {
+        return new TokenInfoView();
+    }
+
+    /**
+     * Retained heap size of this trace, assuming compressed object pointers.
+     */
+    public long sizeInBytes() {
+        long fields = OBJECT_HEADER + 3L * Integer.BYTES + Long.BYTES + 5L * REFERENCE;
+        return align(fields)
+                + array(text.length, Byte.BYTES)
+                + array(textOffsets.length, Integer.BYTES)
+                + array(logprobs.length, Float.BYTES)
+                + array(alternativeCounts.length, Byte.BYTES)
+                + array(timestampOffsets.length, Integer.BYTES);
+    }
+
+    public double bytesPerToken() {
+        return size > 0 ? (double) sizeInBytes() / size : 0;
+    }
+
+    private int slot(int index, int offset) {
+        checkIndex(index);
+        return index * (stride + 1) + offset;
+    }
+
+    private int alternativeSlot(int index, int alternative) {
+        if (alternative < 0 || alternative >= alternativeCount(index)) {
+            throw new IndexOutOfBoundsException("Alternative " + alternative + " of token " + index);
+        }
+        return slot(index, 1 + alternative);
+    }
+
+    private String slotText(int slot) {
+        int start = textOffsets[slot];
+        return new String(text, start, textOffsets[slot + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Token " + index + " of " + size);
+        }
+    }
+
+    private static double logprob(double logprob, double probability) {
+        return Double.isNaN(logprob) ? Math.log(probability) : logprob;
+    }
+
+    private static List<TokenInfo.TokenAlternative> alternatives(TokenInfo token) {
+        return token.getAlternatives() != null ? token.getAlternatives() : List.of();
+    }
+
+    private static long array(int length, int elementSize) {
+        return align(ARRAY_HEADER + (long) length * elementSize);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private final class TokenInfoView extends AbstractList<TokenInfo> implements RandomAccess {
+        @Override
+        public TokenInfo get(int index) {
+            return TokenTrace.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Growable UTF-8 buffer that encodes straight from the {@code String}.
+     */
+    private static final class TextBuffer {
+        private byte[] bytes;
+        private int length;
+
+        TextBuffer(int capacity) {
+            bytes = new byte[Math.max(16, capacity)];
+        }
+
+        void append(String value) {
+            if (value == null) {
+                return;
+            }
+            ensureCapacity(length + 3 * value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    bytes[length++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[length++] = (byte) (0xC0 | (c >> 6));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    bytes[length++] = (byte) (0xF0 | (codePoint >> 18));
+                    bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    bytes[length++] = '?';
+                } else {
+                    bytes[length++] = (byte) (0xE0 | (c >> 12));
+                    bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package dev.langchain4j.tokenflowvisualizer.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.exception.TokenGenerationException;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonFrameWriterTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+
+    @Test
+    void shouldFrameEveryValueWithTheSameGenerator() throws Exception {
+        TokenInfo first = token("The");
+        TokenInfo second = token(" \"sky\" 雲");
+        List<TokenInfo> batch = List.of(first, second);
+
+        List<String> frames = JsonFrameWriter.write(Flux.just(first, second, batch),
+                        JsonFrameWriter.Framing.SSE, objectMapper, bufferFactory)
+                .map(JsonFrameWriterTest::drain)
+                .collectList()
+                .block();
+
+        assertEquals(List.of(
+                "data:" + objectMapper.writeValueAsString(first) + "\n\n",
+                "data:" + objectMapper.writeValueAsString(second) + "\n\n",
+                "data:" + objectMapper.writeValueAsString(batch) + "\n\n"), frames);
+    }
+
+    @Test
+    void shouldFailInsteadOfSendingEmptyObjects() {
+        try (JsonFrameWriter writer = new JsonFrameWriter(JsonFrameWriter.Framing.NDJSON, objectMapper, bufferFactory)) {
+            assertThrows(TokenGenerationException.class, () -> writer.write(new Object()));
+        }
+    }
+
+    private static String drain(DataBuffer buffer) {
+        try {
+            return buffer.toString(StandardCharsets.UTF_8);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    private static TokenInfo token(String text) {
+        return TokenInfo.builder()
+                .text(text)
+                .probability(0.5)
+                .alternatives(List.of(TokenInfo.TokenAlternative.builder().text("x").probability(0.25).build()))
+                .timestamp(42)
+                .build();
+    }
+}
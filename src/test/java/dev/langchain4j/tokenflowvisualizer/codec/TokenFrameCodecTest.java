@@ -0,0 +1,79 @@
+package dev.langchain4j.tokenflowvisualizer.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenStats;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenFrameCodecTest {
+
+    // Probabilities exactly representable as float32 so that the round trip is lossless
+    private static final TokenInfo TOKEN = token(0.4453125, 0.125, 0.0625, 0.03125, 0.015625);
+
+    @Test
+    void shouldRoundTripFrames() {
+        ByteBuffer frames = ByteBuffer.allocate(1024);
+        frames.put(TokenFrameCodec.encode(TOKEN));
+        frames.put(TokenFrameCodec.encode(TokenInfo.builder().text("").probability(1).build()));
+        frames.flip();
+
+        assertEquals(TOKEN, TokenFrameCodec.decode(frames));
+        TokenInfo empty = TokenFrameCodec.decode(frames);
+        assertEquals("", empty.getText());
+        assertEquals(1.0, empty.getProbability());
+        assertTrue(empty.getAlternatives().isEmpty());
+        assertFalse(frames.hasRemaining());
+    }
+
+    @Test
+    void shouldRoundTripStatsBehindAFlag() {
+        TokenStats stats = TokenStats.builder()
+                .surprisal(0.8125).entropy(1.375).residualMass(0.3203125).margin(0.3203125).perplexity(2.25)
+                .build();
+        TokenInfo token = TOKEN.withStats(stats);
+
+        ByteBuffer frame = TokenFrameCodec.encode(token);
+
+        assertEquals(TokenFrameCodec.encode(TOKEN).remaining() + 1 + 5 * Float.BYTES, frame.remaining());
+        assertEquals(token, TokenFrameCodec.decode(frame));
+        assertNull(TokenFrameCodec.decode(TokenFrameCodec.encode(TOKEN)).getStats());
+    }
+
+    @Test
+    void shouldBeSeveralTimesSmallerThanJson() throws Exception {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        // Probabilities as they come out of Math.exp(logprob)
+        TokenInfo token = token(Math.exp(-0.809), Math.exp(-2.0794), Math.exp(-2.7726), Math.exp(-3.4657), Math.exp(-4.1589));
+        int json = objectMapper.writeValueAsBytes(token).length + 1; // NDJSON newline
+        int binary = TokenFrameCodec.encode(token).remaining();
+
+        assertTrue(json >= 3 * binary, "json " + json + " bytes, binary " + binary + " bytes");
+    }
+
+    private static TokenInfo token(double probability, double... alternatives) {
+        String[] texts = {" blue", " weather", " night", " héllo"};
+        return TokenInfo.builder()
+                .text(" sky")
+                .probability(probability)
+                .alternatives(List.of(
+                        alternative(texts[0], alternatives[0]),
+                        alternative(texts[1], alternatives[1]),
+                        alternative(texts[2], alternatives[2]),
+                        alternative(texts[3], alternatives[3])))
+                .timestamp(1739800000123L)
+                .build();
+    }
+
+    private static TokenInfo.TokenAlternative alternative(String text, double probability) {
+        return TokenInfo.TokenAlternative.builder().text(text).probability(probability).build();
+    }
+}
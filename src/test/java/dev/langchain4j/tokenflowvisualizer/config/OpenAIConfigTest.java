@@ -4,6 +4,9 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.TestPropertySource;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -11,19 +14,33 @@ import static org.junit.jupiter.api.Assertions.*;
 @TestPropertySource(properties = {
     "openai.api-key=test-api-key",
     "openai.model=gpt-3.5-turbo",
-    "openai.temperature=0.7"
+    "openai.temperature=0.7",
+    "openai.base-url=http://localhost:9999/v1",
+    "openai.http.max-connections=42",
+    "openai.http.pending-acquire-timeout=3s"
 })
 class OpenAIConfigTest {
 
     @Autowired
     private OpenAIConfig openAIConfig;
 
+    @Autowired
+    private ConnectionProvider connectionProvider;
+
     @Test
     void shouldLoadConfiguration() {
         assertNotNull(openAIConfig);
         assertEquals("test-api-key", openAIConfig.getApiKey());
         assertEquals("gpt-3.5-turbo", openAIConfig.getModel());
         assertEquals(0.7, openAIConfig.getTemperature());
+        assertEquals("http://localhost:9999/v1", openAIConfig.getBaseUrl());
+        assertEquals(42, openAIConfig.getHttp().getMaxConnections());
+        assertEquals(Duration.ofSeconds(3), openAIConfig.getHttp().getPendingAcquireTimeout());
+    }
+
+    @Test
+    void shouldCreatePooledConnectionProvider() {
+        assertEquals(42, connectionProvider.maxConnections());
     }
 
     @Test
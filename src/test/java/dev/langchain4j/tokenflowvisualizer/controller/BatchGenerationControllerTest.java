@@ -0,0 +1,163 @@
+package dev.langchain4j.tokenflowvisualizer.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.config.BatchConfig;
+import dev.langchain4j.tokenflowvisualizer.config.GenerationConfig;
+import dev.langchain4j.tokenflowvisualizer.config.OpenAIConfig;
+import dev.langchain4j.tokenflowvisualizer.config.ProvidersConfig;
+import dev.langchain4j.tokenflowvisualizer.dto.BatchGenerationResult;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenGenerationRequest;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.exception.TokenGenerationException;
+import dev.langchain4j.tokenflowvisualizer.metrics.TokenMetrics;
+import dev.langchain4j.tokenflowvisualizer.service.GenerationDeadlines;
+import dev.langchain4j.tokenflowvisualizer.service.provider.ProviderRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchGenerationControllerTest {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicInteger cancelled = new AtomicInteger();
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        BatchConfig batchConfig = new BatchConfig();
+        batchConfig.setDefaultConcurrency(4);
+        batchConfig.setMaxConcurrency(8);
+        ProvidersConfig providersConfig = new ProvidersConfig();
+        ProviderRegistry providerRegistry = new ProviderRegistry(
+                List.of(providersConfig.openAIProvider(new OpenAIConfig(), WebClient.create(), new ObjectMapper())),
+                providersConfig);
+        BatchGenerationController controller = new BatchGenerationController(this::generate,
+                new TokenMetrics(new SimpleMeterRegistry()),
+                batchConfig,
+                new GenerationDeadlines(new GenerationConfig()),
+                providerRegistry);
+        client = WebTestClient.bindToController(controller).build();
+    }
+
+    /**
+     * Prompts are "delay:<ms>" or "fail"; the generation echoes the prompt as one token.
+     */
+    private Flux<TokenInfo> generate(TokenGenerationRequest request) {
+        if (request.getPrompt().equals("fail")) {
+            throw TokenGenerationException.emptyPrompt();
+        }
+        long delay = Long.parseLong(request.getPrompt().substring("delay:".length()));
+        return Flux.just(TokenInfo.builder().text(request.getPrompt()).alternatives(List.of()).build())
+                .delayElements(Duration.ofMillis(delay))
+                .doOnSubscribe(subscription -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+                // Before the completion reaches the batch, which then starts the next item
+                .doOnTerminate(inFlight::decrementAndGet)
+                .doOnCancel(cancelled::incrementAndGet);
+    }
+
+    @Test
+    void shouldStreamResultsInCompletionOrder() {
+        List<BatchGenerationResult> results = batch("", List.of("delay:300", "delay:10", "delay:100"));
+
+        assertEquals(List.of(1L, 2L, 0L), results.stream().map(BatchGenerationResult::getIndex).toList());
+        assertEquals("delay:10", results.getFirst().getTokens().getFirst().getText());
+    }
+
+    @Test
+    void shouldStreamResultsInInputOrder() {
+        List<BatchGenerationResult> results = batch("?order=INPUT", List.of("delay:300", "delay:10", "delay:100"));
+
+        assertEquals(List.of(0L, 1L, 2L), results.stream().map(BatchGenerationResult::getIndex).toList());
+    }
+
+    @Test
+    void shouldReportFailuresWithoutAbortingTheBatch() {
+        List<BatchGenerationResult> results = batch("?order=INPUT", List.of("delay:10", "fail", "delay:10"));
+
+        assertEquals(3, results.size());
+        assertEquals("Prompt cannot be empty", results.get(1).getError());
+        assertNull(results.get(1).getTokens());
+        assertNull(results.get(2).getError());
+    }
+
+    @Test
+    void shouldApplyTheDeadlineToEachGeneration() {
+        List<BatchGenerationResult> results = client.post().uri("/api/tokens/batch?order=INPUT")
+                .header(GenerationDeadlines.TIMEOUT_HEADER, "150")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(List.of(Map.of("prompt", "delay:2000"), Map.of("prompt", "delay:10")))
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(BatchGenerationResult.class)
+                .getResponseBody()
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertEquals("Token generation timed out after 150 ms", results.get(0).getError());
+        assertNull(results.get(1).getError());
+        assertEquals(1, cancelled.get());
+    }
+
+    @Test
+    void shouldBoundConcurrency() {
+        List<String> prompts = IntStream.range(0, 20).mapToObj(i -> "delay:50").toList();
+
+        List<BatchGenerationResult> results = batch("?concurrency=100", prompts);
+
+        assertEquals(20, results.size());
+        assertTrue(maxInFlight.get() <= 8, "max in flight " + maxInFlight.get());
+        assertTrue(maxInFlight.get() > 1, "max in flight " + maxInFlight.get());
+    }
+
+    @Test
+    void shouldAcceptNdjsonRequests() {
+        String body = "{\"prompt\":\"delay:20\"}\n{\"prompt\":\"delay:10\"}\n";
+
+        List<BatchGenerationResult> results = client.post().uri("/api/tokens/batch?order=INPUT")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(BatchGenerationResult.class)
+                .getResponseBody()
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(List.of(0L, 1L), results.stream().map(BatchGenerationResult::getIndex).toList());
+    }
+
+    private List<BatchGenerationResult> batch(String query, List<String> prompts) {
+        List<Map<String, String>> requests = prompts.stream()
+                .map(prompt -> Map.of("prompt", prompt))
+                .collect(Collectors.toList());
+        return client.post().uri("/api/tokens/batch" + query)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(requests)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(BatchGenerationResult.class)
+                .getResponseBody()
+                .collectList()
+                .block(Duration.ofSeconds(10));
+    }
+}
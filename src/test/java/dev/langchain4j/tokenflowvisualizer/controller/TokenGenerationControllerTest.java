@@ -0,0 +1,292 @@
+package dev.langchain4j.tokenflowvisualizer.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.codec.NdjsonTokenEncoder;
+import dev.langchain4j.tokenflowvisualizer.codec.TokenFrameCodec;
+import dev.langchain4j.tokenflowvisualizer.codec.TokenFrameEncoder;
+import dev.langchain4j.tokenflowvisualizer.config.GenerationConfig;
+import dev.langchain4j.tokenflowvisualizer.config.PacingConfig;
+import dev.langchain4j.tokenflowvisualizer.config.ProvidersConfig;
+import dev.langchain4j.tokenflowvisualizer.config.TraceStoreConfig;
+import dev.langchain4j.tokenflowvisualizer.dto.DictionaryToken;
+import dev.langchain4j.tokenflowvisualizer.dto.PacingMode;
+import dev.langchain4j.tokenflowvisualizer.dto.ProviderCapabilities;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsRequest;
+import dev.langchain4j.tokenflowvisualizer.metrics.TokenMetrics;
+import dev.langchain4j.tokenflowvisualizer.service.GenerationDeadlines;
+import dev.langchain4j.tokenflowvisualizer.service.TokenPacer;
+import dev.langchain4j.tokenflowvisualizer.service.dictionary.TokenDictionaries;
+import dev.langchain4j.tokenflowvisualizer.service.provider.ProviderRegistry;
+import dev.langchain4j.tokenflowvisualizer.service.provider.TokenProvider;
+import dev.langchain4j.tokenflowvisualizer.service.tracestore.TraceStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.util.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenGenerationControllerTest {
+
+    private static final List<TokenInfo> TOKENS = List.of(token("The", 0.5), token(" sky", 0.25), token(" is", 0.125));
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final CountDownLatch upstreamCancelled = new CountDownLatch(1);
+
+    private final TokenDictionaries tokenDictionaries = new TokenDictionaries(1024, new SimpleMeterRegistry());
+
+    private Timer pacingTimer;
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        PacingConfig pacingConfig = new PacingConfig();
+        pacingConfig.setDefaultMode(PacingMode.NONE);
+        pacingTimer = pacingConfig.pacingTimer();
+        TokenGenerationController controller = new TokenGenerationController(
+                // "stall" generations send one token and "hang" ones none, then nothing until cancelled
+                request -> switch (request.getPrompt()) {
+                    case "stall" -> Flux.fromIterable(TOKENS).take(1).concatWith(Flux.never())
+                            .doOnCancel(upstreamCancelled::countDown);
+                    case "hang" -> Flux.<TokenInfo>never().doOnCancel(upstreamCancelled::countDown);
+                    default -> Flux.fromIterable(TOKENS);
+                },
+                new TokenPacer(pacingTimer, pacingConfig),
+                new TokenMetrics(new SimpleMeterRegistry()),
+                objectMapper,
+                tokenDictionaries,
+                new ProviderRegistry(List.of(provider("openai"), provider("ngram")), new ProvidersConfig()),
+                new TraceStore(new TraceStoreConfig(), objectMapper, new SimpleMeterRegistry()),
+                new GenerationDeadlines(new GenerationConfig()));
+        client = WebTestClient.bindToController(controller)
+                .httpMessageCodecs(codecs -> {
+                    codecs.customCodecs().register(new TokenFrameEncoder());
+                    codecs.customCodecs().register(new NdjsonTokenEncoder(objectMapper));
+                })
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pacingTimer.stop();
+    }
+
+    @Test
+    void shouldDefaultToJson() {
+        client.post().uri("/api/tokens")
+                .bodyValue(Map.of("prompt", "Today"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(TokenInfo.class).isEqualTo(TOKENS);
+    }
+
+    @Test
+    void shouldWriteNdjsonLines() {
+        String body = client.post().uri("/api/tokens")
+                .bodyValue(Map.of("prompt", "Today"))
+                .exchange()
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        assertEquals(TOKENS.stream().map(token -> json(token) + "\n").collect(Collectors.joining()), body);
+    }
+
+    @Test
+    void shouldWriteSseFrames() {
+        String body = client.post().uri("/api/tokens/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(Map.of("prompt", "Today"))
+                .exchange()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        assertEquals(TOKENS.stream().map(token -> "data:" + json(token) + "\n\n").collect(Collectors.joining()), body);
+    }
+
+    @Test
+    void shouldAddStatsOnlyWhenAsked() {
+        List<TokenInfo> tokens = client.post().uri("/api/tokens")
+                .bodyValue(Map.of("prompt", "Today", "stats", true))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TokenInfo.class).returnResult().getResponseBody();
+
+        // Surprisals of log 2, log 4 and log 8 nats
+        assertEquals(2.0, tokens.get(0).getStats().getPerplexity(), 1e-9);
+        assertEquals(2.0 * Math.sqrt(2), tokens.get(1).getStats().getPerplexity(), 1e-9);
+        assertEquals(4.0, tokens.get(2).getStats().getPerplexity(), 1e-9);
+        assertEquals(Math.log(8), tokens.get(2).getStats().getSurprisal(), 1e-12);
+        assertTrue(streamFrames(Map.of("prompt", "Today", "stats", true)).get(0).contains("\"perplexity\":2.0"));
+        assertNull(client.post().uri("/api/tokens")
+                .bodyValue(Map.of("prompt", "Today"))
+                .exchange()
+                .expectBodyList(TokenInfo.class).returnResult().getResponseBody().get(0).getStats());
+    }
+
+    @Test
+    void shouldTimeOutAtTheRequestedDeadline() throws InterruptedException {
+        client.post().uri("/api/tokens")
+                .header(GenerationDeadlines.TIMEOUT_HEADER, "50")
+                .bodyValue(Map.of("prompt", "hang"))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+
+        assertTrue(upstreamCancelled.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldCancelTheGenerationWhenTheClientGoesAway() throws InterruptedException {
+        Flux<String> frames = client.post().uri("/api/tokens/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(Map.of("prompt", "stall"))
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getResponseBody();
+
+        StepVerifier.create(frames).expectNextCount(1).thenCancel().verify(Duration.ofSeconds(5));
+        assertTrue(upstreamCancelled.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldNegotiateBinaryFrames() {
+        byte[] body = client.post().uri("/api/tokens")
+                .accept(TokenFrameEncoder.MEDIA_TYPE)
+                .bodyValue(Map.of("prompt", "Today"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(TokenFrameEncoder.MEDIA_TYPE)
+                .expectBody(byte[].class).returnResult().getResponseBody();
+
+        ByteBuffer frames = ByteBuffer.wrap(body);
+        List<TokenInfo> decoded = new ArrayList<>();
+        while (frames.hasRemaining()) {
+            decoded.add(TokenFrameCodec.decode(frames));
+        }
+        assertEquals(TOKENS, decoded);
+    }
+
+    @Test
+    void shouldBatchStreamFramesOnSize() {
+        List<String> frames = streamFrames(Map.of("prompt", "Today", "maxBatchSize", 2));
+
+        assertEquals(List.of(json(TOKENS.subList(0, 2)), json(TOKENS.subList(2, 3))), frames);
+    }
+
+    @Test
+    void shouldFlushBatchesOnDelay() {
+        List<String> frames = streamFrames(Map.of("prompt", "Today", "maxBatchDelayMs", 60_000));
+
+        // Nothing fills the unbounded batch, so completion flushes it
+        assertEquals(List.of(json(TOKENS)), frames);
+    }
+
+    @Test
+    void shouldKeepOneFramePerTokenByDefault() {
+        List<String> frames = streamFrames(Map.of("prompt", "Today"));
+
+        assertEquals(TOKENS.stream().map(this::json).toList(), frames);
+    }
+
+    @Test
+    void shouldSendEachTextOnceWithDictionaryEncoding() throws JsonProcessingException {
+        List<String> frames = streamFrames(Map.of("prompt", "Today", "textEncoding", "DICTIONARY"));
+
+        List<DictionaryToken> tokens = new ArrayList<>();
+        for (String frame : frames) {
+            tokens.add(objectMapper.readValue(frame, DictionaryToken.class));
+        }
+        assertEquals(List.of("The", " sky", " is"), tokens.stream().map(DictionaryToken::getText).toList());
+        DictionaryToken.Alternative first = tokens.get(0).getAlternatives().getFirst();
+        DictionaryToken.Alternative repeated = tokens.get(2).getAlternatives().getFirst();
+        assertEquals(" x", first.getText());
+        assertEquals(first.getId(), repeated.getId());
+        assertNull(repeated.getText());
+        assertEquals(0.125, repeated.getProbability());
+    }
+
+    @Test
+    void shouldEncodeWithTheDictionaryOfTheRequestedProvider() {
+        streamFrames(Map.of("prompt", "Today", "provider", "ngram", "textEncoding", "DICTIONARY"));
+
+        assertTrue(tokenDictionaries.forModel("ngram-model").size() > 0);
+        assertEquals(0, tokenDictionaries.forModel("openai-model").size());
+    }
+
+    private List<String> streamFrames(Map<String, Object> request) {
+        return client.post().uri("/api/tokens/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                .getResponseBody()
+                .map(ServerSentEvent::data)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+    }
+
+    private String json(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static TokenProvider provider(String name) {
+        return new TokenProvider() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public String model() {
+                return name + "-model";
+            }
+
+            @Override
+            public ProviderCapabilities capabilities() {
+                return ProviderCapabilities.builder().build();
+            }
+
+            @Override
+            public Flux<TokenInfo> generate(OpenAILogprobsRequest request) {
+                return Flux.empty();
+            }
+        };
+    }
+
+    private static TokenInfo token(String text, double probability) {
+        return TokenInfo.builder()
+                .text(text)
+                .probability(probability)
+                .alternatives(List.of(TokenInfo.TokenAlternative.builder().text(" x").probability(0.125).build()))
+                .timestamp(42)
+                .build();
+    }
+}
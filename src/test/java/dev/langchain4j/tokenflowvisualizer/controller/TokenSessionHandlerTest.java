@@ -0,0 +1,289 @@
+package dev.langchain4j.tokenflowvisualizer.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.config.GenerationConfig;
+import dev.langchain4j.tokenflowvisualizer.config.OpenAIConfig;
+import dev.langchain4j.tokenflowvisualizer.config.PacingConfig;
+import dev.langchain4j.tokenflowvisualizer.config.ProvidersConfig;
+import dev.langchain4j.tokenflowvisualizer.config.TraceStoreConfig;
+import dev.langchain4j.tokenflowvisualizer.config.WebSocketConfig;
+import dev.langchain4j.tokenflowvisualizer.dto.PacingMode;
+import dev.langchain4j.tokenflowvisualizer.dto.SessionEvent;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenGenerationRequest;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.metrics.TokenMetrics;
+import dev.langchain4j.tokenflowvisualizer.service.GenerationDeadlines;
+import dev.langchain4j.tokenflowvisualizer.service.TokenPacer;
+import dev.langchain4j.tokenflowvisualizer.service.provider.ProviderRegistry;
+import dev.langchain4j.tokenflowvisualizer.service.tracestore.TraceStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.util.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.config.EnableWebFlux;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenSessionHandlerTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final AtomicReference<TokenGenerationRequest> lastRequest = new AtomicReference<>();
+    private final CountDownLatch upstreamCancelled = new CountDownLatch(1);
+    private final Sinks.Many<String> outbound = Sinks.many().unicast().onBackpressureBuffer();
+    private final BlockingQueue<SessionEvent> inbound = new LinkedBlockingQueue<>();
+
+    private Timer pacingTimer;
+    private AnnotationConfigApplicationContext context;
+    private DisposableServer server;
+    private Disposable connection;
+
+    @BeforeEach
+    void setUp() {
+        PacingConfig pacingConfig = new PacingConfig();
+        pacingConfig.setDefaultMode(PacingMode.NONE);
+        pacingTimer = pacingConfig.pacingTimer();
+        WebSocketConfig webSocketConfig = new WebSocketConfig();
+        webSocketConfig.setMaxSessions(2);
+        ProvidersConfig providersConfig = new ProvidersConfig();
+        TokenSessionHandler handler = new TokenSessionHandler(
+                request -> {
+                    lastRequest.set(request);
+                    // "slow" generations run until cancelled, honouring backpressure like a real upstream
+                    return "slow".equals(request.getPrompt())
+                            ? Flux.range(0, Integer.MAX_VALUE)
+                                .delayElements(Duration.ofMillis(20))
+                                .map(i -> token(" t" + i))
+                                .doOnCancel(upstreamCancelled::countDown)
+                            : Flux.just(token(" The"), token(" sky"), token(" is"));
+                },
+                new TokenPacer(pacingTimer, pacingConfig),
+                new TokenMetrics(new SimpleMeterRegistry()),
+                objectMapper,
+                new TraceStore(new TraceStoreConfig(), objectMapper, new SimpleMeterRegistry()),
+                webSocketConfig,
+                new GenerationDeadlines(new GenerationConfig()),
+                new ProviderRegistry(List.of(providersConfig.openAIProvider(new OpenAIConfig(), WebClient.create(), objectMapper)),
+                        providersConfig));
+
+        context = new AnnotationConfigApplicationContext();
+        context.register(WebFluxTestConfig.class);
+        context.registerBean(HandlerMapping.class, () -> webSocketConfig.tokenSessionHandlerMapping(handler));
+        context.refresh();
+        server = HttpServer.create()
+                .port(0)
+                .handle(new ReactorHttpHandlerAdapter(WebHttpHandlerBuilder.applicationContext(context).build()))
+                .bindNow();
+        connection = new ReactorNettyWebSocketClient()
+                .execute(URI.create("ws://localhost:" + server.port() + TokenSessionHandler.PATH), session ->
+                        session.send(outbound.asFlux().map(session::textMessage))
+                                .and(session.receive()
+                                        .map(WebSocketMessage::getPayloadAsText)
+                                        .doOnNext(text -> inbound.add(read(text)))
+                                        .then()))
+                .subscribe();
+    }
+
+    @AfterEach
+    void tearDown() {
+        connection.dispose();
+        server.disposeNow();
+        context.close();
+        pacingTimer.stop();
+    }
+
+    @Test
+    void shouldMultiplexSessionsOnOneConnection() throws InterruptedException {
+        send("START", "a", Map.of("prompt", "Today"));
+        send("START", "b", Map.of("prompt", "Today"));
+
+        Map<String, List<String>> events = new HashMap<>();
+        int completed = 0;
+        while (completed < 2) {
+            SessionEvent event = next();
+            events.computeIfAbsent(event.getSession(), session -> new ArrayList<>())
+                    .add(event.getType() == SessionEvent.Type.TOKEN ? event.getToken().getText() : event.getType().name());
+            completed += event.getType() == SessionEvent.Type.COMPLETE ? 1 : 0;
+        }
+
+        List<String> expected = List.of("STARTED", " The", " sky", " is", "COMPLETE");
+        assertEquals(Map.of("a", expected, "b", expected), events);
+    }
+
+    @Test
+    void shouldCancelTheUpstreamCallAtOnce() throws InterruptedException {
+        send("START", "a", Map.of("prompt", "slow"));
+        awaitType(SessionEvent.Type.TOKEN);
+
+        send("CANCEL", "a", null);
+
+        awaitType(SessionEvent.Type.CANCELLED);
+        assertTrue(upstreamCancelled.await(1, TimeUnit.SECONDS));
+        // The session can start again straight away
+        send("START", "a", Map.of("prompt", "Today"));
+        awaitType(SessionEvent.Type.STARTED);
+    }
+
+    @Test
+    void shouldHoldTokensWhilePaused() throws InterruptedException {
+        send("START", "a", Map.of("prompt", "slow"));
+        awaitType(SessionEvent.Type.TOKEN);
+
+        send("PAUSE", "a", null);
+        awaitType(SessionEvent.Type.PAUSED);
+        // At most the token already past the gate arrives while paused
+        int whilePaused = 0;
+        for (SessionEvent event; (event = inbound.poll(300, TimeUnit.MILLISECONDS)) != null; ) {
+            whilePaused += event.getType() == SessionEvent.Type.TOKEN ? 1 : 0;
+        }
+        assertTrue(whilePaused <= 1, whilePaused + " tokens while paused");
+
+        send("RESUME", "a", null);
+        awaitType(SessionEvent.Type.RESUMED);
+        awaitType(SessionEvent.Type.TOKEN);
+        send("CANCEL", "a", null);
+        awaitType(SessionEvent.Type.CANCELLED);
+    }
+
+    @Test
+    void shouldKeepParametersForTheNextGeneration() throws InterruptedException {
+        send("UPDATE", "a", Map.of("temperature", 0.2, "topK", 5));
+        assertEquals(SessionEvent.Type.UPDATED, next().getType());
+
+        send("START", "a", Map.of("prompt", "Today"));
+        awaitType(SessionEvent.Type.COMPLETE);
+
+        assertEquals("Today", lastRequest.get().getPrompt());
+        assertEquals(0.2, lastRequest.get().getTemperature());
+        assertEquals(5, lastRequest.get().getTopK());
+    }
+
+    @Test
+    void shouldRejectInvalidMessagesWithoutClosing() throws InterruptedException {
+        outbound.tryEmitNext("{not json");
+        SessionEvent unreadable = next();
+        assertEquals(SessionEvent.Type.ERROR, unreadable.getType());
+        assertNull(unreadable.getSession());
+
+        send("PAUSE", "a", null);
+        assertEquals("Unknown session", next().getMessage());
+        send("UPDATE", "b", Map.of("temperature", "warm"));
+        assertEquals(SessionEvent.Type.ERROR, next().getType());
+
+        send("START", "a", Map.of("prompt", "Today"));
+        awaitType(SessionEvent.Type.COMPLETE);
+    }
+
+    @Test
+    void shouldLimitRunningGenerationsOnly() throws InterruptedException {
+        send("START", "a", Map.of("prompt", "slow"));
+        awaitType(SessionEvent.Type.STARTED);
+        send("START", "b", Map.of("prompt", "slow"));
+        awaitType(SessionEvent.Type.STARTED);
+
+        send("START", "c", Map.of("prompt", "Today"));
+        awaitMessage("Connection already runs 2 generations");
+
+        send("END", "a", null);
+        awaitType(SessionEvent.Type.ENDED);
+        send("START", "c", Map.of("prompt", "Today"));
+        awaitType(SessionEvent.Type.STARTED);
+    }
+
+    @Test
+    void shouldRunMoreSequentialSessionsThanTheLimit() throws InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            send("START", "session-" + i, Map.of("prompt", "Today"));
+            awaitType(SessionEvent.Type.COMPLETE);
+        }
+
+        send("END", "session-0", null);
+        assertEquals(SessionEvent.Type.ENDED, next().getType());
+        send("PAUSE", "session-0", null);
+        assertEquals("Unknown session", next().getMessage());
+    }
+
+    private void send(String type, String session, Map<String, Object> request) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("type", type);
+        message.put("session", session);
+        if (request != null) {
+            message.put("request", request);
+        }
+        try {
+            outbound.tryEmitNext(objectMapper.writeValueAsString(message));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private SessionEvent next() throws InterruptedException {
+        SessionEvent event = inbound.poll(5, TimeUnit.SECONDS);
+        assertNotNull(event, "No event received");
+        return event;
+    }
+
+    private void awaitType(SessionEvent.Type type) throws InterruptedException {
+        while (next().getType() != type) {
+            // Skip events of other types, such as the tokens of a running generation
+        }
+    }
+
+    private void awaitMessage(String message) throws InterruptedException {
+        while (!message.equals(next().getMessage())) {
+            // Skip the tokens of the running generations
+        }
+    }
+
+    private SessionEvent read(String text) {
+        try {
+            return objectMapper.readValue(text, SessionEvent.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static TokenInfo token(String text) {
+        return TokenInfo.builder()
+                .text(text)
+                .probability(0.5)
+                .alternatives(List.of())
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    @Configuration
+    @EnableWebFlux
+    static class WebFluxTestConfig {
+    }
+}
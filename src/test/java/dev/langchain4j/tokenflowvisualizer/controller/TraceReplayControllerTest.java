@@ -0,0 +1,210 @@
+package dev.langchain4j.tokenflowvisualizer.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.codec.NdjsonTokenEncoder;
+import dev.langchain4j.tokenflowvisualizer.config.GenerationConfig;
+import dev.langchain4j.tokenflowvisualizer.config.OpenAIConfig;
+import dev.langchain4j.tokenflowvisualizer.config.PacingConfig;
+import dev.langchain4j.tokenflowvisualizer.config.ProvidersConfig;
+import dev.langchain4j.tokenflowvisualizer.config.TraceStoreConfig;
+import dev.langchain4j.tokenflowvisualizer.dto.PacingMode;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.metrics.TokenMetrics;
+import dev.langchain4j.tokenflowvisualizer.service.GenerationDeadlines;
+import dev.langchain4j.tokenflowvisualizer.service.TokenPacer;
+import dev.langchain4j.tokenflowvisualizer.service.dictionary.TokenDictionaries;
+import dev.langchain4j.tokenflowvisualizer.service.provider.ProviderRegistry;
+import dev.langchain4j.tokenflowvisualizer.service.tracestore.TraceStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.util.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.config.EnableWebFlux;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+import reactor.core.publisher.Flux;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TraceReplayControllerTest {
+
+    private static final List<TokenInfo> TOKENS = IntStream.range(0, 4)
+            .mapToObj(i -> TokenInfo.builder()
+                    .text(" token" + i)
+                    .probability(0.5)
+                    .alternatives(List.of())
+                    .timestamp(1_000 + 100L * i)
+                    .build())
+            .toList();
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @TempDir
+    Path directory;
+
+    private Timer pacingTimer;
+    private TraceStore traceStore;
+    private TraceReplayController replayController;
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        PacingConfig pacingConfig = new PacingConfig();
+        pacingConfig.setDefaultMode(PacingMode.NONE);
+        pacingTimer = pacingConfig.pacingTimer();
+        TokenPacer tokenPacer = new TokenPacer(pacingTimer, pacingConfig);
+        TraceStoreConfig traceStoreConfig = new TraceStoreConfig();
+        traceStoreConfig.setEnabled(true);
+        traceStoreConfig.setDirectory(directory);
+        traceStore = new TraceStore(traceStoreConfig, objectMapper, new SimpleMeterRegistry());
+
+        TokenGenerationController generationController = new TokenGenerationController(
+                request -> Flux.fromIterable(TOKENS),
+                tokenPacer,
+                new TokenMetrics(new SimpleMeterRegistry()),
+                objectMapper,
+                new TokenDictionaries(1024, new SimpleMeterRegistry()),
+                providerRegistry(),
+                traceStore,
+                new GenerationDeadlines(new GenerationConfig()));
+        replayController = new TraceReplayController(traceStore, tokenPacer);
+        client = WebTestClient.bindToController(generationController, replayController)
+                .httpMessageCodecs(codecs -> codecs.customCodecs().register(new NdjsonTokenEncoder(objectMapper)))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pacingTimer.stop();
+        traceStore.close();
+    }
+
+    @Test
+    void shouldReplayAGenerationFromItsTraceId() {
+        String traceId = generate();
+
+        assertEquals(lines(TOKENS), replay(traceId, ""));
+    }
+
+    @Test
+    void shouldSeekToAToken() {
+        String traceId = generate();
+
+        assertEquals(lines(TOKENS.subList(2, 4)), replay(traceId, "?from=2"));
+        assertEquals("", replay(traceId, "?from=4"));
+        client.get().uri("/api/traces/" + traceId + "?from=5").exchange().expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldReplayAtTheRecordedPace() {
+        String traceId = generate();
+
+        long start = System.nanoTime();
+        assertEquals(lines(TOKENS.subList(1, 4)), replay(traceId, "?from=1&pacing=UPSTREAM"));
+        // 100 ms between recorded tokens
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(180).toNanos());
+    }
+
+    @Test
+    void shouldDeleteTraces() {
+        String traceId = generate();
+
+        client.delete().uri("/api/traces/" + traceId).exchange().expectStatus().isNoContent();
+        client.get().uri("/api/traces/" + traceId).exchange().expectStatus().isNotFound();
+        client.delete().uri("/api/traces/" + traceId).exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void shouldSendUnpacedReplaysFromTheSegmentFile() {
+        String traceId = generate();
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.register(WebFluxTestConfig.class);
+        context.registerBean(TraceReplayController.class, () -> replayController);
+        context.refresh();
+        DisposableServer server = HttpServer.create()
+                .port(0)
+                .handle(new ReactorHttpHandlerAdapter(WebHttpHandlerBuilder.applicationContext(context).build()))
+                .bindNow();
+        try {
+            String body = WebTestClient.bindToServer().baseUrl("http://localhost:" + server.port()).build()
+                    .get().uri("/api/traces/" + traceId + "?from=1&pacing=NONE")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().valueEquals(TraceReplayController.TRACE_TOKENS_HEADER, "4")
+                    .expectBody(String.class).returnResult().getResponseBody();
+
+            assertEquals(lines(TOKENS.subList(1, 4)), body);
+        } finally {
+            server.disposeNow();
+            context.close();
+        }
+    }
+
+    private String generate() {
+        String traceId = client.post().uri("/api/tokens")
+                .bodyValue(Map.of("prompt", "Today"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).returnResult()
+                .getResponseHeaders()
+                .getFirst(TraceStore.TRACE_ID_HEADER);
+        assertNotNull(traceId);
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (client.get().uri("/api/traces/" + traceId).exchange().expectBody().returnResult().getStatus()
+                == HttpStatus.NOT_FOUND) {
+            assertTrue(System.nanoTime() < deadline, "Trace was not stored");
+        }
+        return traceId;
+    }
+
+    private String replay(String traceId, String query) {
+        String body = client.get().uri("/api/traces/" + traceId + query)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).returnResult().getResponseBody();
+        return body != null ? body : "";
+    }
+
+    private String lines(List<TokenInfo> tokens) {
+        return tokens.stream().map(this::json).map(line -> line + "\n").collect(Collectors.joining());
+    }
+
+    private String json(TokenInfo token) {
+        try {
+            return objectMapper.writeValueAsString(token);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ProviderRegistry providerRegistry() {
+        ProvidersConfig providersConfig = new ProvidersConfig();
+        return new ProviderRegistry(
+                List.of(providersConfig.openAIProvider(new OpenAIConfig(), WebClient.create(), objectMapper)), providersConfig);
+    }
+
+    @Configuration
+    @EnableWebFlux
+    static class WebFluxTestConfig {
+    }
+}
@@ -0,0 +1,229 @@
+package dev.langchain4j.tokenflowvisualizer.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.langchain4j.tokenflowvisualizer.dto.CachePolicy;
+import dev.langchain4j.tokenflowvisualizer.dto.PacingMode;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenGenerationRequest;
+import dev.langchain4j.tokenflowvisualizer.metrics.TokenMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load generator for the token endpoints: {@code concurrency} virtual clients
+ * each send a request, consume the whole token stream and immediately send the next one
+ * until the run is over. Time to first token and inter-token latency are measured on the
+ * client side, and the server's CPU and heap are sampled from its actuator metrics.
+ */
+@Slf4j
+public class LoadDriver {
+
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final Settings settings;
+    private final WebClient webClient;
+    private final WebClient metricsClient;
+    private final ConnectionProvider connectionProvider;
+
+    @Data
+    @Builder
+    public static class Settings {
+        /** Base URL of the application under test, e.g. {@code http://localhost:8080}. */
+        private String targetUrl;
+        @Builder.Default
+        private String endpoint = TokenMetrics.ENDPOINT_STREAM;
+        @Builder.Default
+        private int concurrency = 100;
+        @Builder.Default
+        private Duration duration = Duration.ofSeconds(30);
+        /** Load applied before measuring, to get past JIT compilation and pool growth. */
+        @Builder.Default
+        private Duration warmup = Duration.ZERO;
+        @Builder.Default
+        private double temperature = 0.7;
+        @Builder.Default
+        private int topK = 5;
+        /** Server side pacing; {@code NONE} measures the pipeline rather than the configured delay. */
+        @Builder.Default
+        private PacingMode pacing = PacingMode.NONE;
+        @Builder.Default
+        private CachePolicy cache = CachePolicy.NEVER;
+        /** Give every request its own prompt so that neither coalescing nor caching kicks in. */
+        @Builder.Default
+        private boolean distinctPrompts = true;
+        @Builder.Default
+        private Duration sampleInterval = Duration.ofSeconds(1);
+    }
+
+    public LoadDriver(Settings settings) {
+        this.settings = settings;
+        this.connectionProvider = ConnectionProvider.builder("load-driver")
+                .maxConnections(settings.getConcurrency())
+                .pendingAcquireMaxCount(-1)
+                .build();
+        this.webClient = WebClient.builder()
+                .baseUrl(settings.getTargetUrl())
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .build();
+        // Separate pool so that sampling never queues behind the load
+        this.metricsClient = WebClient.create(settings.getTargetUrl());
+    }
+
+    public LoadReport run() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        Duration expiry = settings.getDuration().multipliedBy(2);
+        Timer firstToken = latencyTimer(registry, "load.ttft", expiry);
+        Timer tokenGap = latencyTimer(registry, "load.itl", expiry);
+        Counter completed = registry.counter("load.requests");
+        Counter failed = registry.counter("load.errors");
+        Counter tokens = registry.counter("load.tokens");
+        DistributionSummary cpu = registry.summary("load.server.cpu");
+        AtomicLong maxHeap = new AtomicLong();
+        AtomicInteger sequence = new AtomicInteger();
+
+        Disposable sampler = Flux.interval(settings.getWarmup(), settings.getSampleInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> Mono.zip(
+                        serverMetric("process.cpu.usage", null),
+                        serverMetric("jvm.memory.used", "area:heap")))
+                .subscribe(sample -> {
+                    if (!sample.getT1().isNaN()) {
+                        cpu.record(sample.getT1());
+                    }
+                    if (!sample.getT2().isNaN()) {
+                        maxHeap.accumulateAndGet(sample.getT2().longValue(), Math::max);
+                    }
+                });
+
+        log.info("Driving {}{} with {} clients for {}", settings.getTargetUrl(), settings.getEndpoint(),
+                settings.getConcurrency(), settings.getDuration());
+        long start = System.nanoTime() + settings.getWarmup().toNanos();
+        long deadline = start + settings.getDuration().toNanos();
+        try {
+            Flux.range(0, settings.getConcurrency())
+                    .flatMap(client -> Mono.defer(() -> {
+                                        Recording recording = System.nanoTime() >= start
+                                                ? new Recording(firstToken, tokenGap, tokens, completed, failed)
+                                                : Recording.DISCARDED;
+                                        return request(sequence.incrementAndGet(), recording)
+                                                .doOnSuccess(ignored -> recording.completed())
+                                                .onErrorResume(error -> {
+                                                    recording.failed();
+                                                    log.debug("Request failed", error);
+                                                    return Mono.empty();
+                                                });
+                                    })
+                                    .repeat(() -> System.nanoTime() < deadline),
+                            settings.getConcurrency())
+                    .blockLast();
+        } finally {
+            sampler.dispose();
+            connectionProvider.dispose();
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        return new LoadReport(settings.getEndpoint(), settings.getConcurrency(), elapsed,
+                (long) completed.count(), (long) failed.count(), (long) tokens.count(),
+                firstToken.takeSnapshot(), tokenGap.takeSnapshot(),
+                cpu.count() > 0 ? cpu.mean() : Double.NaN,
+                cpu.count() > 0 ? cpu.max() : Double.NaN,
+                maxHeap.get());
+    }
+
+    private Mono<Void> request(int sequence, Recording recording) {
+        TokenGenerationRequest request = new TokenGenerationRequest();
+        request.setPrompt(settings.isDistinctPrompts() ? "Load test prompt " + sequence : "Load test prompt");
+        request.setTemperature(settings.getTemperature());
+        request.setTopK(settings.getTopK());
+        request.setPacing(settings.getPacing());
+        request.setCache(settings.getCache());
+
+        long sent = System.nanoTime();
+        AtomicLong previous = new AtomicLong();
+        MediaType accept = TokenMetrics.ENDPOINT_STREAM.equals(settings.getEndpoint())
+                ? MediaType.TEXT_EVENT_STREAM
+                : MediaType.APPLICATION_NDJSON;
+        return webClient.post()
+                .uri(settings.getEndpoint())
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(accept)
+                .bodyValue(request)
+                .retrieve()
+                // One element per SSE data field or NDJSON line, i.e. per token
+                .bodyToFlux(String.class)
+                .doOnNext(token -> {
+                    long now = System.nanoTime();
+                    long last = previous.getAndSet(now);
+                    recording.token(last == 0 ? now - sent : now - last, last == 0);
+                })
+                .then();
+    }
+
+    private Mono<Double> serverMetric(String name, String tag) {
+        return metricsClient.get()
+                .uri(uri -> {
+                    uri.path("/actuator/metrics/{name}");
+                    if (tag != null) {
+                        uri.queryParam("tag", tag);
+                    }
+                    return uri.build(name);
+                })
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .map(body -> body.path("measurements").path(0).path("value").asDouble(Double.NaN))
+                .doOnError(error -> log.warn("Cannot sample {}", name, error))
+                .onErrorReturn(Double.NaN);
+    }
+
+    private static Timer latencyTimer(MeterRegistry registry, String name, Duration expiry) {
+        return Timer.builder(name)
+                .publishPercentiles(PERCENTILES)
+                .distributionStatisticExpiry(expiry)
+                .distributionStatisticBufferLength(1)
+                .register(registry);
+    }
+
+    /**
+     * Where the measurements of one request go; requests sent during warm-up are discarded.
+     */
+    private record Recording(Timer firstToken, Timer tokenGap, Counter tokens, Counter requests, Counter errors) {
+        static final Recording DISCARDED = new Recording(null, null, null, null, null);
+
+        void token(long nanos, boolean first) {
+            if (tokens != null) {
+                (first ? firstToken : tokenGap).record(nanos, TimeUnit.NANOSECONDS);
+                tokens.increment();
+            }
+        }
+
+        void completed() {
+            if (requests != null) {
+                requests.increment();
+            }
+        }
+
+        void failed() {
+            if (errors != null) {
+                errors.increment();
+            }
+        }
+    }
+}
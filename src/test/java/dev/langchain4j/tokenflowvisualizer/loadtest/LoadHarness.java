@@ -0,0 +1,125 @@
+package dev.langchain4j.tokenflowvisualizer.loadtest;
+
+import dev.langchain4j.tokenflowvisualizer.ProbeScopeApplication;
+import dev.langchain4j.tokenflowvisualizer.dto.CachePolicy;
+import dev.langchain4j.tokenflowvisualizer.dto.PacingMode;
+import dev.langchain4j.tokenflowvisualizer.metrics.TokenMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Capacity-planning entry point: starts the {@link OpenAIStubServer}, boots the application
+ * against it and runs the {@link LoadDriver}, all without network access to OpenAI.
+ * <p>
+ * Options are {@code key=value} pairs:
+ * <pre>
+ * ./mvnw -Ploadtest test-compile exec:exec -Dloadtest.args="concurrency=2000 duration=60s endpoint=stream"
+ * </pre>
+ * <ul>
+ *     <li>{@code target}: drive an already running application instead of booting one (the
+ *     stub is then not started)</li>
+ *     <li>{@code endpoint} ({@code stream} or {@code tokens}), {@code concurrency}, {@code duration}, {@code warmup},
+ *     {@code pacing}, {@code cache}, {@code distinct-prompts}</li>
+ *     <li>{@code streaming}: whether the application streams from the stub</li>
+ *     <li>{@code latency}, {@code latency-sigma}, {@code tokens-per-second}, {@code error-rate},
+ *     {@code rate-limit-rate}, {@code requests-per-minute}, {@code completion-tokens}, {@code token-length}: stub behaviour,
+ *     see {@link StubSettings}</li>
+ *     <li>{@code app.<property>}: any application property, for example
+ *     {@code app.openai.hedging.enabled=true}</li>
+ * </ul>
+ */
+@Slf4j
+public final class LoadHarness {
+
+    private static final String APPLICATION_PREFIX = "app.";
+
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 1) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        System.out.println(run(options).summary());
+    }
+
+    public static LoadReport run(Map<String, String> options) {
+        LoadDriver.Settings.SettingsBuilder driver = LoadDriver.Settings.builder()
+                .endpoint("tokens".equals(options.getOrDefault("endpoint", "stream"))
+                        ? TokenMetrics.ENDPOINT_TOKENS
+                        : TokenMetrics.ENDPOINT_STREAM)
+                .concurrency(Integer.parseInt(options.getOrDefault("concurrency", "100")))
+                .duration(duration(options.getOrDefault("duration", "30s")))
+                .warmup(duration(options.getOrDefault("warmup", "0s")))
+                .pacing(PacingMode.valueOf(options.getOrDefault("pacing", "none").toUpperCase()))
+                .cache(CachePolicy.valueOf(options.getOrDefault("cache", "never").toUpperCase()))
+                .distinctPrompts(Boolean.parseBoolean(options.getOrDefault("distinct-prompts", "true")));
+
+        if (options.containsKey("target")) {
+            return new LoadDriver(driver.targetUrl(options.get("target")).build()).run();
+        }
+
+        StubSettings stub = StubSettings.builder()
+                .latencyMedian(duration(options.getOrDefault("latency", "300ms")))
+                .latencySigma(Double.parseDouble(options.getOrDefault("latency-sigma", "0.5")))
+                .tokensPerSecond(Double.parseDouble(options.getOrDefault("tokens-per-second", "50")))
+                .errorRate(Double.parseDouble(options.getOrDefault("error-rate", "0")))
+                .rateLimitRate(Double.parseDouble(options.getOrDefault("rate-limit-rate", "0")))
+                .requestsPerMinute(Integer.parseInt(options.getOrDefault("requests-per-minute", "0")))
+                .completionTokens(Integer.parseInt(options.getOrDefault("completion-tokens", "100")))
+                .tokenLength(Integer.parseInt(options.getOrDefault("token-length", "5")))
+                .build();
+        int concurrency = driver.build().getConcurrency();
+
+        try (OpenAIStubServer server = OpenAIStubServer.start(stub);
+             ConfigurableApplicationContext application = new SpringApplicationBuilder(ProbeScopeApplication.class)
+                     .run(applicationArguments(options, server, stub, concurrency))) {
+            String port = application.getEnvironment().getProperty("local.server.port");
+            LoadReport report = new LoadDriver(driver.targetUrl("http://localhost:" + port).build()).run();
+            log.info("Stub served {} upstream requests, {} rate limited", server.requestCount(),
+                    server.rateLimitedCount());
+            return report;
+        }
+    }
+
+    private static String[] applicationArguments(Map<String, String> options, OpenAIStubServer server,
+                                                 StubSettings stub, int concurrency) {
+        // Passed as arguments so they take precedence over application.properties, and
+        // spelled out because the test classpath carries its own application.properties
+        List<String> arguments = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--openai.api-key=stub",
+                "--openai.base-url=" + server.baseUrl(),
+                "--openai.max-tokens=" + stub.getCompletionTokens(),
+                "--openai.streaming=" + options.getOrDefault("streaming", "true"),
+                "--openai.http.max-connections=" + Math.max(500, concurrency),
+                "--openai.http.pending-acquire-max-count=-1",
+                "--management.endpoints.web.exposure.include=health,metrics",
+                "--logging.level.root=WARN",
+                "--logging.level.dev.langchain4j=WARN",
+                "--logging.level.reactor=WARN"));
+        options.forEach((key, value) -> {
+            if (key.startsWith(APPLICATION_PREFIX)) {
+                arguments.add("--" + key.substring(APPLICATION_PREFIX.length()) + "=" + value);
+            }
+        });
+        return arguments.toArray(String[]::new);
+    }
+
+    private static Duration duration(String value) {
+        return DurationStyle.detectAndParse(value);
+    }
+}
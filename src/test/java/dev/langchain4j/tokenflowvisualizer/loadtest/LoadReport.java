@@ -0,0 +1,69 @@
+package dev.langchain4j.tokenflowvisualizer.loadtest;
+
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of one {@link LoadDriver} run. Server CPU is the process CPU usage reported by
+ * the target's actuator (0..1); it includes the driver when both run in the same JVM.
+ */
+public record LoadReport(String endpoint,
+                         int concurrency,
+                         Duration elapsed,
+                         long requests,
+                         long errors,
+                         long tokens,
+                         HistogramSnapshot timeToFirstToken,
+                         HistogramSnapshot interTokenLatency,
+                         double serverCpuMean,
+                         double serverCpuMax,
+                         long serverHeapMax) {
+
+    public double requestsPerSecond() {
+        return requests / seconds();
+    }
+
+    public double tokensPerSecond() {
+        return tokens / seconds();
+    }
+
+    public String summary() {
+        return String.format(Locale.ROOT, """
+                        endpoint        %s, %d clients, %.1fs
+                        requests        %d ok, %d failed, %.1f req/s
+                        tokens          %d, %.1f tokens/s
+                        ttft            %s
+                        inter-token     %s
+                        server cpu      mean %.1f%%, max %.1f%%
+                        server heap     max %d MB""",
+                endpoint, concurrency, seconds(),
+                requests, errors, requestsPerSecond(),
+                tokens, tokensPerSecond(),
+                percentiles(timeToFirstToken),
+                percentiles(interTokenLatency),
+                serverCpuMean * 100, serverCpuMax * 100,
+                serverHeapMax / (1024 * 1024));
+    }
+
+    private double seconds() {
+        return elapsed.toNanos() / 1e9;
+    }
+
+    private static String percentiles(HistogramSnapshot snapshot) {
+        StringBuilder line = new StringBuilder();
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            line.append(String.format(Locale.ROOT, "p%s %.1fms  ",
+                    formatPercentile(percentile.percentile()), percentile.value(TimeUnit.MILLISECONDS)));
+        }
+        return line.append(String.format(Locale.ROOT, "max %.1fms", snapshot.max(TimeUnit.MILLISECONDS))).toString();
+    }
+
+    private static String formatPercentile(double percentile) {
+        String value = String.format(Locale.ROOT, "%.1f", percentile * 100);
+        return value.endsWith(".0") ? value.substring(0, value.length() - 2) : value;
+    }
+}
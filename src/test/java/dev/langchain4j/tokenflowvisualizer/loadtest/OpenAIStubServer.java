@@ -0,0 +1,351 @@
+package dev.langchain4j.tokenflowvisualizer.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsChunk;
+import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsRequest;
+import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for OpenAI's {@code /chat/completions} endpoint with logprobs, streaming
+ * and non-streaming. Responses are built from the application's own OpenAI DTOs, so the
+ * stub follows whatever wire format the service expects.
+ */
+@Slf4j
+public class OpenAIStubServer implements AutoCloseable {
+
+    private static final String COMPLETIONS_PATH = "/v1/chat/completions";
+    private static final String[] WORDS = {
+            "the", "model", "token", "stream", "probability", "choice", "next", "word",
+            "sky", "blue", "quick", "fox", "river", "light", "signal", "value"
+    };
+
+    private final StubSettings settings;
+    private final ObjectMapper objectMapper;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicInteger openStreams = new AtomicInteger();
+    private double remainingRequests;
+    private long refilledAt = System.nanoTime();
+    private final DisposableServer server;
+
+    private OpenAIStubServer(StubSettings settings, int port) {
+        this.settings = settings;
+        this.remainingRequests = settings.getRequestsPerMinute();
+        this.objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        this.server = HttpServer.create()
+                .port(port)
+                .route(routes -> routes.post(COMPLETIONS_PATH, this::handle))
+                .bindNow();
+    }
+
+    public static OpenAIStubServer start(StubSettings settings) {
+        return start(settings, 0);
+    }
+
+    public static OpenAIStubServer start(StubSettings settings, int port) {
+        OpenAIStubServer stub = new OpenAIStubServer(settings, port);
+        log.info("OpenAI stub listening on {} with {}", stub.baseUrl(), settings);
+        return stub;
+    }
+
+    /**
+     * Value for {@code openai.base-url}.
+     */
+    public String baseUrl() {
+        return "http://localhost:" + server.port() + "/v1";
+    }
+
+    public long requestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Requests answered with a 429, whether over {@code requestsPerMinute} or at random.
+     */
+    public long rateLimitedCount() {
+        return rateLimited.get();
+    }
+
+    /**
+     * Streaming responses still being sent; one ends when it completes or the client
+     * closes its connection.
+     */
+    public int openStreams() {
+        return openStreams.get();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+
+    private Mono<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+        return request.receive().aggregate().asByteArray()
+                .flatMap(body -> {
+                    long count = requests.incrementAndGet();
+                    OpenAILogprobsRequest completionRequest = read(body, OpenAILogprobsRequest.class);
+                    Random random = ThreadLocalRandom.current();
+                    Duration latency = count <= settings.getSlowRequests()
+                            ? settings.getSlowLatency()
+                            : settings.sampleLatency(random);
+                    if (!admit(response)) {
+                        rateLimited.incrementAndGet();
+                        return error(response, HttpResponseStatus.TOO_MANY_REQUESTS, "rate_limit_exceeded", latency);
+                    }
+                    double roll = random.nextDouble();
+                    if (roll < settings.getRateLimitRate()) {
+                        rateLimited.incrementAndGet();
+                        return error(response, HttpResponseStatus.TOO_MANY_REQUESTS, "rate_limit_exceeded", latency);
+                    }
+                    if (roll < settings.getRateLimitRate() + settings.getErrorRate()) {
+                        return error(response, HttpResponseStatus.INTERNAL_SERVER_ERROR, "server_error", latency);
+                    }
+                    List<OpenAILogprobsResponse.ContentLogprob> generation = generate(completionRequest, random);
+                    return Boolean.TRUE.equals(completionRequest.getStream())
+                            ? stream(response, completionRequest, generation, latency)
+                            : complete(response, completionRequest, generation, latency);
+                });
+    }
+
+    /**
+     * Spends one request of the per-minute limit, if there is one, and advertises what is
+     * left the way OpenAI does.
+     */
+    private synchronized boolean admit(HttpServerResponse response) {
+        int limit = settings.getRequestsPerMinute();
+        if (limit <= 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        double perNano = limit / (double) TimeUnit.MINUTES.toNanos(1);
+        remainingRequests = Math.min(limit, remainingRequests + (now - refilledAt) * perNano);
+        refilledAt = now;
+        boolean admitted = remainingRequests >= 1;
+        if (admitted) {
+            remainingRequests -= 1;
+        }
+        long resetMillis = (long) Math.ceil((limit - remainingRequests) / perNano / 1_000_000);
+        response.header("x-ratelimit-limit-requests", String.valueOf(limit))
+                .header("x-ratelimit-remaining-requests", String.valueOf((long) remainingRequests))
+                .header("x-ratelimit-reset-requests", resetMillis + "ms");
+        return admitted;
+    }
+
+    private Mono<Void> complete(HttpServerResponse response, OpenAILogprobsRequest request,
+                                List<OpenAILogprobsResponse.ContentLogprob> generation, Duration latency) {
+        OpenAILogprobsResponse.Message message = new OpenAILogprobsResponse.Message();
+        message.setRole("assistant");
+        message.setContent(text(generation));
+
+        OpenAILogprobsResponse.Choice choice = new OpenAILogprobsResponse.Choice();
+        choice.setMessage(message);
+        choice.setLogprobs(logprobs(generation));
+        choice.setFinishReason("stop");
+
+        OpenAILogprobsResponse completion = new OpenAILogprobsResponse();
+        completion.setId("chatcmpl-stub");
+        completion.setObject("chat.completion");
+        completion.setCreated(System.currentTimeMillis() / 1000);
+        completion.setModel(request.getModel());
+        completion.setChoices(List.of(choice));
+        completion.setUsage(usage(generation));
+
+        // A non-streaming completion is only sent once every token has been generated
+        Duration generationTime = settings.tokenInterval().multipliedBy(generation.size());
+        return Mono.delay(latency.plus(generationTime))
+                .then(response.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .sendByteArray(Mono.fromSupplier(() -> write(completion)))
+                        .then());
+    }
+
+    private Mono<Void> stream(HttpServerResponse response, OpenAILogprobsRequest request,
+                              List<OpenAILogprobsResponse.ContentLogprob> generation, Duration latency) {
+        Flux<String> tokenChunks = Flux.range(0, generation.size())
+                .map(i -> chunk(request, delta(null, generation.get(i).getToken()),
+                        logprobs(List.of(generation.get(i))), null));
+        Duration interval = settings.tokenInterval();
+        if (!interval.isZero()) {
+            tokenChunks = tokenChunks.delayElements(interval);
+        }
+
+        Flux<String> events = Flux.concat(
+                Mono.delay(latency).map(tick -> chunk(request, delta("assistant", ""), logprobs(List.of()), null)),
+                tokenChunks,
+                Mono.fromSupplier(() -> chunk(request, new OpenAILogprobsChunk.Delta(), null, "stop")),
+                Mono.just("[DONE]"));
+
+        return response.header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_EVENT_STREAM_VALUE)
+                .send(events.map(OpenAIStubServer::sse)
+                        .doOnSubscribe(subscription -> openStreams.incrementAndGet())
+                        .doFinally(signal -> openStreams.decrementAndGet()), buffer -> true)
+                .then();
+    }
+
+    private Mono<Void> error(HttpServerResponse response, HttpResponseStatus status, String code, Duration latency) {
+        Map<String, Object> error = Map.of("error", Map.of(
+                "message", "Stubbed " + status.reasonPhrase(),
+                "type", code,
+                "code", code));
+        HttpServerResponse errorResponse = response.status(status)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        if (status == HttpResponseStatus.TOO_MANY_REQUESTS) {
+            errorResponse.header(HttpHeaders.RETRY_AFTER, "1");
+        }
+        return Mono.delay(latency)
+                .then(errorResponse.sendByteArray(Mono.fromSupplier(() -> write(error))).then());
+    }
+
+    private List<OpenAILogprobsResponse.ContentLogprob> generate(OpenAILogprobsRequest request, Random random) {
+        int length = settings.getCompletionTokens();
+        if (request.getMaxCompletionTokens() != null && request.getMaxCompletionTokens() > 0) {
+            length = Math.min(length, request.getMaxCompletionTokens());
+        }
+        int alternatives = Boolean.TRUE.equals(request.getLogprobs()) && request.getTopLogprobs() != null
+                ? request.getTopLogprobs()
+                : 0;
+
+        List<OpenAILogprobsResponse.ContentLogprob> generation = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            String token = token(random);
+            double logprob = -random.nextDouble() * 2;
+            // The sampled token leads its own top_logprobs, followed by distinct runners-up
+            List<OpenAILogprobsResponse.TopLogprob> top = new ArrayList<>(alternatives);
+            Set<String> seen = new HashSet<>();
+            double alternativeLogprob = logprob;
+            while (top.size() < alternatives) {
+                String candidate = top.isEmpty() ? token : token(random);
+                if (!seen.add(candidate)) {
+                    candidate = candidate.substring(0, candidate.length() - 1) + top.size();
+                    seen.add(candidate);
+                }
+                top.add(topLogprob(candidate, alternativeLogprob));
+                alternativeLogprob -= 0.5 + random.nextDouble();
+            }
+
+            OpenAILogprobsResponse.ContentLogprob content = new OpenAILogprobsResponse.ContentLogprob();
+            content.setToken(token);
+            content.setLogprob(logprob);
+            content.setBytes(bytes(token));
+            content.setTopLogprobs(top);
+            generation.add(content);
+        }
+        return generation;
+    }
+
+    private String token(Random random) {
+        StringBuilder token = new StringBuilder(settings.getTokenLength()).append(' ');
+        while (token.length() < settings.getTokenLength()) {
+            token.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        token.setLength(Math.max(1, settings.getTokenLength()));
+        return token.toString();
+    }
+
+    private static OpenAILogprobsResponse.TopLogprob topLogprob(String token, double logprob) {
+        OpenAILogprobsResponse.TopLogprob top = new OpenAILogprobsResponse.TopLogprob();
+        top.setToken(token);
+        top.setLogprob(logprob);
+        top.setBytes(bytes(token));
+        return top;
+    }
+
+    private static List<Integer> bytes(String token) {
+        byte[] utf8 = token.getBytes(StandardCharsets.UTF_8);
+        List<Integer> bytes = new ArrayList<>(utf8.length);
+        for (byte b : utf8) {
+            bytes.add(b & 0xff);
+        }
+        return bytes;
+    }
+
+    private static OpenAILogprobsResponse.Logprobs logprobs(List<OpenAILogprobsResponse.ContentLogprob> content) {
+        OpenAILogprobsResponse.Logprobs logprobs = new OpenAILogprobsResponse.Logprobs();
+        logprobs.setContent(content);
+        return logprobs;
+    }
+
+    private static OpenAILogprobsChunk.Delta delta(String role, String content) {
+        OpenAILogprobsChunk.Delta delta = new OpenAILogprobsChunk.Delta();
+        delta.setRole(role);
+        delta.setContent(content);
+        return delta;
+    }
+
+    private static OpenAILogprobsResponse.Usage usage(List<OpenAILogprobsResponse.ContentLogprob> generation) {
+        OpenAILogprobsResponse.Usage usage = new OpenAILogprobsResponse.Usage();
+        usage.setPromptTokens(32);
+        usage.setCompletionTokens(generation.size());
+        usage.setTotalTokens(32 + generation.size());
+        return usage;
+    }
+
+    private static String text(List<OpenAILogprobsResponse.ContentLogprob> generation) {
+        StringBuilder text = new StringBuilder();
+        generation.forEach(token -> text.append(token.getToken()));
+        return text.toString();
+    }
+
+    private String chunk(OpenAILogprobsRequest request, OpenAILogprobsChunk.Delta delta,
+                         OpenAILogprobsResponse.Logprobs logprobs, String finishReason) {
+        OpenAILogprobsChunk.Choice choice = new OpenAILogprobsChunk.Choice();
+        choice.setDelta(delta);
+        choice.setLogprobs(logprobs);
+        choice.setFinishReason(finishReason);
+
+        OpenAILogprobsChunk chunk = new OpenAILogprobsChunk();
+        chunk.setId("chatcmpl-stub");
+        chunk.setObject("chat.completion.chunk");
+        chunk.setCreated(System.currentTimeMillis() / 1000);
+        chunk.setModel(request.getModel());
+        chunk.setChoices(List.of(choice));
+        return new String(write(chunk), StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuf sse(String data) {
+        return Unpooled.copiedBuffer("data: " + data + "\n\n", StandardCharsets.UTF_8);
+    }
+
+    private <T> T read(byte[] body, Class<T> type) {
+        try {
+            return objectMapper.readValue(body, type);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unreadable completion request", e);
+        }
+    }
+
+    private byte[] write(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize stub response", e);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package dev.langchain4j.tokenflowvisualizer.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.config.CacheConfig;
+import dev.langchain4j.tokenflowvisualizer.config.GenerationConfig;
+import dev.langchain4j.tokenflowvisualizer.config.OpenAIConfig;
+import dev.langchain4j.tokenflowvisualizer.config.ProvidersConfig;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenGenerationRequest;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.exception.TokenGenerationTimeoutException;
+import dev.langchain4j.tokenflowvisualizer.metrics.TokenMetrics;
+import dev.langchain4j.tokenflowvisualizer.service.GenerationDeadlines;
+import dev.langchain4j.tokenflowvisualizer.service.RequestCoalescer;
+import dev.langchain4j.tokenflowvisualizer.service.TokenGenerationServiceWithLogprobs;
+import dev.langchain4j.tokenflowvisualizer.service.cache.GenerationCache;
+import dev.langchain4j.tokenflowvisualizer.service.dictionary.TokenDictionaries;
+import dev.langchain4j.tokenflowvisualizer.service.provider.ProviderRegistry;
+import dev.langchain4j.tokenflowvisualizer.service.provider.TokenProvider;
+import dev.langchain4j.tokenflowvisualizer.service.ratelimit.UpstreamRateLimiter;
+import dev.langchain4j.tokenflowvisualizer.service.resilience.UpstreamGuards;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpenAIStubServerTest {
+
+    private static final StubSettings FAST = StubSettings.builder()
+            .latencyMedian(Duration.ofMillis(5))
+            .latencySigma(0)
+            .tokensPerSecond(1000)
+            .completionTokens(20)
+            .build();
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void shouldServeLogprobsTheServiceUnderstands(boolean streaming) {
+        try (OpenAIStubServer stub = OpenAIStubServer.start(FAST)) {
+            OpenAIConfig config = config(stub, streaming, 8);
+
+            StepVerifier.create(service(config).generateTokens("Today", 0.7, 3, 0.9).collectList())
+                    .assertNext(tokens -> {
+                        assertEquals(8, tokens.size());
+                        for (TokenInfo token : tokens) {
+                            assertEquals(5, token.getText().length());
+                            assertTrue(token.getProbability() > 0 && token.getProbability() <= 1);
+                            // top_logprobs=3 includes the sampled token itself
+                            assertEquals(2, token.getAlternatives().size());
+                        }
+                    })
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(10));
+            assertEquals(1, stub.requestCount());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void shouldHonourPerRequestCompletionLimit(boolean streaming) {
+        try (OpenAIStubServer stub = OpenAIStubServer.start(FAST)) {
+            TokenGenerationRequest request = new TokenGenerationRequest();
+            request.setPrompt("Today");
+            request.setMaxCompletionTokens(3);
+
+            StepVerifier.create(service(config(stub, streaming, 8)).generateTokens(request))
+                    .expectNextCount(3)
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(10));
+        }
+    }
+
+    @Test
+    void shouldRejectWithRateLimit() {
+        StubSettings limited = FAST.toBuilder().rateLimitRate(1).build();
+        try (OpenAIStubServer stub = OpenAIStubServer.start(limited)) {
+            StepVerifier.create(service(config(stub, true, 8)).generateTokens("Today", 0.7, 3, 0.9))
+                    .expectErrorSatisfies(error -> {
+                        WebClientResponseException cause = (WebClientResponseException) error.getCause();
+                        assertEquals(429, cause.getStatusCode().value());
+                        assertEquals("1", cause.getHeaders().getFirst("Retry-After"));
+                    })
+                    .verify(Duration.ofSeconds(10));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void shouldHedgeSlowCalls(boolean streaming) {
+        StubSettings slowFirst = FAST.toBuilder().slowRequests(1).slowLatency(Duration.ofSeconds(5)).build();
+        try (OpenAIStubServer stub = OpenAIStubServer.start(slowFirst)) {
+            OpenAIConfig config = config(stub, streaming, 8);
+            config.getHedging().setEnabled(true);
+            config.getHedging().setDelay(Duration.ofMillis(100));
+            config.getHedging().setMaxRate(1);
+            SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+            StepVerifier.create(service(config, meterRegistry).generateTokens("Today", 0.7, 3, 0.9))
+                    .expectNextCount(8)
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(2));
+
+            // Whichever of the two calls reached the stub first was the slow one
+            assertEquals(2, stub.requestCount());
+            assertEquals(1, meterRegistry.get("probescope.hedge.calls").tag("outcome", "issued").counter().count());
+        }
+    }
+
+    @Test
+    void shouldNotHedgeBeyondTheBudget() {
+        StubSettings slowFirst = FAST.toBuilder().slowRequests(1).slowLatency(Duration.ofMillis(500)).build();
+        try (OpenAIStubServer stub = OpenAIStubServer.start(slowFirst)) {
+            OpenAIConfig config = config(stub, true, 8);
+            config.getHedging().setEnabled(true);
+            config.getHedging().setDelay(Duration.ofMillis(50));
+            config.getHedging().setMaxRate(0.5);
+            SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+            StepVerifier.create(service(config, meterRegistry).generateTokens("Today", 0.7, 3, 0.9))
+                    .expectNextCount(8)
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(5));
+
+            assertEquals(1, stub.requestCount());
+            assertEquals(1, meterRegistry.get("probescope.hedge.calls").tag("outcome", "skipped").counter().count());
+        }
+    }
+
+    @Test
+    void shouldFailFastOnceTheCircuitOpens() {
+        StubSettings failing = FAST.toBuilder().errorRate(1).build();
+        try (OpenAIStubServer stub = OpenAIStubServer.start(failing)) {
+            OpenAIConfig config = config(stub, true, 8);
+            config.getRateLimit().setMaxRetries(0);
+            config.getCircuitBreaker().setMinimumCalls(3);
+            TokenGenerationServiceWithLogprobs service = service(config);
+
+            for (int i = 0; i < 5; i++) {
+                StepVerifier.create(service.generateTokens("Today " + i, 0.7, 3, 0.9))
+                        .expectError()
+                        .verify(Duration.ofSeconds(5));
+            }
+
+            assertEquals(3, stub.requestCount());
+        }
+    }
+
+    @Test
+    void shouldCloseTheUpstreamStreamOnceTheDeadlinePasses() throws InterruptedException {
+        StubSettings slow = FAST.toBuilder().tokensPerSecond(20).completionTokens(100).build();
+        try (OpenAIStubServer stub = OpenAIStubServer.start(slow)) {
+            SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+            GenerationDeadlines deadlines = new GenerationDeadlines(new GenerationConfig());
+
+            StepVerifier.create(deadlines.enforce(
+                            service(config(stub, true, 100), meterRegistry).generateTokens("Today", 0.7, 3, 0.9), 300L))
+                    .thenConsumeWhile(token -> true)
+                    .expectError(TokenGenerationTimeoutException.class)
+                    .verify(Duration.ofSeconds(2));
+
+            // Closing the connection is what ends the stream on the server
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while (stub.openStreams() > 0) {
+                assertTrue(System.nanoTime() < deadline, "Upstream stream still open");
+                Thread.sleep(10);
+            }
+            DistributionSummary abandoned = meterRegistry.get("probescope.upstream.abandoned.tokens").summary();
+            assertEquals(1, abandoned.count());
+            assertTrue(abandoned.totalAmount() > 0 && abandoned.totalAmount() < 100);
+        }
+    }
+
+    @Test
+    void shouldReportLoadAgainstTheApplication() {
+        LoadReport report = LoadHarness.run(Map.of(
+                "concurrency", "4",
+                "duration", "2s",
+                "latency", "10ms",
+                "tokens-per-second", "500",
+                "completion-tokens", "10"));
+
+        assertTrue(report.requests() > 0, report.summary());
+        assertEquals(0, report.errors(), report.summary());
+        assertEquals(report.requests() * 10, report.tokens(), report.summary());
+        List.of(report.timeToFirstToken(), report.interTokenLatency())
+                .forEach(snapshot -> assertTrue(snapshot.percentileValues()[0].value(TimeUnit.MILLISECONDS) > 0,
+                        report.summary()));
+    }
+
+    private static OpenAIConfig config(OpenAIStubServer stub, boolean streaming, int maxTokens) {
+        OpenAIConfig config = new OpenAIConfig();
+        config.setApiKey("stub");
+        config.setModel("gpt-4.1-mini");
+        config.setMaxTokens(maxTokens);
+        config.setStreaming(streaming);
+        config.setBaseUrl(stub.baseUrl());
+        return config;
+    }
+
+    private static TokenGenerationServiceWithLogprobs service(OpenAIConfig config) {
+        return service(config, new SimpleMeterRegistry());
+    }
+
+    private static TokenGenerationServiceWithLogprobs service(OpenAIConfig config, SimpleMeterRegistry meterRegistry) {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        WebClient webClient = config.openAIWebClient(WebClient.builder(), config.openAIConnectionProvider(),
+                new UpstreamRateLimiter(config, meterRegistry));
+        ProvidersConfig providersConfig = new ProvidersConfig();
+        List<TokenProvider> providers = List.of(providersConfig.openAIProvider(config, webClient, objectMapper));
+        ProviderRegistry providerRegistry = new ProviderRegistry(providers, providersConfig);
+        return new TokenGenerationServiceWithLogprobs(config, providerRegistry,
+                new GenerationCache(new CacheConfig(), objectMapper, meterRegistry),
+                new RequestCoalescer(true, meterRegistry),
+                new TokenMetrics(meterRegistry),
+                new TokenDictionaries(1024, meterRegistry),
+                new UpstreamGuards(providers, config, meterRegistry));
+    }
+}
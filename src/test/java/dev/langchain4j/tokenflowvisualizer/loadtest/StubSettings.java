@@ -0,0 +1,61 @@
+package dev.langchain4j.tokenflowvisualizer.loadtest;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * Behaviour of the {@link OpenAIStubServer}.
+ */
+@Data
+@Builder(toBuilder = true)
+public class StubSettings {
+    /** Median time until the first byte of a completion. */
+    @Builder.Default
+    private Duration latencyMedian = Duration.ofMillis(300);
+    /** Shape of the log-normal latency distribution; 0 makes every request take the median. */
+    @Builder.Default
+    private double latencySigma = 0.5;
+    /** Generation speed once the first token is out; 0 or less sends all tokens at once. */
+    @Builder.Default
+    private double tokensPerSecond = 50;
+    /** Number of requests, counted from the start, that take {@code slowLatency} instead. */
+    @Builder.Default
+    private int slowRequests = 0;
+    @Builder.Default
+    private Duration slowLatency = Duration.ofSeconds(5);
+    /** Fraction of requests answered with a 500. */
+    @Builder.Default
+    private double errorRate = 0;
+    /** Fraction of requests answered with a 429 and a {@code Retry-After} header. */
+    @Builder.Default
+    private double rateLimitRate = 0;
+    /**
+     * Provider-style request limit, refilled continuously and advertised in
+     * {@code x-ratelimit-*} headers; requests beyond it get a 429. 0 disables it.
+     */
+    @Builder.Default
+    private int requestsPerMinute = 0;
+    /** Completion length, capped by the request's {@code max_completion_tokens}. */
+    @Builder.Default
+    private int completionTokens = 100;
+    /** Characters per token; together with the completion length this sets the payload size. */
+    @Builder.Default
+    private int tokenLength = 5;
+
+    Duration sampleLatency(Random random) {
+        if (latencySigma <= 0) {
+            return latencyMedian;
+        }
+        double millis = latencyMedian.toMillis() * Math.exp(latencySigma * random.nextGaussian());
+        return Duration.ofMillis(Math.round(millis));
+    }
+
+    Duration tokenInterval() {
+        return tokensPerSecond > 0
+                ? Duration.ofNanos(Math.round(1_000_000_000d / tokensPerSecond))
+                : Duration.ZERO;
+    }
+}
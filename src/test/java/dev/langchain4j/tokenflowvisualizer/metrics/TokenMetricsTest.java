@@ -0,0 +1,125 @@
+package dev.langchain4j.tokenflowvisualizer.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.config.OpenAIConfig;
+import dev.langchain4j.tokenflowvisualizer.config.ProvidersConfig;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.exception.TokenGenerationTimeoutException;
+import dev.langchain4j.tokenflowvisualizer.service.provider.TokenProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TokenMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private TokenMetrics tokenMetrics;
+    private TokenProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        OpenAIConfig config = new OpenAIConfig();
+        config.setModel("gpt-4.1-mini");
+        meterRegistry = new SimpleMeterRegistry();
+        tokenMetrics = new TokenMetrics(meterRegistry);
+        provider = new ProvidersConfig().openAIProvider(config, WebClient.create(), new ObjectMapper());
+    }
+
+    @Test
+    void shouldRecordStreamTimings() {
+        StepVerifier.create(tokenMetrics.instrumentStream(tokens(3).delayElements(Duration.ofMillis(10)),
+                        TokenMetrics.ENDPOINT_STREAM, provider))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        assertEquals(1, meterRegistry.get("probescope.tokens.first")
+                .tags("provider", "openai", "model", "gpt-4.1-mini", "endpoint", TokenMetrics.ENDPOINT_STREAM).timer().count());
+        assertEquals(2, meterRegistry.get("probescope.tokens.gap").timer().count());
+        assertEquals(1, meterRegistry.get("probescope.tokens.rate").summary().count());
+        assertEquals(0.0, meterRegistry.get("probescope.streams.active").gauge().value());
+    }
+
+    @Test
+    void shouldCountCancelledStreams() {
+        StepVerifier.create(tokenMetrics.instrumentStream(tokens(1).concatWith(Flux.never()),
+                        TokenMetrics.ENDPOINT_TOKENS, provider))
+                .expectNextCount(1)
+                .then(() -> assertEquals(1.0, meterRegistry.get("probescope.streams.active").gauge().value()))
+                .thenCancel()
+                .verify();
+
+        assertEquals(1.0, meterRegistry.get("probescope.streams.cancelled")
+                .tag("endpoint", TokenMetrics.ENDPOINT_TOKENS).counter().count());
+        assertEquals(0.0, meterRegistry.get("probescope.streams.active").gauge().value());
+    }
+
+    @Test
+    void shouldCountMissedDeadlines() {
+        StepVerifier.create(tokenMetrics.instrumentStream(
+                        Flux.error(TokenGenerationTimeoutException.fromTimeout(Duration.ofMillis(50))),
+                        TokenMetrics.ENDPOINT_STREAM, provider))
+                .verifyError(TokenGenerationTimeoutException.class);
+
+        assertEquals(1.0, meterRegistry.get("probescope.streams.deadline.exceeded")
+                .tag("endpoint", TokenMetrics.ENDPOINT_STREAM).counter().count());
+    }
+
+    @Test
+    void shouldRecordTokensOfAbandonedUpstreamCalls() {
+        StepVerifier.create(tokenMetrics.instrumentUpstream(tokens(2).concatWith(Flux.never()), provider))
+                .expectNextCount(2)
+                .thenCancel()
+                .verify();
+        StepVerifier.create(tokenMetrics.instrumentUpstream(tokens(3), provider)).expectNextCount(3).verifyComplete();
+
+        assertEquals(1, meterRegistry.get("probescope.upstream.abandoned.tokens").summary().count());
+        assertEquals(2.0, meterRegistry.get("probescope.upstream.abandoned.tokens").summary().totalAmount());
+        assertEquals(1, meterRegistry.get("probescope.upstream.latency").tag("outcome", "cancelled").timer().count());
+    }
+
+    @Test
+    void shouldTagUpstreamLatencyByOutcome() {
+        StepVerifier.create(tokenMetrics.instrumentUpstream(tokens(2), provider)).expectNextCount(2).verifyComplete();
+        StepVerifier.create(tokenMetrics.instrumentUpstream(Flux.error(new IllegalStateException("boom")), provider))
+                .verifyError(IllegalStateException.class);
+
+        assertEquals(1, meterRegistry.get("probescope.upstream.latency")
+                .tags("provider", "openai", "model", "gpt-4.1-mini", "outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get("probescope.upstream.latency").tag("outcome", "error").timer().count());
+    }
+
+    @Test
+    void shouldTagUpstreamLatencyByModelOfEachCall() {
+        OpenAIConfig other = new OpenAIConfig();
+        other.setModel("gpt-4o");
+        TokenProvider otherProvider = new ProvidersConfig().openAIProvider(other, WebClient.create(), new ObjectMapper());
+
+        StepVerifier.create(tokenMetrics.instrumentUpstream(tokens(1), provider)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(tokenMetrics.instrumentUpstream(tokens(1), otherProvider)).expectNextCount(1).verifyComplete();
+
+        assertEquals(1, meterRegistry.get("probescope.upstream.latency").tag("model", "gpt-4.1-mini").timer().count());
+        assertEquals(1, meterRegistry.get("probescope.upstream.latency").tag("model", "gpt-4o").timer().count());
+    }
+
+    @Test
+    void shouldTimeSerialization() {
+        assertEquals("{}", tokenMetrics.timeSerialization(() -> "{}", TokenMetrics.ENDPOINT_STREAM, provider));
+        assertEquals("{}", tokenMetrics.timeSerialization(() -> "{}", TokenMetrics.ENDPOINT_STREAM, provider));
+
+        assertEquals(2, meterRegistry.get("probescope.serialization")
+                .tags("provider", "openai", "model", "gpt-4.1-mini", "endpoint", TokenMetrics.ENDPOINT_STREAM).timer().count());
+    }
+
+    private static Flux<TokenInfo> tokens(int count) {
+        return Flux.range(0, count)
+                .map(i -> TokenInfo.builder().text("t" + i).probability(1.0).alternatives(List.of()).build());
+    }
+}
@@ -0,0 +1,56 @@
+package dev.langchain4j.tokenflowvisualizer.service;
+
+import dev.langchain4j.tokenflowvisualizer.config.GenerationConfig;
+import dev.langchain4j.tokenflowvisualizer.exception.TokenGenerationTimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GenerationDeadlinesTest {
+
+    private GenerationDeadlines deadlines;
+
+    @BeforeEach
+    void setUp() {
+        GenerationConfig config = new GenerationConfig();
+        config.setTimeout(Duration.ofSeconds(2));
+        deadlines = new GenerationDeadlines(config);
+    }
+
+    @Test
+    void shouldOnlyLetClientsShortenTheDeadline() {
+        assertEquals(Duration.ofSeconds(2), deadlines.timeout(null));
+        assertEquals(Duration.ofMillis(500), deadlines.timeout(500L));
+        assertEquals(Duration.ofSeconds(2), deadlines.timeout(60_000L));
+        assertEquals(Duration.ZERO, deadlines.timeout(-1L));
+    }
+
+    @Test
+    void shouldCancelTheGenerationOnceTheDeadlinePasses() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        StepVerifier.create(deadlines.enforce(Flux.just("a").concatWith(Flux.never()).doOnCancel(() -> cancelled.set(true)),
+                        50L))
+                .expectNext("a")
+                .expectErrorSatisfies(error -> {
+                    assertTrue(error instanceof TokenGenerationTimeoutException);
+                    assertEquals("Token generation timed out after 50 ms", error.getMessage());
+                })
+                .verify(Duration.ofSeconds(1));
+        assertTrue(cancelled.get());
+    }
+
+    @Test
+    void shouldLeaveGenerationsThatFinishInTimeAlone() {
+        StepVerifier.create(deadlines.enforce(Flux.just("a", "b").delayElements(Duration.ofMillis(10)), 1_000L))
+                .expectNext("a", "b")
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,96 @@
+package dev.langchain4j.tokenflowvisualizer.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsResponse;
+import dev.langchain4j.tokenflowvisualizer.exception.TokenGenerationException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IncrementalLogprobsParserTest {
+
+    private static final String RESPONSE = """
+            {"id":"chatcmpl-1","object":"chat.completion","created":1739800000,"model":"gpt-4.1-mini",
+             "choices":[{"index":0,
+               "message":{"role":"assistant","content":"The \\"sky\\" 雲","refusal":null,"annotations":[]},
+               "logprobs":{
+                 "content":[
+                   {"token":"The","logprob":-0.1,"bytes":[84,104,101],"top_logprobs":[
+                     {"token":"The","logprob":-0.1,"bytes":[84,104,101]},
+                     {"token":"A","logprob":-2.5,"bytes":[65]}]},
+                   {"token":" \\"sky\\"","logprob":-0.7,"bytes":null,"top_logprobs":[
+                     {"token":" \\"sky\\"","logprob":-0.7,"bytes":null},
+                     {"token":" weather","logprob":-1.2,"bytes":null,"extra":{"nested":[{"x":1}]}}]},
+                   {"token":" 雲","logprob":-0.05,"bytes":[32,233,155,178],"top_logprobs":[]}],
+                 "refusal":[{"token":"ignored","logprob":-1.0,"bytes":[],"top_logprobs":[]}]},
+               "finish_reason":"stop"}],
+             "usage":{"prompt_tokens":32,"completion_tokens":3,"total_tokens":35},
+             "system_fingerprint":"fp_1"}
+            """;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 17, 4096})
+    void shouldEmitSameTokensAsFullParse(int chunkSize) throws Exception {
+        List<TokenInfo> expected = LogprobsMapper.toTokenInfos(
+                objectMapper.readValue(RESPONSE, OpenAILogprobsResponse.class));
+
+        List<TokenInfo> parsed = IncrementalLogprobsParser.parse(chunks(RESPONSE, chunkSize), objectMapper)
+                .collectList()
+                .block();
+
+        assertEquals(3, parsed.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getText(), parsed.get(i).getText());
+            assertEquals(expected.get(i).getProbability(), parsed.get(i).getProbability());
+            assertEquals(expected.get(i).getAlternatives(), parsed.get(i).getAlternatives());
+        }
+    }
+
+    @Test
+    void shouldEmitTokensBeforeTheBodyHasEnded() {
+        int endOfSecondEntry = RESPONSE.indexOf(" 雲\",\"logprob\"");
+        String head = RESPONSE.substring(0, endOfSecondEntry);
+
+        StepVerifier.create(IncrementalLogprobsParser.parse(
+                        chunks(head, 64).concatWith(Flux.never()), objectMapper))
+                .assertNext(token -> assertEquals("The", token.getText()))
+                .assertNext(token -> assertEquals(" \"sky\"", token.getText()))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void shouldRejectTruncatedBody() {
+        String truncated = RESPONSE.substring(0, RESPONSE.indexOf("\"top_logprobs\":[]"));
+
+        StepVerifier.create(IncrementalLogprobsParser.parse(chunks(truncated, 64), objectMapper))
+                .expectNextCount(2)
+                .expectError(TokenGenerationException.class)
+                .verify();
+    }
+
+    private static Flux<DataBuffer> chunks(String json, int chunkSize) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> buffers = new ArrayList<>();
+        for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+            buffers.add(DefaultDataBufferFactory.sharedInstance.wrap(
+                    Arrays.copyOfRange(bytes, offset, Math.min(bytes.length, offset + chunkSize))));
+        }
+        return Flux.fromIterable(buffers);
+    }
+}
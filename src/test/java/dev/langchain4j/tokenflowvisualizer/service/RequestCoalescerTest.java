@@ -0,0 +1,95 @@
+package dev.langchain4j.tokenflowvisualizer.service;
+
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.service.cache.GenerationKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestCoalescerTest {
+
+    private static final GenerationKey KEY = new GenerationKey("gpt-4.1-mini", List.of("user:Hello"), 0.7, 0.9, 5, 10);
+
+    private SimpleMeterRegistry meterRegistry;
+    private RequestCoalescer coalescer;
+    private AtomicInteger upstreamCalls;
+    private AtomicBoolean upstreamCancelled;
+    private Sinks.Many<TokenInfo> upstream;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new RequestCoalescer(true, meterRegistry);
+        upstreamCalls = new AtomicInteger();
+        upstreamCancelled = new AtomicBoolean();
+        upstream = Sinks.many().unicast().onBackpressureBuffer();
+    }
+
+    @Test
+    void shouldShareOneUpstreamCallAndReplayPrefixToLateJoiners() {
+        List<String> first = new CopyOnWriteArrayList<>();
+        List<String> late = new CopyOnWriteArrayList<>();
+
+        texts(join()).subscribe(first::add);
+        upstream.tryEmitNext(token("The"));
+        texts(join()).subscribe(late::add);
+        upstream.tryEmitNext(token(" end"));
+        upstream.tryEmitComplete();
+
+        assertEquals(List.of("The", " end"), first);
+        assertEquals(List.of("The", " end"), late);
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(1.0, meterRegistry.counter("probescope.coalescing.requests", "role", "joined").count());
+    }
+
+    @Test
+    void shouldCancelUpstreamOnlyWhenLastSubscriberLeaves() {
+        var first = join().subscribe();
+        var second = join().subscribe();
+
+        first.dispose();
+        assertFalse(upstreamCancelled.get());
+
+        second.dispose();
+        assertTrue(upstreamCancelled.get());
+    }
+
+    @Test
+    void shouldStartNewCallAfterPreviousCompleted() {
+        upstream.tryEmitComplete();
+        StepVerifier.create(join()).verifyComplete();
+
+        upstream = Sinks.many().unicast().onBackpressureBuffer();
+        upstream.tryEmitComplete();
+        StepVerifier.create(join()).verifyComplete();
+
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    private Flux<TokenInfo> join() {
+        return coalescer.join(KEY, () -> {
+            upstreamCalls.incrementAndGet();
+            return upstream.asFlux().doOnCancel(() -> upstreamCancelled.set(true));
+        });
+    }
+
+    private static Flux<String> texts(Flux<TokenInfo> tokens) {
+        return tokens.map(TokenInfo::getText);
+    }
+
+    private static TokenInfo token(String text) {
+        return TokenInfo.builder().text(text).probability(1.0).alternatives(List.of()).build();
+    }
+}
@@ -1,91 +1,80 @@
 package dev.langchain4j.tokenflowvisualizer.service;
 
-import dev.langchain4j.tokenflowvisualizer.config.TestConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.config.CacheConfig;
+import dev.langchain4j.tokenflowvisualizer.config.OpenAIConfig;
+import dev.langchain4j.tokenflowvisualizer.config.ProvidersConfig;
+import dev.langchain4j.tokenflowvisualizer.dto.ProviderCapabilities;
 import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
-import dev.langchain4j.tokenflowvisualizer.exception.TokenGenerationException;
-import dev.langchain4j.tokenflowvisualizer.exception.TokenGenerationTimeoutException;
+import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsRequest;
+import dev.langchain4j.tokenflowvisualizer.metrics.TokenMetrics;
+import dev.langchain4j.tokenflowvisualizer.service.cache.GenerationCache;
+import dev.langchain4j.tokenflowvisualizer.service.dictionary.TokenDictionaries;
+import dev.langchain4j.tokenflowvisualizer.service.provider.ProviderRegistry;
+import dev.langchain4j.tokenflowvisualizer.service.provider.TokenProvider;
+import dev.langchain4j.tokenflowvisualizer.service.resilience.UpstreamGuards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.params.ParameterizedTest;
-import org.junit.jupiter.params.provider.ValueSource;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.context.annotation.Import;
-import org.springframework.test.context.ActiveProfiles;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
 
 import java.time.Duration;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArrayList;
 
-@SpringBootTest
-@Import(TestConfig.class)
-@ActiveProfiles("test")
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The service against a mock {@link TokenProvider} that answers from the prompt: "error"
+ * fails, "empty" completes without tokens and anything else yields one token per word of
+ * {@value #RESPONSE}.
+ */
 class TokenGenerationServiceMockTest {
 
-    @Autowired
+    private static final String RESPONSE = "This is a test response with multiple tokens";
+
+    private final List<OpenAILogprobsRequest> requests = new CopyOnWriteArrayList<>();
     private TokenGenerationService tokenGenerationService;
 
-    // Success cases
-    @Test
-    void shouldGenerateTokensWithMockResponse() {
-        // given
-        String prompt = "Test prompt";
-        double temperature = 0.7;
-        int topK = 50;
-        double topP = 0.9;
-
-        // when
-        var tokenFlux = tokenGenerationService.generateTokens(prompt, temperature, topK, topP);
-
-        // then
-        StepVerifier.create(tokenFlux)
-                .expectNextMatches(token -> {
-                    // Verify token structure
-                    return token.getText() != null &&
-                           !token.getText().isEmpty() &&
-                           token.getProbability() > 0 &&
-                           token.getProbability() <= 1 &&
-                           token.getAlternatives() != null &&
-                           !token.getAlternatives().isEmpty();
-                })
-                .expectNextCount(6) // Expect 6 more tokens (total 7 for "This is a test response with multiple tokens")
-                .expectComplete()
-                .verify(Duration.ofSeconds(5));
+    @BeforeEach
+    void setUp() {
+        OpenAIConfig config = new OpenAIConfig();
+        config.setMaxTokens(10);
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        List<TokenProvider> providers = List.of(new MockProvider());
+        tokenGenerationService = new TokenGenerationServiceWithLogprobs(config,
+                new ProviderRegistry(providers, new ProvidersConfig()),
+                new GenerationCache(new CacheConfig(), objectMapper, meterRegistry),
+                new RequestCoalescer(true, meterRegistry),
+                new TokenMetrics(meterRegistry),
+                new TokenDictionaries(1024, meterRegistry),
+                new UpstreamGuards(providers, config, meterRegistry));
     }
 
     @Test
-    void shouldHandleErrorsFromOpenAI() {
-        // given
-        String prompt = "error";
-        double temperature = 0.7;
-        int topK = 50;
-        double topP = 0.9;
-
-        // when & then
-        StepVerifier.create(tokenGenerationService.generateTokens(prompt, temperature, topK, topP))
-                .expectError(RuntimeException.class)
+    void shouldGenerateTokensWithMockResponse() {
+        StepVerifier.create(tokenGenerationService.generateTokens("Test prompt", 0.7, 50, 0.9))
+                .expectNextMatches(token -> token.getText().equals("This")
+                        && token.getProbability() > 0
+                        && token.getProbability() <= 1
+                        && !token.getAlternatives().isEmpty())
+                .expectNextCount(7)
+                .expectComplete()
                 .verify(Duration.ofSeconds(5));
     }
 
-    // Error cases - OpenAI API
     @Test
-    void shouldHandleOpenAIError() {
+    void shouldHandleErrorsFromTheProvider() {
         StepVerifier.create(tokenGenerationService.generateTokens("error", 0.7, 50, 0.9))
-                .expectErrorMatches(throwable -> 
-                    throwable instanceof RuntimeException &&
-                    throwable.getMessage().equals("OpenAI API Error"))
-                .verify(Duration.ofSeconds(5));
-    }
-
-    @Test
-    void shouldHandleNullResponse() {
-        StepVerifier.create(tokenGenerationService.generateTokens("null", 0.7, 50, 0.9))
-                .expectErrorMatches(throwable -> 
-                    throwable instanceof TokenGenerationException &&
-                    throwable.getMessage().equals("Invalid response received from OpenAI"))
+                .expectErrorMatches(throwable -> throwable instanceof IllegalStateException
+                        && throwable.getMessage().equals("Failed to get tokens from openai")
+                        && throwable.getCause().getMessage().equals("OpenAI API Error"))
                 .verify(Duration.ofSeconds(5));
     }
 
@@ -96,127 +85,69 @@ class TokenGenerationServiceMockTest {
                 .verify(Duration.ofSeconds(5));
     }
 
-    // Error cases - Input validation
-    @Test
-    void shouldHandleNullPrompt() {
-        StepVerifier.create(tokenGenerationService.generateTokens(null, 0.7, 50, 0.9))
-                .expectErrorMatches(throwable -> 
-                    throwable instanceof TokenGenerationException &&
-                    throwable.getMessage().equals("Prompt cannot be empty"))
-                .verify(Duration.ofSeconds(5));
-    }
-
     @Test
-    void shouldHandleEmptyPrompt() {
-        StepVerifier.create(tokenGenerationService.generateTokens("", 0.7, 50, 0.9))
-                .expectErrorMatches(throwable -> 
-                    throwable instanceof TokenGenerationException &&
-                    throwable.getMessage().equals("Prompt cannot be empty"))
-                .verify(Duration.ofSeconds(5));
-    }
-
-    @ParameterizedTest
-    @ValueSource(doubles = {-0.1, 2.1})
-    void shouldHandleInvalidTemperature(double temperature) {
-        StepVerifier.create(tokenGenerationService.generateTokens("test", temperature, 50, 0.9))
-                .expectErrorMatches(throwable -> 
-                    throwable instanceof TokenGenerationException &&
-                    throwable.getMessage().contains("Temperature must be between 0.0 and 2.0"))
-                .verify(Duration.ofSeconds(5));
-    }
-
-    @ParameterizedTest
-    @ValueSource(ints = {0, -1})
-    void shouldHandleInvalidTopK(int topK) {
-        StepVerifier.create(tokenGenerationService.generateTokens("test", 0.7, topK, 0.9))
-                .expectErrorMatches(throwable -> 
-                    throwable instanceof TokenGenerationException &&
-                    throwable.getMessage().contains("TopK must be greater than 0"))
-                .verify(Duration.ofSeconds(5));
-    }
-
-    @ParameterizedTest
-    @ValueSource(doubles = {-0.1, 1.1})
-    void shouldHandleInvalidTopP(double topP) {
-        StepVerifier.create(tokenGenerationService.generateTokens("test", 0.7, 50, topP))
-                .expectErrorMatches(throwable -> 
-                    throwable instanceof TokenGenerationException &&
-                    throwable.getMessage().contains("TopP must be between 0.0 and 1.0"))
-                .verify(Duration.ofSeconds(5));
+    void shouldPassSamplingParametersToTheProvider() {
+        StepVerifier.create(tokenGenerationService.generateTokens("Test prompt", 0.1, 50, 1.5))
+                .expectNextCount(8)
+                .verifyComplete();
+
+        OpenAILogprobsRequest request = requests.getFirst();
+        assertEquals(0.1, request.getTemperature());
+        assertEquals(1.0, request.getTopP());
+        // Clamped to the alternatives the provider reports
+        assertEquals(3, request.getTopLogprobs());
+        assertNull(request.getTopK());
+        assertEquals(10, request.getMaxCompletionTokens());
+        assertEquals("Test prompt", request.getMessages().getFirst().getContent());
     }
 
-    // Advanced cases - Timeout and Concurrency
     @Test
-    void shouldHandleTimeout() {
-        // Configure test to use a very long response that would trigger timeout
-        StepVerifier.create(tokenGenerationService.generateTokens("timeout", 0.7, 50, 0.9))
-                .expectSubscription()
-                .expectErrorSatisfies(throwable -> {
-                    assert throwable instanceof TokenGenerationTimeoutException;
-                    assert throwable.getMessage().contains("Token generation timed out after 5 seconds");
-                    assert throwable.getMessage().contains("seconds");
-                })
-                .verify(Duration.ofSeconds(6));
+    void shouldHandleConcurrentRequests() {
+        int numRequests = 5;
+        List<List<TokenInfo>> results = Flux.range(0, numRequests)
+                .flatMap(i -> tokenGenerationService.generateTokens("Test prompt " + i, 0.7, 50, 0.9).collectList())
+                .collectList()
+                .block(Duration.ofSeconds(15));
+
+        assertEquals(numRequests, results.size());
+        assertTrue(results.stream().allMatch(tokens -> tokens.size() == 8));
+        assertEquals(numRequests, requests.size());
     }
 
-    @Test
-    void shouldHandleConcurrentTimeouts() {
-        int numRequests = 3;
-        List<Flux<TokenInfo>> fluxes = new ArrayList<>();
+    private final class MockProvider implements TokenProvider {
 
-        // Create multiple timeout requests
-        for (int i = 0; i < numRequests; i++) {
-            fluxes.add(tokenGenerationService.generateTokens("timeout", 0.7, 50, 0.9));
+        @Override
+        public String name() {
+            return "openai";
         }
 
-        // Verify all requests timeout properly
-        Flux.merge(fluxes)
-            .as(StepVerifier::create)
-            .expectError(TokenGenerationTimeoutException.class)
-            .verify(Duration.ofSeconds(7));
-    }
-
-    @Test
-    void shouldHandleConcurrentRequests() throws InterruptedException {
-        int numRequests = 5;
-        CountDownLatch latch = new CountDownLatch(numRequests);
-        List<List<TokenInfo>> results = new ArrayList<>();
-
-        for (int i = 0; i < numRequests; i++) {
-            final int index = i;
-            Flux<TokenInfo> tokenFlux = tokenGenerationService.generateTokens(
-                "Test prompt " + index, 0.7, 50, 0.9
-            );
-
-            tokenFlux.collectList().subscribe(
-                tokens -> {
-                    synchronized (results) {
-                        results.add(tokens);
-                    }
-                    latch.countDown();
-                },
-                error -> latch.countDown()
-            );
+        @Override
+        public String model() {
+            return "gpt-4.1-mini";
         }
 
-        boolean completed = latch.await(15, TimeUnit.SECONDS);
-        assert completed : "Timed out waiting for concurrent requests";
-        assert results.size() == numRequests : "Not all requests completed successfully";
-    }
-
-    // Success cases - Parameter variations
-    @Test
-    void shouldGenerateTokensWithDifferentTemperatures() {
-        // Low temperature
-        StepVerifier.create(tokenGenerationService.generateTokens("Test prompt", 0.1, 50, 0.9))
-                .expectNextCount(7)
-                .expectComplete()
-                .verify(Duration.ofSeconds(5));
+        @Override
+        public ProviderCapabilities capabilities() {
+            return ProviderCapabilities.builder().logprobs(true).maxAlternatives(3).rawPrompt(true).build();
+        }
 
-        // High temperature
-        StepVerifier.create(tokenGenerationService.generateTokens("Test prompt", 1.8, 50, 0.9))
-                .expectNextCount(7)
-                .expectComplete()
-                .verify(Duration.ofSeconds(5));
+        @Override
+        public Flux<TokenInfo> generate(OpenAILogprobsRequest request) {
+            requests.add(request);
+            return switch (request.getMessages().getFirst().getContent()) {
+                case "error" -> Flux.error(new RuntimeException("OpenAI API Error"));
+                case "empty" -> Flux.empty();
+                default -> Flux.fromIterable(Arrays.asList(RESPONSE.split(" ")))
+                        .map(word -> TokenInfo.builder()
+                                .text(word)
+                                .probability(0.5)
+                                .alternatives(List.of(TokenInfo.TokenAlternative.builder()
+                                        .text(" other")
+                                        .probability(0.25)
+                                        .build()))
+                                .timestamp(System.currentTimeMillis())
+                                .build());
+            };
+        }
     }
 }
@@ -0,0 +1,138 @@
+package dev.langchain4j.tokenflowvisualizer.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.config.CacheConfig;
+import dev.langchain4j.tokenflowvisualizer.config.OpenAIConfig;
+import dev.langchain4j.tokenflowvisualizer.config.ProvidersConfig;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.metrics.TokenMetrics;
+import dev.langchain4j.tokenflowvisualizer.service.cache.GenerationCache;
+import dev.langchain4j.tokenflowvisualizer.service.dictionary.TokenDictionaries;
+import dev.langchain4j.tokenflowvisualizer.service.provider.ProviderRegistry;
+import dev.langchain4j.tokenflowvisualizer.service.provider.TokenProvider;
+import dev.langchain4j.tokenflowvisualizer.service.ratelimit.UpstreamRateLimiter;
+import dev.langchain4j.tokenflowvisualizer.service.resilience.UpstreamGuards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+import reactor.util.function.Tuple2;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenGenerationServiceStreamingTest {
+
+    private static final List<String> TOKENS = List.of("The", " sky", " is", " blue", ".");
+    private static final Duration CHUNK_INTERVAL = Duration.ofMillis(200);
+
+    private final AtomicReference<String> lastRequestBody = new AtomicReference<>();
+    private DisposableServer stubServer;
+    private TokenGenerationServiceWithLogprobs service;
+
+    @BeforeEach
+    void setUp() {
+        stubServer = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.post("/v1/chat/completions", (request, response) ->
+                        request.receive().aggregate().asString()
+                                .doOnNext(lastRequestBody::set)
+                                .thenMany(response
+                                        .header("Content-Type", "text/event-stream; charset=utf-8")
+                                        .send(chunks().map(chunk -> Unpooled.copiedBuffer(chunk, StandardCharsets.UTF_8)),
+                                                buffer -> true)
+                                        .then())))
+                .bindNow();
+
+        OpenAIConfig config = new OpenAIConfig();
+        config.setApiKey("test-api-key");
+        config.setModel("gpt-4.1-mini");
+        config.setMaxTokens(10);
+        config.setStreaming(true);
+        config.setBaseUrl("http://localhost:" + stubServer.port() + "/v1");
+
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        WebClient webClient = config.openAIWebClient(WebClient.builder(), config.openAIConnectionProvider(),
+                new UpstreamRateLimiter(config, meterRegistry));
+        ProvidersConfig providersConfig = new ProvidersConfig();
+        List<TokenProvider> providers = List.of(providersConfig.openAIProvider(config, webClient, objectMapper));
+        ProviderRegistry providerRegistry = new ProviderRegistry(providers, providersConfig);
+        service = new TokenGenerationServiceWithLogprobs(config, providerRegistry,
+                new GenerationCache(new CacheConfig(), objectMapper, meterRegistry),
+                new RequestCoalescer(true, meterRegistry),
+                new TokenMetrics(meterRegistry),
+                new TokenDictionaries(1024, meterRegistry),
+                new UpstreamGuards(providers, config, meterRegistry));
+    }
+
+    @AfterEach
+    void tearDown() {
+        stubServer.disposeNow();
+    }
+
+    @Test
+    void shouldEmitTokensAsChunksArrive() {
+        StepVerifier.create(service.generateTokens("Today", 0.7, 3, 0.9).elapsed().collectList())
+                .assertNext(tokens -> {
+                    assertEquals(TOKENS, tokens.stream().map(token -> token.getT2().getText()).toList());
+                    tokens.forEach(token -> assertTokenMatches(token.getT2()));
+
+                    // Tokens must trickle in with the upstream chunks rather than arrive as one
+                    // burst once the completion has finished.
+                    long spread = tokens.stream().skip(1).mapToLong(Tuple2::getT1).sum();
+                    long expected = CHUNK_INTERVAL.toMillis() * (TOKENS.size() - 1);
+                    assertTrue(spread >= expected / 2, "tokens were buffered, spread " + spread + "ms");
+                })
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+
+        assertTrue(lastRequestBody.get().contains("\"stream\":true"), lastRequestBody.get());
+        assertTrue(lastRequestBody.get().contains("\"logprobs\":true"), lastRequestBody.get());
+    }
+
+    private static void assertTokenMatches(TokenInfo token) {
+        assertEquals(0.5, token.getProbability(), 1e-9);
+        assertEquals(1, token.getAlternatives().size());
+        assertEquals(0.25, token.getAlternatives().getFirst().getProbability(), 1e-9);
+    }
+
+    private static Flux<String> chunks() {
+        Flux<String> tokenChunks = Flux.fromIterable(TOKENS)
+                .map(TokenGenerationServiceStreamingTest::chunk);
+        return Flux.concat(
+                        Flux.just(sse("{\"id\":\"c1\",\"object\":\"chat.completion.chunk\",\"choices\":[{\"index\":0,"
+                                + "\"delta\":{\"role\":\"assistant\",\"content\":\"\"},\"logprobs\":{\"content\":[]}}]}")),
+                        tokenChunks,
+                        Flux.just(sse("{\"id\":\"c1\",\"object\":\"chat.completion.chunk\",\"choices\":[{\"index\":0,"
+                                + "\"delta\":{},\"logprobs\":null,\"finish_reason\":\"stop\"}]}"), sse("[DONE]")))
+                .delayElements(CHUNK_INTERVAL);
+    }
+
+    private static String chunk(String token) {
+        String escaped = token.replace("\"", "\\\"");
+        return sse("{\"id\":\"c1\",\"object\":\"chat.completion.chunk\",\"choices\":[{\"index\":0,"
+                + "\"delta\":{\"content\":\"" + escaped + "\"},"
+                + "\"logprobs\":{\"content\":[{\"token\":\"" + escaped + "\",\"logprob\":" + Math.log(0.5) + ","
+                + "\"bytes\":[],\"top_logprobs\":["
+                + "{\"token\":\"" + escaped + "\",\"logprob\":" + Math.log(0.5) + ",\"bytes\":[]},"
+                + "{\"token\":\"x\",\"logprob\":" + Math.log(0.25) + ",\"bytes\":[]}]}]},"
+                + "\"finish_reason\":null}]}");
+    }
+
+    private static String sse(String data) {
+        return "data: " + data + "\n\n";
+    }
+}
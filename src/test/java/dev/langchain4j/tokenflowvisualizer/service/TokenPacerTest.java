@@ -0,0 +1,95 @@
+package dev.langchain4j.tokenflowvisualizer.service;
+
+import dev.langchain4j.tokenflowvisualizer.config.PacingConfig;
+import dev.langchain4j.tokenflowvisualizer.dto.PacingMode;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenGenerationRequest;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import io.netty.util.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenPacerTest {
+
+    private Timer timer;
+    private TokenPacer tokenPacer;
+
+    @BeforeEach
+    void setUp() {
+        PacingConfig config = new PacingConfig();
+        config.setTick(Duration.ofMillis(5));
+        timer = config.pacingTimer();
+        tokenPacer = new TokenPacer(timer, config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    void shouldEmitImmediatelyWithoutPacing() {
+        StepVerifier.create(tokenPacer.pace(tokens(0, 0, 0), PacingMode.NONE, Duration.ofSeconds(1)))
+                .expectNextCount(3)
+                .expectComplete()
+                .verify(Duration.ofMillis(500));
+    }
+
+    @Test
+    void shouldSpaceTokensAtFixedInterval() {
+        StepVerifier.create(tokenPacer.pace(tokens(0, 0, 0), PacingMode.FIXED, Duration.ofMillis(100)).elapsed())
+                .assertNext(first -> assertTrue(first.getT1() < 50, "first token delayed " + first.getT1() + "ms"))
+                .assertNext(next -> assertTrue(next.getT1() >= 90, "gap was " + next.getT1() + "ms"))
+                .assertNext(next -> assertTrue(next.getT1() >= 90, "gap was " + next.getT1() + "ms"))
+                .expectComplete()
+                .verify(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void shouldReplayUpstreamGaps() {
+        StepVerifier.create(tokenPacer.pace(tokens(1_000, 1_000, 1_200), PacingMode.UPSTREAM, Duration.ZERO).elapsed())
+                .assertNext(first -> assertTrue(first.getT1() < 50))
+                .assertNext(second -> assertTrue(second.getT1() < 50, "gap was " + second.getT1() + "ms"))
+                .assertNext(third -> assertTrue(third.getT1() >= 190, "gap was " + third.getT1() + "ms"))
+                .expectComplete()
+                .verify(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void shouldFallBackToConfiguredDefaults() {
+        TokenGenerationRequest request = new TokenGenerationRequest();
+        request.setPacingIntervalMs(60L);
+
+        StepVerifier.create(tokenPacer.pace(tokens(0, 0), request).elapsed())
+                .expectNextCount(1)
+                .assertNext(next -> assertTrue(next.getT1() >= 50, "gap was " + next.getT1() + "ms"))
+                .expectComplete()
+                .verify(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void shouldCancelPendingReleases() {
+        StepVerifier.create(tokenPacer.pace(tokens(0, 0, 0), PacingMode.FIXED, Duration.ofSeconds(10)))
+                .expectNextCount(1)
+                .thenCancel()
+                .verify(Duration.ofSeconds(1));
+    }
+
+    private static Flux<TokenInfo> tokens(long... timestamps) {
+        return Flux.fromStream(LongStream.of(timestamps).boxed())
+                .map(timestamp -> TokenInfo.builder()
+                        .text("t")
+                        .probability(1.0)
+                        .alternatives(List.of())
+                        .timestamp(timestamp)
+                        .build());
+    }
+}
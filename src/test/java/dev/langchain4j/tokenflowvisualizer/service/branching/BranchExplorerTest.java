@@ -0,0 +1,169 @@
+package dev.langchain4j.tokenflowvisualizer.service.branching;
+
+import dev.langchain4j.tokenflowvisualizer.config.BranchingConfig;
+import dev.langchain4j.tokenflowvisualizer.config.OpenAIConfig;
+import dev.langchain4j.tokenflowvisualizer.dto.BranchRequest;
+import dev.langchain4j.tokenflowvisualizer.dto.CachePolicy;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenGenerationRequest;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenTreeNode;
+import dev.langchain4j.tokenflowvisualizer.exception.TokenGenerationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BranchExplorerTest {
+
+    private final List<TokenGenerationRequest> generations = new CopyOnWriteArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final Map<String, Boolean> prompts = new ConcurrentHashMap<>();
+    private BranchExplorer explorer;
+
+    @BeforeEach
+    void setUp() {
+        OpenAIConfig openAIConfig = new OpenAIConfig();
+        openAIConfig.setMaxTokens(4);
+        BranchingConfig branchingConfig = new BranchingConfig();
+        branchingConfig.setDefaultConcurrency(2);
+        explorer = new BranchExplorer(this::generate, openAIConfig, branchingConfig, new SimpleMeterRegistry());
+    }
+
+    /**
+     * The root of "The sky" is " is blue today ." with " grey" and " clear" as alternatives
+     * to " blue"; every other prompt continues with " then" up to its budget.
+     */
+    private Flux<TokenInfo> generate(TokenGenerationRequest request) {
+        generations.add(request);
+        prompts.put(request.getPrompt(), true);
+        List<TokenInfo> tokens = request.getPrompt().equals("The sky")
+                ? List.of(token(" is"), token(" blue", alternative(" grey", 0.3), alternative(" clear", 0.1)),
+                        token(" today"), token("."))
+                : Collections.nCopies(request.getMaxCompletionTokens(), token(" then"));
+        return Flux.fromIterable(tokens)
+                .delayElements(Duration.ofMillis(20))
+                .doOnSubscribe(subscription -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+                .doOnTerminate(inFlight::decrementAndGet);
+    }
+
+    @Test
+    void shouldContinueFromTheChosenAlternative() {
+        TokenTreeNode tree = explorer.explore(request(1, " grey")).block();
+
+        assertEquals(List.of(" is"), texts(tree.getTokens()));
+        assertEquals(List.of(" blue", " today", "."), texts(tree.getChildren().get(0).getTokens()));
+        TokenTreeNode grey = tree.getChildren().get(1);
+        assertEquals(List.of(" grey", " then", " then"), texts(grey.getTokens()));
+        assertEquals(0.3, grey.getTokens().getFirst().getProbability());
+        assertEquals(List.of(" blue", " clear"),
+                grey.getTokens().getFirst().getAlternatives().stream().map(TokenInfo.TokenAlternative::getText).toList());
+
+        assertEquals(2, generations.size());
+        TokenGenerationRequest branch = generations.get(1);
+        assertEquals("The sky is grey", branch.getPrompt());
+        assertEquals(2, branch.getMaxCompletionTokens());
+    }
+
+    @Test
+    void shouldFanOutEveryCandidateWithBoundedConcurrency() {
+        TokenTreeNode tree = explorer.explore(request(1, null)).block();
+
+        assertEquals(List.of(" blue", " grey", " clear"),
+                tree.getChildren().stream().map(child -> child.getTokens().getFirst().getText()).toList());
+        // The root itself already continues " blue"
+        assertEquals(3, generations.size());
+        assertTrue(prompts.containsKey("The sky is clear"));
+        assertTrue(maxInFlight.get() <= 2);
+    }
+
+    @Test
+    void shouldReuseForksExploredBefore() {
+        explorer.explore(request(1, null)).block();
+        TokenTreeNode again = explorer.explore(request(1, " grey")).block();
+        explorer.explore(request(2, " today")).block();
+
+        assertEquals(3, again.getChildren().size());
+        assertEquals(3, generations.size());
+    }
+
+    @Test
+    void shouldRegenerateWhenCachingIsDisabled() {
+        explorer.explore(request(1, " grey")).block();
+        BranchRequest request = request(1, " grey");
+        request.setCache(CachePolicy.NEVER);
+        explorer.explore(request).block();
+
+        assertEquals(4, generations.size());
+    }
+
+    @Test
+    void shouldForkTokensSuppliedByTheClient() {
+        BranchRequest request = request(0, " grey");
+        request.setTokens(List.of(token(" blue", alternative(" grey", 0.3)), token(" sky")));
+
+        TokenTreeNode tree = explorer.explore(request).block();
+
+        assertEquals(List.of(), tree.getTokens());
+        assertEquals(1, generations.size());
+        assertEquals("The sky grey", generations.getFirst().getPrompt());
+        assertEquals(3, generations.getFirst().getMaxCompletionTokens());
+    }
+
+    @Test
+    void shouldNotShareTokensSuppliedByTheClient() {
+        BranchRequest supplied = request(0, " grey");
+        supplied.setTokens(List.of(token(" blue", alternative(" grey", 0.3)), token(" sky")));
+        explorer.explore(supplied).block();
+
+        TokenTreeNode tree = explorer.explore(request(1, " grey")).block();
+
+        assertEquals(List.of(" is"), texts(tree.getTokens()));
+        assertEquals(List.of(" blue", " grey"),
+                tree.getChildren().stream().map(child -> child.getTokens().getFirst().getText()).toList());
+        assertEquals("The sky", generations.get(1).getPrompt());
+    }
+
+    @Test
+    void shouldRejectUnknownPositionsAndAlternatives() {
+        StepVerifier.create(explorer.explore(request(4, null)))
+                .expectErrorMessage("Branch position must be between 0 and 3, but was: 4")
+                .verify();
+        StepVerifier.create(explorer.explore(request(1, " green")))
+                .expectError(TokenGenerationException.class)
+                .verify();
+    }
+
+    private static BranchRequest request(int position, String alternative) {
+        BranchRequest request = new BranchRequest();
+        request.setPrompt("The sky");
+        request.setTemperature(0);
+        request.setPosition(position);
+        request.setAlternative(alternative);
+        return request;
+    }
+
+    private static TokenInfo token(String text, TokenInfo.TokenAlternative... alternatives) {
+        return TokenInfo.builder().text(text).probability(0.6).alternatives(List.of(alternatives)).build();
+    }
+
+    private static TokenInfo.TokenAlternative alternative(String text, double probability) {
+        return TokenInfo.TokenAlternative.builder().text(text).probability(probability).build();
+    }
+
+    private static List<String> texts(List<TokenInfo> tokens) {
+        return tokens.stream().map(TokenInfo::getText).toList();
+    }
+}
@@ -0,0 +1,74 @@
+package dev.langchain4j.tokenflowvisualizer.service.branching;
+
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenTreeNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TokenTreeTest {
+
+    @Test
+    void shouldStoreSharedPrefixesOnce() {
+        TokenTree tree = new TokenTree();
+        tree.put(List.of(), tokens(" The", " sky", " is", " blue"));
+        tree.put(tokens(" The", " sky", " is", " grey"), tokens(" today"));
+        tree.put(tokens(" The", " sky", " is", " clear"), tokens(" today"));
+
+        assertEquals(8, tree.size());
+    }
+
+    @Test
+    void shouldReturnStoredContinuations() {
+        TokenTree tree = new TokenTree();
+        tree.put(List.of(), tokens(" The", " sky", " is", " blue"));
+        tree.put(tokens(" The", " sky", " is", " grey"), tokens(" and", " cold"));
+
+        assertEquals(texts(" The", " sky", " is", " blue"), texts(tree.continuation(List.of())));
+        assertEquals(texts(" and", " cold"), texts(tree.continuation(tokens(" The", " sky", " is", " grey"))));
+        // On the path, but nothing was generated from there
+        assertNull(tree.continuation(tokens(" The", " sky")));
+        assertNull(tree.continuation(tokens(" A")));
+    }
+
+    @Test
+    void shouldDistinguishAnEmptyContinuationFromNone() {
+        TokenTree tree = new TokenTree();
+        tree.put(tokens(" end"), List.of());
+
+        assertEquals(List.of(), tree.continuation(tokens(" end")));
+    }
+
+    @Test
+    void shouldCollapseUnbranchedRunsInSnapshots() {
+        TokenTree tree = new TokenTree();
+        tree.put(List.of(), tokens(" The", " sky", " is", " blue", " today"));
+        tree.put(tokens(" The", " sky", " is", " grey"), tokens(" and", " cold"));
+
+        TokenTreeNode root = tree.snapshot();
+
+        assertEquals(texts(" The", " sky", " is"), texts(root.getTokens()));
+        assertEquals(2, root.getChildren().size());
+        assertEquals(texts(" blue", " today"), texts(root.getChildren().get(0).getTokens()));
+        assertEquals(texts(" grey", " and", " cold"), texts(root.getChildren().get(1).getTokens()));
+        assertEquals(List.of(), root.getChildren().get(1).getChildren());
+    }
+
+    private static List<TokenInfo> tokens(String... texts) {
+        return Arrays.stream(texts)
+                .map(text -> TokenInfo.builder().text(text).alternatives(List.of()).build())
+                .toList();
+    }
+
+    private static List<String> texts(String... texts) {
+        return List.of(texts);
+    }
+
+    private static List<String> texts(List<TokenInfo> tokens) {
+        return tokens.stream().map(TokenInfo::getText).toList();
+    }
+}
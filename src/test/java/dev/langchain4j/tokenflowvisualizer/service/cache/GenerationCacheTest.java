@@ -0,0 +1,205 @@
+package dev.langchain4j.tokenflowvisualizer.service.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.config.CacheConfig;
+import dev.langchain4j.tokenflowvisualizer.dto.CachePolicy;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenGenerationRequest;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenStats;
+import dev.langchain4j.tokenflowvisualizer.service.stats.TokenStatistics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GenerationCacheTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private SimpleMeterRegistry meterRegistry;
+    private CacheConfig cacheConfig;
+
+    @TempDir
+    Path cacheDirectory;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cacheConfig = new CacheConfig();
+        cacheConfig.getDisk().setDirectory(cacheDirectory);
+    }
+
+    @Test
+    void shouldApplyCachePolicy() {
+        GenerationCache cache = new GenerationCache(cacheConfig, objectMapper, meterRegistry);
+
+        assertTrue(cache.isCacheable(request(0.0, null)));
+        assertFalse(cache.isCacheable(request(0.7, null)));
+        assertTrue(cache.isCacheable(request(0.7, CachePolicy.ALWAYS)));
+        assertFalse(cache.isCacheable(request(0.0, CachePolicy.NEVER)));
+    }
+
+    @Test
+    void shouldServeCompletedGenerationFromHeap() {
+        GenerationCache cache = new GenerationCache(cacheConfig, objectMapper, meterRegistry);
+        GenerationKey key = key("The sky is");
+
+        StepVerifier.create(cache.lookup(key)).verifyComplete();
+        StepVerifier.create(cache.recordInto(key, Flux.fromIterable(tokens(" blue", "."))))
+                .expectNextCount(2)
+                .verifyComplete();
+
+        StepVerifier.create(cache.lookup(key))
+                .assertNext(cached -> assertEquals(List.of(" blue", "."), texts(cached)))
+                .verifyComplete();
+        assertEquals(1.0, meterRegistry.counter("probescope.cache.gets", "tier", "heap", "result", "hit").count());
+        assertEquals(1.0, meterRegistry.counter("probescope.cache.gets", "tier", "heap", "result", "miss").count());
+    }
+
+    @Test
+    void shouldNotStoreCancelledGeneration() {
+        GenerationCache cache = new GenerationCache(cacheConfig, objectMapper, meterRegistry);
+        GenerationKey key = key("The sky is");
+
+        StepVerifier.create(cache.recordInto(key, Flux.fromIterable(tokens(" blue", ".")).concatWith(Flux.never())))
+                .expectNextCount(2)
+                .thenCancel()
+                .verify();
+
+        StepVerifier.create(cache.lookup(key)).verifyComplete();
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedWhenOverByteBudget() {
+        List<TokenInfo> generation = tokens(" a", " b", " c");
+        long entrySize = HeapCacheTier.estimateSize(key("first"), generation);
+        cacheConfig.getHeap().setMaxSize(DataSize.ofBytes(entrySize * 2 + entrySize / 2));
+        GenerationCache cache = new GenerationCache(cacheConfig, objectMapper, meterRegistry);
+
+        cache.recordInto(key("first"), Flux.fromIterable(generation)).blockLast();
+        cache.recordInto(key("second"), Flux.fromIterable(generation)).blockLast();
+        cache.lookup(key("first")).block();
+        cache.recordInto(key("third"), Flux.fromIterable(generation)).blockLast();
+
+        StepVerifier.create(cache.lookup(key("second"))).verifyComplete();
+        StepVerifier.create(cache.lookup(key("first"))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.lookup(key("third"))).expectNextCount(1).verifyComplete();
+        assertEquals(1.0, meterRegistry.counter("probescope.cache.evictions", "tier", "heap").count());
+    }
+
+    @Test
+    void shouldExpireEntriesAfterTtl() throws InterruptedException {
+        cacheConfig.getHeap().setTtl(Duration.ofMillis(20));
+        GenerationCache cache = new GenerationCache(cacheConfig, objectMapper, meterRegistry);
+
+        cache.recordInto(key("The sky is"), Flux.fromIterable(tokens(" blue"))).blockLast();
+        Thread.sleep(50);
+
+        StepVerifier.create(cache.lookup(key("The sky is"))).verifyComplete();
+    }
+
+    @Test
+    void shouldSurviveRestartWithDiskTier() {
+        cacheConfig.getDisk().setEnabled(true);
+        GenerationKey key = key("The sky is");
+
+        GenerationCache beforeRestart = new GenerationCache(cacheConfig, objectMapper, meterRegistry);
+        beforeRestart.recordInto(key, Flux.fromIterable(tokens(" blue", "."))).blockLast();
+
+        GenerationCache afterRestart = new GenerationCache(cacheConfig, objectMapper, new SimpleMeterRegistry());
+        StepVerifier.create(afterRestart.lookup(key).repeatWhenEmpty(5, attempts -> attempts.delayElements(Duration.ofMillis(50))))
+                .assertNext(cached -> {
+                    assertEquals(List.of(" blue", "."), texts(cached));
+                    assertEquals(0.5, cached.getFirst().getAlternatives().getFirst().getProbability());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldComputeSameStatisticsOnCacheHitAsOnMiss() {
+        cacheConfig.getDisk().setEnabled(true);
+        GenerationKey key = key("The sky is");
+        // exp(-800) underflows to zero, so only the log-probability keeps its surprisal
+        List<TokenInfo> generation = List.of(logprobToken(" blue", -0.105, -2.3), logprobToken(" zyx", -800, -1.2));
+
+        GenerationCache cache = new GenerationCache(cacheConfig, objectMapper, meterRegistry);
+        List<TokenStats> miss = stats(cache.recordInto(key, Flux.fromIterable(generation)));
+        List<TokenStats> heapHit = stats(cache.lookup(key).flatMapMany(Flux::fromIterable));
+        cacheConfig.getHeap().setEnabled(false);
+        List<TokenStats> diskHit = stats(new GenerationCache(cacheConfig, objectMapper, new SimpleMeterRegistry())
+                .lookup(key)
+                .repeatWhenEmpty(5, attempts -> attempts.delayElements(Duration.ofMillis(50)))
+                .flatMapMany(Flux::fromIterable));
+
+        assertEquals(800, miss.get(1).getSurprisal(), 1e-9);
+        assertStatsEqual(miss, heapHit);
+        assertStatsEqual(miss, diskHit);
+    }
+
+    private static TokenGenerationRequest request(double temperature, CachePolicy policy) {
+        TokenGenerationRequest request = new TokenGenerationRequest();
+        request.setPrompt("The sky is");
+        request.setTemperature(temperature);
+        request.setCache(policy);
+        return request;
+    }
+
+    private static GenerationKey key(String prompt) {
+        return new GenerationKey("gpt-4.1-mini", List.of("user:" + prompt), 0.0, 1.0, 5, 10);
+    }
+
+    private static List<TokenInfo> tokens(String... texts) {
+        return Flux.fromArray(texts)
+                .map(text -> TokenInfo.builder()
+                        .text(text)
+                        .probability(0.9)
+                        .alternatives(List.of(TokenInfo.TokenAlternative.builder().text("x").probability(0.5).build()))
+                        .timestamp(System.currentTimeMillis())
+                        .build())
+                .collectList()
+                .block();
+    }
+
+    private static TokenInfo logprobToken(String text, double logprob, double alternativeLogprob) {
+        return TokenInfo.builder()
+                .text(text)
+                .probability(Math.exp(logprob))
+                .logprob(logprob)
+                .alternatives(List.of(TokenInfo.TokenAlternative.builder()
+                        .text("x")
+                        .probability(Math.exp(alternativeLogprob))
+                        .logprob(alternativeLogprob)
+                        .build()))
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    private static List<TokenStats> stats(Flux<TokenInfo> tokens) {
+        return TokenStatistics.enrich(tokens).map(TokenInfo::getStats).collectList().block();
+    }
+
+    private static void assertStatsEqual(List<TokenStats> expected, List<TokenStats> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            // the heap tier keeps log-probabilities as floats
+            assertEquals(expected.get(i).getSurprisal(), actual.get(i).getSurprisal(), 1e-4);
+            assertEquals(expected.get(i).getEntropy(), actual.get(i).getEntropy(), 1e-6);
+            assertEquals(expected.get(i).getPerplexity(), actual.get(i).getPerplexity(), 1e-4 * expected.get(i).getPerplexity());
+        }
+    }
+
+    private static List<String> texts(List<TokenInfo> tokens) {
+        return tokens.stream().map(TokenInfo::getText).toList();
+    }
+}
@@ -0,0 +1,72 @@
+package dev.langchain4j.tokenflowvisualizer.service.dictionary;
+
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TokenDictionaryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TokenDictionaries dictionaries = new TokenDictionaries(3, meterRegistry);
+
+    @Test
+    void shouldAssignStableIdsAndCanonicalInstances() {
+        TokenDictionary dictionary = dictionaries.forModel("gpt-4.1-mini");
+        String first = new String(" the");
+        String second = new String(" the");
+
+        assertEquals(0, dictionary.id(first));
+        assertEquals(1, dictionary.id(","));
+        assertEquals(0, dictionary.id(second));
+        assertSame(first, dictionary.intern(second));
+        assertEquals(",", dictionary.text(1));
+    }
+
+    @Test
+    void shouldInternTokensInPlace() {
+        TokenDictionary dictionary = dictionaries.forModel("gpt-4.1-mini");
+        TokenInfo first = token(new String(" a"), new String(" the"));
+        TokenInfo second = token(new String(" the"), new String(" a"));
+
+        dictionary.intern(first);
+        dictionary.intern(second);
+
+        assertSame(first.getText(), second.getAlternatives().getFirst().getText());
+        assertSame(first.getAlternatives().getFirst().getText(), second.getText());
+    }
+
+    @Test
+    void shouldPassTextsThroughOnceFull() {
+        TokenDictionary dictionary = dictionaries.forModel("gpt-4.1-mini");
+        dictionary.id("a");
+        dictionary.id("b");
+        dictionary.id("c");
+        String overflow = new String("d");
+
+        assertEquals(TokenDictionary.NO_ID, dictionary.id(overflow));
+        assertSame(overflow, dictionary.intern(overflow));
+        assertEquals(3, meterRegistry.get("probescope.dictionary.size").gauge().value());
+    }
+
+    @Test
+    void shouldKeepModelsApart() {
+        dictionaries.forModel("a").id(" the");
+
+        assertNotSame(dictionaries.forModel("a"), dictionaries.forModel("b"));
+        assertEquals(0, dictionaries.forModel("b").id(","));
+    }
+
+    private static TokenInfo token(String text, String alternative) {
+        return TokenInfo.builder()
+                .text(text)
+                .probability(0.5)
+                .alternatives(List.of(TokenInfo.TokenAlternative.builder().text(alternative).probability(0.25).build()))
+                .build();
+    }
+}
@@ -0,0 +1,124 @@
+package dev.langchain4j.tokenflowvisualizer.service.ngram;
+
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsRequest;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NgramModelTest {
+
+    private static final String CORPUS = "The sky is blue. The sky is blue. The sky is grey. The sea is calm.";
+
+    private final NgramModel model = NgramModel.train(CORPUS, 3);
+
+    @Test
+    void shouldTokenizeWithLeadingSpaces() {
+        assertEquals(List.of("The", " sky", " is", " blue", "."), NgramModel.tokenize("The sky  is\nblue."));
+        assertEquals(9, model.vocabularySize());
+    }
+
+    @Test
+    void shouldPreferTheLongestSeenContext() {
+        float[] probabilities = distribution("The sky is");
+
+        // After "sky is": blue twice, grey once; everything else only through backoff
+        assertEquals(2.0, probabilities[id(" blue")] / probabilities[id(" grey")], 1e-3);
+        assertTrue(probabilities[id(" grey")] > probabilities[id(" calm")]);
+
+        double total = 0;
+        for (float probability : probabilities) {
+            total += probability;
+        }
+        assertEquals(1.0, total, 1e-5);
+    }
+
+    @Test
+    void shouldBackOffForUnknownContexts() {
+        float[] probabilities = distribution("purple");
+
+        // Unigram frequencies: " is" appears four times, " calm" once
+        assertEquals(4.0, probabilities[id(" is")] / probabilities[id(" calm")], 1e-3);
+        assertThrows(IllegalArgumentException.class, () -> NgramModel.train(CORPUS, NgramModel.MAX_ORDER + 1));
+        assertThrows(IllegalArgumentException.class, () -> NgramModel.train(" ", 2));
+    }
+
+    @Test
+    void shouldGenerateGreedilyAtTemperatureZero() {
+        NgramProvider provider = new NgramProvider("ngram", model, 3);
+
+        StepVerifier.create(provider.generate(request("The sky", 0.0, 50, 4)))
+                .assertNext(token -> {
+                    assertEquals(" is", token.getText());
+                    assertEquals(3, token.getAlternatives().size());
+                    assertTrue(token.getAlternatives().stream()
+                            .allMatch(alternative -> alternative.getProbability() <= token.getProbability()));
+                })
+                .assertNext(token -> assertEquals(" blue", token.getText()))
+                .assertNext(token -> assertEquals(".", token.getText()))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldSampleOnlyFromTheTopKCandidates() {
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 200; i++) {
+            NgramProvider.Generation generation =
+                    new NgramProvider.Generation(model, request("The sky is", 1.5, 2, 1), random);
+            TokenInfo token = generation.next();
+            assertTrue(List.of(" blue", " grey").contains(token.getText()), token.getText());
+        }
+    }
+
+    @Test
+    void shouldApplyTopPToTheRenormalisedTopKCandidates() {
+        // " blue" has two thirds of the top two, though less than 0.6 of the whole vocabulary
+        assertTrue(distribution("The sky is")[id(" blue")] < 0.6);
+        OpenAILogprobsRequest request = request("The sky is", 1.0, 2, 1);
+        request.setTopP(0.6);
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 200; i++) {
+            TokenInfo token = new NgramProvider.Generation(model, request, random).next();
+            assertEquals(" blue", token.getText());
+        }
+    }
+
+    @Test
+    void shouldSelectTheMostLikelyTokensInOrder() {
+        float[] probabilities = {0.1f, 0.4f, 0.05f, 0.3f, 0.15f};
+        int[] top = new int[3];
+        NgramProvider.selectMostLikely(probabilities, top);
+
+        assertEquals(List.of(1, 3, 4), List.of(top[0], top[1], top[2]));
+    }
+
+    private float[] distribution(String prompt) {
+        int[] context = model.encode(prompt);
+        float[] logits = new float[model.vocabularySize()];
+        model.logits(context, context.length, logits);
+        float[] probabilities = new float[logits.length];
+        Softmax.softmax(logits, probabilities, logits.length, 1f);
+        return probabilities;
+    }
+
+    private int id(String text) {
+        return model.encode(text)[0];
+    }
+
+    private static OpenAILogprobsRequest request(String prompt, double temperature, int topK, int tokens) {
+        return OpenAILogprobsRequest.builder()
+                .messages(List.of(OpenAILogprobsRequest.Message.builder().role("user").content(prompt).build()))
+                .temperature(temperature)
+                .topK(topK)
+                .topLogprobs(3)
+                .maxCompletionTokens(tokens)
+                .build();
+    }
+}
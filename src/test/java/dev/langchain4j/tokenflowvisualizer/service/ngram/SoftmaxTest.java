@@ -0,0 +1,52 @@
+package dev.langchain4j.tokenflowvisualizer.service.ngram;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SoftmaxTest {
+
+    @Test
+    void shouldApproximateExpForNonPositiveArguments() {
+        for (float x = 0; x >= Softmax.MIN_EXPONENT; x -= 0.37f) {
+            double exact = Math.exp(x);
+            assertEquals(exact, Softmax.exp(x), exact * 3e-5, "exp(" + x + ")");
+        }
+        assertTrue(Softmax.exp(-1000f) < 1e-17);
+    }
+
+    @Test
+    void shouldMatchTheExactSoftmaxAtAnyTemperature() {
+        float[] logits = new float[37];
+        for (int i = 0; i < logits.length; i++) {
+            logits[i] = (float) Math.log(1 + (i * 7919 % 101));
+        }
+        for (float temperature : new float[]{0.3f, 1f, 1.8f}) {
+            float[] out = new float[logits.length];
+            Softmax.softmax(logits, out, logits.length, temperature);
+
+            double normaliser = 0;
+            for (float logit : logits) {
+                normaliser += Math.exp(logit / temperature);
+            }
+            double total = 0;
+            for (int i = 0; i < logits.length; i++) {
+                double exact = Math.exp(logits[i] / temperature) / normaliser;
+                assertEquals(exact, out[i], exact * 1e-4 + 1e-9);
+                total += out[i];
+            }
+            assertEquals(1.0, total, 1e-5);
+        }
+    }
+
+    @Test
+    void shouldOnlyTouchTheGivenLength() {
+        float[] logits = {1, 2, 3, 100};
+        float[] out = new float[4];
+        Softmax.softmax(logits, out, 3, 1f);
+
+        assertEquals(1.0, out[0] + out[1] + out[2], 1e-6);
+        assertEquals(0f, out[3]);
+    }
+}
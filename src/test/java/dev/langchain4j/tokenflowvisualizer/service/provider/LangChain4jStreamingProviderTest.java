@@ -0,0 +1,119 @@
+package dev.langchain4j.tokenflowvisualizer.service.provider;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsRequest;
+import org.junit.jupiter.api.Test;
+import reactor.core.scheduler.NonBlocking;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LangChain4jStreamingProviderTest {
+
+    private static final OpenAILogprobsRequest REQUEST = OpenAILogprobsRequest.builder()
+            .model("gpt-4.1-mini")
+            .messages(List.of(
+                    OpenAILogprobsRequest.Message.builder().role("system").content("Complete the text").build(),
+                    OpenAILogprobsRequest.Message.builder().role("user").content("The sky is").build()))
+            .temperature(0.0)
+            .topP(0.9)
+            .maxCompletionTokens(3)
+            .build();
+
+    @Test
+    void shouldEmitEveryPartialResponseAsAToken() {
+        AtomicReference<ChatRequest> received = new AtomicReference<>();
+        StreamingChatModel model = new StreamingChatModel() {
+            @Override
+            public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+                received.set(chatRequest);
+                Thread.ofVirtual().start(() -> {
+                    List.of(" blue", " and", " clear").forEach(handler::onPartialResponse);
+                    handler.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from(" blue and clear")).build());
+                });
+            }
+        };
+        LangChain4jStreamingProvider provider = new LangChain4jStreamingProvider("langchain4j", "gpt-4.1-mini", model);
+
+        StepVerifier.create(provider.generate(REQUEST).map(TokenInfo::getText))
+                .expectNext(" blue", " and", " clear")
+                .verifyComplete();
+
+        assertEquals(List.of(SystemMessage.from("Complete the text"), UserMessage.from("The sky is")),
+                received.get().messages());
+        assertEquals(0.0, received.get().temperature());
+        assertEquals(3, received.get().maxOutputTokens());
+        assertFalse(provider.capabilities().isLogprobs());
+    }
+
+    @Test
+    void shouldCallTheModelOffTheSubscribingThread() {
+        AtomicBoolean calledOnNonBlockingThread = new AtomicBoolean(true);
+        StreamingChatModel model = new StreamingChatModel() {
+            @Override
+            public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+                calledOnNonBlockingThread.set(Thread.currentThread() instanceof NonBlocking);
+                handler.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from("")).build());
+            }
+        };
+
+        StepVerifier.create(new LangChain4jStreamingProvider("langchain4j", "gpt-4.1-mini", model).generate(REQUEST))
+                .verifyComplete();
+
+        assertFalse(calledOnNonBlockingThread.get());
+    }
+
+    @Test
+    void shouldPropagateErrorsAndDropTokensAfterCancel() throws InterruptedException {
+        StreamingChatModel failing = new StreamingChatModel() {
+            @Override
+            public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+                handler.onError(new IllegalStateException("boom"));
+            }
+        };
+        StepVerifier.create(new LangChain4jStreamingProvider("langchain4j", "gpt-4.1-mini", failing).generate(REQUEST))
+                .verifyErrorMessage("boom");
+
+        AtomicReference<StreamingChatResponseHandler> handler = new AtomicReference<>();
+        CountDownLatch called = new CountDownLatch(1);
+        StreamingChatModel slow = new StreamingChatModel() {
+            @Override
+            public void chat(ChatRequest chatRequest, StreamingChatResponseHandler streamingHandler) {
+                handler.set(streamingHandler);
+                called.countDown();
+            }
+        };
+        StepVerifier.create(new LangChain4jStreamingProvider("langchain4j", "gpt-4.1-mini", slow).generate(REQUEST))
+                .then(() -> {
+                    try {
+                        assertTrue(called.await(5, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    handler.get().onPartialResponse(" blue");
+                })
+                .expectNextCount(1)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        // Callbacks after the subscriber has gone must not fail
+        handler.get().onPartialResponse(" late");
+        handler.get().onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from(" blue late")).build());
+    }
+}
@@ -0,0 +1,91 @@
+package dev.langchain4j.tokenflowvisualizer.service.provider;
+
+import dev.langchain4j.tokenflowvisualizer.config.ProvidersConfig;
+import dev.langchain4j.tokenflowvisualizer.dto.ProviderCapabilities;
+import dev.langchain4j.tokenflowvisualizer.dto.ProviderInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsRequest;
+import dev.langchain4j.tokenflowvisualizer.exception.TokenGenerationException;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProviderRegistryTest {
+
+    private final TokenProvider openai = provider("openai", 5);
+    private final TokenProvider local = provider("openai-compatible", 20);
+
+    @Test
+    void shouldResolveProvidersByName() {
+        ProviderRegistry registry = new ProviderRegistry(List.of(openai, local), new ProvidersConfig());
+
+        assertSame(openai, registry.resolve("openai"));
+        assertSame(local, registry.resolve("openai-compatible"));
+        assertThrows(TokenGenerationException.class, () -> registry.resolve("unknown"));
+    }
+
+    @Test
+    void shouldFallBackToTheConfiguredDefault() {
+        ProvidersConfig config = new ProvidersConfig();
+        config.setDefaultProvider("openai-compatible");
+        ProviderRegistry registry = new ProviderRegistry(List.of(openai, local), config);
+
+        assertSame(local, registry.resolve(null));
+    }
+
+    @Test
+    void shouldRejectAMissingDefaultOrDuplicateNames() {
+        ProvidersConfig config = new ProvidersConfig();
+        config.setDefaultProvider("langchain4j");
+
+        assertThrows(IllegalStateException.class, () -> new ProviderRegistry(List.of(openai), config));
+        assertThrows(IllegalStateException.class,
+                () -> new ProviderRegistry(List.of(openai, provider("openai", 1)), new ProvidersConfig()));
+    }
+
+    @Test
+    void shouldDescribeEveryProvider() {
+        List<ProviderInfo> providers = new ProviderRegistry(List.of(openai, local), new ProvidersConfig()).describe();
+
+        assertEquals(List.of("openai", "openai-compatible"), providers.stream().map(ProviderInfo::getName).toList());
+        assertTrue(providers.get(0).isDefaultProvider());
+        assertFalse(providers.get(1).isDefaultProvider());
+        assertEquals(20, providers.get(1).getCapabilities().getMaxAlternatives());
+    }
+
+    private static TokenProvider provider(String name, int maxAlternatives) {
+        ProviderCapabilities capabilities = ProviderCapabilities.builder()
+                .logprobs(true)
+                .maxAlternatives(maxAlternatives)
+                .streaming(true)
+                .build();
+        return new TokenProvider() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public String model() {
+                return name + "-model";
+            }
+
+            @Override
+            public ProviderCapabilities capabilities() {
+                return capabilities;
+            }
+
+            @Override
+            public Flux<TokenInfo> generate(OpenAILogprobsRequest request) {
+                return Flux.empty();
+            }
+        };
+    }
+}
@@ -0,0 +1,176 @@
+package dev.langchain4j.tokenflowvisualizer.service.ratelimit;
+
+import dev.langchain4j.tokenflowvisualizer.config.OpenAIConfig;
+import dev.langchain4j.tokenflowvisualizer.exception.TokenGenerationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpstreamRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldQueueOnceTheRequestBudgetIsSpent() {
+        UpstreamRateLimiter limiter = limiter(settings(60, 1_000_000));
+
+        for (int i = 0; i < 60; i++) {
+            assertEquals(0, limiter.reserve(0));
+        }
+        // One request per second refills; the next two queue behind each other
+        assertEquals(SECOND, limiter.reserve(0), SECOND / 100);
+        assertEquals(2 * SECOND, limiter.reserve(0), SECOND / 100);
+
+        clock.addAndGet(2 * SECOND);
+        assertEquals(SECOND, limiter.reserve(0), SECOND / 100);
+    }
+
+    @Test
+    void shouldRejectInsteadOfWaitingTooLong() {
+        OpenAIConfig.RateLimit settings = settings(1_000, 100);
+        settings.setMaxWait(Duration.ofSeconds(5));
+        UpstreamRateLimiter limiter = limiter(settings);
+
+        assertEquals(0, limiter.reserve(80));
+        // 60 tokens short at 100 per minute is 36 s away
+        assertEquals(-1, limiter.reserve(80));
+
+        StepVerifier.create(limiter.admit(80))
+                .expectError(TokenGenerationException.class)
+                .verify(Duration.ofSeconds(1));
+        assertEquals(1, meterRegistry.get("probescope.ratelimit.rejected").counter().count());
+    }
+
+    @Test
+    void shouldFollowRateLimitHeaders() {
+        UpstreamRateLimiter limiter = limiter(settings(1_000, 1_000_000));
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("x-ratelimit-limit-requests", "120");
+        headers.set("x-ratelimit-remaining-requests", "0");
+        headers.set("x-ratelimit-reset-requests", "1.5s");
+
+        assertEquals(0, limiter.onResponse(HttpStatus.OK, headers));
+
+        // Exhausted until the reset, then refilled at the provider's 2 per second
+        assertEquals(1_500_000_000L, limiter.reserve(0), SECOND / 100);
+    }
+
+    @Test
+    void shouldPauseEveryoneAfterTooManyRequests() {
+        UpstreamRateLimiter limiter = limiter(settings(1_000, 1_000_000));
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "3");
+
+        assertEquals(3 * SECOND, limiter.onResponse(HttpStatus.TOO_MANY_REQUESTS, headers));
+        assertEquals(3 * SECOND, limiter.reserve(0));
+    }
+
+    @Test
+    void shouldRetryTooManyRequestsAndServerErrors() {
+        UpstreamRateLimiter limiter = new UpstreamRateLimiter(fastRetries(3), meterRegistry, System::nanoTime);
+        Queue<HttpStatus> statuses = new ArrayDeque<>(List.of(
+                HttpStatus.TOO_MANY_REQUESTS, HttpStatus.BAD_GATEWAY, HttpStatus.OK));
+        AtomicInteger calls = new AtomicInteger();
+
+        StepVerifier.create(limiter.filter(request(), request -> {
+                    calls.incrementAndGet();
+                    return Mono.just(ClientResponse.create(statuses.remove()).header(HttpHeaders.RETRY_AFTER, "0").build());
+                }))
+                .assertNext(response -> assertEquals(HttpStatus.OK, response.statusCode()))
+                .verifyComplete();
+
+        assertEquals(3, calls.get());
+        assertEquals(1, meterRegistry.get("probescope.upstream.retries").tag("status", "429").counter().count());
+        assertEquals(1, meterRegistry.get("probescope.upstream.retries").tag("status", "502").counter().count());
+    }
+
+    @Test
+    void shouldPassTheLastFailureOnOnceRetriesAreExhausted() {
+        UpstreamRateLimiter limiter = new UpstreamRateLimiter(fastRetries(2), meterRegistry, System::nanoTime);
+        AtomicInteger calls = new AtomicInteger();
+
+        StepVerifier.create(limiter.filter(request(), request -> {
+                    calls.incrementAndGet();
+                    return Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+                }))
+                .assertNext(response -> assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.statusCode()))
+                .verifyComplete();
+
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void shouldNotRetryClientErrors() {
+        UpstreamRateLimiter limiter = new UpstreamRateLimiter(fastRetries(3), meterRegistry, System::nanoTime);
+        AtomicInteger calls = new AtomicInteger();
+
+        StepVerifier.create(limiter.filter(request(), request -> {
+                    calls.incrementAndGet();
+                    return Mono.just(ClientResponse.create(HttpStatus.BAD_REQUEST).build());
+                }))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void shouldParseResetDurations() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("a", "6m0s");
+        headers.set("b", "20ms");
+        headers.set("c", "1h2m3.5s");
+        headers.set("d", "soon");
+
+        assertEquals(TimeUnit.MINUTES.toNanos(6), UpstreamRateLimiter.duration(headers, "a"));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(20), UpstreamRateLimiter.duration(headers, "b"));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(3_723_500), UpstreamRateLimiter.duration(headers, "c"));
+        assertEquals(-1, UpstreamRateLimiter.duration(headers, "d"));
+        assertTrue(UpstreamRateLimiter.duration(headers, "missing") < 0);
+    }
+
+    private UpstreamRateLimiter limiter(OpenAIConfig.RateLimit settings) {
+        return new UpstreamRateLimiter(settings, meterRegistry, clock::get);
+    }
+
+    private static OpenAIConfig.RateLimit settings(int requestsPerMinute, int tokensPerMinute) {
+        OpenAIConfig.RateLimit settings = new OpenAIConfig.RateLimit();
+        settings.setRequestsPerMinute(requestsPerMinute);
+        settings.setTokensPerMinute(tokensPerMinute);
+        return settings;
+    }
+
+    private static OpenAIConfig.RateLimit fastRetries(int maxRetries) {
+        OpenAIConfig.RateLimit settings = settings(1_000, 1_000_000);
+        settings.setMaxRetries(maxRetries);
+        settings.setInitialBackoff(Duration.ofMillis(5));
+        return settings;
+    }
+
+    private static ClientRequest request() {
+        return ClientRequest.create(HttpMethod.POST, URI.create("http://localhost/v1/chat/completions"))
+                .attribute(UpstreamRateLimiter.ESTIMATED_TOKENS, 10L)
+                .build();
+    }
+}
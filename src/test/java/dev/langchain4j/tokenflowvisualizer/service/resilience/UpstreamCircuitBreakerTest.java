@@ -0,0 +1,144 @@
+package dev.langchain4j.tokenflowvisualizer.service.resilience;
+
+import dev.langchain4j.tokenflowvisualizer.config.OpenAIConfig;
+import dev.langchain4j.tokenflowvisualizer.exception.TokenGenerationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UpstreamCircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UpstreamCircuitBreaker breaker = new UpstreamCircuitBreaker("openai", settings(), meterRegistry, clock::get);
+
+    @Test
+    void shouldOpenOnceTheFailureRateIsReached() {
+        succeed();
+        fail();
+        assertEquals(UpstreamCircuitBreaker.State.CLOSED, breaker.state());
+
+        fail();
+        fail();
+
+        assertEquals(UpstreamCircuitBreaker.State.OPEN, breaker.state());
+        StepVerifier.create(breaker.protect(call(Flux.just("token"))))
+                .expectError(TokenGenerationException.class)
+                .verify();
+        assertEquals(4, calls.get());
+        assertEquals(1, meterRegistry.get("probescope.circuit.rejected").counter().count());
+        assertEquals(1, meterRegistry.get("probescope.circuit.state").gauge().value());
+    }
+
+    @Test
+    void shouldCloseAfterSuccessfulTrials() {
+        openBreaker();
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        succeed();
+        assertEquals(UpstreamCircuitBreaker.State.HALF_OPEN, breaker.state());
+        succeed();
+
+        assertEquals(UpstreamCircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void shouldReopenWhenATrialFails() {
+        openBreaker();
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        fail();
+
+        assertEquals(UpstreamCircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    @Test
+    void shouldNotCountClientErrors() {
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(breaker.protect(call(Flux.error(
+                            WebClientResponseException.create(HttpStatus.BAD_REQUEST.value(), "Bad Request", null, null, null)))))
+                    .expectError()
+                    .verify();
+        }
+
+        assertEquals(UpstreamCircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void shouldNotCountLocalRejectionsAndTimeouts() {
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(breaker.protect(call(Flux.error(TokenGenerationException.rateLimited(Duration.ofSeconds(1))))))
+                    .expectError()
+                    .verify();
+            StepVerifier.create(breaker.protect(call(Flux.<String>never().timeout(Duration.ofMillis(1)))))
+                    .expectError(TimeoutException.class)
+                    .verify();
+        }
+
+        assertEquals(UpstreamCircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void shouldCountTransportErrors() {
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(breaker.protect(call(Flux.error(new WebClientRequestException(
+                            new ConnectException("Connection refused"), HttpMethod.POST, URI.create("http://upstream"),
+                            HttpHeaders.EMPTY)))))
+                    .expectError()
+                    .verify();
+        }
+
+        assertEquals(UpstreamCircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < 4; i++) {
+            fail();
+        }
+        assertEquals(UpstreamCircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    private void succeed() {
+        StepVerifier.create(breaker.protect(call(Flux.just("token")))).expectNext("token").verifyComplete();
+    }
+
+    private void fail() {
+        StepVerifier.create(breaker.protect(call(Flux.error(
+                        WebClientResponseException.create(HttpStatus.SERVICE_UNAVAILABLE.value(), "Unavailable", null, null, null)))))
+                .expectError(WebClientResponseException.class)
+                .verify();
+    }
+
+    private Flux<String> call(Flux<String> result) {
+        return Flux.defer(() -> {
+            calls.incrementAndGet();
+            return result;
+        });
+    }
+
+    private static OpenAIConfig.CircuitBreaker settings() {
+        OpenAIConfig.CircuitBreaker settings = new OpenAIConfig.CircuitBreaker();
+        settings.setWindowSize(10);
+        settings.setMinimumCalls(4);
+        settings.setFailureRateThreshold(0.5);
+        settings.setOpenDuration(Duration.ofSeconds(30));
+        settings.setHalfOpenCalls(2);
+        return settings;
+    }
+}
@@ -0,0 +1,95 @@
+package dev.langchain4j.tokenflowvisualizer.service.resilience;
+
+import dev.langchain4j.tokenflowvisualizer.config.OpenAIConfig;
+import dev.langchain4j.tokenflowvisualizer.dto.ProviderCapabilities;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsRequest;
+import dev.langchain4j.tokenflowvisualizer.service.provider.TokenProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UpstreamGuardsTest {
+
+    private final TokenProvider openai = provider("openai", true);
+    private final TokenProvider local = provider("openai-compatible", true);
+    private final TokenProvider ngram = provider("ngram", false);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UpstreamGuards guards = new UpstreamGuards(List.of(openai, local, ngram), config(), meterRegistry);
+
+    @Test
+    void shouldOnlyOpenTheBreakerOfTheFailingProvider() {
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(guards.protect(local, () -> Flux.error(
+                            WebClientResponseException.create(HttpStatus.BAD_GATEWAY.value(), "Bad Gateway", null, null, null))))
+                    .expectError(WebClientResponseException.class)
+                    .verify();
+        }
+
+        assertEquals(UpstreamCircuitBreaker.State.OPEN, guards.circuitBreaker("openai-compatible").state());
+        assertEquals(UpstreamCircuitBreaker.State.CLOSED, guards.circuitBreaker("openai").state());
+        StepVerifier.create(guards.protect(openai, () -> Flux.just("token"))).expectNext("token").verifyComplete();
+        assertEquals(1.0, meterRegistry.get("probescope.circuit.state").tag("provider", "openai-compatible").gauge().value());
+        assertEquals(0.0, meterRegistry.get("probescope.circuit.state").tag("provider", "openai").gauge().value());
+    }
+
+    @Test
+    void shouldCallInProcessProvidersAsTheyAre() {
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 6; i++) {
+            StepVerifier.create(guards.protect(ngram, () -> {
+                        calls.incrementAndGet();
+                        return Flux.<String>error(new IllegalStateException("boom"));
+                    }))
+                    .expectError(IllegalStateException.class)
+                    .verify();
+        }
+
+        assertEquals(6, calls.get());
+        assertNull(guards.circuitBreaker("ngram"));
+    }
+
+    private static OpenAIConfig config() {
+        OpenAIConfig config = new OpenAIConfig();
+        config.getCircuitBreaker().setMinimumCalls(4);
+        return config;
+    }
+
+    private static TokenProvider provider(String name, boolean remote) {
+        return new TokenProvider() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public String model() {
+                return name + "-model";
+            }
+
+            @Override
+            public ProviderCapabilities capabilities() {
+                return ProviderCapabilities.builder().build();
+            }
+
+            @Override
+            public boolean remote() {
+                return remote;
+            }
+
+            @Override
+            public Flux<TokenInfo> generate(OpenAILogprobsRequest request) {
+                return Flux.empty();
+            }
+        };
+    }
+}
@@ -0,0 +1,137 @@
+package dev.langchain4j.tokenflowvisualizer.service.sampling;
+
+import dev.langchain4j.tokenflowvisualizer.dto.ResampleRequest;
+import dev.langchain4j.tokenflowvisualizer.dto.ResampleResponse;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResamplingEngineTest {
+
+    // Chosen " blue" 0.5, alternatives " grey" 0.3, " clear" 0.15, " green" 0.05
+    private static final TokenInfo TOKEN = TokenInfo.builder()
+            .text(" blue")
+            .probability(0.5)
+            .alternatives(List.of(alternative(" grey", 0.3), alternative(" clear", 0.15), alternative(" green", 0.05)))
+            .build();
+
+    @Test
+    void shouldKeepTheReturnedDistributionAtTemperatureOne() {
+        ResampleResponse.Position position = resample(request(1.0, null, null));
+
+        assertEquals(List.of(" blue", " grey", " clear", " green"), texts(position));
+        assertProbabilities(position, 0.5, 0.3, 0.15, 0.05);
+    }
+
+    @Test
+    void shouldSharpenAndFlattenWithTemperature() {
+        ResampleResponse.Position cold = resample(request(0.5, null, null));
+        ResampleResponse.Position hot = resample(request(2.0, null, null));
+
+        // p^2 and p^0.5, renormalised
+        assertEquals(0.25 / (0.25 + 0.09 + 0.0225 + 0.0025), cold.getProbability(), 1e-12);
+        double hotTotal = Math.sqrt(0.5) + Math.sqrt(0.3) + Math.sqrt(0.15) + Math.sqrt(0.05);
+        assertEquals(Math.sqrt(0.5) / hotTotal, hot.getProbability(), 1e-12);
+    }
+
+    @Test
+    void shouldBeGreedyAtTemperatureZero() {
+        ResampleResponse.Position position = resample(request(0, null, null));
+
+        assertProbabilities(position, 1, 0, 0, 0);
+        assertEquals(" blue", position.getSampled());
+    }
+
+    @Test
+    void shouldApplyTopKThenTopP() {
+        assertProbabilities(resample(request(1.0, 2, null)), 0.5 / 0.8, 0.3 / 0.8, 0, 0);
+        // 0.5 + 0.3 reaches 0.75
+        assertProbabilities(resample(request(1.0, null, 0.75)), 0.5 / 0.8, 0.3 / 0.8, 0, 0);
+        assertProbabilities(resample(request(1.0, 1, 0.99)), 1, 0, 0, 0);
+        // Over the top-k survivors " blue" alone has 0.625, so the nucleus is one token
+        assertProbabilities(resample(request(1.0, 2, 0.6)), 1, 0, 0, 0);
+    }
+
+    @Test
+    void shouldReportWhenTheOriginalTokenIsFilteredOut() {
+        TokenInfo unlikely = TokenInfo.builder()
+                .text(" green")
+                .probability(0.05)
+                .alternatives(List.of(alternative(" blue", 0.5), alternative(" grey", 0.3)))
+                .build();
+        ResampleRequest request = request(1.0, 2, null);
+        request.setTokens(List.of(unlikely));
+
+        ResampleResponse response = ResamplingEngine.resample(request);
+
+        ResampleResponse.Position position = response.getPositions().getFirst();
+        assertEquals(0, position.getProbability());
+        assertTrue(position.isChanged());
+        assertEquals(1, response.getChangedPositions());
+    }
+
+    @Test
+    void shouldSampleReproduciblyAndInProportion() {
+        ResampleRequest request = request(1.0, null, null);
+        request.setTokens(IntStream.range(0, 20_000).mapToObj(i -> TOKEN).toList());
+        request.setSeed(42);
+
+        ResampleResponse first = ResamplingEngine.resample(request);
+        ResampleResponse second = ResamplingEngine.resample(request);
+
+        assertEquals(first, second);
+        long blue = first.getPositions().stream().filter(position -> !position.isChanged()).count();
+        assertEquals(0.5, blue / 20_000.0, 0.02);
+    }
+
+    @Test
+    void shouldOnlyMoveTowardsTheTopTokenWhenCooling() {
+        ResampleRequest request = request(1.0, null, null);
+        request.setTokens(IntStream.range(0, 1_000).mapToObj(i -> TOKEN).toList());
+        ResampleResponse warm = ResamplingEngine.resample(request);
+        request.setTemperature(0.3);
+        ResampleResponse cold = ResamplingEngine.resample(request);
+
+        // The same draws are reused, so no position picks a less likely token when cooling
+        for (int i = 0; i < 1_000; i++) {
+            if (!warm.getPositions().get(i).isChanged()) {
+                assertFalse(cold.getPositions().get(i).isChanged());
+            }
+        }
+    }
+
+    private static ResampleResponse.Position resample(ResampleRequest request) {
+        return ResamplingEngine.resample(request).getPositions().getFirst();
+    }
+
+    private static ResampleRequest request(double temperature, Integer topK, Double topP) {
+        ResampleRequest request = new ResampleRequest();
+        request.setTokens(List.of(TOKEN));
+        request.setTemperature(temperature);
+        request.setTopK(topK);
+        request.setTopP(topP);
+        return request;
+    }
+
+    private static List<String> texts(ResampleResponse.Position position) {
+        return position.getCandidates().stream().map(ResampleResponse.Candidate::getText).toList();
+    }
+
+    private static void assertProbabilities(ResampleResponse.Position position, double... expected) {
+        List<ResampleResponse.Candidate> candidates = position.getCandidates();
+        assertEquals(expected.length, candidates.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], candidates.get(i).getProbability(), 1e-12, candidates.get(i).getText());
+        }
+    }
+
+    private static TokenInfo.TokenAlternative alternative(String text, double probability) {
+        return TokenInfo.TokenAlternative.builder().text(text).probability(probability).build();
+    }
+}
@@ -0,0 +1,84 @@
+package dev.langchain4j.tokenflowvisualizer.service.stats;
+
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenStats;
+import dev.langchain4j.tokenflowvisualizer.dto.openai.OpenAILogprobsResponse;
+import dev.langchain4j.tokenflowvisualizer.service.LogprobsMapper;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TokenStatisticsTest {
+
+    @Test
+    void shouldScoreATokenAgainstItsAlternatives() {
+        TokenStats stats = new TokenStatistics().next(token(0.5, 0.25, 0.125));
+
+        assertEquals(Math.log(2), stats.getSurprisal(), 1e-12);
+        double entropy = 0.5 * Math.log(2) + 0.25 * Math.log(4) + 0.125 * Math.log(8);
+        assertEquals(entropy, stats.getEntropy(), 1e-12);
+        assertEquals(0.125, stats.getResidualMass(), 1e-12);
+        assertEquals(0.25, stats.getMargin(), 1e-12);
+        assertEquals(2.0, stats.getPerplexity(), 1e-12);
+    }
+
+    @Test
+    void shouldMeasureTheMarginFromTheMostLikelyCandidate() {
+        // The sampled token was not the most likely one
+        TokenStats stats = new TokenStatistics().next(token(0.2, 0.6, 0.1));
+
+        assertEquals(0.4, stats.getMargin(), 1e-12);
+    }
+
+    @Test
+    void shouldKeepARunningPerplexity() {
+        TokenStatistics statistics = new TokenStatistics();
+        statistics.next(token(0.5));
+        statistics.next(token(0.125));
+
+        // exp(mean(log 2, log 8)) = 4
+        assertEquals(4.0, statistics.next(token(0.25)).getPerplexity(), 1e-12);
+    }
+
+    @Test
+    void shouldUseTheUpstreamLogprobsWhereTheProbabilityUnderflows() {
+        OpenAILogprobsResponse.ContentLogprob content = new OpenAILogprobsResponse.ContentLogprob();
+        content.setToken(" zyzzyva");
+        content.setLogprob(-800);
+        TokenInfo token = LogprobsMapper.toTokenInfo(content);
+
+        assertEquals(0.0, token.getProbability());
+        assertEquals(800, new TokenStatistics().next(token).getSurprisal(), 1e-12);
+    }
+
+    @Test
+    void shouldPassOnTokensWithoutProbabilityAndStartEveryStreamAfresh() {
+        TokenInfo unscored = token(0);
+        assertSame(unscored, new TokenStatistics().enrich(unscored));
+        assertNull(unscored.getStats());
+
+        Flux<TokenInfo> enriched = TokenStatistics.enrich(Flux.just(token(0.5), token(0.125)));
+        for (int run = 0; run < 2; run++) {
+            StepVerifier.create(enriched.map(token -> token.getStats().getPerplexity()))
+                    .assertNext(perplexity -> assertEquals(2.0, perplexity, 1e-12))
+                    .assertNext(perplexity -> assertEquals(4.0, perplexity, 1e-12))
+                    .verifyComplete();
+        }
+    }
+
+    private static TokenInfo token(double probability, double... alternatives) {
+        return TokenInfo.builder()
+                .text("t")
+                .probability(probability)
+                .alternatives(Arrays.stream(alternatives)
+                        .mapToObj(p -> TokenInfo.TokenAlternative.builder().text("a").probability(p).build())
+                        .toList())
+                .build();
+    }
+}
@@ -0,0 +1,248 @@
+package dev.langchain4j.tokenflowvisualizer.service.tracestore;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.tokenflowvisualizer.config.TraceStoreConfig;
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TraceStoreTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private final TraceStoreConfig config = new TraceStoreConfig();
+    private final List<TraceStore> stores = new ArrayList<>();
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() {
+        config.setEnabled(true);
+        config.setDirectory(directory);
+        config.setSegmentSize(DataSize.ofKilobytes(4));
+    }
+
+    @AfterEach
+    void tearDown() {
+        stores.forEach(TraceStore::close);
+    }
+
+    @Test
+    void shouldReplayStoredFramesFromAnyToken() throws IOException {
+        TraceStore store = store();
+        String id = store.newTraceId();
+        store.append(id, tokens(5, 1_000));
+
+        try (StoredTrace trace = store.open(id)) {
+            assertEquals(5, trace.size());
+            assertEquals(1_040, trace.timestamp(4));
+            assertEquals(objectMapper.writeValueAsString(tokens(5, 1_000).get(2)) + "\n", text(trace.frame(2)));
+
+            // The frames from a position are one contiguous range of the segment file
+            ByteBuffer tail = ByteBuffer.allocate((int) trace.length(3));
+            try (FileChannel channel = FileChannel.open(trace.file())) {
+                channel.read(tail, trace.position(3));
+            }
+            assertEquals(text(trace.frame(3)) + text(trace.frame(4)), text(tail.flip()));
+            assertEquals(0, trace.length(5));
+        }
+    }
+
+    @Test
+    void shouldStoreOnlyCompletedGenerations() {
+        TraceStore store = store();
+        String completed = store.newTraceId();
+        String failed = store.newTraceId();
+
+        store.recordInto(completed, Flux.fromIterable(tokens(3, 0))).blockLast();
+        store.recordInto(failed, Flux.concat(Flux.fromIterable(tokens(3, 0)), Flux.error(new IllegalStateException())))
+                .onErrorComplete()
+                .blockLast();
+
+        // Stored before the completion reached the subscriber
+        assertNotNull(store.open(completed));
+        assertNull(store.open(failed));
+        assertNull(store.open("not-a-trace"));
+    }
+
+    @Test
+    void shouldReopenTracesAfterRestart() {
+        TraceStore store = store();
+        List<String> ids = IntStream.range(0, 20).mapToObj(i -> store.newTraceId()).toList();
+        ids.forEach(id -> store.append(id, tokens(3, 0)));
+        store.delete(ids.getFirst());
+        assertTrue(store.segmentCount() > 1);
+        store.close();
+
+        TraceStore reopened = store();
+
+        assertNull(reopened.open(ids.getFirst()));
+        for (String id : ids.subList(1, ids.size())) {
+            try (StoredTrace trace = reopened.open(id)) {
+                assertEquals(3, trace.size());
+            }
+        }
+    }
+
+    @Test
+    void shouldIgnoreATornAppend() throws IOException {
+        TraceStore store = store();
+        String id = store.newTraceId();
+        store.append(id, tokens(2, 0));
+        Path segment;
+        int end;
+        try (StoredTrace trace = store.open(id)) {
+            segment = trace.file();
+            end = (int) (trace.position(0) + trace.length(0));
+        }
+        // A record whose body was written but not its magic
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).putInt(0).putInt(100).flip(), end);
+        }
+        store.close();
+
+        TraceStore reopened = store();
+        String next = reopened.newTraceId();
+        reopened.append(next, tokens(1, 0));
+
+        try (StoredTrace trace = reopened.open(next)) {
+            // Appended over the torn record
+            assertTrue(trace.position(0) < end + 100);
+            assertTrue(text(trace.frame(0)).contains("token0"));
+        }
+        assertNotNull(reopened.open(id));
+    }
+
+    @Test
+    void shouldCompactSegmentsOfMostlyDeletedTraces() {
+        TraceStore store = store();
+        List<String> ids = IntStream.range(0, 8).mapToObj(i -> store.newTraceId()).toList();
+        ids.forEach(id -> store.append(id, tokens(3, 0)));
+        ids.subList(0, 6).forEach(store::delete);
+        long before = store.sizeInBytes();
+
+        store.roll();
+
+        assertTrue(store.sizeInBytes() < before);
+        assertEquals(1, store.segmentCount());
+        for (String id : ids.subList(6, 8)) {
+            try (StoredTrace trace = store.open(id)) {
+                assertEquals(3, trace.size());
+            }
+        }
+    }
+
+    @Test
+    void shouldKeepACompactedSegmentUntilItsReadersAreDone() {
+        TraceStore store = store();
+        String kept = store.newTraceId();
+        List<String> deleted = List.of(store.newTraceId(), store.newTraceId());
+        store.append(kept, tokens(3, 0));
+        deleted.forEach(id -> store.append(id, tokens(3, 0)));
+        StoredTrace reader = store.open(kept);
+        Path file = reader.file();
+        deleted.forEach(store::delete);
+        store.roll();
+        store.delete(kept);
+
+        assertTrue(Files.exists(file));
+        assertEquals(3, reader.size());
+        assertTrue(text(reader.frame(2)).contains("token2"));
+        reader.close();
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void shouldDropSegmentsPastRetention() {
+        config.setRetention(Duration.ofHours(1));
+        TraceStore store = store();
+        String old = store.newTraceId();
+        store.append(old, tokens(3, 0));
+        store.roll();
+        clock.addAndGet(Duration.ofHours(2).toMillis());
+        String recent = store.newTraceId();
+        store.append(recent, tokens(3, 0));
+
+        store.roll();
+
+        assertNull(store.open(old));
+        assertNotNull(store.open(recent));
+    }
+
+    @Test
+    void shouldDropAnIdleActiveSegmentPastRetentionOnSchedule() throws InterruptedException {
+        config.setRetention(Duration.ofHours(1));
+        config.setMaintenanceInterval(Duration.ofMillis(20));
+        TraceStore store = store();
+        String old = store.newTraceId();
+        store.append(old, tokens(3, 0));
+        clock.addAndGet(Duration.ofHours(2).toMillis());
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (store.sizeInBytes() > 0) {
+            assertTrue(System.nanoTime() < deadline, "Segment was not dropped");
+            Thread.sleep(10);
+        }
+        assertNull(store.open(old));
+        assertEquals(1, store.segmentCount());
+    }
+
+    @Test
+    void shouldRefuseADirectoryHeldByAnotherStore() {
+        TraceStore store = store();
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, this::store);
+        assertTrue(error.getMessage().contains(directory.toString()));
+
+        store.close();
+        assertNotNull(store());
+    }
+
+    private TraceStore store() {
+        TraceStore store = new TraceStore(config, objectMapper, new SimpleMeterRegistry(), clock::get);
+        stores.add(store);
+        return store;
+    }
+
+    private static List<TokenInfo> tokens(int count, long start) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> TokenInfo.builder()
+                        .text("token" + i)
+                        .probability(0.5)
+                        .alternatives(List.of(TokenInfo.TokenAlternative.builder().text("alt").probability(0.25).build()))
+                        .timestamp(start + 10L * i)
+                        .build())
+                .toList();
+    }
+
+    private static String text(ByteBuffer buffer) {
+        return StandardCharsets.UTF_8.decode(buffer.duplicate()).toString();
+    }
+}
@@ -0,0 +1,95 @@
+package dev.langchain4j.tokenflowvisualizer.trace;
+
+import dev.langchain4j.tokenflowvisualizer.dto.TokenInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenTraceTest {
+
+    @Test
+    void shouldRoundTripTokens() {
+        List<TokenInfo> tokens = List.of(
+                token("The", 0.5, 1_000, alternative("A", 0.25), alternative("This", 0.125)),
+                token(" café", 0.75, 1_020, alternative(" naïve", 0.2)),
+                token(" 日本 🎉", 0.9, 1_050));
+
+        TokenTrace trace = TokenTrace.of(tokens);
+
+        assertEquals(3, trace.size());
+        assertEquals(2, trace.stride());
+        assertEquals(1, trace.alternativeCount(1));
+        assertEquals(0, trace.alternativeCount(2));
+        for (int i = 0; i < tokens.size(); i++) {
+            assertTokenEquals(tokens.get(i), trace.get(i));
+        }
+        assertEquals(tokens.size(), trace.asList().size());
+        assertTokenEquals(tokens.get(1), trace.asList().get(1));
+    }
+
+    @Test
+    void shouldRejectAlternativesBeyondTokenCount() {
+        TokenTrace trace = TokenTrace.of(List.of(
+                token("a", 0.5, 0, alternative("b", 0.5), alternative("c", 0.1)),
+                token("d", 0.5, 0, alternative("e", 0.5))));
+
+        assertEquals("e", trace.alternativeText(1, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> trace.alternativeText(1, 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> trace.get(2));
+    }
+
+    @Test
+    void shouldHandleEmptyGeneration() {
+        TokenTrace trace = TokenTrace.of(List.of());
+
+        assertEquals(0, trace.size());
+        assertTrue(trace.asList().isEmpty());
+    }
+
+    @Test
+    void shouldBeFarSmallerThanTokenObjects() {
+        List<TokenInfo> tokens = IntStream.range(0, 1_000)
+                .mapToObj(i -> token(" tok" + i, 0.5, i * 20L,
+                        alternative(" alt" + i, 0.2), alternative(" bet" + i, 0.1),
+                        alternative(" cat" + i, 0.05), alternative(" dog" + i, 0.02)))
+                .toList();
+
+        TokenTrace trace = TokenTrace.of(tokens);
+
+        // As objects, a token with four alternatives is a dozen allocations and several
+        // hundred bytes; as a trace it is its share of five flat arrays.
+        assertTrue(trace.bytesPerToken() < 80, "bytes per token: " + trace.bytesPerToken());
+    }
+
+    private static void assertTokenEquals(TokenInfo expected, TokenInfo actual) {
+        assertEquals(expected.getText(), actual.getText());
+        assertEquals(expected.getProbability(), actual.getProbability(), 1e-6);
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getAlternatives().size(), actual.getAlternatives().size());
+        for (int j = 0; j < expected.getAlternatives().size(); j++) {
+            assertEquals(expected.getAlternatives().get(j).getText(), actual.getAlternatives().get(j).getText());
+            assertEquals(expected.getAlternatives().get(j).getProbability(),
+                    actual.getAlternatives().get(j).getProbability(), 1e-6);
+        }
+    }
+
+    private static TokenInfo token(String text, double probability, long timestamp,
+                                   TokenInfo.TokenAlternative... alternatives) {
+        return TokenInfo.builder()
+                .text(text)
+                .probability(probability)
+                .timestamp(timestamp)
+                .alternatives(new ArrayList<>(List.of(alternatives)))
+                .build();
+    }
+
+    private static TokenInfo.TokenAlternative alternative(String text, double probability) {
+        return TokenInfo.TokenAlternative.builder().text(text).probability(probability).build();
+    }
+}